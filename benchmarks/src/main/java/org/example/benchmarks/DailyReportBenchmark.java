@@ -0,0 +1,52 @@
+package org.example.benchmarks;
+
+import org.example.tracker.db.InMemoryHamsterTrackerRepository;
+import org.example.tracker.domain.DailyReport;
+import org.example.tracker.domain.DefoltReportGenerator;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * DefoltReportGenerator.generateDailyReport на 1k, 100k и 1M хомяков с раундами.
+ * fromRepository — снимок раундов из репозитория и отчёт (как в /tracker/reports), fromRounds — только отчёт
+ * по уже закрытым суткам (как при смене суток).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+@State(Scope.Benchmark)
+public class DailyReportBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    public int hamsters;
+
+    DefoltReportGenerator generator;
+    Map<String, Integer> rounds;
+    LocalDate date;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        InMemoryHamsterTrackerRepository repository = new InMemoryHamsterTrackerRepository();
+        for (int i = 0; i < hamsters; i++) {
+            repository.addRounds("hamster-" + i, 1 + i % 50);
+        }
+        generator = new DefoltReportGenerator(repository);
+        rounds = repository.getAllRoundsSnapshot();
+        date = LocalDate.now();
+    }
+
+    @Benchmark
+    public DailyReport fromRepository() {
+        return generator.generateDailyReport();
+    }
+
+    @Benchmark
+    public DailyReport fromRounds() {
+        return generator.generateDailyReport(date, rounds);
+    }
+}
@@ -0,0 +1,48 @@
+package org.example.benchmarks;
+
+import org.example.eventsimulator.domain.EventGenerator;
+import org.openjdk.jmh.annotations.*;
+import reactor.core.publisher.Flux;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Пропускная способность EventGenerator без секундного тика: операция — TICKS проходов по всем датчикам.
+ * Счётчик events — сколько событий сгенерировано в секунду (событие дают не все датчики на каждом тике).
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class EventGeneratorBenchmark {
+
+    private static final int TICKS = 10;
+    private static final int HAMSTERS = 1_000;
+
+    @Param({"1000", "10000"})
+    public int sensors;
+
+    EventGenerator generator;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        generator = new EventGenerator();
+    }
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Counters {
+        public long events;
+    }
+
+    @Benchmark
+    public long generate(Counters counters) {
+        Long count = generator.stream(HAMSTERS, sensors, Flux.range(0, TICKS).map(Integer::longValue))
+                .count()
+                .block();
+        counters.events += count;
+        return count;
+    }
+}
@@ -0,0 +1,50 @@
+package org.example.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import org.example.tracker.domain.eventDto.*;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+//Полиморфный разбор HamsterEvent из JSON по полю type — так приходят события REST, батчей и WebSocket.
+//ObjectMapper собирается как у Spring Boot в трекере: DTO без конструктора по умолчанию читаются через parameter names
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class EventJsonBenchmark {
+
+    @Param({"HamsterEnter", "HamsterExit", "WheelSpin", "SensorFailure"})
+    public String eventType;
+
+    ObjectReader reader;
+    byte[] json;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        ObjectMapper mapper = Jackson2ObjectMapperBuilder.json().build();
+        reader = mapper.readerFor(HamsterEvent.class);
+        HamsterEvent event = switch (eventType) {
+            case "HamsterEnter" -> new HamsterEnter("hamster-42", "wheel-17");
+            case "HamsterExit" -> new HamsterExit("hamster-42", "wheel-17");
+            case "WheelSpin" -> new WheelSpin("wheel-17", 12_000);
+            case "SensorFailure" -> new SensorFailure("sensor-17", 503);
+            default -> throw new IllegalArgumentException("Unknown event type: " + eventType);
+        };
+        // как шлёт симулятор: со временем, источником и номером
+        event.setTimestamp(1_700_000_000_123L);
+        event.setSourceId("sensor-17");
+        event.setSeq(1_700_000_000_000L);
+        json = mapper.writerFor(HamsterEvent.class).writeValueAsBytes(event);
+    }
+
+    @Benchmark
+    public HamsterEvent deserialize() throws IOException {
+        return reader.readValue(json);
+    }
+}
@@ -0,0 +1,73 @@
+package org.example.benchmarks;
+
+import org.example.tracker.db.InMemoryHamsterTrackerRepository;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Операции InMemoryHamsterTrackerRepository на 4 потоках по хэндлам, как их вызывает сервис.
+ * contended=true — все потоки пишут в одного хомяка и одно колесо, false — у каждого потока свои.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class RepositoryBenchmark {
+
+    @Param({"false", "true"})
+    public boolean contended;
+
+    InMemoryHamsterTrackerRepository repository;
+    int day;
+    final AtomicInteger threads = new AtomicInteger();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        repository = new InMemoryHamsterTrackerRepository();
+        day = repository.currentDay();
+    }
+
+    @State(Scope.Thread)
+    public static class Keys {
+        int hamster;
+        int wheel;
+        Instant now;
+
+        @Setup(Level.Trial)
+        public void setUp(RepositoryBenchmark benchmark) {
+            int t = benchmark.contended ? 0 : benchmark.threads.getAndIncrement();
+            hamster = benchmark.repository.ids().hamsters().intern("hamster-" + t);
+            wheel = benchmark.repository.ids().wheels().intern("wheel-" + t);
+            benchmark.repository.setOccupant(wheel, hamster);
+            now = Instant.now();
+        }
+    }
+
+    @Benchmark
+    public int addRounds(Keys keys) {
+        return repository.addRounds(keys.hamster, day, 1);
+    }
+
+    @Benchmark
+    public int getRounds(Keys keys) {
+        return repository.getRounds(keys.hamster, day);
+    }
+
+    @Benchmark
+    public void updateLastActivity(Keys keys) {
+        repository.updateLastActivity(keys.hamster, keys.now);
+    }
+
+    //Вход: запись занятости и чтение обратно, как при крутке сразу после входа
+    @Benchmark
+    public int setAndGetOccupant(Keys keys) {
+        repository.setOccupant(keys.wheel, keys.hamster);
+        return repository.getOccupant(keys.wheel);
+    }
+}
@@ -0,0 +1,96 @@
+package org.example.benchmarks;
+
+import org.example.tracker.db.InMemoryHamsterTrackerRepository;
+import org.example.tracker.domain.AlertDispatcher;
+import org.example.tracker.domain.DefoltReportGenerator;
+import org.example.tracker.domain.HamsterTrackerService;
+import org.example.tracker.domain.eventDto.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * HamsterTrackerService.accept по типам событий на 1, 4 и всех потоках. Как в ShardedEventProcessor,
+ * у каждого потока свои колёса, хомяки и датчики; общие — сервис, репозиторий и словари id.
+ * Сервис без слушателей (журнал, свёртки, лента) — меряется только обработка события и репозиторий.
+ * <p>
+ * Установившиеся пути: вход каждый раз меняет хомяка в колесе, крутка зачитывает 2 круга хомяку в колесе,
+ * выход после первого прохода застаёт колесо пустым (проверка занятости и отметка активности),
+ * отказ — повторный отказ уже лежащего датчика.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TrackerServiceBenchmark {
+
+    private static final int KEYS_PER_THREAD = 1024; // степень двойки: индекс по маске
+
+    @Param({"HamsterEnter", "HamsterExit", "WheelSpin", "SensorFailure"})
+    public String eventType;
+
+    HamsterTrackerService service;
+    final AtomicInteger threads = new AtomicInteger();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        InMemoryHamsterTrackerRepository repository = new InMemoryHamsterTrackerRepository();
+        service = new HamsterTrackerService(repository, AlertDispatcher.direct(message -> { }),
+                new DefoltReportGenerator(repository), List.of(), 0);
+    }
+
+    @State(Scope.Thread)
+    public static class Events {
+        HamsterEvent[] events;
+        int next;
+
+        @Setup(Level.Trial)
+        public void setUp(TrackerServiceBenchmark benchmark) {
+            int t = benchmark.threads.getAndIncrement();
+            events = new HamsterEvent[KEYS_PER_THREAD];
+            for (int i = 0; i < KEYS_PER_THREAD; i++) {
+                String hamster = "hamster-" + t + "-" + i;
+                String wheel = "wheel-" + t + "-" + i;
+                events[i] = switch (benchmark.eventType) {
+                    // 16 хомяков по очереди на колесо: каждый вход меняет занятость
+                    case "HamsterEnter" -> new HamsterEnter(hamster, "wheel-" + t + "-" + (i & 63));
+                    case "HamsterExit" -> new HamsterExit(hamster, wheel);
+                    case "WheelSpin" -> new WheelSpin(wheel, 12_000);
+                    case "SensorFailure" -> new SensorFailure("sensor-" + t + "-" + i, 500);
+                    default -> throw new IllegalArgumentException("Unknown event type: " + benchmark.eventType);
+                };
+                if (!benchmark.eventType.equals("HamsterEnter")) {
+                    benchmark.service.accept(new HamsterEnter(hamster, wheel));
+                }
+            }
+        }
+
+        HamsterEvent next() {
+            HamsterEvent event = events[next];
+            next = (next + 1) & (KEYS_PER_THREAD - 1);
+            return event;
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public boolean accept_1thread(Events events) {
+        return service.accept(events.next());
+    }
+
+    @Benchmark
+    @Threads(4)
+    public boolean accept_4threads(Events events) {
+        return service.accept(events.next());
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public boolean accept_maxThreads(Events events) {
+        return service.accept(events.next());
+    }
+}
@@ -1,10 +1,13 @@
 package org.example.eventsimulator;
 
+import org.example.eventsimulator.codec.BinaryEventEncoder;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.web.reactive.function.client.ExchangeStrategies;
 import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.socket.client.ReactorNettyWebSocketClient;
+import org.springframework.web.reactive.socket.client.WebSocketClient;
 
 @Configuration
 public class WebClientConfig {
@@ -13,8 +16,16 @@ public class WebClientConfig {
         return WebClient.builder()
                 .baseUrl(base)
                 .exchangeStrategies(ExchangeStrategies.builder()
-                        .codecs(c -> c.defaultCodecs().maxInMemorySize(1 * 1024 * 1024))
+                        .codecs(c -> {
+                            c.defaultCodecs().maxInMemorySize(1 * 1024 * 1024);
+                            c.customCodecs().register(new BinaryEventEncoder()); // wire-format=binary
+                        })
                         .build())
                 .build();
     }
+
+    @Bean
+    WebSocketClient webSocketClient() {
+        return new ReactorNettyWebSocketClient();
+    }
 }
@@ -3,7 +3,9 @@ package org.example.eventsimulator.api;
 import jakarta.validation.Valid;
 import lombok.extern.slf4j.Slf4j;
 import org.example.eventsimulator.eventDto.SimulatorConfig;
+import org.example.eventsimulator.domain.LoadTest;
 import org.example.eventsimulator.domain.SimulatorService;
+import org.example.eventsimulator.eventDto.LoadTestReport;
 import org.example.eventsimulator.eventDto.HamsterEvent;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -14,8 +16,10 @@ import reactor.core.publisher.Mono;
 @Slf4j
 public class HamsterEventController {
     private final SimulatorService simulatorService;
-    public HamsterEventController(SimulatorService simulatorService) {
+    private final LoadTest loadTest;
+    public HamsterEventController(SimulatorService simulatorService, LoadTest loadTest) {
         this.simulatorService = simulatorService;
+        this.loadTest = loadTest;
     }
 
     @PostMapping("/config")
@@ -24,6 +28,13 @@ public class HamsterEventController {
         return Mono.just(ResponseEntity.ok("Hamster configuration updated"));
     }
 
+    //    - GET /simulator/load-test — отчёт нагрузочного теста: текущий во время прогона, итоговый после.
+    @GetMapping("/load-test")
+    public Mono<ResponseEntity<LoadTestReport>> loadTestReport() {
+        LoadTestReport report = loadTest.report();
+        return Mono.just(report == null ? ResponseEntity.notFound().build() : ResponseEntity.ok(report));
+    }
+
     //    - POST /simulator/events — отправляет одно событие HamsterEvent.
     @PostMapping("/events")
     public Mono<ResponseEntity<HamsterEvent>> receivedEvent(@RequestBody Mono<HamsterEvent> body) {
@@ -0,0 +1,44 @@
+package org.example.eventsimulator.codec;
+
+import org.example.eventsimulator.eventDto.HamsterEvent;
+import org.reactivestreams.Publisher;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.codec.Encoder;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.util.MimeType;
+import reactor.core.publisher.Flux;
+
+import java.util.List;
+import java.util.Map;
+
+//Кодирует события в application/x-hamster-event: каждый элемент — отдельный кадр с префиксом длины
+public class BinaryEventEncoder implements Encoder<HamsterEvent> {
+
+    private static final List<MimeType> MIME_TYPES = List.of(HamsterEventBinaryCodec.MEDIA_TYPE);
+
+    @Override
+    public boolean canEncode(ResolvableType elementType, MimeType mimeType) {
+        return mimeType != null
+                && HamsterEventBinaryCodec.MEDIA_TYPE.isCompatibleWith(mimeType)
+                && HamsterEvent.class.isAssignableFrom(elementType.toClass());
+    }
+
+    @Override
+    public Flux<DataBuffer> encode(Publisher<? extends HamsterEvent> inputStream, DataBufferFactory bufferFactory,
+                                   ResolvableType elementType, MimeType mimeType, Map<String, Object> hints) {
+        return Flux.from(inputStream)
+                .map(event -> encodeValue(event, bufferFactory, elementType, mimeType, hints));
+    }
+
+    @Override
+    public DataBuffer encodeValue(HamsterEvent value, DataBufferFactory bufferFactory,
+                                  ResolvableType valueType, MimeType mimeType, Map<String, Object> hints) {
+        return bufferFactory.wrap(HamsterEventBinaryCodec.encodeFrame(value));
+    }
+
+    @Override
+    public List<MimeType> getEncodableMimeTypes() {
+        return MIME_TYPES;
+    }
+}
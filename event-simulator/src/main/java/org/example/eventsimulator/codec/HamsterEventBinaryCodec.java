@@ -0,0 +1,242 @@
+package org.example.eventsimulator.codec;
+
+import org.example.eventsimulator.eventDto.*;
+import org.springframework.http.MediaType;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Компактный бинарный формат событий.
+ * Кадр: varint длины + тело. Тело: байт-тег типа, затем поля:
+ * строки — varint (длина + 1, 0 = null) и UTF-8, числа — zigzag varint.
+ * Старшие биты тега — флаги: FLAG_TIMESTAMP — сразу за тегом идёт varint времени события (мс от эпохи),
+ * FLAG_SEQUENCE — дальше строка источника и varint его номера последовательности.
+ */
+public final class HamsterEventBinaryCodec {
+
+    public static final String MEDIA_TYPE_VALUE = "application/x-hamster-event";
+    public static final MediaType MEDIA_TYPE = MediaType.parseMediaType(MEDIA_TYPE_VALUE);
+
+    public static final int MAX_FRAME_LENGTH = 64 * 1024;
+
+    static final byte TAG_ENTER = 1;
+    static final byte TAG_EXIT = 2;
+    static final byte TAG_SPIN = 3;
+    static final byte TAG_FAILURE = 4;
+
+    static final int TYPE_MASK = 0x0F;
+    static final int FLAG_TIMESTAMP = 0x10;
+    static final int FLAG_SEQUENCE = 0x20;
+
+    private HamsterEventBinaryCodec() {
+    }
+
+    //Тело события без префикса длины
+    public static byte[] encode(HamsterEvent event) {
+        Writer w = new Writer(32);
+        writePayload(event, w);
+        return w.toByteArray();
+    }
+
+    //Кадр: varint длины + тело
+    public static byte[] encodeFrame(HamsterEvent event) {
+        Writer payload = new Writer(32);
+        writePayload(event, payload);
+        Writer frame = new Writer(payload.size + 5);
+        frame.varint(payload.size);
+        frame.bytes(payload.buf, payload.size);
+        return frame.toByteArray();
+    }
+
+    //Разбирает тело события; буфер должен содержать ровно одно тело
+    public static HamsterEvent decode(ByteBuffer payload) {
+        try {
+            int tag = payload.get() & 0xFF;
+            int flags = tag & ~TYPE_MASK;
+            if ((flags & ~(FLAG_TIMESTAMP | FLAG_SEQUENCE)) != 0) {
+                throw new IllegalArgumentException("Unknown event flags: 0x" + Integer.toHexString(flags));
+            }
+            Long timestamp = (flags & FLAG_TIMESTAMP) != 0 ? readVarlong(payload) : null;
+            String sourceId = null;
+            Long seq = null;
+            if ((flags & FLAG_SEQUENCE) != 0) {
+                sourceId = readString(payload);
+                seq = readVarlong(payload);
+            }
+            HamsterEvent event = switch (tag & TYPE_MASK) {
+                case TAG_ENTER -> new HamsterEnter(readString(payload), readString(payload));
+                case TAG_EXIT -> new HamsterExit(readString(payload), readString(payload));
+                case TAG_SPIN -> new WheelSpin(readString(payload), zigzagDecode(readVarlong(payload)));
+                case TAG_FAILURE -> new SensorFailure(readString(payload), (int) zigzagDecode(readVarlong(payload)));
+                default -> throw new IllegalArgumentException("Unknown event tag: " + tag);
+            };
+            event.setTimestamp(timestamp);
+            event.setSourceId(sourceId);
+            event.setSeq(seq);
+            if (payload.hasRemaining()) {
+                throw new IllegalArgumentException("Trailing bytes after event: " + payload.remaining());
+            }
+            return event;
+        } catch (BufferUnderflowException ex) {
+            throw new IllegalArgumentException("Truncated event payload", ex);
+        }
+    }
+
+    public static HamsterEvent decode(byte[] payload) {
+        return decode(ByteBuffer.wrap(payload));
+    }
+
+    /**
+     * Читает длину кадра с текущей позиции.
+     * Возвращает -1, если varint ещё не пришёл целиком (позиция не сдвигается).
+     */
+    public static int readFrameLength(ByteBuffer in) {
+        int start = in.position();
+        int result = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            if (!in.hasRemaining()) {
+                in.position(start);
+                return -1;
+            }
+            byte b = in.get();
+            result |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                if (result < 0 || result > MAX_FRAME_LENGTH) {
+                    throw new IllegalArgumentException("Frame length out of range: " + result);
+                }
+                return result;
+            }
+        }
+        throw new IllegalArgumentException("Malformed frame length");
+    }
+
+    private static void writePayload(HamsterEvent event, Writer w) {
+        switch (event) {
+            case HamsterEnter e -> {
+                w.tag(TAG_ENTER, event);
+                w.string(e.getHamsterId());
+                w.string(e.getWheelId());
+            }
+            case HamsterExit e -> {
+                w.tag(TAG_EXIT, event);
+                w.string(e.getHamsterId());
+                w.string(e.getWheelId());
+            }
+            case WheelSpin e -> {
+                w.tag(TAG_SPIN, event);
+                w.string(e.getWheelId());
+                w.varlong(zigzagEncode(e.getDurationMs()));
+            }
+            case SensorFailure e -> {
+                w.tag(TAG_FAILURE, event);
+                w.string(e.getSensorId());
+                w.varlong(zigzagEncode(e.getErrorCode()));
+            }
+            default -> throw new IllegalArgumentException("Unsupported event type: " + event.getClass().getName());
+        }
+    }
+
+    private static String readString(ByteBuffer in) {
+        long len = readVarlong(in);
+        if (len == 0) return null;
+        int bytes = (int) (len - 1);
+        if (len < 0 || len - 1 > in.remaining()) { // 10-байтный varint может дать отрицательную длину
+            throw new IllegalArgumentException("String length out of range: " + (len - 1));
+        }
+        String s;
+        if (in.hasArray()) {
+            s = new String(in.array(), in.arrayOffset() + in.position(), bytes, StandardCharsets.UTF_8);
+            in.position(in.position() + bytes);
+        } else {
+            byte[] tmp = new byte[bytes];
+            in.get(tmp);
+            s = new String(tmp, StandardCharsets.UTF_8);
+        }
+        return s;
+    }
+
+    private static long readVarlong(ByteBuffer in) {
+        long result = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.get();
+            result |= (long) (b & 0x7F) << shift;
+            if (b >= 0) return result;
+        }
+        throw new IllegalArgumentException("Malformed varint");
+    }
+
+    private static long zigzagEncode(long v) {
+        return (v << 1) ^ (v >> 63);
+    }
+
+    private static long zigzagDecode(long v) {
+        return (v >>> 1) ^ -(v & 1);
+    }
+
+    //Растущий байтовый буфер без лишних обёрток
+    private static final class Writer {
+        byte[] buf;
+        int size;
+
+        Writer(int capacity) {
+            this.buf = new byte[capacity];
+        }
+
+        //Тег с флагами и необязательные поля заголовка: время, источник и номер (номер без источника не пишется)
+        void tag(byte tag, HamsterEvent event) {
+            Long timestamp = event.getTimestamp();
+            boolean sequenced = event.getSeq() != null && event.getSourceId() != null;
+            ensure(1);
+            buf[size++] = (byte) (tag | (timestamp != null ? FLAG_TIMESTAMP : 0) | (sequenced ? FLAG_SEQUENCE : 0));
+            if (timestamp != null) {
+                varlong(timestamp);
+            }
+            if (sequenced) {
+                string(event.getSourceId());
+                varlong(event.getSeq());
+            }
+        }
+
+        void varint(int v) {
+            varlong(v & 0xFFFFFFFFL);
+        }
+
+        void varlong(long v) {
+            ensure(10);
+            while ((v & ~0x7FL) != 0) {
+                buf[size++] = (byte) ((v & 0x7F) | 0x80);
+                v >>>= 7;
+            }
+            buf[size++] = (byte) v;
+        }
+
+        void string(String s) {
+            if (s == null) {
+                varlong(0);
+                return;
+            }
+            byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+            varlong(bytes.length + 1L);
+            bytes(bytes, bytes.length);
+        }
+
+        void bytes(byte[] src, int len) {
+            ensure(len);
+            System.arraycopy(src, 0, buf, size, len);
+            size += len;
+        }
+
+        byte[] toByteArray() {
+            return size == buf.length ? buf : Arrays.copyOf(buf, size);
+        }
+
+        private void ensure(int extra) {
+            if (size + extra > buf.length) {
+                buf = Arrays.copyOf(buf, Math.max(buf.length * 2, size + extra));
+            }
+        }
+    }
+}
@@ -19,6 +19,11 @@ public class EventGenerator {
      * Верхняя граница: sensorCount событий в секунду (например, 10_000 датчиков → 10_000 эвентов/с).
      */
     public Flux<HamsterEvent> stream(int hamsterCount, int sensorCount) {
+        return stream(hamsterCount, sensorCount, Flux.interval(TICK_PERIOD).onBackpressureDrop());
+    }
+
+    //Тот же поток по внешним тикам: каждый тик — один проход по датчикам (бенчмарки гонят тики без ожидания)
+    public Flux<HamsterEvent> stream(int hamsterCount, int sensorCount, Flux<Long> ticks) {
         if (hamsterCount < 1 || hamsterCount > 10_000) {
             throw new IllegalArgumentException("hamsterCount must be в [1..10000]");
         }
@@ -36,12 +41,10 @@ public class EventGenerator {
             sensors[i] = new SensorState("sensor-" + (i + 1), "wheel-" + (i + 1), "hamster-" + hamsterId);
         }
 
-        // Запускаем генерацию — тик каждые 1 сек
-        return Flux.interval(TICK_PERIOD)
-                .onBackpressureDrop()
+        return ticks
                 .flatMap(tick -> Flux
                                 .range(0, sensors.length)
-                                .mapNotNull(i -> maybeEventForSensor(sensors[i], pEnterExit, pFailure)),
+                                .mapNotNull(i -> stamped(sensors[i], maybeEventForSensor(sensors[i], pEnterExit, pFailure))),
                         Runtime.getRuntime().availableProcessors()
                 );
     }
@@ -51,6 +54,17 @@ public class EventGenerator {
         return 1.0 - Math.pow(1.0 - perMinute, seconds / 60.0);
     }
 
+    //Время события ставится при генерации: трекер считает по нему, даже если отправка задержалась в батче.
+    //Номер следующий у датчика: повтор отправки трекер узнает по нему и не зачтёт второй раз
+    private static HamsterEvent stamped(SensorState s, HamsterEvent event) {
+        if (event != null) {
+            event.setTimestamp(System.currentTimeMillis());
+            event.setSourceId(s.sensorId);
+            event.setSeq(++s.seq);
+        }
+        return event;
+    }
+
     private HamsterEvent maybeEventForSensor(SensorState s, double pEnterExit, double pFailure) {
         ThreadLocalRandom rnd = ThreadLocalRandom.current();
 
@@ -61,6 +75,10 @@ public class EventGenerator {
             return new SensorFailure(s.sensorId, 500 + rnd.nextInt(0, 10));
         }
         if (s.failed) {
+            // неисправный датчик молчит failureTicks тиков, потом снова работает
+            if (--s.failureTicks <= 0) {
+                s.failed = false;
+            }
             return null;
         }
 
@@ -98,6 +116,9 @@ public class EventGenerator {
 
         boolean inWheel = false;
         int spinCooldown = 0;
+        //Начало с времени запуска в мс: датчик шлёт не больше события в секунду, поэтому после перезапуска
+        //симулятора номера продолжают расти, и трекер не примет новые события за повторы старых
+        long seq = System.currentTimeMillis();
 
         SensorState(String sensorId, String wheelId, String hamsterId) {
             this.sensorId = sensorId;
@@ -0,0 +1,25 @@
+package org.example.eventsimulator.domain;
+
+import org.example.eventsimulator.eventDto.*;
+
+//Ключ маршрутизации события: колесо для событий колеса, датчик для отказов
+final class EventKeys {
+
+    private EventKeys() {
+    }
+
+    static String routingKey(HamsterEvent event) {
+        return switch (event) {
+            case HamsterEnter e -> e.getWheelId();
+            case HamsterExit e -> e.getWheelId();
+            case WheelSpin e -> e.getWheelId();
+            case SensorFailure e -> e.getSensorId();
+            default -> "";
+        };
+    }
+
+    //Номер соединения: события одного колеса всегда идут по одному соединению и не переупорядочиваются
+    static int connectionFor(HamsterEvent event, int connections) {
+        return Math.floorMod(routingKey(event).hashCode(), connections);
+    }
+}
@@ -0,0 +1,66 @@
+package org.example.eventsimulator.domain;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
+//Кольцо консистентного хэширования узлов трекера — та же функция и те же виртуальные узлы, что в трекере
+final class HashRing {
+
+    private final List<String> nodes;
+    private final long[] points;
+    private final int[] owners;
+
+    HashRing(List<String> nodes, int virtualNodes) {
+        if (nodes.isEmpty()) {
+            throw new IllegalArgumentException("Hash ring needs at least one node");
+        }
+        if (virtualNodes < 1) {
+            throw new IllegalArgumentException("tracker-virtual-nodes must be >= 1: " + virtualNodes);
+        }
+        if (new HashSet<>(nodes).size() != nodes.size()) {
+            throw new IllegalArgumentException("Duplicate nodes in hash ring: " + nodes);
+        }
+        this.nodes = List.copyOf(nodes);
+        int n = nodes.size() * virtualNodes;
+        long[][] sorted = new long[n][];
+        for (int node = 0; node < nodes.size(); node++) {
+            for (int v = 0; v < virtualNodes; v++) {
+                sorted[node * virtualNodes + v] = new long[]{hash(nodes.get(node) + "#" + v), node};
+            }
+        }
+        Arrays.sort(sorted, (a, b) -> a[0] != b[0] ? Long.compare(a[0], b[0]) : Long.compare(a[1], b[1]));
+        this.points = new long[n];
+        this.owners = new int[n];
+        for (int i = 0; i < n; i++) {
+            points[i] = sorted[i][0];
+            owners[i] = (int) sorted[i][1];
+        }
+    }
+
+    List<String> nodes() {
+        return nodes;
+    }
+
+    int ownerIndex(String key) {
+        int i = Arrays.binarySearch(points, hash(key == null ? "" : key));
+        if (i < 0) i = -i - 1;
+        return owners[i == points.length ? 0 : i]; // за последней точкой кольцо замыкается
+    }
+
+    //FNV-1a по UTF-8 и финальное перемешивание MurmurHash3
+    static long hash(String key) {
+        long h = 0xcbf29ce484222325L;
+        for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+            h ^= b & 0xff;
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
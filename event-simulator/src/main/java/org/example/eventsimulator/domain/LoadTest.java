@@ -0,0 +1,325 @@
+package org.example.eventsimulator.domain;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.example.eventsimulator.eventDto.*;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Нагрузочный тест трекера с открытой моделью нагрузки: события уходят по расписанию с целевым темпом
+ * (load-test.rate событий в секунду), по одному HTTP-запросу на событие, независимо от того, успевает ли трекер.
+ * <p>
+ * Задержка запроса считается от запланированного момента отправки, а не от фактического, — так исправляется
+ * coordinated omission: если трекер тормозит и отправитель отстаёт от расписания (упёрся в load-test.max-in-flight),
+ * время ожидания в очереди попадает в задержку, а не теряется. Задержки пишутся в HdrHistogram по типам событий
+ * вместе с исходами: успех, ошибка (в том числе 429), таймаут. Задержка считается для всех исходов — отказ
+ * тоже ответ, который кто-то ждал. Повторов нет: каждый повтор спрятал бы отказ трекера.
+ * <p>
+ * Раз в load-test.report-interval-s в лог пишутся достигнутый темп против целевого и p50/p99/p99.9/max за интервал;
+ * текущий отчёт отдаёт GET /simulator/load-test. Первые load-test.warmup-s секунд — прогрев, в отчёт не входят.
+ * В конце прогона отчёт пишется в load-test.report-file (JSON), чтобы сравнивать сборки трекера.
+ */
+@Slf4j
+@Component
+public class LoadTest {
+    //Задержки в микросекундах, три значащие цифры
+    private static final int SIGNIFICANT_DIGITS = 3;
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+
+    private final TrackerNodes nodes;
+    private final EventGenerator generator;
+    private final ObjectMapper objectMapper;
+    private final ConfigurableApplicationContext context;
+    private final boolean enabled;
+    private final double rate;
+    private final long durationS;
+    private final long warmupS;
+    private final long intervalS;
+    private final int maxInFlight;
+    private final Duration timeout;
+    private final Path reportFile;
+    private final boolean exitOnFinish;
+    private final String wireFormat;
+    private final MediaType wireMediaType;
+    private final int hamsterCount;
+    private final int sensorCount;
+    @Value("${tracker-events-path}")
+    private String eventsPath;
+
+    //Счётчики по типам событий; набор типов фиксирован, порядок — для отчёта
+    private final Map<String, TypeStats> byType = new LinkedHashMap<>();
+    private final LongAdder sent = new LongAdder();
+    private final List<LoadTestInterval> intervals = new ArrayList<>();
+    private volatile boolean running;
+    private volatile LoadTestReport report;
+    private Instant startedAt;
+    private long measureFrom;
+    private long lastIntervalAt;
+
+    public LoadTest(TrackerNodes nodes, EventGenerator generator, ObjectMapper objectMapper,
+                    ConfigurableApplicationContext context,
+                    @Value("${load-test.enabled:false}") boolean enabled,
+                    @Value("${load-test.rate:1000}") double rate,
+                    @Value("${load-test.duration-s:60}") long durationS,
+                    @Value("${load-test.warmup-s:10}") long warmupS,
+                    @Value("${load-test.report-interval-s:5}") long intervalS,
+                    @Value("${load-test.max-in-flight:2048}") int maxInFlight,
+                    @Value("${load-test.timeout-ms:3000}") long timeoutMs,
+                    @Value("${load-test.report-file:load-test-report.json}") String reportFile,
+                    @Value("${load-test.exit-on-finish:false}") boolean exitOnFinish,
+                    @Value("${wire-format:json}") String wireFormat,
+                    @Value("${hamster-count}") int hamsterCount,
+                    @Value("${sensor-count}") int sensorCount) {
+        if (rate <= 0 || durationS < 1 || warmupS < 0 || intervalS < 1 || maxInFlight < 1 || timeoutMs < 1) {
+            throw new IllegalArgumentException("load-test: rate, duration-s, report-interval-s, max-in-flight and timeout-ms must be positive, warmup-s >= 0");
+        }
+        this.nodes = nodes;
+        this.generator = generator;
+        this.objectMapper = objectMapper;
+        this.context = context;
+        this.enabled = enabled;
+        this.rate = rate;
+        this.durationS = durationS;
+        this.warmupS = warmupS;
+        this.intervalS = intervalS;
+        this.maxInFlight = maxInFlight;
+        this.timeout = Duration.ofMillis(timeoutMs);
+        this.reportFile = Path.of(reportFile);
+        this.exitOnFinish = exitOnFinish;
+        this.wireFormat = wireFormat;
+        this.wireMediaType = SimulatorService.wireMediaType(wireFormat);
+        this.hamsterCount = hamsterCount;
+        this.sensorCount = sensorCount;
+        for (Class<?> type : List.of(WheelSpin.class, HamsterEnter.class, HamsterExit.class, SensorFailure.class)) {
+            byType.put(type.getSimpleName(), new TypeStats());
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void startIfEnabled() {
+        if (!enabled) return;
+        running = true;
+        Thread thread = new Thread(this::run, "load-test");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+    }
+
+    //Текущий отчёт: во время прогона — по закрытым интервалам; null — тест не запускался
+    public LoadTestReport report() {
+        return report;
+    }
+
+    private void run() {
+        log.info("Load test started: target {} events/s for {} s after {} s warm-up, nodes={}, wireFormat={}, maxInFlight={}",
+                rate, durationS, warmupS, nodes.nodes(), wireFormat, maxInFlight);
+        // тики без ожидания: генератор отдаёт события по запросу, темп задаёт расписание ниже
+        Flux<Long> ticks = Flux.generate(() -> 0L, (tick, sink) -> {
+            sink.next(tick);
+            return tick + 1;
+        });
+        Iterator<HamsterEvent> events = generator.stream(hamsterCount, sensorCount, ticks).toIterable().iterator();
+        Semaphore inFlight = new Semaphore(maxInFlight);
+        ScheduledExecutorService reporter = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "load-test-report");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        startedAt = Instant.now();
+        long periodNs = Math.max(1, Math.round(NANOS_PER_SECOND / rate));
+        long start = System.nanoTime();
+        measureFrom = start + warmupS * NANOS_PER_SECOND;
+        lastIntervalAt = start;
+        long end = measureFrom + durationS * NANOS_PER_SECOND;
+        // прогрев сбрасывается, дальше интервалы; всё на одном потоке, поэтому по очереди
+        reporter.schedule(() -> closeInterval(false), warmupS, TimeUnit.SECONDS);
+        reporter.scheduleAtFixedRate(() -> closeInterval(true), warmupS + intervalS, intervalS, TimeUnit.SECONDS);
+
+        for (long i = 0; running; i++) {
+            long intended = start + i * periodNs;
+            if (intended >= end) break;
+            long wait = intended - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            // отстали от расписания — шлём без паузы, задержка всё равно от intended
+            HamsterEvent event = events.next();
+            inFlight.acquireUninterruptibly();
+            sent.increment();
+            send(event, intended, inFlight);
+        }
+
+        try {
+            if (!inFlight.tryAcquire(maxInFlight, timeout.toMillis() + 1_000, TimeUnit.MILLISECONDS)) {
+                log.warn("Load test finished with {} requests still in flight", maxInFlight - inFlight.availablePermits());
+            }
+            reporter.shutdown();
+            reporter.awaitTermination(intervalS, TimeUnit.SECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        closeInterval(true);
+        finish();
+    }
+
+    private void send(HamsterEvent event, long intended, Semaphore inFlight) {
+        TypeStats stats = byType.get(event.getClass().getSimpleName());
+        nodes.client(nodes.ownerOf(event)).post()
+                .uri(eventsPath)
+                .contentType(wireMediaType)
+                .bodyValue(event)
+                .retrieve()
+                .toBodilessEntity()
+                .timeout(timeout)
+                .subscribe(
+                        response -> {
+                            stats.complete(intended, stats.ok);
+                            inFlight.release();
+                        },
+                        ex -> {
+                            stats.complete(intended, ex instanceof TimeoutException ? stats.timeouts : stats.errors);
+                            inFlight.release();
+                        });
+    }
+
+    //Закрывает интервал: переносит его задержки и исходы в итог; measured=false — прогрев, всё отбрасывается
+    private void closeInterval(boolean measured) {
+        long now = System.nanoTime();
+        double seconds = (now - lastIntervalAt) / (double) NANOS_PER_SECOND;
+        lastIntervalAt = now;
+        Histogram latency = new Histogram(SIGNIFICANT_DIGITS);
+        long ok = 0, errors = 0, timeouts = 0;
+        for (TypeStats stats : byType.values()) {
+            Histogram interval = stats.latency.getIntervalHistogram();
+            long typeOk = stats.ok.sumThenReset();
+            long typeErrors = stats.errors.sumThenReset();
+            long typeTimeouts = stats.timeouts.sumThenReset();
+            if (measured) {
+                stats.total.add(interval);
+                stats.totalOk += typeOk;
+                stats.totalErrors += typeErrors;
+                stats.totalTimeouts += typeTimeouts;
+                latency.add(interval);
+                ok += typeOk;
+                errors += typeErrors;
+                timeouts += typeTimeouts;
+            }
+        }
+        long sentCount = sent.sumThenReset();
+        // хвост после последнего тика короче интервала и почти пуст — в итог он входит, в ряд нет
+        if (!measured || seconds < intervalS / 2.0) {
+            report = snapshot("running");
+            return;
+        }
+        LoadTestInterval interval = new LoadTestInterval((now - measureFrom) / (double) NANOS_PER_SECOND,
+                rate, sentCount / seconds, (ok + errors + timeouts) / seconds, summary(latency, ok, errors, timeouts));
+        intervals.add(interval);
+        report = snapshot("running");
+        LatencySummary l = interval.latency();
+        log.info("Load test {}s: target {}/s, sent {}/s, completed {}/s, ok={} errors={} timeouts={}, latency ms p50={} p99={} p99.9={} max={}",
+                Math.round(interval.elapsedS()), Math.round(rate), Math.round(interval.sentRate()), Math.round(interval.completedRate()),
+                ok, errors, timeouts, l.p50Ms(), l.p99Ms(), l.p999Ms(), l.maxMs());
+    }
+
+    private void finish() {
+        report = snapshot("finished");
+        LatencySummary total = report.total();
+        log.info("Load test finished: target {}/s, achieved {}/s, ok={} errors={} timeouts={}, latency ms p50={} p99={} p99.9={} max={}",
+                Math.round(rate), Math.round(report.achievedRate()), total.ok(), total.errors(), total.timeouts(),
+                total.p50Ms(), total.p99Ms(), total.p999Ms(), total.maxMs());
+        report.byType().forEach((type, l) ->
+                log.info("  {}: ok={} errors={} timeouts={}, latency ms p50={} p99={} p99.9={} max={}",
+                        type, l.ok(), l.errors(), l.timeouts(), l.p50Ms(), l.p99Ms(), l.p999Ms(), l.maxMs()));
+        try {
+            objectMapper.writerWithDefaultPrettyPrinter().writeValue(reportFile.toFile(), report);
+            log.info("Load test report written to {}", reportFile.toAbsolutePath());
+        } catch (IOException ex) {
+            log.error("Failed to write load test report to {}", reportFile, ex);
+        }
+        if (exitOnFinish && running) {
+            System.exit(SpringApplication.exit(context));
+        }
+    }
+
+    private LoadTestReport snapshot(String status) {
+        Histogram all = new Histogram(SIGNIFICANT_DIGITS);
+        long ok = 0, errors = 0, timeouts = 0;
+        Map<String, LatencySummary> types = new LinkedHashMap<>();
+        for (Map.Entry<String, TypeStats> e : byType.entrySet()) {
+            TypeStats stats = e.getValue();
+            all.add(stats.total);
+            ok += stats.totalOk;
+            errors += stats.totalErrors;
+            timeouts += stats.totalTimeouts;
+            types.put(e.getKey(), summary(stats.total, stats.totalOk, stats.totalErrors, stats.totalTimeouts));
+        }
+        double measuredS = Math.max(0, (lastIntervalAt - measureFrom) / (double) NANOS_PER_SECOND);
+        double achieved = measuredS > 0 ? (ok + errors + timeouts) / measuredS : 0;
+        return new LoadTestReport(status, startedAt.toString(), nodes.nodes(), wireFormat, hamsterCount, sensorCount,
+                rate, durationS, warmupS, achieved, summary(all, ok, errors, timeouts), types, List.copyOf(intervals));
+    }
+
+    private static LatencySummary summary(Histogram latency, long ok, long errors, long timeouts) {
+        return new LatencySummary(ok, errors, timeouts,
+                ms(latency.getMean()),
+                ms(latency.getValueAtPercentile(50)),
+                ms(latency.getValueAtPercentile(90)),
+                ms(latency.getValueAtPercentile(99)),
+                ms(latency.getValueAtPercentile(99.9)),
+                ms(latency.getMaxValue()));
+    }
+
+    //Микросекунды гистограммы в миллисекунды с точностью до сотых
+    private static double ms(double micros) {
+        return Math.round(micros / 10.0) / 100.0;
+    }
+
+    //Задержки и исходы одного типа событий: интервальные пишут потоки ответов, итоговые — только поток отчёта
+    private static final class TypeStats {
+        final Recorder latency = new Recorder(SIGNIFICANT_DIGITS);
+        final LongAdder ok = new LongAdder();
+        final LongAdder errors = new LongAdder();
+        final LongAdder timeouts = new LongAdder();
+        final Histogram total = new Histogram(SIGNIFICANT_DIGITS);
+        long totalOk;
+        long totalErrors;
+        long totalTimeouts;
+
+        void complete(long intended, LongAdder outcome) {
+            latency.recordValue(Math.max(0, (System.nanoTime() - intended) / 1_000));
+            outcome.increment();
+        }
+    }
+}
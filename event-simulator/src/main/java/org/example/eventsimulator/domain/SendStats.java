@@ -0,0 +1,36 @@
+package org.example.eventsimulator.domain;
+
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+//Счётчики отправки, общие для всех транспортов
+@Component
+public class SendStats {
+    private final AtomicLong events = new AtomicLong();
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+
+    //Один запрос/сообщение, унёсший eventCount событий
+    public void recordSent(int eventCount) {
+        requests.incrementAndGet();
+        events.addAndGet(eventCount);
+    }
+
+    //События, которые так и не ушли: запрос не удался и после повторов
+    public void recordFailed(int eventCount) {
+        failed.addAndGet(eventCount);
+    }
+
+    public long drainEvents() {
+        return events.getAndSet(0);
+    }
+
+    public long drainRequests() {
+        return requests.getAndSet(0);
+    }
+
+    public long drainFailed() {
+        return failed.getAndSet(0);
+    }
+}
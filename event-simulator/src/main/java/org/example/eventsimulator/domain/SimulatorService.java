@@ -2,72 +2,224 @@ package org.example.eventsimulator.domain;
 
 import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
+import org.example.eventsimulator.codec.HamsterEventBinaryCodec;
+import org.example.eventsimulator.eventDto.BatchResult;
 import org.example.eventsimulator.eventDto.HamsterEvent;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
-import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
 import reactor.core.Disposable;
+import reactor.core.Disposables;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
 
 import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 
 
 @Slf4j
 @Service
 public class SimulatorService {
-    private final WebClient client;
+    private final TrackerNodes nodes;
     private final EventGenerator generator;
+    private final WebSocketEventSender webSocketSender;
+    private final TcpEventSender tcpSender;
+    private final SpinAggregator spinAggregator;
+    private final SendStats stats;
     @Value("${tracker-events-path}")
     private String eventsPath;
+    @Value("${tracker-batch-path}")
+    private String batchPath;
+    //0 или 1 — батчинг выключен, каждое событие уходит отдельным запросом
+    @Value("${batch-size:0}")
+    private int batchSize;
+    @Value("${batch-max-wait-ms:50}")
+    private long batchMaxWaitMs;
+    private final MediaType wireMediaType;
+    private final String transport;
     private volatile int hamsterCount;
     private volatile int sensorCount;
+    //В режиме нагрузочного теста события шлёт LoadTest, постоянный поток не запускается
+    @Value("${load-test.enabled:false}")
+    private boolean loadTest;
     private final AtomicReference<Disposable> subscriptionRef = new AtomicReference<>();
     private static final int DEFAULT_PARALLELISM = 512;
+    private static final int BATCH_PARALLELISM = 16;
     private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(3);
+    private static final Duration STATS_PERIOD = Duration.ofSeconds(10);
+    private static final Duration DEFAULT_RETRY_AFTER = Duration.ofSeconds(1);
+    private static final int MAX_RETRIES = 3;
+    private static final Duration RETRY_BACKOFF = Duration.ofMillis(200);
 
-    public SimulatorService(WebClient client, EventGenerator generator,
+    //До этого момента (epoch ms) новые запросы ждут — трекер попросил паузу через Retry-After
+    private final AtomicLong pausedUntilMs = new AtomicLong();
+
+    public SimulatorService(TrackerNodes nodes, EventGenerator generator,
+                            WebSocketEventSender webSocketSender, TcpEventSender tcpSender,
+                            SpinAggregator spinAggregator, SendStats stats,
                             @Value("${hamster-count}") int hamsterCount,
-                            @Value("${sensor-count}") int sensorCount) {
-        this.client = client;
+                            @Value("${sensor-count}") int sensorCount,
+                            @Value("${wire-format:json}") String wireFormat,
+                            @Value("${transport:http}") String transport) {
+        this.nodes = nodes;
         this.generator = generator;
+        this.webSocketSender = webSocketSender;
+        this.tcpSender = tcpSender;
+        this.spinAggregator = spinAggregator;
+        this.stats = stats;
         this.hamsterCount = hamsterCount;
         this.sensorCount = sensorCount;
+        this.wireMediaType = wireMediaType(wireFormat);
+        this.transport = transport;
+        if (!transport.equals("http") && !transport.equals("ws") && !transport.equals("tcp")) {
+            throw new IllegalArgumentException("transport must be http, ws or tcp: " + transport);
+        }
+        if (transport.equals("tcp") && nodes.size() > 1) {
+            throw new IllegalArgumentException("transport=tcp supports a single tracker node, got tracker-nodes=" + nodes.nodes());
+        }
     }
 
-    //Отправляет одно событие
+    static MediaType wireMediaType(String wireFormat) {
+        return switch (wireFormat) {
+            case "json" -> MediaType.APPLICATION_JSON;
+            case "binary" -> HamsterEventBinaryCodec.MEDIA_TYPE;
+            default -> throw new IllegalArgumentException("wire-format must be json or binary: " + wireFormat);
+        };
+    }
+
+    //Отправляет одно событие узлу-владельцу; на 429 и временные ошибки повторяет (см. retries)
     public Mono<Void> sendEvent(HamsterEvent event) {
-        return client.post()
-                .uri(eventsPath)
-                .bodyValue(event)
-                .retrieve()
-                .toBodilessEntity()
-                .timeout(REQUEST_TIMEOUT)                // чтобы не повиснуть навсегда
-                .doOnSuccess(r -> log.debug("Event sent: {}", event.getClass().getSimpleName()))
-                .doOnError(ex -> log.warn("Event send failed: {}", ex.toString()))
+        return Mono.defer(this::awaitRetryAfter)
+                .then(nodes.client(nodes.ownerOf(event)).post()
+                        .uri(eventsPath)
+                        .contentType(wireMediaType)
+                        .bodyValue(event)
+                        .retrieve()
+                        .toBodilessEntity()
+                        .timeout(REQUEST_TIMEOUT))        // чтобы не повиснуть навсегда
+                .retryWhen(retries())
+                .doOnSuccess(r -> {
+                    stats.recordSent(1);
+                    log.debug("Event sent: {}", event.getClass().getSimpleName());
+                })
+                .doOnError(ex -> {
+                    stats.recordFailed(1);
+                    log.warn("Event send failed: {}", ex.toString());
+                })
                 .onErrorResume(ex -> Mono.empty())       // не валим общий поток
                 .then();
     }
 
+    /**
+     * Отправляет батч одним запросом узлу node: NDJSON или поток бинарных кадров.
+     * На 429 часть батча уже принята, а какие именно события отклонены — неизвестно, поэтому батч
+     * повторяется целиком после Retry-After: принятые в прошлый раз трекер отбросит по номерам.
+     */
+    public Mono<Void> sendBatch(int node, List<HamsterEvent> batch) {
+        MediaType batchType = wireMediaType.equals(MediaType.APPLICATION_JSON) ? MediaType.APPLICATION_NDJSON : wireMediaType;
+        return Mono.defer(this::awaitRetryAfter)
+                .then(nodes.client(node).post()
+                        .uri(batchPath)
+                        .contentType(batchType)
+                        .body(Flux.fromIterable(batch), HamsterEvent.class)
+                        .retrieve()
+                        .bodyToMono(BatchResult.class)
+                        .timeout(REQUEST_TIMEOUT))
+                .retryWhen(retries())
+                .doOnSuccess(r -> {
+                    stats.recordSent(batch.size());
+                    if (r != null && r.shed() > 0) {
+                        log.debug("Batch partially shed: accepted={} shed={}", r.accepted(), r.shed());
+                    }
+                })
+                .doOnError(ex -> {
+                    stats.recordFailed(batch.size());
+                    log.warn("Batch send failed ({} events): {}", batch.size(), ex.toString());
+                })
+                .onErrorResume(ex -> Mono.empty())
+                .then();
+    }
+
+    /**
+     * Повтор отправки: на 429 — после Retry-After, на сетевую ошибку, таймаут или 5xx — с растущей паузой,
+     * не больше MAX_RETRIES раз подряд. Повтор безопасен: события несут номер последовательности датчика,
+     * и то, что трекер уже принял, он отбросит как повтор, а не зачтёт второй раз.
+     */
+    private Retry retries() {
+        return Retry.from(signals -> signals.concatMap(signal -> {
+            Throwable failure = signal.failure();
+            long attempt = signal.totalRetriesInARow();
+            if (attempt >= MAX_RETRIES) {
+                return Mono.error(failure);
+            }
+            if (failure instanceof WebClientResponseException.TooManyRequests tooMany) {
+                Duration pause = pauseFor(tooMany);
+                log.debug("Tracker saturated, retrying in {} ms", pause.toMillis());
+                return Mono.delay(pause);
+            }
+            if (isTransient(failure)) {
+                return Mono.delay(RETRY_BACKOFF.multipliedBy(1L << attempt));
+            }
+            return Mono.error(failure);
+        }));
+    }
+
+    private static boolean isTransient(Throwable failure) {
+        return failure instanceof WebClientRequestException
+                || failure instanceof TimeoutException
+                || failure instanceof WebClientResponseException response && response.getStatusCode().is5xxServerError();
+    }
+
+    private Mono<Void> awaitRetryAfter() {
+        long waitMs = pausedUntilMs.get() - System.currentTimeMillis();
+        return waitMs > 0 ? Mono.delay(Duration.ofMillis(waitMs)).then() : Mono.empty();
+    }
+
+    //Запоминает паузу из Retry-After (в секундах) для всех последующих отправок
+    private Duration pauseFor(WebClientResponseException tooMany) {
+        Duration pause = DEFAULT_RETRY_AFTER;
+        String header = tooMany.getHeaders().getFirst(HttpHeaders.RETRY_AFTER);
+        if (header != null) {
+            try {
+                pause = Duration.ofSeconds(Long.parseLong(header.trim()));
+            } catch (NumberFormatException ignored) {
+                // HTTP-дата вместо секунд — трекер так не отвечает, берём паузу по умолчанию
+            }
+        }
+        long until = System.currentTimeMillis() + pause.toMillis();
+        pausedUntilMs.accumulateAndGet(until, Math::max);
+        return pause;
+    }
+
     //Запуск генератора
     @PostConstruct
     public synchronized void start() {
         stop(); // гасим старую подписку, если была
+        if (loadTest) {
+            log.info("Load test mode: continuous streaming is off");
+            return;
+        }
         int parallelism = DEFAULT_PARALLELISM;
 
         Flux<HamsterEvent> events = generator.stream(hamsterCount, sensorCount); // <= 10k ev/s
 
         Disposable sub = sendStream(events, parallelism)
-                .doOnSubscribe(s -> log.info("Streaming started: hamsters={}, sensors={}, parallelism={}",
-                        hamsterCount, sensorCount, parallelism))
+                .doOnSubscribe(s -> log.info("Streaming started: hamsters={}, sensors={}, transport={}, parallelism={}, batchSize={}, spinAggregation={}",
+                        hamsterCount, sensorCount, transport, parallelism, batchSize, spinAggregator.enabled()))
                 .doOnTerminate(() -> log.info("Streaming stopped"))
                 .subscribe(
                         null,
                         ex -> log.error("Stream terminated with error", ex)
                 );
 
-        subscriptionRef.set(sub);
+        subscriptionRef.set(Disposables.composite(sub, reportThroughput()));
     }
 
     public synchronized void applyConfig(int newHamsters, int newSensors) {
@@ -76,13 +228,49 @@ public class SimulatorService {
         start(); // перезапуск с новыми параметрами
     }
 
-    public Mono<Void> sendStream(Flux<HamsterEvent> events, int parallelism) {
+    public Mono<Void> sendStream(Flux<HamsterEvent> source, int parallelism) {
+        Flux<HamsterEvent> events = spinAggregator.aggregate(source); // без окна агрегации — поток как есть
+        if (transport.equals("ws")) {
+            return webSocketSender.send(events, wireMediaType);
+        }
+        if (transport.equals("tcp")) {
+            return tcpSender.send(events); // только бинарный формат
+        }
+        if (batchSize > 1) {
+            // батчи собираются по узлам-владельцам; режем поток по размеру или по времени — что наступит раньше
+            return events
+                    .groupBy(nodes::ownerOf)
+                    .flatMap(node -> node
+                            .bufferTimeout(batchSize, Duration.ofMillis(batchMaxWaitMs))
+                            .flatMap(batch -> sendBatch(node.key(), batch), BATCH_PARALLELISM), nodes.size())
+                    .then();
+        }
         int prefetch = parallelism * 2;
         return events
                 .flatMap(this::sendEvent, parallelism, prefetch)
                 .then();
     }
 
+    //Раз в STATS_PERIOD пишет в лог пропускную способность: событий и запросов в секунду
+    private Disposable reportThroughput() {
+        double seconds = STATS_PERIOD.toMillis() / 1000.0;
+        return Flux.interval(STATS_PERIOD)
+                .subscribe(tick -> {
+                    long events = stats.drainEvents();
+                    long requests = stats.drainRequests();
+                    long failed = stats.drainFailed();
+                    log.info("Throughput: {} events/s, {} requests/s, {} failed events/s",
+                            Math.round(events / seconds), Math.round(requests / seconds), Math.round(failed / seconds));
+                    if (spinAggregator.enabled()) {
+                        long in = spinAggregator.drainSpinsIn();
+                        long out = spinAggregator.drainSpinsOut();
+                        log.info("Spin aggregation: {} spins/s in, {} spins/s out (x{})",
+                                Math.round(in / seconds), Math.round(out / seconds),
+                                out == 0 ? "-" : String.format("%.2f", (double) in / out));
+                    }
+                });
+    }
+
     public synchronized void stop() {
         Disposable old = subscriptionRef.getAndSet(null);
         if (old != null && !old.isDisposed()) {
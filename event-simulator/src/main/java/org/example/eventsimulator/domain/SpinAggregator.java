@@ -0,0 +1,193 @@
+package org.example.eventsimulator.domain;
+
+import org.example.eventsimulator.eventDto.*;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Предагрегация круток перед отправкой: подряд идущие крутки одного колеса за окно сливаются в одну.
+ * <p>
+ * Трекер зачитывает за крутку {@code durationMs / ROUND_MS} целых кругов, остаток теряется. Поэтому
+ * сливаются не длительности, а уже отброшенные до целых кругов: слитая крутка несёт сумму
+ * {@code floor(d / ROUND_MS) * ROUND_MS} и даёт трекеру ровно те же круги. Если целых кругов нет,
+ * уходит одна короткая крутка — трекеру важен сам факт активности. Время и номер последовательности
+ * слитой крутки — от последней: пропущенные номера слитых трекеру не мешают.
+ * <p>
+ * Вход и выход по колесу сбрасывают его окно перед собой, смена суток по времени события — тоже:
+ * круги не переезжают в чужие сутки и не достаются другому хомяку. Отказ датчика проходит без сброса —
+ * трекер разводит его по ключу датчика, не колеса, и порядок относительно круток не держит и так.
+ */
+@Component
+public class SpinAggregator {
+    //Как у трекера: один круг — 5 секунд кручения
+    static final long ROUND_MS = 5_000L;
+
+    private final long windowMs;
+    private final ZoneId zone = ZoneId.systemDefault();
+    private final AtomicLong spinsIn = new AtomicLong();
+    private final AtomicLong spinsOut = new AtomicLong();
+
+    public SpinAggregator(@Value("${spin-aggregation-window-ms:0}") long windowMs) {
+        if (windowMs < 0) {
+            throw new IllegalArgumentException("spin-aggregation-window-ms must be >= 0: " + windowMs);
+        }
+        this.windowMs = windowMs;
+    }
+
+    public boolean enabled() {
+        return windowMs > 0;
+    }
+
+    //Поток с предагрегированными крутками; при выключенной агрегации — тот же поток
+    public Flux<HamsterEvent> aggregate(Flux<HamsterEvent> events) {
+        if (!enabled()) {
+            return events;
+        }
+        Duration tick = Duration.ofMillis(Math.max(1, windowMs / 2));
+        return Flux.defer(() -> {
+            Windows windows = new Windows();
+            return events.publish(source -> Flux.merge(
+                    source.concatMapIterable(windows::accept)
+                            .concatWith(Flux.defer(() -> Flux.fromIterable(windows.drainAll()))),
+                    Flux.interval(tick)
+                            .concatMapIterable(t -> windows.drainDue(System.currentTimeMillis()))
+                            .takeUntilOther(source.then())));
+        });
+    }
+
+    //Сколько круток пришло и сколько ушло после слияния, со сбросом
+    public long drainSpinsIn() {
+        return spinsIn.getAndSet(0);
+    }
+
+    public long drainSpinsOut() {
+        return spinsOut.getAndSet(0);
+    }
+
+    //Открытые окна по колёсам; поток событий и таймер сбрасывают их под одной блокировкой
+    private final class Windows {
+        private final Map<String, Pending> pending = new HashMap<>();
+
+        synchronized List<HamsterEvent> accept(HamsterEvent event) {
+            List<HamsterEvent> out = new ArrayList<>(2);
+            switch (event) {
+                case WheelSpin spin -> {
+                    spinsIn.incrementAndGet();
+                    long at = timeOf(spin);
+                    Pending window = pending.get(spin.getWheelId());
+                    if (window != null && !window.day.equals(dayOf(at))) {
+                        out.add(flush(pending.remove(spin.getWheelId())));
+                        window = null;
+                    }
+                    if (window == null) {
+                        pending.put(spin.getWheelId(), new Pending(spin, at, dayOf(at)));
+                    } else {
+                        window.add(spin, at);
+                    }
+                    return out;
+                }
+                case HamsterEnter e -> flushWheel(e.getWheelId(), out);
+                case HamsterExit e -> flushWheel(e.getWheelId(), out);
+                default -> {
+                }
+            }
+            out.add(event);
+            return out;
+        }
+
+        synchronized List<HamsterEvent> drainDue(long now) {
+            List<HamsterEvent> out = new ArrayList<>();
+            for (Iterator<Pending> it = pending.values().iterator(); it.hasNext(); ) {
+                Pending window = it.next();
+                if (now - window.openedAt >= windowMs) {
+                    out.add(flush(window));
+                    it.remove();
+                }
+            }
+            return out;
+        }
+
+        synchronized List<HamsterEvent> drainAll() {
+            List<HamsterEvent> out = new ArrayList<>(pending.size());
+            pending.values().forEach(window -> out.add(flush(window)));
+            pending.clear();
+            return out;
+        }
+
+        private void flushWheel(String wheelId, List<HamsterEvent> out) {
+            Pending window = pending.remove(wheelId);
+            if (window != null) {
+                out.add(flush(window));
+            }
+        }
+    }
+
+    private WheelSpin flush(Pending window) {
+        spinsOut.incrementAndGet();
+        if (window.count == 1) {
+            return window.first;
+        }
+        WheelSpin merged = new WheelSpin(window.first.getWheelId(),
+                window.creditedMs > 0 ? window.creditedMs : window.shortMs);
+        merged.setTimestamp(window.lastAt);
+        merged.setSourceId(window.first.getSourceId());
+        merged.setSeq(window.lastSeq);
+        return merged;
+    }
+
+    private static long timeOf(HamsterEvent event) {
+        return event.getTimestamp() != null ? event.getTimestamp() : System.currentTimeMillis();
+    }
+
+    private LocalDate dayOf(long at) {
+        return Instant.ofEpochMilli(at).atZone(zone).toLocalDate();
+    }
+
+    //Окно одного колеса: первая крутка как есть (если слить нечего) и сумма зачитываемых миллисекунд
+    private static final class Pending {
+        final WheelSpin first;
+        final long openedAt = System.currentTimeMillis();
+        final LocalDate day;
+        int count = 1;
+        long creditedMs;
+        long shortMs;
+        long lastAt;
+        Long lastSeq;
+
+        Pending(WheelSpin spin, long at, LocalDate day) {
+            this.first = spin;
+            this.day = day;
+            this.lastAt = at;
+            this.lastSeq = spin.getSeq();
+            credit(spin);
+        }
+
+        void add(WheelSpin spin, long at) {
+            count++;
+            lastAt = Math.max(lastAt, at);
+            if (spin.getSeq() != null && (lastSeq == null || spin.getSeq() > lastSeq)) {
+                lastSeq = spin.getSeq();
+            }
+            credit(spin);
+        }
+
+        private void credit(WheelSpin spin) {
+            long ms = spin.getDurationMs();
+            if (ms <= 0) return; // трекер такие крутки не зачитывает
+            creditedMs += ms / ROUND_MS * ROUND_MS;
+            if (ms < ROUND_MS) shortMs = ms;
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package org.example.eventsimulator.domain;
+
+import io.netty.buffer.Unpooled;
+import lombok.extern.slf4j.Slf4j;
+import org.example.eventsimulator.codec.HamsterEventBinaryCodec;
+import org.example.eventsimulator.eventDto.HamsterEvent;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.tcp.TcpClient;
+
+//Транспорт для TCP-листенера трекера: кадры бинарного формата без HTTP, несколько соединений
+@Slf4j
+@Component
+public class TcpEventSender {
+    private final SendStats stats;
+    private final String host;
+    private final int port;
+    private final int connections;
+
+    public TcpEventSender(SendStats stats,
+                          @Value("${tracker-tcp-host:localhost}") String host,
+                          @Value("${tracker-tcp-port:9090}") int port,
+                          @Value("${tcp-connections:4}") int connections) {
+        this.stats = stats;
+        this.host = host;
+        this.port = port;
+        this.connections = connections;
+    }
+
+    public Mono<Void> send(Flux<HamsterEvent> events) {
+        return events
+                .groupBy(event -> EventKeys.connectionFor(event, connections))
+                .flatMap(rail -> sendOver(rail.key(), rail), connections)
+                .then();
+    }
+
+    private Mono<Void> sendOver(int connection, Flux<HamsterEvent> rail) {
+        return TcpClient.create()
+                .host(host)
+                .port(port)
+                .connect()
+                .flatMap(conn -> {
+                    log.info("TCP connection {} opened to {}:{}", connection, host, port);
+                    return conn.outbound()
+                            .send(rail.map(event -> {
+                                stats.recordSent(1);
+                                return Unpooled.wrappedBuffer(HamsterEventBinaryCodec.encodeFrame(event));
+                            }))
+                            .then()
+                            .doFinally(s -> conn.dispose());
+                })
+                .doOnError(ex -> log.warn("TCP connection {} failed: {}", connection, ex.toString()))
+                .onErrorResume(ex -> Mono.empty()); // остальные соединения продолжают работу
+    }
+}
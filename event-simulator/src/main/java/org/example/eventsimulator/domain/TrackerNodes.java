@@ -0,0 +1,63 @@
+package org.example.eventsimulator.domain;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example.eventsimulator.eventDto.HamsterEvent;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Узлы трекера и владелец каждого события. Список узлов и число виртуальных узлов должны совпадать
+ * с tracker.cluster.* трекера — тогда событие сразу уходит владельцу колеса и не пересылается между узлами.
+ * Без tracker-nodes узел один — tracker-base-url.
+ */
+@Slf4j
+@Component
+public class TrackerNodes {
+    private final HashRing ring;
+    private final WebClient[] clients;
+
+    public TrackerNodes(WebClient client,
+                        @Value("${tracker-base-url}") String baseUrl,
+                        @Value("${tracker-nodes:}") String nodes,
+                        @Value("${tracker-virtual-nodes:128}") int virtualNodes) {
+        List<String> members = Arrays.stream(nodes.split(","))
+                .map(TrackerNodes::normalize)
+                .filter(s -> !s.isEmpty())
+                .toList();
+        this.ring = new HashRing(members.isEmpty() ? List.of(normalize(baseUrl)) : members, virtualNodes);
+        this.clients = new WebClient[ring.nodes().size()];
+        for (int i = 0; i < clients.length; i++) {
+            // один узел — общий клиент как есть, иначе копия с базовым адресом узла
+            clients[i] = members.isEmpty() ? client : client.mutate().baseUrl(ring.nodes().get(i)).build();
+        }
+        if (clients.length > 1) {
+            log.info("Routing events over {} tracker nodes: {}", clients.length, ring.nodes());
+        }
+    }
+
+    public List<String> nodes() {
+        return ring.nodes();
+    }
+
+    public int size() {
+        return clients.length;
+    }
+
+    //Номер узла-владельца события
+    public int ownerOf(HamsterEvent event) {
+        return clients.length == 1 ? 0 : ring.ownerIndex(EventKeys.routingKey(event));
+    }
+
+    public WebClient client(int node) {
+        return clients[node];
+    }
+
+    private static String normalize(String node) {
+        String trimmed = node.trim();
+        return trimmed.endsWith("/") ? trimmed.substring(0, trimmed.length() - 1) : trimmed;
+    }
+}
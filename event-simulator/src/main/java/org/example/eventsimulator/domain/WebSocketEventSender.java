@@ -0,0 +1,83 @@
+package org.example.eventsimulator.domain;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.example.eventsimulator.codec.HamsterEventBinaryCodec;
+import org.example.eventsimulator.eventDto.HamsterEvent;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.socket.WebSocketMessage;
+import org.springframework.web.reactive.socket.WebSocketSession;
+import org.springframework.web.reactive.socket.client.WebSocketClient;
+import org.springframework.web.util.UriComponentsBuilder;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+
+//Транспорт через долгоживущие WebSocket-соединения: поток событий делится на несколько соединений к каждому узлу трекера
+@Slf4j
+@Component
+public class WebSocketEventSender {
+    private final WebSocketClient client;
+    private final ObjectMapper objectMapper;
+    private final SendStats stats;
+    private final TrackerNodes nodes;
+    private final URI[] uris;
+    private final int connections;
+
+    public WebSocketEventSender(WebSocketClient client, ObjectMapper objectMapper, SendStats stats, TrackerNodes nodes,
+                                @Value("${tracker-ws-path}") String wsPath,
+                                @Value("${ws-connections:4}") int connections) {
+        this.client = client;
+        this.objectMapper = objectMapper;
+        this.stats = stats;
+        this.nodes = nodes;
+        this.uris = nodes.nodes().stream().map(node -> wsUri(node, wsPath)).toArray(URI[]::new);
+        this.connections = connections;
+    }
+
+    public Mono<Void> send(Flux<HamsterEvent> events, MediaType wireType) {
+        boolean binary = HamsterEventBinaryCodec.MEDIA_TYPE.equals(wireType);
+        // рельс — узел-владелец и соединение к нему
+        return events
+                .groupBy(event -> nodes.ownerOf(event) * connections + EventKeys.connectionFor(event, connections))
+                .flatMap(rail -> sendOver(rail.key(), rail, binary), uris.length * connections)
+                .then();
+    }
+
+    private Mono<Void> sendOver(int connection, Flux<HamsterEvent> rail, boolean binary) {
+        URI uri = uris[connection / connections];
+        return client.execute(uri, session -> {
+                    log.info("WebSocket connection {} opened to {}", connection, uri);
+                    Mono<Void> outbound = session.send(rail
+                            .map(event -> toMessage(session, event, binary))
+                            .doOnNext(m -> stats.recordSent(1)));
+                    Mono<Void> acks = session.receive()
+                            .doOnNext(ack -> log.debug("Ack on connection {}: {}", connection, ack.getPayloadAsText()))
+                            .then();
+                    return Mono.when(outbound.then(session.close()), acks);
+                })
+                .doOnError(ex -> log.warn("WebSocket connection {} failed: {}", connection, ex.toString()))
+                .onErrorResume(ex -> Mono.empty()); // остальные соединения продолжают работу
+    }
+
+    private WebSocketMessage toMessage(WebSocketSession session, HamsterEvent event, boolean binary) {
+        if (binary) {
+            return session.binaryMessage(f -> f.wrap(HamsterEventBinaryCodec.encodeFrame(event)));
+        }
+        try {
+            return session.textMessage(objectMapper.writeValueAsString(event));
+        } catch (JsonProcessingException ex) {
+            throw new IllegalArgumentException("Event is not serializable: " + event, ex);
+        }
+    }
+
+    private static URI wsUri(String baseUrl, String wsPath) {
+        UriComponentsBuilder builder = UriComponentsBuilder.fromUriString(baseUrl).path(wsPath);
+        String scheme = baseUrl.startsWith("https") ? "wss" : "ws";
+        return builder.scheme(scheme).build().toUri();
+    }
+}
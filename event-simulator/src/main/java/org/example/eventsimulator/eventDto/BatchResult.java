@@ -0,0 +1,9 @@
+package org.example.eventsimulator.eventDto;
+
+//Ответ трекера на батч событий
+public record BatchResult(
+        long accepted,
+        long shed,
+        long rejected
+) {
+}
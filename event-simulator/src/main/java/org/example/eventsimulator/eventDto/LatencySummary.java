@@ -0,0 +1,15 @@
+package org.example.eventsimulator.eventDto;
+
+//Исходы запросов и задержка от запланированного момента отправки, мс
+public record LatencySummary(
+        long ok,
+        long errors,
+        long timeouts,
+        double meanMs,
+        double p50Ms,
+        double p90Ms,
+        double p99Ms,
+        double p999Ms,
+        double maxMs
+) {
+}
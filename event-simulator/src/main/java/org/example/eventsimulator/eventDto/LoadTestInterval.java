@@ -0,0 +1,11 @@
+package org.example.eventsimulator.eventDto;
+
+//Один интервал нагрузочного теста: достигнутый темп против целевого и задержки за интервал
+public record LoadTestInterval(
+        double elapsedS,
+        double targetRate,
+        double sentRate,
+        double completedRate,
+        LatencySummary latency
+) {
+}
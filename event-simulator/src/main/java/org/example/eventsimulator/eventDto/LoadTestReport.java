@@ -0,0 +1,22 @@
+package org.example.eventsimulator.eventDto;
+
+import java.util.List;
+import java.util.Map;
+
+//Отчёт нагрузочного теста: параметры прогона, итог по всем запросам и по типам событий, ряд интервалов
+public record LoadTestReport(
+        String status,
+        String startedAt,
+        List<String> trackerNodes,
+        String wireFormat,
+        int hamsterCount,
+        int sensorCount,
+        double targetRate,
+        long durationS,
+        long warmupS,
+        double achievedRate,
+        LatencySummary total,
+        Map<String, LatencySummary> byType,
+        List<LoadTestInterval> intervals
+) {
+}
@@ -0,0 +1,107 @@
+package org.example.eventsimulator;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.eventsimulator.domain.EventGenerator;
+import org.example.eventsimulator.domain.LoadTest;
+import org.example.eventsimulator.domain.TrackerNodes;
+import org.example.eventsimulator.eventDto.LoadTestReport;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Нагрузочный прогон против заглушки вместо трекера: задержка считается от запланированного момента
+ * отправки (intended), а не от фактической, и ответы делятся на ok/errors/timeouts по исходу запроса.
+ */
+class LoadTestTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void stall_raisesLatencyOfQueuedRequests_measuredFromIntended() {
+        AtomicInteger requests = new AtomicInteger();
+        // один запрос висит секунду, остальные отвечают сразу; при max-in-flight=1 очередь ждёт его
+        ExchangeFunction tracker = request -> requests.incrementAndGet() == 20
+                ? Mono.delay(Duration.ofSeconds(1)).thenReturn(ClientResponse.create(HttpStatus.OK).build())
+                : Mono.just(ClientResponse.create(HttpStatus.OK).build());
+        TrackerNodes nodes = new TrackerNodes(
+                WebClient.builder().baseUrl("http://tracker:8080").exchangeFunction(tracker).build(),
+                "http://tracker:8080", "", 128);
+
+        LoadTestReport report = run(nodes, 200, 2, 1, 1, 10_000);
+
+        // с отсчётом от фактической отправки застрявшим был бы один запрос из ~400 и p99 около нуля
+        assertThat(report.total().errors()).isZero();
+        assertThat(report.total().timeouts()).isZero();
+        assertThat(report.total().ok()).isGreaterThan(300);
+        assertThat(report.total().maxMs()).isGreaterThanOrEqualTo(900.0);
+        assertThat(report.total().p90Ms()).isGreaterThan(500.0);
+        assertThat(report.total().p99Ms()).isGreaterThan(500.0);
+    }
+
+    @Test
+    void outcomes_splitIntoOkErrorsAndTimeouts() {
+        Map<String, LongAdder> byHost = new ConcurrentHashMap<>();
+        ExchangeFunction tracker = request -> {
+            String host = request.url().getHost();
+            byHost.computeIfAbsent(host, h -> new LongAdder()).increment();
+            return switch (host) {
+                case "tracker-1" -> Mono.just(ClientResponse.create(HttpStatus.OK).build());
+                case "tracker-2" -> Mono.just(ClientResponse.create(HttpStatus.INTERNAL_SERVER_ERROR).build());
+                default -> Mono.never();
+            };
+        };
+        TrackerNodes nodes = new TrackerNodes(WebClient.builder().exchangeFunction(tracker).build(), "http://unused",
+                "http://tracker-1:8080,http://tracker-2:8080,http://tracker-3:8080", 128);
+
+        LoadTestReport report = run(nodes, 100, 1, 1, 256, 1_000);
+
+        long ok = count(byHost, "tracker-1");
+        long errors = count(byHost, "tracker-2");
+        long timeouts = count(byHost, "tracker-3");
+        assertThat(ok).isPositive();
+        assertThat(errors).isPositive();
+        assertThat(timeouts).isPositive();
+        // сброс прогрева при warmup-s=0 может успеть отбросить первые мгновенные ответы, зависшие — никогда
+        assertThat(report.total().timeouts()).isEqualTo(timeouts);
+        assertThat(report.total().ok()).isBetween(ok - 1, ok);
+        assertThat(report.total().errors()).isBetween(errors - 1, errors);
+    }
+
+    private LoadTestReport run(TrackerNodes nodes, double rate, long durationS, long intervalS, int maxInFlight, long timeoutMs) {
+        LoadTest loadTest = new LoadTest(nodes, new EventGenerator(), new ObjectMapper(),
+                mock(ConfigurableApplicationContext.class), true, rate, durationS, 0, intervalS, maxInFlight,
+                timeoutMs, dir.resolve("report.json").toString(), false, "json", 100, 100);
+        ReflectionTestUtils.setField(loadTest, "eventsPath", "/tracker/events");
+
+        loadTest.startIfEnabled();
+
+        await().atMost(Duration.ofSeconds(durationS + 10))
+                .until(() -> loadTest.report() != null && "finished".equals(loadTest.report().status()));
+        assertThat(dir.resolve("report.json")).exists();
+        return loadTest.report();
+    }
+
+    private static long count(Map<String, LongAdder> byHost, String host) {
+        LongAdder adder = byHost.get(host);
+        return adder == null ? 0 : adder.sum();
+    }
+}
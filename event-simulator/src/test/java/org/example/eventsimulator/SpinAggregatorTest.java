@@ -0,0 +1,140 @@
+package org.example.eventsimulator;
+
+import org.example.eventsimulator.domain.SpinAggregator;
+import org.example.eventsimulator.eventDto.HamsterEnter;
+import org.example.eventsimulator.eventDto.HamsterEvent;
+import org.example.eventsimulator.eventDto.HamsterExit;
+import org.example.eventsimulator.eventDto.WheelSpin;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Окно агрегации — минута: за время теста таймер не срабатывает, и окна сбрасывают только события потока
+ * и его завершение.
+ */
+class SpinAggregatorTest {
+
+    private static final long ROUND_MS = 5_000;
+    private static final long NOON = LocalDate.of(2026, 3, 10).atTime(12, 0)
+            .atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+
+    private final SpinAggregator aggregator = new SpinAggregator(60_000);
+
+    @Test
+    void mergedSpins_creditSameRoundsPerWheel() {
+        Random random = new Random(7);
+        List<HamsterEvent> events = new ArrayList<>();
+        for (int i = 0; i < 2_000; i++) {
+            events.add(spin("w" + random.nextInt(10), random.nextInt(20_000), NOON + i));
+        }
+
+        List<HamsterEvent> out = aggregate(events);
+
+        assertThat(roundsByWheel(out)).isEqualTo(roundsByWheel(events));
+        assertThat(out).hasSize(10); // одно окно на колесо
+        assertThat(aggregator.drainSpinsIn()).isEqualTo(2_000);
+        assertThat(aggregator.drainSpinsOut()).isEqualTo(10);
+    }
+
+    @Test
+    void enterAndExit_flushOwnWheelFirst_otherWheelsKeepWindow() {
+        List<HamsterEvent> out = aggregate(List.of(
+                spin("w1", 5_000, NOON),
+                spin("w2", 10_000, NOON + 1),
+                spin("w1", 10_000, NOON + 2),
+                new HamsterEnter("h2", "w1"),
+                spin("w1", 5_000, NOON + 3),
+                new HamsterExit("h2", "w1")));
+
+        assertThat(out).hasSize(5);
+        assertThat(((WheelSpin) out.get(0)).getDurationMs()).isEqualTo(15_000); // круги первого хомяка до входа второго
+        assertThat(out.get(1)).isInstanceOf(HamsterEnter.class);
+        assertThat(((WheelSpin) out.get(2)).getDurationMs()).isEqualTo(5_000);
+        assertThat(out.get(3)).isInstanceOf(HamsterExit.class);
+        assertThat(((WheelSpin) out.get(4)).getWheelId()).isEqualTo("w2"); // окно w2 — до конца потока
+    }
+
+    @Test
+    void dayChange_flushesWindow_roundsStayInTheirDay() {
+        long midnight = LocalDate.of(2026, 3, 11).atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        List<HamsterEvent> out = aggregate(List.of(
+                spin("w1", 5_000, midnight - 2_000),
+                spin("w1", 10_000, midnight - 1_000),
+                spin("w1", 15_000, midnight + 1_000)));
+
+        assertThat(out).extracting(e -> ((WheelSpin) e).getDurationMs()).containsExactly(15_000L, 15_000L);
+        assertThat(out).extracting(HamsterEvent::getTimestamp).containsExactly(midnight - 1_000, midnight + 1_000);
+    }
+
+    @Test
+    void subRoundSpins_sentAsOneShortSpin_notDropped() {
+        List<HamsterEvent> out = aggregate(List.of(spin("w1", 1_000, NOON), spin("w1", 3_000, NOON + 1)));
+
+        assertThat(out).hasSize(1);
+        WheelSpin merged = (WheelSpin) out.get(0);
+        assertThat(merged.getDurationMs()).isPositive().isLessThan(ROUND_MS); // трекер зачтёт активность без кругов
+
+        // с целыми кругами остатки коротких не добавляют лишнего круга
+        assertThat(aggregate(List.of(spin("w1", 3_000, NOON), spin("w1", 7_000, NOON + 1), spin("w1", 4_000, NOON + 2))))
+                .extracting(e -> ((WheelSpin) e).getDurationMs()).containsExactly(5_000L);
+    }
+
+    @Test
+    void mergedSpin_takesLastTimeAndHighestSeq() {
+        List<HamsterEvent> out = aggregate(List.of(
+                spin("w1", 5_000, NOON, 5),
+                spin("w1", 5_000, NOON + 2_000, 7),
+                spin("w1", 5_000, NOON + 1_000, 6)));
+
+        WheelSpin merged = (WheelSpin) out.get(0);
+        assertThat(out).hasSize(1);
+        assertThat(merged.getDurationMs()).isEqualTo(15_000);
+        assertThat(merged.getTimestamp()).isEqualTo(NOON + 2_000);
+        assertThat(merged.getSeq()).isEqualTo(7);
+        assertThat(merged.getSourceId()).isEqualTo("sensor-w1");
+    }
+
+    @Test
+    void disabled_passesStreamThrough() {
+        List<HamsterEvent> events = List.of(spin("w1", 5_000, NOON), spin("w1", 5_000, NOON + 1));
+        assertThat(new SpinAggregator(0).aggregate(Flux.fromIterable(events)).collectList().block())
+                .containsExactlyElementsOf(events);
+    }
+
+    private List<HamsterEvent> aggregate(List<HamsterEvent> events) {
+        return aggregator.aggregate(Flux.fromIterable(events)).collectList().block();
+    }
+
+    private static Map<String, Long> roundsByWheel(List<HamsterEvent> events) {
+        Map<String, Long> rounds = new HashMap<>();
+        for (HamsterEvent event : events) {
+            if (event instanceof WheelSpin spin) {
+                rounds.merge(spin.getWheelId(), spin.getDurationMs() / ROUND_MS, Long::sum);
+            }
+        }
+        return rounds;
+    }
+
+    private static WheelSpin spin(String wheel, long durationMs, long at) {
+        WheelSpin spin = new WheelSpin(wheel, durationMs);
+        spin.setTimestamp(at);
+        return spin;
+    }
+
+    private static WheelSpin spin(String wheel, long durationMs, long at, long seq) {
+        WheelSpin spin = spin(wheel, durationMs, at);
+        spin.setSourceId("sensor-" + wheel);
+        spin.setSeq(seq);
+        return spin;
+    }
+}
@@ -0,0 +1,46 @@
+package org.example.eventsimulator;
+
+import org.example.eventsimulator.domain.TrackerNodes;
+import org.example.eventsimulator.eventDto.SensorFailure;
+import org.example.eventsimulator.eventDto.WheelSpin;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.util.function.IntFunction;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Владельцы событий у симулятора совпадают с владельцами у трекера: строки ниже — номера узлов-владельцев
+ * по кольцу трекера (ClusterTest проверяет их для трекера). Расхождение кольца означает лишнюю пересылку
+ * между узлами на каждом событии.
+ */
+class TrackerNodesTest {
+
+    static final String NODES = "http://tracker-1:8080,http://tracker-2:8080/,http://tracker-3:8080";
+    static final String WHEEL_OWNERS = "2002221111001101012202201202112020122002022102111101221012112201";
+    static final String SENSOR_OWNERS = "0110221122011110011021100020011010002222010102002111102010002020";
+
+    @Test
+    void owners_matchTrackerRing() {
+        TrackerNodes nodes = new TrackerNodes(WebClient.create(), "http://unused", NODES, 128);
+
+        assertThat(nodes.nodes()).containsExactly("http://tracker-1:8080", "http://tracker-2:8080", "http://tracker-3:8080");
+        assertThat(owners(i -> nodes.ownerOf(new WheelSpin("wheel-" + i, 5_000)))).isEqualTo(WHEEL_OWNERS);
+        assertThat(owners(i -> nodes.ownerOf(new SensorFailure("sensor-" + i, 500)))).isEqualTo(SENSOR_OWNERS);
+    }
+
+    @Test
+    void singleNode_ownsEverything() {
+        TrackerNodes nodes = new TrackerNodes(WebClient.create(), "http://localhost:8080/", "", 128);
+
+        assertThat(nodes.nodes()).containsExactly("http://localhost:8080");
+        assertThat(owners(i -> nodes.ownerOf(new WheelSpin("wheel-" + i, 5_000)))).matches("0{64}");
+    }
+
+    private static String owners(IntFunction<Integer> owner) {
+        return IntStream.range(0, 64).mapToObj(i -> String.valueOf(owner.apply(i))).collect(Collectors.joining());
+    }
+}
@@ -0,0 +1,44 @@
+package org.example.tracker.api;
+
+import org.example.tracker.domain.ActivitySeries;
+import org.example.tracker.domain.RoundsRollup;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Mono;
+
+import java.util.Locale;
+
+@RestController
+@RequestMapping("/tracker/activity")
+public class ActivityController {
+
+    private final RoundsRollup rollup;
+
+    public ActivityController(RoundsRollup rollup) {
+        this.rollup = rollup;
+    }
+
+    //Кривая активности хомяка: resolution=minute|hour, points — сколько последних интервалов; 404 — хомяк неизвестен.
+    //В кластере — только крутки на колёсах этого узла
+    @GetMapping("/{hamsterId}")
+    public Mono<ResponseEntity<ActivitySeries>> series(@PathVariable String hamsterId,
+                                                       @RequestParam(defaultValue = "minute") String resolution,
+                                                       @RequestParam(defaultValue = "60") int points) {
+        ActivitySeries.Resolution res;
+        try {
+            res = ActivitySeries.Resolution.valueOf(resolution.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            return Mono.error(new ResponseStatusException(HttpStatus.BAD_REQUEST, "Unknown resolution: " + resolution));
+        }
+        return Mono.fromSupplier(() -> {
+            ActivitySeries series = rollup.series(hamsterId, res, points, System.currentTimeMillis());
+            return series == null ? ResponseEntity.notFound().<ActivitySeries>build() : ResponseEntity.ok(series);
+        });
+    }
+}
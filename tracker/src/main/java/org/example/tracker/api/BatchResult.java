@@ -0,0 +1,9 @@
+package org.example.tracker.api;
+
+//Итог обработки одного батча событий
+public record BatchResult(
+        long accepted,
+        long shed,
+        long rejected
+) {
+}
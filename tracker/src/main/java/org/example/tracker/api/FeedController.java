@@ -0,0 +1,44 @@
+package org.example.tracker.api;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+
+import java.util.EnumSet;
+import java.util.Locale;
+import java.util.Set;
+
+@RestController
+@RequestMapping("/tracker/feed")
+public class FeedController {
+
+    private final StateFeed feed;
+
+    public FeedController(StateFeed feed) {
+        this.feed = feed;
+    }
+
+    //Изменения раундов, занятости колёс и датчиков; kinds=hamster,wheel,sensor — какие сущности слать (по умолчанию все)
+    @GetMapping(produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<String>> feed(@RequestParam(required = false) Set<String> kinds) {
+        Set<StateFeed.Kind> selected = EnumSet.noneOf(StateFeed.Kind.class);
+        if (kinds != null) {
+            for (String kind : kinds) {
+                try {
+                    selected.add(StateFeed.Kind.valueOf(kind.trim().toUpperCase(Locale.ROOT)));
+                } catch (IllegalArgumentException e) {
+                    return Flux.error(new ResponseStatusException(HttpStatus.BAD_REQUEST, "Unknown kind: " + kind));
+                }
+            }
+        }
+        Flux<ServerSentEvent<String>> events = feed.subscribe(selected);
+        return events != null ? events
+                : Flux.error(new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Too many feed subscribers"));
+    }
+}
@@ -0,0 +1,5 @@
+package org.example.tracker.api;
+
+//Лента состояния: подписчики, окна с изменениями, изменения, замещённые до отправки значения и отправленные события
+public record FeedStats(int subscribers, long windows, long updates, long conflated, long eventsSent) {
+}
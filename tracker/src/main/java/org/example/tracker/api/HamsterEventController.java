@@ -1,33 +1,150 @@
 package org.example.tracker.api;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
 import lombok.extern.slf4j.Slf4j;
+import org.example.tracker.cluster.ClusterRouter;
+import org.example.tracker.codec.BinaryEventDecoder;
+import org.example.tracker.codec.HamsterEventBinaryCodec;
+import org.example.tracker.domain.Admission;
 import org.example.tracker.domain.eventDto.HamsterEvent;
-import org.example.tracker.domain.HamsterTrackerService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.codec.DecodingException;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ServerWebInputException;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
 @Slf4j
 @RestController
 @RequestMapping("/tracker")
 public class HamsterEventController {
 
-    private final HamsterTrackerService trackerService;
+    private final ClusterRouter router;
+    private final IngestMeter meter;
+    private final ObjectReader eventReader;
+    private final String retryAfterSeconds;
 
-    public HamsterEventController(HamsterTrackerService trackerService) {
-        this.trackerService = trackerService;
+    public HamsterEventController(ClusterRouter router, IngestMeter meter, ObjectMapper objectMapper,
+                                  @Value("${tracker.ingest.retry-after-seconds:1}") int retryAfterSeconds) {
+        this.router = router;
+        this.meter = meter;
+        this.eventReader = objectMapper.readerFor(HamsterEvent.class);
+        this.retryAfterSeconds = String.valueOf(retryAfterSeconds);
     }
 
+    //200 — принято (или отброшено как малоценное), 429 + Retry-After — буфер приёма переполнен.
+    //Событие чужого колеса подтверждается, когда его принял узел-владелец
     @PostMapping("/events")
     public Mono<ResponseEntity<Void>> receiveEvent(@RequestBody Mono<HamsterEvent> eventMono) {
         return eventMono
-                .doOnNext(event -> {
+                .flatMap(event -> {
                     log.info("Event received: {}", event);
-                    trackerService.accept(event);
+                    return Mono.fromFuture(router.submit(event), true);
+                })
+                .map(admission -> {
+                    meter.record(IngestChannel.REST, admission);
+                    return admission == Admission.REJECTED ? tooManyRequests().<Void>build() : ResponseEntity.ok().<Void>build();
                 })
-                .then(Mono.fromSupplier(() -> ResponseEntity.ok().build()));
+                .defaultIfEmpty(ResponseEntity.ok().build());
     }
 
+    //Батч событий: JSON-массив или NDJSON, разбирается поэлементно по мере прихода.
+    //Элементы приходят деревьями и переводятся в события по одному: неразобранный элемент — отказ,
+    //остальные обрабатываются. Синтаксическая ошибка JSON обрывает батч — границ элементов за ней нет
+    @PostMapping(value = "/events/batch", consumes = {MediaType.APPLICATION_NDJSON_VALUE, MediaType.APPLICATION_JSON_VALUE})
+    public Mono<ResponseEntity<BatchResult>> receiveBatch(
+            @RequestHeader(value = ClusterRouter.FORWARDED_HEADER, required = false) String forwardedFrom,
+            @RequestBody Flux<JsonNode> elements) {
+        return admitBatch(forwardedFrom, elements.map(this::toEvent));
+    }
 
+    //Тот же батч бинарными кадрами: битое событие внутри целого кадра — отказ, сбитая разметка кадров — 400
+    @PostMapping(value = "/events/batch", consumes = HamsterEventBinaryCodec.MEDIA_TYPE_VALUE)
+    public Mono<ResponseEntity<BatchResult>> receiveBinaryBatch(
+            @RequestHeader(value = ClusterRouter.FORWARDED_HEADER, required = false) String forwardedFrom,
+            @RequestBody Flux<DataBuffer> body) {
+        return admitBatch(forwardedFrom, BinaryEventDecoder.decodeEach(body))
+                .onErrorMap(DecodingException.class, ex -> new ServerWebInputException(ex.getMessage(), null, ex));
+    }
+
+    //Ответ — после решения по каждому событию, для чужих колёс — решения узла-владельца.
+    //С заголовком пересылки батч пришёл от другого узла кластера и применяется здесь без маршрутизации
+    //и только до первого отказа: остаток отправитель повторит по порядку
+    private Mono<ResponseEntity<BatchResult>> admitBatch(String forwardedFrom, Flux<Optional<HamsterEvent>> events) {
+        boolean forwarded = forwardedFrom != null;
+        IngestChannel channel = forwarded ? IngestChannel.FORWARDED : IngestChannel.BATCH;
+        AtomicLong accepted = new AtomicLong();
+        AtomicLong shed = new AtomicLong();
+        AtomicLong rejected = new AtomicLong();
+        AtomicLong malformed = new AtomicLong();
+        Consumer<Admission> count = admission -> {
+            meter.record(channel, admission);
+            switch (admission) {
+                case ACCEPTED -> accepted.incrementAndGet();
+                case SHED -> shed.incrementAndGet();
+                case REJECTED -> rejected.incrementAndGet();
+            }
+        };
+        List<CompletableFuture<Void>> pending = new ArrayList<>();
+        return events
+                .doOnNext(element -> {
+                    HamsterEvent event = element.orElse(null);
+                    if (event == null) {
+                        meter.recordMalformed(channel);
+                        malformed.incrementAndGet();
+                        rejected.incrementAndGet();
+                        return;
+                    }
+                    if (forwarded) {
+                        count.accept(rejected.get() > 0 ? Admission.REJECTED : router.submitForwarded(event));
+                        return;
+                    }
+                    CompletableFuture<Admission> admission = router.submit(event);
+                    if (admission.isDone()) {
+                        count.accept(admission.join());
+                    } else {
+                        pending.add(admission.thenAccept(count));
+                    }
+                })
+                .then(Mono.defer(() -> Mono.fromFuture(CompletableFuture.allOf(pending.toArray(CompletableFuture[]::new)), true)))
+                .then(Mono.fromSupplier(() -> new BatchResult(accepted.get(), shed.get(), rejected.get())))
+                .doOnNext(r -> log.debug("Batch received: accepted={} shed={} rejected={}", r.accepted(), r.shed(), r.rejected()))
+                // неразобранные элементы — тоже отказы, но 429 и повтор имеют смысл только при переполнении
+                .map(r -> r.rejected() > malformed.get() ? tooManyRequests().body(r) : ResponseEntity.ok(r));
+    }
+
+    //Уведомления других узлов кластера о входе хомяка в колесо, которое принадлежит не этому узлу
+    @PostMapping(value = "/events/moves", consumes = HamsterEventBinaryCodec.MEDIA_TYPE_VALUE)
+    public Mono<ResponseEntity<Void>> receiveMoves(@RequestBody Flux<HamsterEvent> moves) {
+        return moves.doOnNext(router::applyMove).then(Mono.just(ResponseEntity.ok().build()));
+    }
+
+    private Optional<HamsterEvent> toEvent(JsonNode element) {
+        try {
+            return Optional.of(eventReader.readValue(element));
+        } catch (IOException | IllegalArgumentException ex) {
+            log.warn("Malformed batch element skipped: {}", ex.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    private ResponseEntity.BodyBuilder tooManyRequests() {
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).header(HttpHeaders.RETRY_AFTER, retryAfterSeconds);
+    }
 
 }
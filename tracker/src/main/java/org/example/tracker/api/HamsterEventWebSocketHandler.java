@@ -0,0 +1,162 @@
+package org.example.tracker.api;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import lombok.extern.slf4j.Slf4j;
+import org.example.tracker.cluster.ClusterRouter;
+import org.example.tracker.codec.BinaryFrameReader;
+import org.example.tracker.codec.HamsterEventBinaryCodec;
+import org.example.tracker.domain.Admission;
+import org.example.tracker.domain.eventDto.HamsterEvent;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.socket.CloseStatus;
+import org.springframework.web.reactive.socket.WebSocketHandler;
+import org.springframework.web.reactive.socket.WebSocketMessage;
+import org.springframework.web.reactive.socket.WebSocketSession;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Долгоживущий канал приёма событий: одно соединение — непрерывный поток событий.
+ * Текстовые сообщения — JSON (одно событие или несколько через перевод строки),
+ * бинарные — кадры HamsterEventBinaryCodec, кадр может быть разрезан между сообщениями.
+ * В ответ периодически уходит накопительный ack {"accepted":N,"shed":K,"rejected":M}.
+ * Неразобранное событие считается отказом и не мешает остальным; сбитая длина бинарного кадра
+ * закрывает сессию с PROTOCOL_ERROR — границ следующих кадров уже не найти.
+ */
+@Slf4j
+@Component
+public class HamsterEventWebSocketHandler implements WebSocketHandler {
+
+    private final ClusterRouter router;
+    private final IngestMeter meter;
+    private final ObjectMapper objectMapper;
+    private final ObjectReader treeReader;
+    private final ObjectReader eventReader;
+    private final Duration ackInterval;
+
+    public HamsterEventWebSocketHandler(ClusterRouter router,
+                                        IngestMeter meter,
+                                        ObjectMapper objectMapper,
+                                        @Value("${tracker.ws.ack-interval-ms:1000}") long ackIntervalMs) {
+        this.router = router;
+        this.meter = meter;
+        this.objectMapper = objectMapper;
+        this.treeReader = objectMapper.readerFor(JsonNode.class);
+        this.eventReader = objectMapper.readerFor(HamsterEvent.class);
+        this.ackInterval = Duration.ofMillis(ackIntervalMs);
+    }
+
+    @Override
+    public Mono<Void> handle(WebSocketSession session) {
+        SessionCounters counters = new SessionCounters();
+        BinaryFrameReader frameReader = new BinaryFrameReader();
+        Sinks.Empty<Void> inboundDone = Sinks.empty();
+
+        Mono<Void> inbound = session.receive()
+                .doOnNext(message -> onMessage(session, message, frameReader, counters))
+                .doFinally(signal -> {
+                    inboundDone.tryEmitEmpty();
+                    log.info("WebSocket ingest closed: session={} accepted={} shed={} rejected={}",
+                            session.getId(), counters.accepted.get(), counters.shed.get(), counters.rejected.get());
+                })
+                .then();
+
+        Mono<Void> acks = session.send(Flux.interval(ackInterval)
+                .map(tick -> session.textMessage(ack(counters)))
+                .takeUntilOther(inboundDone.asMono()));
+
+        log.info("WebSocket ingest opened: session={}", session.getId());
+        return Mono.when(inbound, acks);
+    }
+
+    private void onMessage(WebSocketSession session, WebSocketMessage message, BinaryFrameReader frameReader,
+                           SessionCounters counters) {
+        if (message.getType() == WebSocketMessage.Type.TEXT) {
+            onText(message.getPayloadAsText(), counters);
+        } else if (message.getType() == WebSocketMessage.Type.BINARY) {
+            onBinary(session, message.getPayload(), frameReader, counters);
+        }
+    }
+
+    //Элементы читаются деревьями и переводятся в события по одному.
+    //Синтаксическая ошибка JSON обрывает только остаток своего сообщения
+    private void onText(String text, SessionCounters counters) {
+        try (MappingIterator<JsonNode> it = treeReader.readValues(text)) {
+            while (it.hasNextValue()) {
+                JsonNode element = it.nextValue();
+                try {
+                    accept(eventReader.readValue(element), counters);
+                } catch (IOException | IllegalArgumentException ex) {
+                    malformed(counters, ex);
+                }
+            }
+        } catch (IOException | RuntimeException ex) {
+            malformed(counters, ex);
+        }
+    }
+
+    private void onBinary(WebSocketSession session, DataBuffer payload, BinaryFrameReader frameReader,
+                          SessionCounters counters) {
+        try (DataBuffer.ByteBufferIterator it = payload.readableByteBuffers()) {
+            while (it.hasNext()) {
+                frameReader.forEachFrame(it.next(), frame -> {
+                    try {
+                        accept(HamsterEventBinaryCodec.decode(frame), counters);
+                    } catch (IllegalArgumentException ex) {
+                        malformed(counters, ex);
+                    }
+                });
+            }
+        } catch (IllegalArgumentException ex) {
+            malformed(counters, ex);
+            session.close(CloseStatus.PROTOCOL_ERROR.withReason("Malformed binary frame length")).subscribe();
+        }
+    }
+
+    private void malformed(SessionCounters counters, Exception ex) {
+        counters.rejected.incrementAndGet();
+        meter.recordMalformed(IngestChannel.WEBSOCKET);
+        log.warn("Malformed WebSocket event dropped: {}", ex.toString());
+    }
+
+    //В подтверждения событие попадает, когда по нему есть решение (для чужого колеса — узла-владельца)
+    private void accept(HamsterEvent event, SessionCounters counters) {
+        router.submit(event).thenAccept(admission -> {
+            meter.record(IngestChannel.WEBSOCKET, admission);
+            counters.count(admission);
+        });
+    }
+
+    private String ack(SessionCounters counters) {
+        try {
+            return objectMapper.writeValueAsString(new BatchResult(counters.accepted.get(), counters.shed.get(), counters.rejected.get()));
+        } catch (IOException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    private static final class SessionCounters {
+        final AtomicLong accepted = new AtomicLong();
+        final AtomicLong shed = new AtomicLong();
+        final AtomicLong rejected = new AtomicLong();
+
+        void count(Admission admission) {
+            switch (admission) {
+                case ACCEPTED -> accepted.incrementAndGet();
+                case SHED -> shed.incrementAndGet();
+                case REJECTED -> rejected.incrementAndGet();
+            }
+        }
+    }
+}
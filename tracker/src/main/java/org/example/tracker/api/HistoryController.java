@@ -0,0 +1,67 @@
+package org.example.tracker.api;
+
+import org.example.tracker.persistence.HamsterDay;
+import org.example.tracker.persistence.HistoryDay;
+import org.example.tracker.persistence.ReportHistoryStore;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+@RestController
+@RequestMapping("/tracker/history")
+public class HistoryController {
+
+    private static final int DEFAULT_DAYS = 30;
+    private static final int MAX_DAYS = 366;
+
+    private final Optional<ReportHistoryStore> history;
+
+    public HistoryController(Optional<ReportHistoryStore> history) {
+        this.history = history;
+    }
+
+    //Число хомяков, активных и сумма раундов по дням; по умолчанию последние 30 суток. В кластере — отчёты этого узла
+    @GetMapping("/days")
+    public Mono<List<HistoryDay>> days(@RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                       @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        LocalDate end = to != null ? to : LocalDate.now();
+        LocalDate start = from != null ? from : end.minusDays(DEFAULT_DAYS - 1);
+        return read(start, end, () -> store().days(start, end));
+    }
+
+    //Раунды хомяка по дням диапазона; дни без него в отчёте пропущены
+    @GetMapping("/hamsters/{hamsterId}")
+    public Mono<List<HamsterDay>> hamster(@PathVariable String hamsterId,
+                                          @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                          @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        LocalDate end = to != null ? to : LocalDate.now();
+        LocalDate start = from != null ? from : end.minusDays(DEFAULT_DAYS - 1);
+        return read(start, end, () -> store().hamster(hamsterId, start, end));
+    }
+
+    //Чтение файлов — блокирующее, поэтому не на event loop
+    private <T> Mono<T> read(LocalDate from, LocalDate to, Supplier<T> query) {
+        if (from.isAfter(to) || ChronoUnit.DAYS.between(from, to) >= MAX_DAYS) {
+            return Mono.error(new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Date range must be ordered and at most " + MAX_DAYS + " days"));
+        }
+        return Mono.fromSupplier(query).subscribeOn(Schedulers.boundedElastic());
+    }
+
+    private ReportHistoryStore store() {
+        return history.orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Report history is disabled"));
+    }
+}
@@ -0,0 +1,11 @@
+package org.example.tracker.api;
+
+//Откуда пришло событие
+public enum IngestChannel {
+    REST,
+    BATCH,
+    WEBSOCKET,
+    TCP,
+    //Переслано другим узлом кластера
+    FORWARDED
+}
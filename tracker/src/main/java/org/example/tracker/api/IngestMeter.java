@@ -0,0 +1,98 @@
+package org.example.tracker.api;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.example.tracker.domain.Admission;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.StringJoiner;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Счётчики приёма по каналам. Раз в STATS_PERIOD пишет в лог events/s по каждому каналу
+ * и events/s на занятое ядро (events/s, делённые на CPU-секунды процесса за секунду),
+ * чтобы сравнивать REST, батчи, WebSocket и TCP на одной нагрузке.
+ */
+@Slf4j
+@Component
+public class IngestMeter {
+
+    private static final Duration STATS_PERIOD = Duration.ofSeconds(10);
+    private static final IngestChannel[] CHANNELS = IngestChannel.values();
+
+    private final LongAdder[] accepted = newAdders();
+    private final LongAdder[] shed = newAdders();
+    private final LongAdder[] rejected = newAdders();
+
+    private Disposable statsTask;
+    private long lastCpuNanos;
+
+    @PostConstruct
+    void start() {
+        this.lastCpuNanos = processCpuNanos();
+        this.statsTask = Flux.interval(STATS_PERIOD).subscribe(tick -> logStats());
+    }
+
+    @PreDestroy
+    void stop() {
+        if (statsTask != null) statsTask.dispose();
+    }
+
+    public void record(IngestChannel channel, Admission admission) {
+        LongAdder[] row = switch (admission) {
+            case ACCEPTED -> accepted;
+            case SHED -> shed;
+            case REJECTED -> rejected;
+        };
+        row[channel.ordinal()].increment();
+    }
+
+    //Событие не дошло до буфера: не разобралось или битый кадр
+    public void recordMalformed(IngestChannel channel) {
+        rejected[channel.ordinal()].increment();
+    }
+
+    private void logStats() {
+        double seconds = STATS_PERIOD.toMillis() / 1000.0;
+        long cpuNanos = processCpuNanos();
+        double busyCores = (cpuNanos - lastCpuNanos) / 1e9 / seconds;
+        lastCpuNanos = cpuNanos;
+
+        long total = 0;
+        StringJoiner perChannel = new StringJoiner(", ");
+        for (IngestChannel channel : CHANNELS) {
+            long ok = accepted[channel.ordinal()].sumThenReset();
+            long dropped = shed[channel.ordinal()].sumThenReset();
+            long bad = rejected[channel.ordinal()].sumThenReset();
+            total += ok;
+            if (ok + dropped + bad > 0) {
+                perChannel.add("%s=%d/s (%d shed, %d rejected)".formatted(channel, Math.round(ok / seconds), dropped, bad));
+            }
+        }
+        if (total == 0) return;
+        double eventsPerSec = total / seconds;
+        log.info("Ingest: {}; {} events/s per busy core ({} cores busy)",
+                perChannel, Math.round(eventsPerSec / Math.max(busyCores, 0.01)),
+                "%.2f".formatted(busyCores));
+    }
+
+    private static LongAdder[] newAdders() {
+        LongAdder[] adders = new LongAdder[CHANNELS.length];
+        for (int i = 0; i < adders.length; i++) {
+            adders[i] = new LongAdder();
+        }
+        return adders;
+    }
+
+    private static long processCpuNanos() {
+        if (ManagementFactory.getOperatingSystemMXBean() instanceof com.sun.management.OperatingSystemMXBean os) {
+            return os.getProcessCpuTime();
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,42 @@
+package org.example.tracker.api;
+
+import org.example.tracker.domain.LeaderboardEntry;
+import org.example.tracker.domain.RoundsLeaderboard;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/tracker/leaderboard")
+public class LeaderboardController {
+
+    private static final int MAX_LIMIT = 1000;
+
+    private final RoundsLeaderboard leaderboard;
+
+    public LeaderboardController(RoundsLeaderboard leaderboard) {
+        this.leaderboard = leaderboard;
+    }
+
+    //Самые активные хомяки за текущие сутки; в кластере — по колёсам этого узла, рейтинг у каждого узла свой
+    @GetMapping
+    public Mono<List<LeaderboardEntry>> top(@RequestParam(defaultValue = "20") int limit) {
+        int n = Math.max(1, Math.min(limit, MAX_LIMIT));
+        return Mono.fromSupplier(() -> leaderboard.top(n));
+    }
+
+    //Место конкретного хомяка; 404 — неизвестен или сегодня ещё без раундов
+    @GetMapping("/{hamsterId}")
+    public Mono<ResponseEntity<LeaderboardEntry>> rank(@PathVariable String hamsterId) {
+        return Mono.fromSupplier(() -> {
+            LeaderboardEntry entry = leaderboard.rankOf(hamsterId);
+            return entry == null ? ResponseEntity.notFound().<LeaderboardEntry>build() : ResponseEntity.ok(entry);
+        });
+    }
+}
@@ -0,0 +1,52 @@
+package org.example.tracker.api;
+
+import org.example.tracker.cluster.ClusterReport;
+import org.example.tracker.cluster.ClusterReports;
+import org.example.tracker.cluster.NodeReport;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Суточные отчёты: /today и /last собираются со всех узлов кластера, /node/* — доля этого узла,
+ * её опрашивают соседи. На одном узле отчёт кластера совпадает с отчётом узла.
+ */
+@RestController
+@RequestMapping("/tracker/reports")
+public class ReportController {
+
+    private final ClusterReports reports;
+
+    public ReportController(ClusterReports reports) {
+        this.reports = reports;
+    }
+
+    //Открытые сутки на сейчас
+    @GetMapping("/today")
+    public Mono<ClusterReport> today() {
+        return reports.today();
+    }
+
+    //Последние закрытые сутки
+    @GetMapping("/last")
+    public Mono<ClusterReport> last() {
+        return reports.last();
+    }
+
+    @GetMapping("/node/today")
+    public Mono<NodeReport> nodeToday() {
+        return Mono.fromSupplier(reports::localToday).subscribeOn(Schedulers.boundedElastic());
+    }
+
+    //404 — смены суток на узле ещё не было
+    @GetMapping("/node/last")
+    public Mono<ResponseEntity<NodeReport>> nodeLast() {
+        return Mono.fromSupplier(() -> {
+            NodeReport last = reports.localLast();
+            return last == null ? ResponseEntity.notFound().<NodeReport>build() : ResponseEntity.ok(last);
+        });
+    }
+}
@@ -0,0 +1,161 @@
+package org.example.tracker.api;
+
+import org.example.tracker.domain.ReadView;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.ToIntFunction;
+
+/**
+ * Текущее состояние хомяков, колёс и датчиков из {@link ReadView}: чтение не трогает репозиторий и шарды.
+ * Списки — страницами по offset/limit в порядке появления сущностей, fields — через запятую, какие поля вернуть
+ * (id возвращается всегда, без fields — все поля). В кластере — только то, что видел этот узел по своим колёсам.
+ */
+@RestController
+@RequestMapping("/tracker")
+public class StateController {
+
+    private static final int MAX_LIMIT = 1000;
+    private static final List<String> HAMSTER_FIELDS = List.of("rounds", "lastActivity");
+    private static final List<String> WHEEL_FIELDS = List.of("occupant");
+    private static final List<String> SENSOR_FIELDS = List.of("failed", "failedSince");
+
+    private final ReadView readView;
+
+    public StateController(ReadView readView) {
+        this.readView = readView;
+    }
+
+    @GetMapping("/hamsters")
+    public Mono<StatePage> hamsters(@RequestParam(defaultValue = "0") int offset,
+                                    @RequestParam(defaultValue = "100") int limit,
+                                    @RequestParam(required = false) String fields) {
+        return page(offset, limit, fields, HAMSTER_FIELDS, ReadView.Epoch::hamsterCount, StateController::hamster);
+    }
+
+    @GetMapping("/hamsters/{hamsterId}")
+    public Mono<ResponseEntity<Map<String, Object>>> hamster(@PathVariable String hamsterId,
+                                                             @RequestParam(required = false) String fields) {
+        return one(hamsterId, fields, HAMSTER_FIELDS, ReadView.Epoch::findHamster, StateController::hamster);
+    }
+
+    @GetMapping("/wheels")
+    public Mono<StatePage> wheels(@RequestParam(defaultValue = "0") int offset,
+                                  @RequestParam(defaultValue = "100") int limit,
+                                  @RequestParam(required = false) String fields) {
+        return page(offset, limit, fields, WHEEL_FIELDS, ReadView.Epoch::wheelCount, StateController::wheel);
+    }
+
+    @GetMapping("/wheels/{wheelId}")
+    public Mono<ResponseEntity<Map<String, Object>>> wheel(@PathVariable String wheelId,
+                                                           @RequestParam(required = false) String fields) {
+        return one(wheelId, fields, WHEEL_FIELDS, ReadView.Epoch::findWheel, StateController::wheel);
+    }
+
+    @GetMapping("/sensors")
+    public Mono<StatePage> sensors(@RequestParam(defaultValue = "0") int offset,
+                                   @RequestParam(defaultValue = "100") int limit,
+                                   @RequestParam(required = false) String fields) {
+        return page(offset, limit, fields, SENSOR_FIELDS, ReadView.Epoch::sensorCount, StateController::sensor);
+    }
+
+    @GetMapping("/sensors/{sensorId}")
+    public Mono<ResponseEntity<Map<String, Object>>> sensor(@PathVariable String sensorId,
+                                                            @RequestParam(required = false) String fields) {
+        return one(sensorId, fields, SENSOR_FIELDS, ReadView.Epoch::findSensor, StateController::sensor);
+    }
+
+    private static Map<String, Object> hamster(ReadView.Epoch epoch, int h, Set<String> fields) {
+        Map<String, Object> item = new LinkedHashMap<>();
+        item.put("hamsterId", epoch.hamsterId(h));
+        if (fields.contains("rounds")) item.put("rounds", epoch.rounds(h));
+        if (fields.contains("lastActivity")) item.put("lastActivity", epoch.lastActivity(h));
+        return item;
+    }
+
+    private static Map<String, Object> wheel(ReadView.Epoch epoch, int w, Set<String> fields) {
+        Map<String, Object> item = new LinkedHashMap<>();
+        item.put("wheelId", epoch.wheelId(w));
+        if (fields.contains("occupant")) {
+            int occupant = epoch.occupant(w);
+            item.put("occupant", occupant < 0 ? null : epoch.hamsterId(occupant));
+        }
+        return item;
+    }
+
+    private static Map<String, Object> sensor(ReadView.Epoch epoch, int s, Set<String> fields) {
+        Map<String, Object> item = new LinkedHashMap<>();
+        item.put("sensorId", epoch.sensorId(s));
+        Instant since = epoch.sensorFailedSince(s);
+        if (fields.contains("failed")) item.put("failed", since != null);
+        if (fields.contains("failedSince")) item.put("failedSince", since);
+        return item;
+    }
+
+    private Mono<StatePage> page(int offset, int limit, String fields, List<String> known,
+                                 ToIntFunction<ReadView.Epoch> count, Item item) {
+        if (offset < 0) {
+            return Mono.error(new ResponseStatusException(HttpStatus.BAD_REQUEST, "offset must be non-negative"));
+        }
+        int n = Math.max(1, Math.min(limit, MAX_LIMIT));
+        return fields(fields, known).map(selected -> {
+            ReadView.Epoch epoch = readView.current();
+            int total = count.applyAsInt(epoch);
+            int end = (int) Math.min(total, (long) offset + n);
+            List<Map<String, Object>> items = new ArrayList<>(Math.max(0, end - offset));
+            for (int handle = offset; handle < end; handle++) {
+                items.add(item.build(epoch, handle, selected));
+            }
+            return new StatePage(epoch.number(), epoch.publishedAtMs(), total, offset, items);
+        });
+    }
+
+    private Mono<ResponseEntity<Map<String, Object>>> one(String id, String fields, List<String> known,
+                                                           Lookup lookup, Item item) {
+        return fields(fields, known).map(selected -> {
+            ReadView.Epoch epoch = readView.current();
+            int handle = lookup.find(epoch, id);
+            return handle < 0 ? ResponseEntity.notFound().<Map<String, Object>>build()
+                    : ResponseEntity.ok(item.build(epoch, handle, selected));
+        });
+    }
+
+    private static Mono<Set<String>> fields(String fields, List<String> known) {
+        if (fields == null || fields.isBlank()) {
+            return Mono.just(Set.copyOf(known));
+        }
+        Set<String> selected = new HashSet<>(Arrays.asList(fields.split("\\s*,\\s*")));
+        for (String field : selected) {
+            if (!known.contains(field)) {
+                return Mono.error(new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                        "Unknown field '" + field + "', expected one of " + known));
+            }
+        }
+        return Mono.just(selected);
+    }
+
+    @FunctionalInterface
+    private interface Item {
+        Map<String, Object> build(ReadView.Epoch epoch, int handle, Set<String> fields);
+    }
+
+    @FunctionalInterface
+    private interface Lookup {
+        int find(ReadView.Epoch epoch, String id);
+    }
+}
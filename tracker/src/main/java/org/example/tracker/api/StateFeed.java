@@ -0,0 +1,237 @@
+package org.example.tracker.api;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.example.tracker.domain.ReadView;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+
+import java.io.UncheckedIOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Живая лента изменений для дашбордов (text/event-stream) поверх эпох {@link ReadView}.
+ * <p>
+ * Раз в window-ms поток ленты сравнивает текущую эпоху с прошлой отправленной: общие куски эпох пропускаются,
+ * по остальным находятся изменившиеся хомяки, колёса и датчики. Каждое изменение кодируется в JSON один раз
+ * и раздаётся всем подписчикам. У подписчика своя карта «сущность → последнее значение»: пока клиент не
+ * забирает события, новое значение сущности заменяет старое, поэтому медленный клиент получает только свежие
+ * значения, а очередь у него не больше числа сущностей. Приём событий лента не видит вовсе — она читает эпохи.
+ * <p>
+ * Начальное состояние лента не присылает: его читают через GET /tracker/hamsters и соседние ресурсы.
+ */
+@Slf4j
+@Component
+public class StateFeed {
+
+    public enum Kind {
+        HAMSTER, WHEEL, SENSOR
+    }
+
+    private static final int MAX_ITEMS_PER_EVENT = 1000;
+    private static final long KEEPALIVE_MS = 15_000;
+
+    private final ReadView readView;
+    private final ObjectMapper objectMapper;
+    private final long windowMs;
+    private final int maxSubscribers;
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private final ScheduledExecutorService publisher = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "hamster-feed");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final LongAdder windows = new LongAdder();
+    private final LongAdder updates = new LongAdder();
+    private final LongAdder conflated = new LongAdder();
+    private final LongAdder eventsSent = new LongAdder();
+
+    private ReadView.Epoch last; // только поток ленты
+
+    public StateFeed(ReadView readView, ObjectMapper objectMapper,
+                     @Value("${tracker.feed.window-ms:1000}") long windowMs,
+                     @Value("${tracker.feed.max-subscribers:500}") int maxSubscribers) {
+        this.readView = readView;
+        this.objectMapper = objectMapper;
+        this.windowMs = windowMs;
+        this.maxSubscribers = maxSubscribers;
+        this.last = readView.current();
+    }
+
+    @PostConstruct
+    public void start() {
+        publisher.scheduleWithFixedDelay(this::publishSafe, windowMs, windowMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        publisher.shutdownNow();
+        subscribers.forEach(s -> s.sink.complete());
+    }
+
+    //null — подписчиков уже maxSubscribers
+    public Flux<ServerSentEvent<String>> subscribe(Set<Kind> kinds) {
+        if (subscribers.size() >= maxSubscribers) return null;
+        return Flux.create(sink -> {
+            Subscriber subscriber = new Subscriber(sink, kinds.isEmpty() ? EnumSet.allOf(Kind.class) : EnumSet.copyOf(kinds));
+            subscribers.add(subscriber);
+            sink.onRequest(n -> subscriber.drain());
+            sink.onDispose(() -> subscribers.remove(subscriber));
+        });
+    }
+
+    public FeedStats stats() {
+        return new FeedStats(subscribers.size(), windows.sum(), updates.sum(), conflated.sum(), eventsSent.sum());
+    }
+
+    //Один проход окна: изменения с прошлой эпохи, общий JSON на изменение, раздача подписчикам
+    public void publish() {
+        ReadView.Epoch epoch = readView.current();
+        long now = System.currentTimeMillis();
+        if (epoch != last && !subscribers.isEmpty()) {
+            List<Update> changed = new ArrayList<>();
+            epoch.changedHamsters(last, h -> changed.add(hamster(epoch, h)));
+            epoch.changedWheels(last, w -> changed.add(wheel(epoch, w)));
+            epoch.changedSensors(last, s -> changed.add(sensor(epoch, s)));
+            windows.increment();
+            updates.add(changed.size());
+            for (Subscriber subscriber : subscribers) {
+                subscriber.offer(changed, epoch.number(), now);
+            }
+        } else {
+            for (Subscriber subscriber : subscribers) {
+                subscriber.keepalive(now);
+            }
+        }
+        last = epoch; // без подписчиков изменения просто пропускаются
+    }
+
+    private void publishSafe() {
+        try {
+            publish();
+        } catch (Exception ex) {
+            log.error("State feed publish failed: {}", ex.toString(), ex);
+        }
+    }
+
+    private Update hamster(ReadView.Epoch epoch, int h) {
+        Map<String, Object> item = new LinkedHashMap<>();
+        item.put("kind", "hamster");
+        item.put("hamsterId", epoch.hamsterId(h));
+        item.put("rounds", epoch.rounds(h));
+        item.put("lastActivity", epoch.lastActivity(h));
+        return new Update(Kind.HAMSTER, key(Kind.HAMSTER, h), encode(item));
+    }
+
+    private Update wheel(ReadView.Epoch epoch, int w) {
+        Map<String, Object> item = new LinkedHashMap<>();
+        item.put("kind", "wheel");
+        item.put("wheelId", epoch.wheelId(w));
+        int occupant = epoch.occupant(w);
+        item.put("occupant", occupant < 0 ? null : epoch.hamsterId(occupant));
+        return new Update(Kind.WHEEL, key(Kind.WHEEL, w), encode(item));
+    }
+
+    private Update sensor(ReadView.Epoch epoch, int s) {
+        Map<String, Object> item = new LinkedHashMap<>();
+        item.put("kind", "sensor");
+        item.put("sensorId", epoch.sensorId(s));
+        Instant since = epoch.sensorFailedSince(s);
+        item.put("failed", since != null);
+        item.put("failedSince", since);
+        return new Update(Kind.SENSOR, key(Kind.SENSOR, s), encode(item));
+    }
+
+    private String encode(Map<String, Object> item) {
+        try {
+            return objectMapper.writeValueAsString(item);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static long key(Kind kind, int handle) {
+        return ((long) kind.ordinal() << 32) | handle;
+    }
+
+    private record Update(Kind kind, long key, String json) {
+    }
+
+    //Подписчик: последние значения по сущностям, отправка только под спрос клиента
+    private final class Subscriber {
+        private final FluxSink<ServerSentEvent<String>> sink;
+        private final Set<Kind> kinds;
+        private final LinkedHashMap<Long, String> pending = new LinkedHashMap<>();
+        private long epoch;
+        private long lastSentMs = System.currentTimeMillis();
+        private boolean draining;
+
+        Subscriber(FluxSink<ServerSentEvent<String>> sink, Set<Kind> kinds) {
+            this.sink = sink;
+            this.kinds = kinds;
+        }
+
+        synchronized void offer(List<Update> changed, long epoch, long nowMs) {
+            for (Update update : changed) {
+                if (!kinds.contains(update.kind())) continue;
+                // новое значение встаёт в конец очереди вместо прежнего
+                if (pending.remove(update.key()) != null) {
+                    conflated.increment();
+                }
+                pending.put(update.key(), update.json());
+            }
+            this.epoch = epoch;
+            drain();
+            keepalive(nowMs);
+        }
+
+        synchronized void keepalive(long nowMs) {
+            if (pending.isEmpty() && nowMs - lastSentMs >= KEEPALIVE_MS && sink.requestedFromDownstream() > 0) {
+                lastSentMs = nowMs;
+                sink.next(ServerSentEvent.<String>builder().comment("keepalive").build());
+            }
+        }
+
+        synchronized void drain() {
+            if (draining) return; // next может тут же запросить ещё и зайти сюда повторно
+            draining = true;
+            try {
+                while (!pending.isEmpty() && sink.requestedFromDownstream() > 0 && !sink.isCancelled()) {
+                    StringBuilder data = new StringBuilder("[");
+                    Iterator<String> it = pending.values().iterator();
+                    for (int n = 0; n < MAX_ITEMS_PER_EVENT && it.hasNext(); n++) {
+                        if (n > 0) data.append(',');
+                        data.append(it.next());
+                        it.remove();
+                    }
+                    data.append(']');
+                    lastSentMs = System.currentTimeMillis();
+                    eventsSent.increment();
+                    sink.next(ServerSentEvent.<String>builder()
+                            .id(Long.toString(epoch)).event("state").data(data.toString()).build());
+                }
+            } finally {
+                draining = false;
+            }
+        }
+    }
+}
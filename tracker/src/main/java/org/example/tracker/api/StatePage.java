@@ -0,0 +1,8 @@
+package org.example.tracker.api;
+
+import java.util.List;
+import java.util.Map;
+
+//Страница состояния из одной эпохи представления: total — всего сущностей в эпохе, items — с offset по порядку появления
+public record StatePage(long epoch, long publishedAtMs, int total, int offset, List<Map<String, Object>> items) {
+}
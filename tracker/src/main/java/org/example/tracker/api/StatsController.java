@@ -0,0 +1,66 @@
+package org.example.tracker.api;
+
+import org.example.tracker.cluster.ClusterRouter;
+import org.example.tracker.cluster.ClusterStats;
+import org.example.tracker.domain.AlertDispatcher;
+import org.example.tracker.domain.AlertStats;
+import org.example.tracker.domain.IngestStats;
+import org.example.tracker.domain.ShardedEventProcessor;
+import org.example.tracker.persistence.SnapshotInfo;
+import org.example.tracker.persistence.SnapshotScheduler;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Mono;
+
+import java.util.Optional;
+
+@RestController
+@RequestMapping("/tracker/stats")
+public class StatsController {
+
+    private final ShardedEventProcessor eventProcessor;
+    private final Optional<SnapshotScheduler> snapshots;
+    private final AlertDispatcher alertDispatcher;
+    private final StateFeed stateFeed;
+    private final ClusterRouter router;
+
+    public StatsController(ShardedEventProcessor eventProcessor, Optional<SnapshotScheduler> snapshots,
+                           AlertDispatcher alertDispatcher, StateFeed stateFeed, ClusterRouter router) {
+        this.eventProcessor = eventProcessor;
+        this.snapshots = snapshots;
+        this.alertDispatcher = alertDispatcher;
+        this.stateFeed = stateFeed;
+        this.router = router;
+    }
+
+    //Принятые/отброшенные/отклонённые события по типам и заполнение буфера приёма
+    @GetMapping("/ingest")
+    public Mono<IngestStats> ingest() {
+        return Mono.fromSupplier(eventProcessor::stats);
+    }
+
+    //Очередь алертов, доставки, повторы, дайджесты и задержка доставки
+    @GetMapping("/alerts")
+    public Mono<AlertStats> alerts() {
+        return Mono.fromSupplier(alertDispatcher::stats);
+    }
+
+    //Подписчики живой ленты и сколько изменений замещено до отправки
+    @GetMapping("/feed")
+    public Mono<FeedStats> feed() {
+        return Mono.fromSupplier(stateFeed::stats);
+    }
+
+    //Узлы кластера, очереди пересылки владельцам, пересланные и отклонённые события
+    @GetMapping("/cluster")
+    public Mono<ClusterStats> cluster() {
+        return Mono.fromSupplier(router::stats);
+    }
+
+    //Последний снимок состояния: размер, пауза шардов, полное время; пусто, если снимков ещё не было
+    @GetMapping("/snapshot")
+    public Mono<SnapshotInfo> snapshot() {
+        return Mono.justOrEmpty(snapshots.map(SnapshotScheduler::last));
+    }
+}
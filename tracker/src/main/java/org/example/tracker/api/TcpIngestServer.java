@@ -0,0 +1,141 @@
+package org.example.tracker.api;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.handler.codec.ByteToMessageDecoder;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.example.tracker.cluster.ClusterRouter;
+import org.example.tracker.codec.HamsterEventBinaryCodec;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.netty.Connection;
+import reactor.netty.DisposableServer;
+import reactor.netty.tcp.TcpServer;
+
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Приём событий по голому TCP без HTTP-слоя: поток кадров HamsterEventBinaryCodec
+ * (varint длины + тело). Кадры режет Netty прямо в пуловых буферах, длина проверяется до приёма тела,
+ * тело разбирается тем же кодеком, что и в REST. Включается свойством tracker.tcp.enabled=true.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "tracker.tcp.enabled", havingValue = "true")
+public class TcpIngestServer {
+
+    private static final Duration STATS_PERIOD = Duration.ofSeconds(10);
+
+    private final ClusterRouter router;
+    private final IngestMeter meter;
+    private final int port;
+
+    private final AtomicLong activeConnections = new AtomicLong();
+    private final LongAdder totalConnections = new LongAdder();
+    private final LongAdder bytes = new LongAdder();
+
+    private DisposableServer server;
+    private Disposable statsTask;
+
+    public TcpIngestServer(ClusterRouter router, IngestMeter meter,
+                           @Value("${tracker.tcp.port:9090}") int port) {
+        this.router = router;
+        this.meter = meter;
+        this.port = port;
+    }
+
+    @PostConstruct
+    void start() {
+        this.server = TcpServer.create()
+                .port(port)
+                .doOnConnection(this::onConnection)
+                .handle((in, out) -> in.receive()
+                        .doOnNext(this::onFrame)
+                        .then())
+                .bindNow();
+        this.statsTask = Flux.interval(STATS_PERIOD).subscribe(tick -> logStats());
+        log.info("TCP ingest listening on port {}", server.port());
+    }
+
+    @PreDestroy
+    void stop() {
+        if (statsTask != null) statsTask.dispose();
+        if (server != null) server.disposeNow();
+    }
+
+    //Фактический порт (для tracker.tcp.port=0)
+    public int port() {
+        return server.port();
+    }
+
+    private void onConnection(Connection connection) {
+        activeConnections.incrementAndGet();
+        totalConnections.increment();
+        connection.addHandlerFirst("ingest-bytes", new ChannelInboundHandlerAdapter() {
+            @Override
+            public void channelRead(ChannelHandlerContext ctx, Object msg) {
+                if (msg instanceof ByteBuf buf) {
+                    bytes.add(buf.readableBytes());
+                }
+                ctx.fireChannelRead(msg);
+            }
+        });
+        connection.addHandlerLast("ingest-frames", new FrameDecoder());
+        connection.onDispose(activeConnections::decrementAndGet);
+    }
+
+    private void onFrame(ByteBuf frame) {
+        try {
+            router.submit(HamsterEventBinaryCodec.decode(frame.nioBuffer()))
+                    .thenAccept(admission -> meter.record(IngestChannel.TCP, admission));
+        } catch (IllegalArgumentException ex) {
+            meter.recordMalformed(IngestChannel.TCP);
+            log.warn("Malformed TCP frame dropped: {}", ex.getMessage());
+        }
+    }
+
+    //Пропускная способность по событиям пишет IngestMeter, здесь — соединения и байты
+    private void logStats() {
+        double seconds = STATS_PERIOD.toMillis() / 1000.0;
+        long kbPerSec = Math.round(bytes.sumThenReset() / seconds / 1024);
+        if (activeConnections.get() == 0 && kbPerSec == 0) return;
+        log.info("TCP ingest: connections={} (total {}), {} KB/s",
+                activeConnections.get(), totalConnections.sum(), kbPerSec);
+    }
+
+    /**
+     * Режет поток на кадры, как ProtobufVarint32FrameDecoder, но длину проверяет по префиксу,
+     * до буферизации тела: объявленный кадр больше MAX_FRAME_LENGTH или битый varint закрывает соединение,
+     * а не заставляет копить гигабайты. Состояние — на соединение, экземпляр не разделяется.
+     */
+    private final class FrameDecoder extends ByteToMessageDecoder {
+
+        @Override
+        protected void decode(ChannelHandlerContext ctx, ByteBuf in, List<Object> out) {
+            ByteBuffer prefix = in.nioBuffer(in.readerIndex(), Math.min(5, in.readableBytes()));
+            int length;
+            try {
+                length = HamsterEventBinaryCodec.readFrameLength(prefix);
+            } catch (IllegalArgumentException ex) {
+                meter.recordMalformed(IngestChannel.TCP);
+                log.warn("TCP connection {} closed: {}", ctx.channel().remoteAddress(), ex.getMessage());
+                in.skipBytes(in.readableBytes());
+                ctx.close();
+                return;
+            }
+            if (length < 0 || in.readableBytes() < prefix.position() + length) return; // ждём остаток кадра
+            in.skipBytes(prefix.position());
+            out.add(in.readRetainedSlice(length));
+        }
+    }
+}
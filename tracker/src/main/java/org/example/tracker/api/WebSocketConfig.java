@@ -0,0 +1,17 @@
+package org.example.tracker.api;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.reactive.HandlerMapping;
+import org.springframework.web.reactive.handler.SimpleUrlHandlerMapping;
+
+import java.util.Map;
+
+@Configuration
+public class WebSocketConfig {
+
+    @Bean
+    HandlerMapping webSocketIngestMapping(HamsterEventWebSocketHandler handler) {
+        return new SimpleUrlHandlerMapping(Map.of("/tracker/events/ws", handler), -1);
+    }
+}
@@ -0,0 +1,16 @@
+package org.example.tracker.cluster;
+
+import org.example.tracker.domain.HamsterStats;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+//Отчёт кластера: раунды хомяков сложены по узлам, хомяки — по убыванию раундов; missingNodes не ответили или за другие сутки
+public record ClusterReport(
+        LocalDate date,
+        List<String> nodes,
+        List<String> missingNodes,
+        Map<String, HamsterStats> hamsterStats
+) {
+}
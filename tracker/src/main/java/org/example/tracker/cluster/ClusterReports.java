@@ -0,0 +1,129 @@
+package org.example.tracker.cluster;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example.tracker.db.HamsterTrackerRepository;
+import org.example.tracker.domain.DailyReport;
+import org.example.tracker.domain.HamsterStats;
+import org.example.tracker.domain.TrackerListener;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+/**
+ * Суточные отчёты кластера сбором с узлов (scatter-gather). Каждый узел знает только раунды по своим колёсам:
+ * за открытые сутки — из репозитория, за последние закрытые — из своего отчёта при смене суток.
+ * Отчёт кластера опрашивает все узлы параллельно и складывает раунды хомяка, побывавшего в колёсах
+ * разных узлов. Узел, который не ответил или прислал другие сутки, попадает в missingNodes, а не роняет отчёт.
+ */
+@Slf4j
+@Component
+public class ClusterReports implements TrackerListener {
+
+    private static final int ACTIVE_THRESHOLD = 10;
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(5);
+
+    private final HamsterTrackerRepository repository;
+    private final String self;
+    private final List<String> nodes;
+    private final Map<String, WebClient> peers = new HashMap<>();
+    private volatile NodeReport last;
+
+    //Узлы читаются из тех же настроек, что у ClusterRouter: он зависит от сервиса, а этот слушатель нужен сервису
+    public ClusterReports(HamsterTrackerRepository repository, WebClient.Builder webClient,
+                          @Value("${tracker.cluster.nodes:}") String nodes,
+                          @Value("${tracker.cluster.self:}") String self) {
+        this.repository = repository;
+        this.self = ClusterRouter.normalize(self);
+        List<String> members = ClusterRouter.parseNodes(nodes);
+        this.nodes = members.isEmpty() ? List.of(this.self) : members;
+        for (String node : this.nodes) {
+            if (!node.equals(this.self)) {
+                peers.put(node, webClient.clone().baseUrl(node).build());
+            }
+        }
+    }
+
+    @Override
+    public void onDailyReset(DailyReport report) {
+        Map<String, Integer> rounds = new HashMap<>();
+        report.getHamsterStats().forEach((id, stats) -> rounds.put(id, stats.getTotalRounds()));
+        last = new NodeReport(self, report.getDate(), rounds);
+    }
+
+    //Раунды этого узла за открытые сутки
+    public NodeReport localToday() {
+        return new NodeReport(self, LocalDate.now(), repository.getAllRoundsSnapshot());
+    }
+
+    //Последний отчёт этого узла при смене суток; null — смены ещё не было
+    public NodeReport localLast() {
+        return last;
+    }
+
+    public Mono<ClusterReport> today() {
+        return gather("today", this::localToday);
+    }
+
+    public Mono<ClusterReport> last() {
+        return gather("last", this::localLast);
+    }
+
+    private Mono<ClusterReport> gather(String which, Supplier<NodeReport> local) {
+        List<Mono<Optional<NodeReport>>> parts = new ArrayList<>(nodes.size());
+        for (String node : nodes) {
+            WebClient peer = peers.get(node);
+            parts.add(peer == null
+                    ? Mono.fromSupplier(() -> Optional.ofNullable(local.get())).subscribeOn(Schedulers.boundedElastic())
+                    : peer.get().uri("/tracker/reports/node/" + which)
+                    .retrieve()
+                    .bodyToMono(NodeReport.class)
+                    .timeout(REQUEST_TIMEOUT)
+                    .map(Optional::of)
+                    .onErrorResume(ex -> {
+                        if (!(ex instanceof WebClientResponseException.NotFound)) {
+                            log.warn("Report from {} unavailable: {}", node, ex.toString());
+                        }
+                        return Mono.just(Optional.empty());
+                    }));
+        }
+        return Flux.mergeSequential(parts)
+                .collectList()
+                .map(answers -> merge(nodes, answers));
+    }
+
+    //Раунды за самые поздние из присланных суток; остальные узлы — missing
+    static ClusterReport merge(List<String> nodes, List<Optional<NodeReport>> answers) {
+        LocalDate date = answers.stream().flatMap(Optional::stream).map(NodeReport::date)
+                .max(Comparator.naturalOrder()).orElse(null);
+        Map<String, Integer> rounds = new HashMap<>();
+        List<String> missing = new ArrayList<>();
+        for (int i = 0; i < nodes.size(); i++) {
+            NodeReport report = answers.get(i).orElse(null);
+            if (report == null || !report.date().equals(date)) {
+                missing.add(nodes.get(i));
+                continue;
+            }
+            report.rounds().forEach((id, r) -> rounds.merge(id, r, Integer::sum));
+        }
+        Map<String, HamsterStats> stats = new LinkedHashMap<>();
+        rounds.entrySet().stream()
+                .sorted(Map.Entry.<String, Integer>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey()))
+                .forEach(e -> stats.put(e.getKey(), new HamsterStats(e.getKey(), e.getValue(), e.getValue() > ACTIVE_THRESHOLD)));
+        return new ClusterReport(date, nodes, missing, stats);
+    }
+}
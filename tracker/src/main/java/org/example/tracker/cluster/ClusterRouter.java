@@ -0,0 +1,367 @@
+package org.example.tracker.cluster;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.example.tracker.api.BatchResult;
+import org.example.tracker.codec.HamsterEventBinaryCodec;
+import org.example.tracker.domain.Admission;
+import org.example.tracker.domain.HamsterTrackerService;
+import org.example.tracker.domain.ShardedEventProcessor;
+import org.example.tracker.domain.eventDto.*;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Разбиение событий между узлами трекера. Ключ события — колесо (вход, выход, крутка) или датчик (отказ),
+ * владелец ключа — узел по {@link HashRing}. Свои события сразу идут в {@link ShardedEventProcessor},
+ * чужие — в очередь пересылки владельцу: поток пересылки собирает их в батчи бинарных кадров и шлёт
+ * на /tracker/events/batch с заголовком {@value #FORWARDED_HEADER}. Узел применяет пересланное у себя
+ * и дальше не пересылает, даже если его кольцо расходится с кольцом отправителя.
+ * <p>
+ * Решение по чужому событию приходит, когда его применил владелец: клиент получает подтверждение
+ * не раньше. Владелец применяет пересланный батч до первого отказа (429), остаток батча повторяется
+ * по порядку с паузой, как и весь батч при недоступном владельце. Очередь пересылки ограничена:
+ * пока владелец не принимает, она заполняется, и новые события для него отклоняются (429 клиенту),
+ * как при переполнении своих шардов. Без tracker.cluster.nodes узел один и все события свои.
+ * <p>
+ * Состояние хомяка делится по узлам вместе с колёсами: каждый узел знает раунды, активность и рейтинг
+ * хомяка только по своим колёсам. Поэтому о каждом входе хомяка в колесо узел приёма уведомляет все
+ * узлы, кроме владельца колеса (/tracker/events/moves): там хомяк ушёл на чужое колесо, и о его простое
+ * они не сообщают, пока он не вернётся на их колесо. Суточный отчёт кластера собирается со всех узлов
+ * ({@link ClusterReports}); рейтинг, /tracker/hamsters, /tracker/activity и история отвечают данными
+ * только своего узла.
+ */
+@Slf4j
+@Component
+public class ClusterRouter {
+
+    public static final String FORWARDED_HEADER = "X-Hamster-Forwarded";
+
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(5);
+    private static final long RETRY_BACKOFF_MS = 500;
+    private static final long SHUTDOWN_TIMEOUT_MS = 5_000;
+
+    //Готовые решения для своих событий: без выделения будущего на каждое
+    private static final CompletableFuture<Admission> ACCEPTED = CompletableFuture.completedFuture(Admission.ACCEPTED);
+    private static final CompletableFuture<Admission> SHED = CompletableFuture.completedFuture(Admission.SHED);
+    private static final CompletableFuture<Admission> REJECTED = CompletableFuture.completedFuture(Admission.REJECTED);
+
+    private final ShardedEventProcessor eventProcessor;
+    private final HamsterTrackerService trackerService;
+    private final String self;
+    private final HashRing ring; // null — узел один
+    private final Map<String, Peer> peers = new LinkedHashMap<>();
+    private final int batchSize;
+    private volatile boolean running;
+
+    private final LongAdder forwarded = new LongAdder();
+    private final LongAdder forwardRejected = new LongAdder();
+    private final LongAdder rejectedByOwner = new LongAdder();
+    private final LongAdder failedBatches = new LongAdder();
+    private final LongAdder droppedMoves = new LongAdder();
+
+    public ClusterRouter(ShardedEventProcessor eventProcessor, HamsterTrackerService trackerService, WebClient.Builder webClient,
+                         @Value("${tracker.cluster.nodes:}") String nodes,
+                         @Value("${tracker.cluster.self:}") String self,
+                         @Value("${tracker.cluster.virtual-nodes:128}") int virtualNodes,
+                         @Value("${tracker.cluster.forward-queue-capacity:65536}") int queueCapacity,
+                         @Value("${tracker.cluster.forward-batch-size:512}") int batchSize) {
+        this.eventProcessor = eventProcessor;
+        this.trackerService = trackerService;
+        this.self = normalize(self);
+        this.batchSize = batchSize;
+        List<String> members = parseNodes(nodes);
+        if (members.isEmpty()) {
+            this.ring = null;
+            return;
+        }
+        if (!members.contains(this.self)) {
+            throw new IllegalArgumentException("tracker.cluster.self '%s' is not one of tracker.cluster.nodes %s".formatted(self, members));
+        }
+        if (queueCapacity < 1 || batchSize < 1) {
+            throw new IllegalArgumentException("forward-queue-capacity and forward-batch-size must be >= 1");
+        }
+        this.ring = new HashRing(members, virtualNodes);
+        for (String node : members) {
+            if (!node.equals(this.self)) {
+                peers.put(node, new Peer(node, webClient.clone().baseUrl(node).build(), queueCapacity));
+            }
+        }
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        peers.values().forEach(peer -> peer.thread.start());
+        if (ring != null) {
+            log.info("Cluster routing started: self={} nodes={} batchSize={}", self, ring.nodes(), batchSize);
+        }
+    }
+
+    //Останавливает пересылку, дав потокам дослать то, что уже в очередях
+    @PreDestroy
+    public void stop() {
+        running = false;
+        long deadline = System.currentTimeMillis() + SHUTDOWN_TIMEOUT_MS;
+        for (Peer peer : peers.values()) {
+            try {
+                peer.thread.join(Math.max(1, deadline - System.currentTimeMillis()));
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            List<Forward> left = new ArrayList<>();
+            peer.queue.drainTo(left);
+            if (!left.isEmpty()) {
+                left.forEach(forward -> forward.result.complete(Admission.REJECTED));
+                log.warn("Forwarding to {} stopped with {} events left", peer.node, left.size());
+            }
+        }
+    }
+
+    public boolean clustered() {
+        return ring != null;
+    }
+
+    public String self() {
+        return self;
+    }
+
+    //Все узлы кластера, включая этот; без кластера — только этот
+    public List<String> nodes() {
+        return ring == null ? List.of(self) : ring.nodes();
+    }
+
+    //Своё событие — сразу решение шардов; чужое — решение владельца, когда тот его применит
+    public CompletableFuture<Admission> submit(HamsterEvent event) {
+        if (ring == null || event == null) {
+            return completed(eventProcessor.submit(event));
+        }
+        String owner = ring.owner(routingKey(event));
+        if (event instanceof HamsterEnter enter) {
+            announceMove(enter, owner);
+        }
+        Peer peer = peers.get(owner);
+        if (peer == null) {
+            return completed(eventProcessor.submit(event));
+        }
+        Forward forward = new Forward(event, new CompletableFuture<>());
+        if (!running || !peer.queue.offer(forward)) {
+            forwardRejected.increment();
+            return REJECTED;
+        }
+        return forward.result;
+    }
+
+    //Событие, пересланное другим узлом
+    public Admission submitForwarded(HamsterEvent event) {
+        return eventProcessor.submit(event);
+    }
+
+    //Уведомление другого узла: хомяк зашёл в колесо, которое принадлежит не этому узлу
+    public void applyMove(HamsterEvent event) {
+        if (event instanceof HamsterEnter enter && trackerService != null) {
+            long at = HamsterTrackerService.eventTimeMs(enter, System.currentTimeMillis());
+            trackerService.hamsterMovedAway(enter.getHamsterId(), Instant.ofEpochMilli(at));
+        }
+    }
+
+    //Вход хомяка — всем узлам, кроме владельца колеса; время входа фиксируется здесь, у узла приёма
+    private void announceMove(HamsterEnter enter, String owner) {
+        HamsterEnter move = new HamsterEnter(enter.getHamsterId(), enter.getWheelId());
+        move.setTimestamp(HamsterTrackerService.eventTimeMs(enter, System.currentTimeMillis()));
+        if (!owner.equals(self)) {
+            applyMove(move);
+        }
+        peers.forEach((node, peer) -> {
+            if (!node.equals(owner) && !peer.moves.offer(move)) {
+                droppedMoves.increment();
+            }
+        });
+    }
+
+    public ClusterStats stats() {
+        Map<String, Integer> queued = new LinkedHashMap<>();
+        peers.forEach((node, peer) -> queued.put(node, peer.queue.size()));
+        return new ClusterStats(self, nodes(), queued, forwarded.sum(), forwardRejected.sum(),
+                rejectedByOwner.sum(), failedBatches.sum(), droppedMoves.sum());
+    }
+
+    private static CompletableFuture<Admission> completed(Admission admission) {
+        return switch (admission) {
+            case ACCEPTED -> ACCEPTED;
+            case SHED -> SHED;
+            case REJECTED -> REJECTED;
+        };
+    }
+
+    //Ключ маршрутизации: колесо для событий колеса, датчик для отказов
+    public static String routingKey(HamsterEvent event) {
+        return switch (event) {
+            case HamsterEnter e -> e.getWheelId();
+            case HamsterExit e -> e.getWheelId();
+            case WheelSpin e -> e.getWheelId();
+            case SensorFailure e -> e.getSensorId();
+            default -> "";
+        };
+    }
+
+    static List<String> parseNodes(String nodes) {
+        if (nodes == null || nodes.isBlank()) return List.of();
+        return Arrays.stream(nodes.split(",")).map(ClusterRouter::normalize).filter(s -> !s.isEmpty()).toList();
+    }
+
+    static String normalize(String node) {
+        String trimmed = node == null ? "" : node.trim();
+        return trimmed.endsWith("/") ? trimmed.substring(0, trimmed.length() - 1) : trimmed;
+    }
+
+    //Чужое событие в очереди пересылки и решение по нему для клиента
+    private record Forward(HamsterEvent event, CompletableFuture<Admission> result) {
+    }
+
+    //Очередь и поток пересылки одному узлу
+    private final class Peer {
+        final String node;
+        final WebClient client;
+        final BlockingQueue<Forward> queue;
+        final BlockingQueue<HamsterEvent> moves;
+        final Thread thread;
+
+        Peer(String node, WebClient client, int capacity) {
+            this.node = node;
+            this.client = client;
+            this.queue = new ArrayBlockingQueue<>(capacity);
+            this.moves = new ArrayBlockingQueue<>(capacity);
+            this.thread = new Thread(this::run, "hamster-forward-" + peers.size());
+            this.thread.setDaemon(true);
+        }
+
+        private void run() {
+            List<Forward> batch = new ArrayList<>(batchSize);
+            List<HamsterEvent> moved = new ArrayList<>(batchSize);
+            while (running || !queue.isEmpty() || !moves.isEmpty()) {
+                try {
+                    Forward first = queue.poll(100, TimeUnit.MILLISECONDS);
+                    if (first != null) {
+                        batch.add(first);
+                        queue.drainTo(batch, batchSize - 1);
+                        deliver(batch);
+                    }
+                    moves.drainTo(moved, batchSize);
+                    // уведомления о переходах повторяются так же, как события, пока узел работает
+                    while (!moved.isEmpty() && !sendMoves(moved) && running) {
+                        Thread.sleep(RETRY_BACKOFF_MS);
+                    }
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    batch.forEach(forward -> forward.result.complete(Admission.REJECTED));
+                    return;
+                } finally {
+                    batch.clear();
+                    moved.clear();
+                }
+            }
+        }
+
+        //Недоступный владелец — повтор батча, отказ владельца — повтор непринятого остатка, пока узел работает;
+        //после остановки то, что владелец так и не принял, отклоняется (клиент повторит сам)
+        private void deliver(List<Forward> batch) throws InterruptedException {
+            int from = 0;
+            while (true) {
+                int applied = send(batch.subList(from, batch.size()));
+                for (int i = from; i < from + applied; i++) {
+                    batch.get(i).result.complete(Admission.ACCEPTED);
+                }
+                from += Math.max(applied, 0);
+                if (from == batch.size()) return;
+                if (!running) {
+                    for (int i = from; i < batch.size(); i++) {
+                        batch.get(i).result.complete(Admission.REJECTED);
+                    }
+                    return;
+                }
+                Thread.sleep(RETRY_BACKOFF_MS);
+            }
+        }
+
+        //Сколько событий с начала батча владелец применил (отброшенные им как малоценные — тоже); -1 — не доставлен
+        private int send(List<Forward> batch) {
+            try {
+                BatchResult result = client.post()
+                        .uri("/tracker/events/batch")
+                        .contentType(HamsterEventBinaryCodec.MEDIA_TYPE)
+                        .header(FORWARDED_HEADER, self)
+                        .bodyValue(frames(batch.stream().map(Forward::event).toList()))
+                        .exchangeToMono(response -> response.statusCode().is2xxSuccessful()
+                                || response.statusCode().isSameCodeAs(HttpStatus.TOO_MANY_REQUESTS)
+                                ? response.bodyToMono(BatchResult.class)
+                                : response.createError())
+                        .block(REQUEST_TIMEOUT);
+                int applied = result == null ? batch.size() : (int) Math.min(batch.size(), result.accepted() + result.shed());
+                forwarded.add(applied);
+                if (applied < batch.size()) {
+                    rejectedByOwner.add(batch.size() - applied);
+                    log.warn("Owner {} rejected {} of {} forwarded events, retrying", node, batch.size() - applied, batch.size());
+                }
+                return applied;
+            } catch (RuntimeException ex) {
+                failedBatches.increment();
+                log.warn("Forwarding {} events to {} failed: {}", batch.size(), node, ex.toString());
+                return -1;
+            }
+        }
+
+        private boolean sendMoves(List<HamsterEvent> moved) {
+            try {
+                client.post()
+                        .uri("/tracker/events/moves")
+                        .contentType(HamsterEventBinaryCodec.MEDIA_TYPE)
+                        .header(FORWARDED_HEADER, self)
+                        .bodyValue(frames(moved))
+                        .retrieve()
+                        .toBodilessEntity()
+                        .block(REQUEST_TIMEOUT);
+                return true;
+            } catch (RuntimeException ex) {
+                failedBatches.increment();
+                log.warn("Sending {} hamster moves to {} failed: {}", moved.size(), node, ex.toString());
+                return false;
+            }
+        }
+    }
+
+    //Батч одним телом: кадры бинарного формата подряд
+    private static byte[] frames(List<HamsterEvent> batch) {
+        List<byte[]> frames = new ArrayList<>(batch.size());
+        int length = 0;
+        for (HamsterEvent event : batch) {
+            byte[] frame = HamsterEventBinaryCodec.encodeFrame(event);
+            frames.add(frame);
+            length += frame.length;
+        }
+        byte[] body = new byte[length];
+        int position = 0;
+        for (byte[] frame : frames) {
+            System.arraycopy(frame, 0, body, position, frame.length);
+            position += frame.length;
+        }
+        return body;
+    }
+}
@@ -0,0 +1,17 @@
+package org.example.tracker.cluster;
+
+import java.util.List;
+import java.util.Map;
+
+//Пересылка событий другим узлам: очереди по узлам и итоги с запуска
+public record ClusterStats(
+        String self,
+        List<String> nodes,
+        Map<String, Integer> queued,
+        long forwarded,
+        long forwardRejected,
+        long rejectedByOwner,
+        long failedBatches,
+        long droppedMoves
+) {
+}
@@ -0,0 +1,12 @@
+package org.example.tracker.cluster;
+
+import java.time.LocalDate;
+import java.util.Map;
+
+//Раунды за сутки date, насчитанные одним узлом по своим колёсам
+public record NodeReport(
+        String node,
+        LocalDate date,
+        Map<String, Integer> rounds
+) {
+}
@@ -0,0 +1,15 @@
+package org.example.tracker.codec;
+
+import org.springframework.boot.web.codec.CodecCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class BinaryCodecConfig {
+
+    //Регистрирует бинарный формат рядом с JSON: выбор — по Content-Type запроса
+    @Bean
+    CodecCustomizer binaryEventCodecCustomizer() {
+        return configurer -> configurer.customCodecs().register(new BinaryEventDecoder());
+    }
+}
@@ -0,0 +1,92 @@
+package org.example.tracker.codec;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example.tracker.domain.eventDto.HamsterEvent;
+import org.reactivestreams.Publisher;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.codec.DecodingException;
+import org.springframework.core.codec.Decoder;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.util.MimeType;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+
+//Декодер тел запросов в формате application/x-hamster-event: поток кадров, событие за событием
+@Slf4j
+public class BinaryEventDecoder implements Decoder<HamsterEvent> {
+
+    private static final List<MimeType> MIME_TYPES = List.of(HamsterEventBinaryCodec.MEDIA_TYPE);
+
+    @Override
+    public boolean canDecode(ResolvableType elementType, MimeType mimeType) {
+        return mimeType != null
+                && HamsterEventBinaryCodec.MEDIA_TYPE.isCompatibleWith(mimeType)
+                && HamsterEvent.class.isAssignableFrom(elementType.toClass());
+    }
+
+    @Override
+    public Flux<HamsterEvent> decode(Publisher<DataBuffer> inputStream, ResolvableType elementType,
+                                     MimeType mimeType, Map<String, Object> hints) {
+        return decode(inputStream, HamsterEventBinaryCodec::decode);
+    }
+
+    //Для батчей: событие, не разобранное внутри целого кадра, приходит как Optional.empty() и не обрывает поток.
+    //Сбитая длина кадра или оборванный хвост — по-прежнему DecodingException: границ следующих кадров уже не найти
+    public static Flux<Optional<HamsterEvent>> decodeEach(Publisher<DataBuffer> inputStream) {
+        return decode(inputStream, payload -> {
+            try {
+                return Optional.of(HamsterEventBinaryCodec.decode(payload));
+            } catch (IllegalArgumentException ex) {
+                log.warn("Malformed binary event skipped: {}", ex.getMessage());
+                return Optional.empty();
+            }
+        });
+    }
+
+    private static <T> Flux<T> decode(Publisher<DataBuffer> inputStream, Function<ByteBuffer, T> decoder) {
+        BinaryFrameReader reader = new BinaryFrameReader();
+        return Flux.from(inputStream)
+                .concatMapIterable(buffer -> {
+                    try {
+                        return feed(reader, buffer, decoder);
+                    } finally {
+                        DataBufferUtils.release(buffer);
+                    }
+                })
+                .concatWith(Mono.defer(() -> reader.hasPartialFrame()
+                        ? Mono.error(new DecodingException("Truncated binary event frame"))
+                        : Mono.empty()));
+    }
+
+    @Override
+    public Mono<HamsterEvent> decodeToMono(Publisher<DataBuffer> inputStream, ResolvableType elementType,
+                                           MimeType mimeType, Map<String, Object> hints) {
+        return decode(inputStream, elementType, mimeType, hints).next();
+    }
+
+    @Override
+    public List<MimeType> getDecodableMimeTypes() {
+        return MIME_TYPES;
+    }
+
+    private static <T> List<T> feed(BinaryFrameReader reader, DataBuffer buffer, Function<ByteBuffer, T> decoder) {
+        List<T> events = new ArrayList<>();
+        try (DataBuffer.ByteBufferIterator it = buffer.readableByteBuffers()) {
+            while (it.hasNext()) {
+                ByteBuffer chunk = it.next();
+                events.addAll(reader.feed(chunk, decoder));
+            }
+        } catch (IllegalArgumentException ex) {
+            throw new DecodingException("Malformed binary event: " + ex.getMessage(), ex);
+        }
+        return events;
+    }
+}
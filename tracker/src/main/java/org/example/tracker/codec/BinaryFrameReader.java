@@ -0,0 +1,77 @@
+package org.example.tracker.codec;
+
+import org.example.tracker.domain.eventDto.HamsterEvent;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Собирает кадры HamsterEventBinaryCodec из потока кусков произвольной длины.
+ * Не потокобезопасен: один экземпляр на одно соединение/тело запроса.
+ */
+public final class BinaryFrameReader {
+
+    private byte[] buf = new byte[4096];
+    private int start;
+    private int end;
+
+    //Дописывает кусок и возвращает все события, кадры которых пришли целиком
+    public List<HamsterEvent> feed(ByteBuffer chunk) {
+        return feed(chunk, HamsterEventBinaryCodec::decode);
+    }
+
+    //То же, но полезную нагрузку каждого целого кадра разбирает decoder: кадр уже отделён,
+    //поэтому битое событие внутри него может не обрывать разбор следующих
+    public <T> List<T> feed(ByteBuffer chunk, Function<ByteBuffer, T> decoder) {
+        List<T> events = new ArrayList<>();
+        forEachFrame(chunk, payload -> events.add(decoder.apply(payload)));
+        return events;
+    }
+
+    /**
+     * Дописывает кусок и отдаёт handler полезную нагрузку каждого целого кадра по мере разбора.
+     * Кадр считается прочитанным до вызова handler: если тот бросит, кадр не будет разбираться повторно.
+     * Битая длина кадра — IllegalArgumentException; кадры до неё уже отданы, дальше границ не найти.
+     */
+    public void forEachFrame(ByteBuffer chunk, Consumer<ByteBuffer> handler) {
+        append(chunk);
+        ByteBuffer view = ByteBuffer.wrap(buf, start, end - start);
+        while (view.hasRemaining()) {
+            int frameStart = view.position();
+            int len = HamsterEventBinaryCodec.readFrameLength(view);
+            if (len < 0 || view.remaining() < len) {
+                view.position(frameStart);
+                break;
+            }
+            ByteBuffer payload = view.slice(view.position(), len);
+            view.position(view.position() + len);
+            start = view.position();
+            handler.accept(payload);
+        }
+    }
+
+    //Остался недочитанный хвост кадра
+    public boolean hasPartialFrame() {
+        return end > start;
+    }
+
+    private void append(ByteBuffer chunk) {
+        int incoming = chunk.remaining();
+        int pending = end - start;
+        if (start > 0 && end + incoming > buf.length) {
+            System.arraycopy(buf, start, buf, 0, pending);
+            start = 0;
+            end = pending;
+        }
+        if (end + incoming > buf.length) {
+            byte[] bigger = new byte[Math.max(buf.length * 2, end + incoming)];
+            System.arraycopy(buf, 0, bigger, 0, end);
+            buf = bigger;
+        }
+        chunk.get(buf, end, incoming);
+        end += incoming;
+    }
+}
@@ -0,0 +1,110 @@
+package org.example.tracker.db;
+
+/**
+ * Суточный счётчик раундов в одном long-слове: [сутки:32][закрыто:1][раунды:31].
+ * <p>
+ * У хомяка два таких слова, сутки d пишутся в слово {@code d & 1}. Пока открыты сутки d, соседнее слово
+ * держит замороженные сутки d-1, а после открытия d+1 в него начинают писаться уже новые сутки.
+ * Поэтому смена суток — это смена номера открытых, а не обнуление всех счётчиков: слово с номером
+ * прошлых суток читается для новых как ноль и перезаписывается первым же зачётом.
+ * Закрытие суток ставит в слове бит «закрыто» — после него зачёт за эти сутки отклоняется,
+ * а раунды читаются уже окончательными.
+ */
+final class DayRounds {
+
+    static final long CLOSED = 1L << 31;
+    static final long MAX_ROUNDS = CLOSED - 1;
+    //Зачёт невозможен: сутки закрыты или слово уже занято более поздними сутками
+    static final long REJECTED = Long.MIN_VALUE;
+
+    private DayRounds() {
+    }
+
+    static int word(int day) {
+        return day & 1;
+    }
+
+    static int dayOf(long word) {
+        return (int) (word >>> 32);
+    }
+
+    static int roundsOf(long word, int day) {
+        return dayOf(word) == day ? (int) (word & MAX_ROUNDS) : 0;
+    }
+
+    static long pack(int day, long rounds) {
+        return ((long) day << 32) | Math.max(0, Math.min(rounds, MAX_ROUNDS));
+    }
+
+    //Слово после зачёта delta за сутки day или REJECTED
+    static long add(long word, int day, int delta) {
+        int current = dayOf(word);
+        if (current == day) {
+            return (word & CLOSED) != 0 ? REJECTED : pack(day, (word & MAX_ROUNDS) + delta);
+        }
+        return current < day ? pack(day, delta) : REJECTED;
+    }
+
+    //Слово с закрытыми сутками day; слово прошлых суток закрывается с нулём, чтобы поздний зачёт его не занял
+    static long close(long word, int day) {
+        int current = dayOf(word);
+        if (current == day) return word | CLOSED;
+        return current < day ? pack(day, 0) | CLOSED : word;
+    }
+
+    /**
+     * Номера суток репозитория. Зачёт принимается за сутки после закрываемых и не дальше двух после
+     * последних закрытых: дальше слово ещё хранит неотчитанные сутки. Закрытие идёт в два шага —
+     * closing поднимается до прохода по счётчикам (поздний зачёт сразу отклоняется), closed — после.
+     */
+    static class Days {
+        private volatile int open;
+        private volatile int closing;
+        private volatile int closed;
+
+        Days(int open, int closed) {
+            this.open = open;
+            this.closing = closed;
+            this.closed = closed;
+        }
+
+        int open() {
+            return open;
+        }
+
+        int closed() {
+            return closed;
+        }
+
+        boolean accepts(int day) {
+            return day > closing && day <= closed + 2;
+        }
+
+        synchronized void open(int day) {
+            if (day <= open || day > closed + 2) {
+                throw new IllegalStateException("Day %d cannot be opened: open=%d closed=%d".formatted(day, open, closed));
+            }
+            open = day;
+            persist();
+        }
+
+        //false — сутки уже закрыты, счётчики можно только читать
+        synchronized boolean beginClose(int day) {
+            if (day <= closed) return false;
+            if (day >= open) {
+                throw new IllegalStateException("Day %d cannot be closed: open=%d".formatted(day, open));
+            }
+            closing = day;
+            return true;
+        }
+
+        synchronized void endClose(int day) {
+            closed = day;
+            persist();
+        }
+
+        //Хранение номеров для репозиториев, переживающих перезапуск
+        void persist() {
+        }
+    }
+}
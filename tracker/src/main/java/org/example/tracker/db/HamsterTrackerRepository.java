@@ -3,29 +3,138 @@ package org.example.tracker.db;
 import java.time.Instant;
 import java.util.Map;
 
+/**
+ * Состояние трекера. Внутри адресуется int-хэндлами из {@link IdRegistry} (-1 — «нет»),
+ * строковые id остаются только на краях: снимки для отчётов/алертов и default-обёртки ниже.
+ */
 public interface HamsterTrackerRepository {
 
-    //Кто в колесе
-    String getOccupant(String wheelId);
-    void setOccupant(String wheelId, String hamsterId);
-    void clearOccupantIfMatches(String wheelId, String hamsterId);
+    IdRegistry ids();
 
-    //Раунды за текущие сутки
-    int addRounds(String hamsterId, int delta);
-    int getRounds(String hamsterId);
-    Map<String, Integer> getAllRoundsSnapshot();
-    void resetDailyRounds();
+    //true — состояние само переживает перезапуск и не требует восстановления извне
+    default boolean isDurable() {
+        return false;
+    }
+
+    //Кто в колесе (хэндл хомяка или -1)
+    int getOccupant(int wheel);
+    void setOccupant(int wheel, int hamster);
+    void clearOccupantIfMatches(int wheel, int hamster);
+    Map<String, String> getAllOccupants();
+
+    //Раунды по суткам: сутки нумеруются с 1, открыты одни, зачёт возможен ещё и в следующие
+    int currentDay();
+    void openDay(int day);
+    int addRounds(int hamster, int day, int delta); // -1 — сутки day закрыты или ещё недоступны
+    int getRounds(int hamster, int day);
+    boolean hasRounds(int hamster); // счётчик заведён, даже если раундов пока 0
+    Map<String, Integer> closeDay(int day); // окончательные раунды закрытых суток
+    Map<String, Integer> getAllRoundsSnapshot(); // за открытые сутки
+
+    default int addRounds(int hamster, int delta) {
+        return addRounds(hamster, currentDay(), delta);
+    }
+
+    default int getRounds(int hamster) {
+        return getRounds(hamster, currentDay());
+    }
+
+    //Смена суток без отчёта: следующие открываются раньше, чем закрываются прежние
+    default void resetDailyRounds() {
+        int day = currentDay();
+        openDay(day + 1);
+        closeDay(day);
+    }
 
     //Активность хомяков
-    void updateLastActivity(String hamsterId, Instant when);
+    void updateLastActivity(int hamster, Instant when);
+    Instant getLastActivity(int hamster); // null — активности не было
     Map<String, Instant> getAllLastActivity();
-    boolean isInactivityAlerted(String hamsterId);
-    void setInactivityAlerted(String hamsterId, boolean alerted);
+    boolean isInactivityAlerted(int hamster);
+    void setInactivityAlerted(int hamster, boolean alerted);
 
     //Состояния датчиков
-    boolean markSensorFailed(String sensorId, Instant since);
-    void clearSensorFailure(String sensorId);
+    boolean markSensorFailed(int sensor, Instant since);
+    void clearSensorFailure(int sensor);
+    Instant getSensorFailedSince(int sensor); // null — датчик исправен
     Map<String, Instant> getAllSensorFailures();
-    boolean isSensorAlerted(String sensorId);
-    void setSensorAlerted(String sensorId, boolean alerted);
+    boolean isSensorAlerted(int sensor);
+    void setSensorAlerted(int sensor, boolean alerted);
+
+    //Окна номеров последовательности по источникам (хэндлы словаря датчиков): старший номер + 1
+    //(0 — номеров не было) и битовая карта под ним. Оба слова меняет только SequenceWindow под блокировкой источника
+    long getSequenceTop(int source);
+    long getSequenceBits(int source);
+    void setSequenceWindow(int source, long top, long bits);
+
+    //Строковые обёртки: незнакомый id читается как пустое состояние, запись регистрирует id
+
+    default String getOccupant(String wheelId) {
+        int wheel = ids().wheels().find(wheelId);
+        int hamster = wheel < 0 ? -1 : getOccupant(wheel);
+        return ids().hamsters().name(hamster);
+    }
+
+    default void setOccupant(String wheelId, String hamsterId) {
+        int wheel = ids().wheels().intern(wheelId);
+        int hamster = ids().hamsters().intern(hamsterId);
+        if (wheel < 0 || hamster < 0) return;
+        setOccupant(wheel, hamster);
+    }
+
+    default void clearOccupantIfMatches(String wheelId, String hamsterId) {
+        int wheel = ids().wheels().find(wheelId);
+        int hamster = ids().hamsters().find(hamsterId);
+        if (wheel < 0 || hamster < 0) return;
+        clearOccupantIfMatches(wheel, hamster);
+    }
+
+    default int addRounds(String hamsterId, int delta) {
+        int hamster = ids().hamsters().intern(hamsterId);
+        return hamster < 0 ? 0 : addRounds(hamster, delta);
+    }
+
+    default int getRounds(String hamsterId) {
+        int hamster = ids().hamsters().find(hamsterId);
+        return hamster < 0 ? 0 : getRounds(hamster);
+    }
+
+    default void updateLastActivity(String hamsterId, Instant when) {
+        int hamster = ids().hamsters().intern(hamsterId);
+        if (hamster < 0) return;
+        updateLastActivity(hamster, when);
+    }
+
+    default boolean isInactivityAlerted(String hamsterId) {
+        int hamster = ids().hamsters().find(hamsterId);
+        return hamster >= 0 && isInactivityAlerted(hamster);
+    }
+
+    default void setInactivityAlerted(String hamsterId, boolean alerted) {
+        int hamster = ids().hamsters().intern(hamsterId);
+        if (hamster < 0) return;
+        setInactivityAlerted(hamster, alerted);
+    }
+
+    default boolean markSensorFailed(String sensorId, Instant since) {
+        int sensor = ids().sensors().intern(sensorId);
+        return sensor >= 0 && markSensorFailed(sensor, since);
+    }
+
+    default void clearSensorFailure(String sensorId) {
+        int sensor = ids().sensors().find(sensorId);
+        if (sensor < 0) return;
+        clearSensorFailure(sensor);
+    }
+
+    default boolean isSensorAlerted(String sensorId) {
+        int sensor = ids().sensors().find(sensorId);
+        return sensor >= 0 && isSensorAlerted(sensor);
+    }
+
+    default void setSensorAlerted(String sensorId, boolean alerted) {
+        int sensor = ids().sensors().intern(sensorId);
+        if (sensor < 0) return;
+        setSensorAlerted(sensor, alerted);
+    }
 }
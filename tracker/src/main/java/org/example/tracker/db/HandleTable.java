@@ -0,0 +1,67 @@
+package org.example.tracker.db;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Supplier;
+
+/**
+ * Таблица объектов по хэндлам из {@link IdRegistry}: ячейка хэндла в куске из {@value #CHUNK_SIZE} ссылок
+ * вместо узла хэш-карты и боксированного ключа. Куски выделяются при первой записи и не копируются,
+ * чтение из невыделенного куска даёт null. Значения остаются объектами — это и отличает
+ * InMemoryHamsterTrackerRepository от примитивных массивов PrimitiveArrayHamsterTrackerRepository.
+ */
+final class HandleTable<T> {
+
+    private static final int CHUNK_BITS = 12;
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    private final AtomicReferenceArray<AtomicReferenceArray<T>> chunks;
+
+    HandleTable(int capacity) {
+        this.chunks = new AtomicReferenceArray<>((capacity + CHUNK_MASK) >>> CHUNK_BITS);
+    }
+
+    T get(int handle) {
+        AtomicReferenceArray<T> chunk = chunks.get(handle >>> CHUNK_BITS);
+        return chunk == null ? null : chunk.get(handle & CHUNK_MASK);
+    }
+
+    void set(int handle, T value) {
+        chunk(handle).set(handle & CHUNK_MASK, value);
+    }
+
+    //Сравнение по ссылке, как у AtomicReferenceArray
+    boolean compareAndSet(int handle, T expected, T value) {
+        return chunk(handle).compareAndSet(handle & CHUNK_MASK, expected, value);
+    }
+
+    //Очищает ячейку, только если в ней значение, равное expected (по equals)
+    void removeIfEquals(int handle, T expected) {
+        AtomicReferenceArray<T> chunk = chunks.get(handle >>> CHUNK_BITS);
+        if (chunk == null) return;
+        int at = handle & CHUNK_MASK;
+        T current;
+        while ((current = chunk.get(at)) != null && current.equals(expected)) {
+            if (chunk.compareAndSet(at, current, null)) return;
+        }
+    }
+
+    //Значение ячейки; пустую заполняет factory, при гонке побеждает первая запись
+    T computeIfAbsent(int handle, Supplier<T> factory) {
+        T value = get(handle);
+        if (value != null) return value;
+        AtomicReferenceArray<T> chunk = chunk(handle);
+        chunk.compareAndSet(handle & CHUNK_MASK, null, factory.get());
+        return chunk.get(handle & CHUNK_MASK);
+    }
+
+    private AtomicReferenceArray<T> chunk(int handle) {
+        int slot = handle >>> CHUNK_BITS;
+        AtomicReferenceArray<T> chunk = chunks.get(slot);
+        if (chunk == null) {
+            chunks.compareAndSet(slot, null, new AtomicReferenceArray<>(CHUNK_SIZE));
+            chunk = chunks.get(slot);
+        }
+        return chunk;
+    }
+}
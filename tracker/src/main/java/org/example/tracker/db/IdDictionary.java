@@ -0,0 +1,80 @@
+package org.example.tracker.db;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Словарь строковых идентификаторов одного вида (хомяки, колёса, датчики):
+ * при первом появлении строке выдаётся плотный int-хэндл 0, 1, 2, ...
+ * Размер ограничен capacity; потокобезопасен. Новые id редки, поэтому выдача идёт под замком,
+ * а поиск уже известных — без блокировок.
+ */
+public final class IdDictionary {
+
+    private static final int CHUNK_BITS = 12;
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+
+    private final String kind;
+    private final int capacity;
+    private final ConcurrentHashMap<String, Integer> handles = new ConcurrentHashMap<>();
+    private final AtomicReferenceArray<String[]> names;
+    private volatile int size;
+
+    public IdDictionary(String kind, int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be positive: " + capacity);
+        }
+        this.kind = kind;
+        this.capacity = capacity;
+        this.names = new AtomicReferenceArray<>((capacity + CHUNK_SIZE - 1) >>> CHUNK_BITS);
+    }
+
+    //Хэндл id; новый id регистрируется. -1 — id пустой или словарь заполнен
+    public int intern(String id) {
+        if (id == null) return -1;
+        Integer handle = handles.get(id);
+        if (handle != null) return handle;
+        synchronized (this) {
+            handle = handles.get(id);
+            if (handle != null) return handle;
+            int next = size;
+            if (next >= capacity) {
+                return -1;
+            }
+            String[] chunk = names.get(next >>> CHUNK_BITS);
+            if (chunk == null) {
+                chunk = new String[CHUNK_SIZE];
+                names.set(next >>> CHUNK_BITS, chunk);
+            }
+            chunk[next & (CHUNK_SIZE - 1)] = id;
+            size = next + 1;
+            handles.put(id, next); // публикация: имя и size записаны раньше, чем хэндл стал виден
+            return next;
+        }
+    }
+
+    //Хэндл уже известного id без регистрации; -1 — не встречался
+    public int find(String id) {
+        if (id == null) return -1;
+        Integer handle = handles.get(id);
+        return handle == null ? -1 : handle;
+    }
+
+    public String name(int handle) {
+        if (handle < 0 || handle >= size) return null;
+        return names.get(handle >>> CHUNK_BITS)[handle & (CHUNK_SIZE - 1)];
+    }
+
+    //Выданные хэндлы — ровно [0, size)
+    public int size() {
+        return size;
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    public String kind() {
+        return kind;
+    }
+}
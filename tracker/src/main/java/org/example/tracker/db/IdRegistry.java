@@ -0,0 +1,43 @@
+package org.example.tracker.db;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+//Словари id хомяков, колёс и датчиков; внутри трекера состояние адресуется их int-хэндлами
+@Component
+public class IdRegistry {
+
+    public static final int DEFAULT_MAX_HAMSTERS = 1_000_000;
+    public static final int DEFAULT_MAX_WHEELS = 1_000_000;
+    public static final int DEFAULT_MAX_SENSORS = 1_000_000;
+
+    private final IdDictionary hamsters;
+    private final IdDictionary wheels;
+    private final IdDictionary sensors;
+
+    public IdRegistry() {
+        this(DEFAULT_MAX_HAMSTERS, DEFAULT_MAX_WHEELS, DEFAULT_MAX_SENSORS);
+    }
+
+    @Autowired
+    public IdRegistry(@Value("${tracker.ids.max-hamsters:1000000}") int maxHamsters,
+                      @Value("${tracker.ids.max-wheels:1000000}") int maxWheels,
+                      @Value("${tracker.ids.max-sensors:1000000}") int maxSensors) {
+        this.hamsters = new IdDictionary("hamster", maxHamsters);
+        this.wheels = new IdDictionary("wheel", maxWheels);
+        this.sensors = new IdDictionary("sensor", maxSensors);
+    }
+
+    public IdDictionary hamsters() {
+        return hamsters;
+    }
+
+    public IdDictionary wheels() {
+        return wheels;
+    }
+
+    public IdDictionary sensors() {
+        return sensors;
+    }
+}
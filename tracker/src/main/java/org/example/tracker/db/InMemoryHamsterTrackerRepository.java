@@ -1,128 +1,253 @@
 package org.example.tracker.db;
 
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Repository;
 
 import java.time.Instant;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.Objects;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
 
+//Состояние объектами (Integer, Instant, Boolean, счётчик раундов) в таблицах по хэндлам из IdRegistry:
+//без хэширования ключей на каждом событии, но с объектом на каждое значение. Свойство — «map» по старой памяти
 @Repository
+@ConditionalOnProperty(name = "tracker.repository", havingValue = "map", matchIfMissing = true)
 public class InMemoryHamsterTrackerRepository implements HamsterTrackerRepository {
 
-    private final ConcurrentHashMap<String, String> wheelOccupants = new ConcurrentHashMap<>();
-    private final ConcurrentHashMap<String, AtomicInteger> roundsByHamster = new ConcurrentHashMap<>();
-    private final ConcurrentHashMap<String, Instant> lastActivity = new ConcurrentHashMap<>();
-    private final ConcurrentHashMap<String, Boolean> inactivityAlerted = new ConcurrentHashMap<>();
-    private final ConcurrentHashMap<String, Instant> sensorFailures = new ConcurrentHashMap<>();
-    private final ConcurrentHashMap<String, Boolean> sensorAlerted = new ConcurrentHashMap<>();
+    private final IdRegistry ids;
+
+    private final HandleTable<Integer> wheelOccupants; // хэндл хомяка
+    private final HandleTable<AtomicLongArray> roundsByHamster; // два слова DayRounds
+    private final HandleTable<Instant> lastActivity;
+    private final HandleTable<Boolean> inactivityAlerted;
+    private final HandleTable<Instant> sensorFailures;
+    private final HandleTable<Boolean> sensorAlerted;
+    private final HandleTable<long[]> sequenceWindows; // {старший номер + 1, карта}, заменяется целиком
+    private final DayRounds.Days days = new DayRounds.Days(1, 0);
+
+    public InMemoryHamsterTrackerRepository() {
+        this(new IdRegistry());
+    }
+
+    @Autowired
+    public InMemoryHamsterTrackerRepository(IdRegistry ids) {
+        this.ids = ids;
+        int hamsters = ids.hamsters().capacity();
+        int sensors = ids.sensors().capacity();
+        this.wheelOccupants = new HandleTable<>(ids.wheels().capacity());
+        this.roundsByHamster = new HandleTable<>(hamsters);
+        this.lastActivity = new HandleTable<>(hamsters);
+        this.inactivityAlerted = new HandleTable<>(hamsters);
+        this.sensorFailures = new HandleTable<>(sensors);
+        this.sensorAlerted = new HandleTable<>(sensors);
+        this.sequenceWindows = new HandleTable<>(sensors);
+    }
+
+    @Override
+    public IdRegistry ids() {
+        return ids;
+    }
 
     @Override
-    public String getOccupant(String wheelId) {
-        if (wheelId == null) return null;
-        return wheelOccupants.get(wheelId);
+    public int getOccupant(int wheel) {
+        if (wheel < 0) return -1;
+        Integer hamster = wheelOccupants.get(wheel);
+        return hamster == null ? -1 : hamster;
     }
 
     @Override
-    public void setOccupant(String wheelId, String hamsterId) {
-        if (wheelId == null || hamsterId == null) return;
-        wheelOccupants.put(wheelId, hamsterId);
+    public void setOccupant(int wheel, int hamster) {
+        if (wheel < 0 || hamster < 0) return;
+        wheelOccupants.set(wheel, hamster);
     }
 
     @Override
-    public void clearOccupantIfMatches(String wheelId, String hamsterId) {
-        if (wheelId == null || hamsterId == null) return;
-        wheelOccupants.compute(wheelId, (k, current) -> Objects.equals(current, hamsterId) ? null : current);
+    public void clearOccupantIfMatches(int wheel, int hamster) {
+        if (wheel < 0 || hamster < 0) return;
+        wheelOccupants.removeIfEquals(wheel, hamster);
     }
 
     @Override
-    public int addRounds(String hamsterId, int delta) {
-        if (hamsterId == null || delta == 0) {
-            return hamsterId == null ? 0 : getRounds(hamsterId);
+    public Map<String, String> getAllOccupants() {
+        int size = ids.wheels().size();
+        Map<String, String> copy = new HashMap<>();
+        for (int w = 0; w < size; w++) {
+            Integer hamster = wheelOccupants.get(w);
+            if (hamster != null) {
+                copy.put(ids.wheels().name(w), ids.hamsters().name(hamster));
+            }
         }
-        AtomicInteger counter = roundsByHamster.computeIfAbsent(hamsterId, k -> new AtomicInteger(0));
-        return counter.addAndGet(delta);
+        return Collections.unmodifiableMap(copy);
+    }
+
+    @Override
+    public int currentDay() {
+        return days.open();
+    }
+
+    @Override
+    public void openDay(int day) {
+        days.open(day);
+    }
+
+    @Override
+    public int addRounds(int hamster, int day, int delta) {
+        if (hamster < 0 || delta == 0) {
+            return hamster < 0 ? 0 : getRounds(hamster, day);
+        }
+        AtomicLongArray counter = roundsByHamster.computeIfAbsent(hamster, () -> new AtomicLongArray(2));
+        // проверка после появления счётчика: иначе закрытие могло его не увидеть
+        if (!days.accepts(day)) return -1;
+        int word = DayRounds.word(day);
+        long current = counter.get(word);
+        while (true) {
+            long next = DayRounds.add(current, day, delta);
+            if (next == DayRounds.REJECTED) return -1;
+            long witness = counter.compareAndExchange(word, current, next);
+            if (witness == current) return DayRounds.roundsOf(next, day);
+            current = witness;
+        }
+    }
+
+    @Override
+    public int getRounds(int hamster, int day) {
+        if (hamster < 0) return 0;
+        AtomicLongArray counter = roundsByHamster.get(hamster);
+        return counter == null ? 0 : DayRounds.roundsOf(counter.get(DayRounds.word(day)), day);
     }
 
     @Override
-    public int getRounds(String hamsterId) {
-        if (hamsterId == null) return 0;
-        AtomicInteger ai = roundsByHamster.get(hamsterId);
-        return ai == null ? 0 : ai.get();
+    public boolean hasRounds(int hamster) {
+        return hamster >= 0 && roundsByHamster.get(hamster) != null;
+    }
+
+    @Override
+    public Map<String, Integer> closeDay(int day) {
+        boolean closing = days.beginClose(day);
+        int word = DayRounds.word(day);
+        int size = ids.hamsters().size();
+        Map<String, Integer> copy = new HashMap<>();
+        for (int h = 0; h < size; h++) {
+            AtomicLongArray counter = roundsByHamster.get(h);
+            if (counter == null) continue;
+            long current = counter.get(word);
+            if (closing) {
+                long witness;
+                while ((witness = counter.compareAndExchange(word, current, DayRounds.close(current, day))) != current) {
+                    current = witness;
+                }
+            }
+            copy.put(ids.hamsters().name(h), DayRounds.roundsOf(current, day));
+        }
+        if (closing) days.endClose(day);
+        return Collections.unmodifiableMap(copy);
     }
 
     @Override
     public Map<String, Integer> getAllRoundsSnapshot() {
-        Map<String, Integer> copy = new HashMap<>(roundsByHamster.size());
-        roundsByHamster.forEach((k, v) -> copy.put(k, v.get()));
+        int day = days.open();
+        int size = ids.hamsters().size();
+        Map<String, Integer> copy = new HashMap<>();
+        for (int h = 0; h < size; h++) {
+            AtomicLongArray counter = roundsByHamster.get(h);
+            if (counter != null) {
+                copy.put(ids.hamsters().name(h), DayRounds.roundsOf(counter.get(DayRounds.word(day)), day));
+            }
+        }
         return Collections.unmodifiableMap(copy);
     }
 
     @Override
-    public void resetDailyRounds() {
-        roundsByHamster.values().forEach(ai -> ai.set(0));
+    public void updateLastActivity(int hamster, Instant when) {
+        if (hamster < 0 || when == null) return;
+        lastActivity.set(hamster, when);
     }
 
     @Override
-    public void updateLastActivity(String hamsterId, Instant when) {
-        if (hamsterId == null || when == null) return;
-        lastActivity.put(hamsterId, when);
+    public Instant getLastActivity(int hamster) {
+        return hamster < 0 ? null : lastActivity.get(hamster);
     }
 
     @Override
     public Map<String, Instant> getAllLastActivity() {
-        return Collections.unmodifiableMap(new HashMap<>(lastActivity));
+        return byName(lastActivity, ids.hamsters());
     }
 
     @Override
-    public boolean isInactivityAlerted(String hamsterId) {
-        if (hamsterId == null) return false;
-        return inactivityAlerted.getOrDefault(hamsterId, false);
+    public boolean isInactivityAlerted(int hamster) {
+        if (hamster < 0) return false;
+        return inactivityAlerted.get(hamster) == Boolean.TRUE;
     }
 
     @Override
-    public void setInactivityAlerted(String hamsterId, boolean alerted) {
-        if (hamsterId == null) return;
-        if (!alerted) {
-            inactivityAlerted.remove(hamsterId);
-        } else {
-            inactivityAlerted.put(hamsterId, true);
-        }
+    public void setInactivityAlerted(int hamster, boolean alerted) {
+        if (hamster < 0) return;
+        inactivityAlerted.set(hamster, alerted);
     }
 
     @Override
-    public boolean markSensorFailed(String sensorId, Instant since) {
-        if (sensorId == null || since == null) return false;
-        return sensorFailures.putIfAbsent(sensorId, since) == null; // true, если записали впервые
+    public boolean markSensorFailed(int sensor, Instant since) {
+        if (sensor < 0 || since == null) return false;
+        return sensorFailures.compareAndSet(sensor, null, since); // true, если записали впервые
     }
 
     @Override
-    public void clearSensorFailure(String sensorId) {
-        if (sensorId == null) return;
-        sensorFailures.remove(sensorId);
+    public void clearSensorFailure(int sensor) {
+        if (sensor < 0) return;
+        sensorFailures.set(sensor, null);
+    }
+
+    @Override
+    public Instant getSensorFailedSince(int sensor) {
+        return sensor < 0 ? null : sensorFailures.get(sensor);
     }
 
     @Override
     public Map<String, Instant> getAllSensorFailures() {
-        return Collections.unmodifiableMap(new HashMap<>(sensorFailures));
+        return byName(sensorFailures, ids.sensors());
+    }
+
+    @Override
+    public boolean isSensorAlerted(int sensor) {
+        if (sensor < 0) return false;
+        return sensorAlerted.get(sensor) == Boolean.TRUE;
+    }
+
+    @Override
+    public void setSensorAlerted(int sensor, boolean alerted) {
+        if (sensor < 0) return;
+        sensorAlerted.set(sensor, alerted);
     }
 
     @Override
-    public boolean isSensorAlerted(String sensorId) {
-        if (sensorId == null) return false;
-        return sensorAlerted.getOrDefault(sensorId, false);
+    public long getSequenceTop(int source) {
+        long[] window = source < 0 ? null : sequenceWindows.get(source);
+        return window == null ? 0L : window[0];
     }
 
     @Override
-    public void setSensorAlerted(String sensorId, boolean alerted) {
-        if (sensorId == null) return;
-        if (!alerted) {
-            sensorAlerted.remove(sensorId);
-        } else {
-            sensorAlerted.put(sensorId, true);
+    public long getSequenceBits(int source) {
+        long[] window = source < 0 ? null : sequenceWindows.get(source);
+        return window == null ? 0L : window[1];
+    }
+
+    @Override
+    public void setSequenceWindow(int source, long top, long bits) {
+        if (source < 0) return;
+        sequenceWindows.set(source, new long[]{top, bits});
+    }
+
+    private static Map<String, Instant> byName(HandleTable<Instant> source, IdDictionary dictionary) {
+        int size = dictionary.size();
+        Map<String, Instant> copy = new HashMap<>();
+        for (int i = 0; i < size; i++) {
+            Instant value = source.get(i);
+            if (value != null) {
+                copy.put(dictionary.name(i), value);
+            }
         }
+        return Collections.unmodifiableMap(copy);
     }
 }
@@ -0,0 +1,540 @@
+package org.example.tracker.db;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Repository;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Состояние в файлах, отображённых в память (FileChannel.map): слоты фиксированного размера
+ * по хэндлам из {@link IdRegistry}. Счётчики лежат вне кучи и переживают перезапуск без replay:
+ * при старте словари id восстанавливаются из *.ids, слоты читаются как есть.
+ * <p>
+ * Каждое поле слота — выровненное 4/8-байтное слово, меняется одной атомарной записью или CAS,
+ * поэтому падение процесса не оставляет разорванных значений. Имя id дописывается в *.ids
+ * раньше первой записи в его слот. Файл растёт регионами по slotsPerRegion слотов.
+ * Номера открытых и закрытых суток лежат в заголовке hamsters.dat.
+ * MemorySegment в Java 21 ещё preview, поэтому используется MappedByteBuffer + VarHandle.
+ */
+@Slf4j
+@Repository
+@ConditionalOnProperty(name = "tracker.repository", havingValue = "mmap")
+public class MappedHamsterTrackerRepository implements HamsterTrackerRepository, AutoCloseable {
+
+    static final int DEFAULT_SLOTS_PER_REGION = 1 << 16;
+
+    //Слот хомяка: rounds:long x2 (слова DayRounds) | flags:int | резерв | lastActivity:long
+    private static final int HAMSTER_SLOT = 32;
+    private static final int H_ROUNDS = 0;
+    private static final int H_FLAGS = 16;
+    private static final int H_ACTIVITY = 24;
+    private static final int FLAG_HAS_ROUNDS = 1;
+    private static final int FLAG_INACTIVITY_ALERTED = 2;
+
+    //Поля заголовка hamsters.dat после magic/версии/размеров
+    private static final int HDR_OPEN_DAY = 16;
+    private static final int HDR_CLOSED_DAY = 20;
+
+    //Слот колеса: хэндл хомяка + 1, 0 — пусто
+    private static final int WHEEL_SLOT = 4;
+
+    //Слот датчика: failedSince:long | flags:int | резерв | окно номеров источника: старший номер + 1:long | карта:long
+    private static final int SENSOR_SLOT = 32;
+    private static final int S_FAILED_SINCE = 0;
+    private static final int S_FLAGS = 8;
+    private static final int S_SEQ_TOP = 16;
+    private static final int S_SEQ_BITS = 24;
+    private static final int FLAG_SENSOR_ALERTED = 1;
+
+    private static final VarHandle INT = MethodHandles.byteBufferViewVarHandle(int[].class, ByteOrder.LITTLE_ENDIAN);
+    private static final VarHandle LONG = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+    private final IdRegistry ids;
+    private final SlotFile hamsters;
+    private final SlotFile wheels;
+    private final SlotFile sensors;
+    private final DayRounds.Days days;
+
+    @Autowired
+    public MappedHamsterTrackerRepository(IdRegistry ids, @Value("${tracker.mmap.dir:data/state}") String dir) {
+        this(ids, Path.of(dir), DEFAULT_SLOTS_PER_REGION);
+    }
+
+    public MappedHamsterTrackerRepository(IdRegistry ids, Path dir, int slotsPerRegion) {
+        this.ids = ids;
+        try {
+            Files.createDirectories(dir);
+            this.hamsters = new SlotFile(dir, ids.hamsters(), HAMSTER_SLOT, slotsPerRegion);
+            this.wheels = new SlotFile(dir, ids.wheels(), WHEEL_SLOT, slotsPerRegion);
+            this.sensors = new SlotFile(dir, ids.sensors(), SENSOR_SLOT, slotsPerRegion);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open mapped state in " + dir, e);
+        }
+        // в новом файле заголовок пуст: открыты первые сутки
+        this.days = new DayRounds.Days(Math.max(1, hamsters.getHeaderInt(HDR_OPEN_DAY)), hamsters.getHeaderInt(HDR_CLOSED_DAY)) {
+            @Override
+            void persist() {
+                hamsters.setHeaderInt(HDR_OPEN_DAY, open());
+                hamsters.setHeaderInt(HDR_CLOSED_DAY, closed());
+            }
+        };
+        log.info("Mapped state opened in {}: hamsters={} wheels={} sensors={} day={}",
+                dir.toAbsolutePath(), ids.hamsters().size(), ids.wheels().size(), ids.sensors().size(), days.open());
+    }
+
+    @Override
+    public IdRegistry ids() {
+        return ids;
+    }
+
+    @Override
+    public boolean isDurable() {
+        return true;
+    }
+
+    @Override
+    public int getOccupant(int wheel) {
+        if (wheel < 0) return -1;
+        return wheels.getInt(wheel, 0) - 1;
+    }
+
+    @Override
+    public void setOccupant(int wheel, int hamster) {
+        if (wheel < 0 || hamster < 0) return;
+        hamsters.persistName(hamster);
+        wheels.setInt(wheel, 0, hamster + 1);
+    }
+
+    @Override
+    public void clearOccupantIfMatches(int wheel, int hamster) {
+        if (wheel < 0 || hamster < 0) return;
+        wheels.compareAndSetInt(wheel, 0, hamster + 1, 0);
+    }
+
+    @Override
+    public Map<String, String> getAllOccupants() {
+        int size = ids.wheels().size();
+        Map<String, String> copy = new HashMap<>();
+        for (int w = 0; w < size; w++) {
+            int hamster = wheels.getInt(w, 0) - 1;
+            if (hamster >= 0) {
+                copy.put(ids.wheels().name(w), ids.hamsters().name(hamster));
+            }
+        }
+        return Collections.unmodifiableMap(copy);
+    }
+
+    @Override
+    public int currentDay() {
+        return days.open();
+    }
+
+    @Override
+    public void openDay(int day) {
+        days.open(day);
+    }
+
+    @Override
+    public int addRounds(int hamster, int day, int delta) {
+        if (hamster < 0) return 0;
+        if (delta == 0) return getRounds(hamster, day);
+        hamsters.setFlag(hamster, H_FLAGS, FLAG_HAS_ROUNDS, true); // до проверки суток: закрытие по флагу находит счётчик
+        if (!days.accepts(day)) return -1;
+        int field = roundsField(day);
+        long current = hamsters.getLong(hamster, field);
+        while (true) {
+            long next = DayRounds.add(current, day, delta);
+            if (next == DayRounds.REJECTED) return -1;
+            if (hamsters.compareAndSetLong(hamster, field, current, next)) return DayRounds.roundsOf(next, day);
+            current = hamsters.getLong(hamster, field);
+        }
+    }
+
+    @Override
+    public int getRounds(int hamster, int day) {
+        if (hamster < 0) return 0;
+        return DayRounds.roundsOf(hamsters.getLong(hamster, roundsField(day)), day);
+    }
+
+    @Override
+    public boolean hasRounds(int hamster) {
+        return hamster >= 0 && (hamsters.getInt(hamster, H_FLAGS) & FLAG_HAS_ROUNDS) != 0;
+    }
+
+    @Override
+    public Map<String, Integer> closeDay(int day) {
+        boolean closing = days.beginClose(day);
+        int field = roundsField(day);
+        int size = ids.hamsters().size();
+        Map<String, Integer> copy = new HashMap<>();
+        for (int h = 0; h < size; h++) {
+            if ((hamsters.getInt(h, H_FLAGS) & FLAG_HAS_ROUNDS) == 0) continue;
+            long current = hamsters.getLong(h, field);
+            while (closing && !hamsters.compareAndSetLong(h, field, current, DayRounds.close(current, day))) {
+                current = hamsters.getLong(h, field);
+            }
+            copy.put(ids.hamsters().name(h), DayRounds.roundsOf(current, day));
+        }
+        if (closing) days.endClose(day);
+        return Collections.unmodifiableMap(copy);
+    }
+
+    @Override
+    public Map<String, Integer> getAllRoundsSnapshot() {
+        int day = days.open();
+        int size = ids.hamsters().size();
+        Map<String, Integer> copy = new HashMap<>();
+        for (int h = 0; h < size; h++) {
+            if ((hamsters.getInt(h, H_FLAGS) & FLAG_HAS_ROUNDS) != 0) {
+                copy.put(ids.hamsters().name(h), getRounds(h, day));
+            }
+        }
+        return Collections.unmodifiableMap(copy);
+    }
+
+    @Override
+    public void updateLastActivity(int hamster, Instant when) {
+        if (hamster < 0 || when == null) return;
+        hamsters.setLong(hamster, H_ACTIVITY, when.toEpochMilli());
+    }
+
+    @Override
+    public Instant getLastActivity(int hamster) {
+        return hamster < 0 ? null : instantOrNull(hamsters.getLong(hamster, H_ACTIVITY));
+    }
+
+    @Override
+    public Map<String, Instant> getAllLastActivity() {
+        return byName(hamsters, H_ACTIVITY, ids.hamsters());
+    }
+
+    @Override
+    public boolean isInactivityAlerted(int hamster) {
+        if (hamster < 0) return false;
+        return (hamsters.getInt(hamster, H_FLAGS) & FLAG_INACTIVITY_ALERTED) != 0;
+    }
+
+    @Override
+    public void setInactivityAlerted(int hamster, boolean alerted) {
+        if (hamster < 0) return;
+        hamsters.setFlag(hamster, H_FLAGS, FLAG_INACTIVITY_ALERTED, alerted);
+    }
+
+    @Override
+    public boolean markSensorFailed(int sensor, Instant since) {
+        if (sensor < 0 || since == null) return false;
+        return sensors.compareAndSetLong(sensor, S_FAILED_SINCE, 0L, since.toEpochMilli()); // true, если записали впервые
+    }
+
+    @Override
+    public void clearSensorFailure(int sensor) {
+        if (sensor < 0) return;
+        if (sensors.getLong(sensor, S_FAILED_SINCE) != 0L) {
+            sensors.setLong(sensor, S_FAILED_SINCE, 0L);
+        }
+    }
+
+    @Override
+    public Instant getSensorFailedSince(int sensor) {
+        return sensor < 0 ? null : instantOrNull(sensors.getLong(sensor, S_FAILED_SINCE));
+    }
+
+    @Override
+    public Map<String, Instant> getAllSensorFailures() {
+        return byName(sensors, S_FAILED_SINCE, ids.sensors());
+    }
+
+    @Override
+    public boolean isSensorAlerted(int sensor) {
+        if (sensor < 0) return false;
+        return (sensors.getInt(sensor, S_FLAGS) & FLAG_SENSOR_ALERTED) != 0;
+    }
+
+    @Override
+    public void setSensorAlerted(int sensor, boolean alerted) {
+        if (sensor < 0) return;
+        sensors.setFlag(sensor, S_FLAGS, FLAG_SENSOR_ALERTED, alerted);
+    }
+
+    @Override
+    public long getSequenceTop(int source) {
+        return source < 0 ? 0L : sensors.getLong(source, S_SEQ_TOP);
+    }
+
+    @Override
+    public long getSequenceBits(int source) {
+        return source < 0 ? 0L : sensors.getLong(source, S_SEQ_BITS);
+    }
+
+    //Окно — два слова: падение между записями сдвигает карту одного источника относительно старшего номера,
+    //ошибиться можно только в отметках под ним, счётчики это не задевает
+    @Override
+    public void setSequenceWindow(int source, long top, long bits) {
+        if (source < 0) return;
+        sensors.setLong(source, S_SEQ_BITS, bits);
+        sensors.setLong(source, S_SEQ_TOP, top);
+    }
+
+    //Сброс страниц на диск; падение процесса данных не теряет и без него, это защита от падения ОС
+    public void force() {
+        hamsters.force();
+        wheels.force();
+        sensors.force();
+    }
+
+    @PreDestroy
+    @Override
+    public void close() {
+        force();
+        hamsters.close();
+        wheels.close();
+        sensors.close();
+    }
+
+    private static int roundsField(int day) {
+        return H_ROUNDS + 8 * DayRounds.word(day);
+    }
+
+    //0 в ячейке времени означает «нет»
+    private static Instant instantOrNull(long millis) {
+        return millis == 0L ? null : Instant.ofEpochMilli(millis);
+    }
+
+    private static Map<String, Instant> byName(SlotFile file, int field, IdDictionary dictionary) {
+        int size = dictionary.size();
+        Map<String, Instant> copy = new HashMap<>();
+        for (int i = 0; i < size; i++) {
+            long value = file.getLong(i, field);
+            if (value != 0L) {
+                copy.put(dictionary.name(i), Instant.ofEpochMilli(value));
+            }
+        }
+        return Collections.unmodifiableMap(copy);
+    }
+
+    /**
+     * Файл слотов одного вида (kind.dat) и журнал его id (kind.ids).
+     * Заголовок .dat: magic, версия, размер слота, слотов в регионе; остаток заголовка — поля владельца
+     * (отображён в память, как и слоты). Слоты начинаются с HEADER_BYTES.
+     * Журнал id — записи [len:int][utf-8], хэндл = порядковый номер записи;
+     * недописанный хвост после падения отбрасывается при открытии.
+     */
+    static final class SlotFile {
+
+        private static final int MAGIC = 0x48534c54; // "HSLT"
+        private static final int VERSION = 1;
+        private static final int HEADER_BYTES = 64;
+
+        private final IdDictionary dictionary;
+        private final int slotSize;
+        private final int slotsPerRegion;
+        private final long regionBytes;
+        private final FileChannel data;
+        private final FileChannel names;
+        private final AtomicReferenceArray<MappedByteBuffer> regions;
+        private final MappedByteBuffer header;
+        private volatile int persistedNames;
+
+        SlotFile(Path dir, IdDictionary dictionary, int slotSize, int slotsPerRegion) throws IOException {
+            this.dictionary = dictionary;
+            this.slotSize = slotSize;
+            this.slotsPerRegion = slotsPerRegion;
+            this.regionBytes = (long) slotSize * slotsPerRegion;
+            this.regions = new AtomicReferenceArray<>((dictionary.capacity() + slotsPerRegion - 1) / slotsPerRegion);
+            this.data = FileChannel.open(dir.resolve(dictionary.kind() + ".dat"),
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            this.names = FileChannel.open(dir.resolve(dictionary.kind() + ".ids"),
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            checkHeader();
+            this.header = data.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES);
+            loadNames();
+            long existingRegions = Math.min(regions.length(), (data.size() - HEADER_BYTES) / regionBytes);
+            for (int r = 0; r < existingRegions; r++) {
+                regions.set(r, map(r));
+            }
+        }
+
+        int getHeaderInt(int field) {
+            return (int) INT.getVolatile(header, field);
+        }
+
+        void setHeaderInt(int field, int value) {
+            INT.setVolatile(header, field, value);
+        }
+
+        int getInt(int slot, int field) {
+            ByteBuffer region = regions.get(slot / slotsPerRegion);
+            return region == null ? 0 : (int) INT.getVolatile(region, offset(slot, field));
+        }
+
+        long getLong(int slot, int field) {
+            ByteBuffer region = regions.get(slot / slotsPerRegion);
+            return region == null ? 0L : (long) LONG.getVolatile(region, offset(slot, field));
+        }
+
+        void setInt(int slot, int field, int value) {
+            INT.setVolatile(writable(slot), offset(slot, field), value);
+        }
+
+        void setLong(int slot, int field, long value) {
+            LONG.setVolatile(writable(slot), offset(slot, field), value);
+        }
+
+        boolean compareAndSetInt(int slot, int field, int expected, int value) {
+            if (expected == 0 && regions.get(slot / slotsPerRegion) == null) {
+                return false;
+            }
+            return INT.compareAndSet(writable(slot), offset(slot, field), expected, value);
+        }
+
+        boolean compareAndSetLong(int slot, int field, long expected, long value) {
+            return LONG.compareAndSet(writable(slot), offset(slot, field), expected, value);
+        }
+
+        void setFlag(int slot, int field, int flag, boolean value) {
+            int current = getInt(slot, field);
+            while (((current & flag) != 0) != value) {
+                int next = value ? current | flag : current & ~flag;
+                if (INT.compareAndSet(writable(slot), offset(slot, field), current, next)) return;
+                current = getInt(slot, field);
+            }
+        }
+
+        //Имена id до handle включительно попадают в журнал раньше, чем что-либо в их слоты
+        void persistName(int handle) {
+            if (handle < persistedNames) return;
+            synchronized (this) {
+                int from = persistedNames;
+                int to = Math.min(dictionary.size(), Math.max(handle + 1, from));
+                if (from >= to) return;
+                try {
+                    for (int h = from; h < to; h++) {
+                        byte[] bytes = dictionary.name(h).getBytes(StandardCharsets.UTF_8);
+                        ByteBuffer record = ByteBuffer.allocate(4 + bytes.length);
+                        record.putInt(bytes.length).put(bytes).flip();
+                        while (record.hasRemaining()) {
+                            names.write(record, names.size());
+                        }
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Failed to persist " + dictionary.kind() + " ids", e);
+                }
+                persistedNames = to;
+            }
+        }
+
+        void force() {
+            header.force();
+            for (int r = 0; r < regions.length(); r++) {
+                MappedByteBuffer region = regions.get(r);
+                if (region != null) region.force();
+            }
+            try {
+                names.force(false);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        void close() {
+            try {
+                data.close();
+                names.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private int offset(int slot, int field) {
+            return (slot % slotsPerRegion) * slotSize + field;
+        }
+
+        private ByteBuffer writable(int slot) {
+            persistName(slot);
+            int index = slot / slotsPerRegion;
+            MappedByteBuffer region = regions.get(index);
+            if (region != null) return region;
+            synchronized (this) {
+                region = regions.get(index);
+                if (region == null) {
+                    try {
+                        region = map(index);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException("Failed to grow " + dictionary.kind() + " slots", e);
+                    }
+                    regions.set(index, region);
+                }
+                return region;
+            }
+        }
+
+        //map за концом файла расширяет его; новые страницы заполнены нулями
+        private MappedByteBuffer map(int index) throws IOException {
+            return data.map(FileChannel.MapMode.READ_WRITE, HEADER_BYTES + index * regionBytes, regionBytes);
+        }
+
+        private void checkHeader() throws IOException {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            if (data.size() == 0) {
+                header.putInt(MAGIC).putInt(VERSION).putInt(slotSize).putInt(slotsPerRegion).rewind();
+                data.write(header, 0);
+                return;
+            }
+            data.read(header, 0);
+            header.flip();
+            int magic = header.getInt();
+            int version = header.getInt();
+            int storedSlot = header.getInt();
+            int storedRegion = header.getInt();
+            if (magic != MAGIC || version != VERSION || storedSlot != slotSize || storedRegion != slotsPerRegion) {
+                throw new IllegalStateException("Incompatible " + dictionary.kind() + ".dat: magic=%x version=%d slot=%d region=%d"
+                        .formatted(magic, version, storedSlot, storedRegion));
+            }
+        }
+
+        private void loadNames() throws IOException {
+            if (dictionary.size() != 0) {
+                throw new IllegalStateException(dictionary.kind() + " ids registered before mapped state was loaded");
+            }
+            ByteBuffer all = ByteBuffer.allocate((int) names.size());
+            while (all.hasRemaining() && names.read(all, all.position()) > 0) {
+                // читаем до конца
+            }
+            all.flip();
+            long complete = 0;
+            while (all.remaining() >= 4) {
+                int length = all.getInt();
+                if (length < 0 || length > all.remaining()) break;
+                byte[] bytes = new byte[length];
+                all.get(bytes);
+                dictionary.intern(new String(bytes, StandardCharsets.UTF_8));
+                complete = all.position();
+            }
+            if (complete < names.size()) {
+                log.warn("Dropping {} bytes of incomplete {} id record", names.size() - complete, dictionary.kind());
+                names.truncate(complete);
+            }
+            persistedNames = dictionary.size();
+        }
+    }
+}
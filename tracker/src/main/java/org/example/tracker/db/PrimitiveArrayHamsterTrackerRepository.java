@@ -0,0 +1,350 @@
+package org.example.tracker.db;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Repository;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Состояние в примитивных массивах, индексированных хэндлами из {@link IdRegistry}:
+ * суточные раунды (два слова {@link DayRounds} на хомяка), long-время активности (epoch millis) и битовые флаги вместо объектов Instant и счётчиков.
+ * Массивы растут кусками по {@value #CHUNK_SIZE} элементов, куски не копируются,
+ * поэтому рост не мешает конкурентным читателям. Доступ к элементам — через VarHandle.
+ * Время хранится с точностью до миллисекунды; 0 — «нет значения».
+ */
+@Repository
+@ConditionalOnProperty(name = "tracker.repository", havingValue = "array")
+public class PrimitiveArrayHamsterTrackerRepository implements HamsterTrackerRepository {
+
+    static final int CHUNK_BITS = 12;
+    static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    private static final VarHandle INTS = MethodHandles.arrayElementVarHandle(int[].class);
+    private static final VarHandle LONGS = MethodHandles.arrayElementVarHandle(long[].class);
+
+    private final IdRegistry ids;
+
+    private final IntChunks occupants;         // по колёсам: хэндл хомяка + 1, 0 — пусто
+    private final LongChunks rounds;           // по хомякам: слова 2h и 2h+1
+    private final BitChunks hasRounds;         // хомяк уже попадал в суточные раунды
+    private final LongChunks lastActivity;     // по хомякам
+    private final BitChunks inactivityAlerted;
+    private final LongChunks sensorFailures;   // по датчикам: начало отказа
+    private final BitChunks sensorAlerted;
+    private final LongChunks sequences;        // по источникам: слова 2s (старший номер + 1) и 2s+1 (карта)
+    private final DayRounds.Days days = new DayRounds.Days(1, 0);
+
+    public PrimitiveArrayHamsterTrackerRepository() {
+        this(new IdRegistry());
+    }
+
+    @Autowired
+    public PrimitiveArrayHamsterTrackerRepository(IdRegistry ids) {
+        this.ids = ids;
+        int hamsters = ids.hamsters().capacity();
+        int sensors = ids.sensors().capacity();
+        this.occupants = new IntChunks(ids.wheels().capacity());
+        this.rounds = new LongChunks(2 * hamsters);
+        this.hasRounds = new BitChunks(hamsters);
+        this.lastActivity = new LongChunks(hamsters);
+        this.inactivityAlerted = new BitChunks(hamsters);
+        this.sensorFailures = new LongChunks(sensors);
+        this.sensorAlerted = new BitChunks(sensors);
+        this.sequences = new LongChunks(2 * sensors);
+    }
+
+    @Override
+    public IdRegistry ids() {
+        return ids;
+    }
+
+    @Override
+    public int getOccupant(int wheel) {
+        if (wheel < 0) return -1;
+        return occupants.get(wheel) - 1;
+    }
+
+    @Override
+    public void setOccupant(int wheel, int hamster) {
+        if (wheel < 0 || hamster < 0) return;
+        occupants.set(wheel, hamster + 1);
+    }
+
+    @Override
+    public void clearOccupantIfMatches(int wheel, int hamster) {
+        if (wheel < 0 || hamster < 0) return;
+        occupants.compareAndSet(wheel, hamster + 1, 0);
+    }
+
+    @Override
+    public Map<String, String> getAllOccupants() {
+        int size = ids.wheels().size();
+        Map<String, String> copy = new HashMap<>();
+        for (int w = 0; w < size; w++) {
+            int hamster = occupants.get(w) - 1;
+            if (hamster >= 0) {
+                copy.put(ids.wheels().name(w), ids.hamsters().name(hamster));
+            }
+        }
+        return Collections.unmodifiableMap(copy);
+    }
+
+    @Override
+    public int currentDay() {
+        return days.open();
+    }
+
+    @Override
+    public void openDay(int day) {
+        days.open(day);
+    }
+
+    @Override
+    public int addRounds(int hamster, int day, int delta) {
+        if (hamster < 0) return 0;
+        if (delta == 0) return getRounds(hamster, day);
+        hasRounds.set(hamster, true); // до проверки суток: закрытие по этому биту находит счётчик
+        if (!days.accepts(day)) return -1;
+        int index = 2 * hamster + DayRounds.word(day);
+        long current = rounds.get(index);
+        while (true) {
+            long next = DayRounds.add(current, day, delta);
+            if (next == DayRounds.REJECTED) return -1;
+            if (rounds.compareAndSet(index, current, next)) return DayRounds.roundsOf(next, day);
+            current = rounds.get(index);
+        }
+    }
+
+    @Override
+    public int getRounds(int hamster, int day) {
+        if (hamster < 0) return 0;
+        return DayRounds.roundsOf(rounds.get(2 * hamster + DayRounds.word(day)), day);
+    }
+
+    @Override
+    public boolean hasRounds(int hamster) {
+        return hamster >= 0 && hasRounds.get(hamster);
+    }
+
+    @Override
+    public Map<String, Integer> closeDay(int day) {
+        boolean closing = days.beginClose(day);
+        int size = ids.hamsters().size();
+        Map<String, Integer> copy = new HashMap<>();
+        for (int h = 0; h < size; h++) {
+            if (!hasRounds.get(h)) continue;
+            int index = 2 * h + DayRounds.word(day);
+            long current = rounds.get(index);
+            while (closing && !rounds.compareAndSet(index, current, DayRounds.close(current, day))) {
+                current = rounds.get(index);
+            }
+            copy.put(ids.hamsters().name(h), DayRounds.roundsOf(current, day));
+        }
+        if (closing) days.endClose(day);
+        return Collections.unmodifiableMap(copy);
+    }
+
+    @Override
+    public Map<String, Integer> getAllRoundsSnapshot() {
+        int day = days.open();
+        int size = ids.hamsters().size();
+        Map<String, Integer> copy = new HashMap<>();
+        for (int h = 0; h < size; h++) {
+            if (hasRounds.get(h)) {
+                copy.put(ids.hamsters().name(h), getRounds(h, day));
+            }
+        }
+        return Collections.unmodifiableMap(copy);
+    }
+
+    @Override
+    public void updateLastActivity(int hamster, Instant when) {
+        if (hamster < 0 || when == null) return;
+        lastActivity.set(hamster, when.toEpochMilli());
+    }
+
+    @Override
+    public Instant getLastActivity(int hamster) {
+        return hamster < 0 ? null : instantOrNull(lastActivity.get(hamster));
+    }
+
+    @Override
+    public Map<String, Instant> getAllLastActivity() {
+        return byName(lastActivity, ids.hamsters());
+    }
+
+    @Override
+    public boolean isInactivityAlerted(int hamster) {
+        if (hamster < 0) return false;
+        return inactivityAlerted.get(hamster);
+    }
+
+    @Override
+    public void setInactivityAlerted(int hamster, boolean alerted) {
+        if (hamster < 0) return;
+        inactivityAlerted.set(hamster, alerted);
+    }
+
+    @Override
+    public boolean markSensorFailed(int sensor, Instant since) {
+        if (sensor < 0 || since == null) return false;
+        return sensorFailures.compareAndSet(sensor, 0L, since.toEpochMilli()); // true, если записали впервые
+    }
+
+    @Override
+    public void clearSensorFailure(int sensor) {
+        if (sensor < 0) return;
+        sensorFailures.set(sensor, 0L);
+    }
+
+    @Override
+    public Instant getSensorFailedSince(int sensor) {
+        return sensor < 0 ? null : instantOrNull(sensorFailures.get(sensor));
+    }
+
+    @Override
+    public Map<String, Instant> getAllSensorFailures() {
+        return byName(sensorFailures, ids.sensors());
+    }
+
+    @Override
+    public boolean isSensorAlerted(int sensor) {
+        if (sensor < 0) return false;
+        return sensorAlerted.get(sensor);
+    }
+
+    @Override
+    public void setSensorAlerted(int sensor, boolean alerted) {
+        if (sensor < 0) return;
+        sensorAlerted.set(sensor, alerted);
+    }
+
+    @Override
+    public long getSequenceTop(int source) {
+        return source < 0 ? 0L : sequences.get(2 * source);
+    }
+
+    @Override
+    public long getSequenceBits(int source) {
+        return source < 0 ? 0L : sequences.get(2 * source + 1);
+    }
+
+    @Override
+    public void setSequenceWindow(int source, long top, long bits) {
+        if (source < 0) return;
+        sequences.set(2 * source + 1, bits);
+        sequences.set(2 * source, top);
+    }
+
+    //0 в ячейке времени означает «нет»
+    private static Instant instantOrNull(long millis) {
+        return millis == 0L ? null : Instant.ofEpochMilli(millis);
+    }
+
+    private static Map<String, Instant> byName(LongChunks millis, IdDictionary dictionary) {
+        int size = dictionary.size();
+        Map<String, Instant> copy = new HashMap<>();
+        for (int i = 0; i < size; i++) {
+            long value = millis.get(i);
+            if (value != 0L) {
+                copy.put(dictionary.name(i), Instant.ofEpochMilli(value));
+            }
+        }
+        return Collections.unmodifiableMap(copy);
+    }
+
+    //Куски выделяются при первой записи; чтение из невыделенного куска даёт 0
+    static final class IntChunks {
+        private final AtomicReferenceArray<int[]> chunks;
+
+        IntChunks(int capacity) {
+            this.chunks = new AtomicReferenceArray<>((capacity + CHUNK_MASK) >>> CHUNK_BITS);
+        }
+
+        int get(int index) {
+            int[] chunk = chunks.get(index >>> CHUNK_BITS);
+            return chunk == null ? 0 : (int) INTS.getVolatile(chunk, index & CHUNK_MASK);
+        }
+
+        void set(int index, int value) {
+            INTS.setVolatile(chunk(index), index & CHUNK_MASK, value);
+        }
+
+        boolean compareAndSet(int index, int expected, int value) {
+            return INTS.compareAndSet(chunk(index), index & CHUNK_MASK, expected, value);
+        }
+
+        private int[] chunk(int index) {
+            int slot = index >>> CHUNK_BITS;
+            int[] chunk = chunks.get(slot);
+            if (chunk == null) {
+                chunks.compareAndSet(slot, null, new int[CHUNK_SIZE]);
+                chunk = chunks.get(slot);
+            }
+            return chunk;
+        }
+    }
+
+    static final class LongChunks {
+        private final AtomicReferenceArray<long[]> chunks;
+
+        LongChunks(int capacity) {
+            this.chunks = new AtomicReferenceArray<>((capacity + CHUNK_MASK) >>> CHUNK_BITS);
+        }
+
+        long get(int index) {
+            long[] chunk = chunks.get(index >>> CHUNK_BITS);
+            return chunk == null ? 0L : (long) LONGS.getVolatile(chunk, index & CHUNK_MASK);
+        }
+
+        void set(int index, long value) {
+            LONGS.setVolatile(chunk(index), index & CHUNK_MASK, value);
+        }
+
+        boolean compareAndSet(int index, long expected, long value) {
+            return LONGS.compareAndSet(chunk(index), index & CHUNK_MASK, expected, value);
+        }
+
+        private long[] chunk(int index) {
+            int slot = index >>> CHUNK_BITS;
+            long[] chunk = chunks.get(slot);
+            if (chunk == null) {
+                chunks.compareAndSet(slot, null, new long[CHUNK_SIZE]);
+                chunk = chunks.get(slot);
+            }
+            return chunk;
+        }
+    }
+
+    //Битовый набор на long-словах; установка и сброс бита — CAS по слову
+    static final class BitChunks {
+        private final LongChunks words;
+
+        BitChunks(int capacity) {
+            this.words = new LongChunks((capacity + 63) >>> 6);
+        }
+
+        boolean get(int index) {
+            return (words.get(index >>> 6) & (1L << index)) != 0;
+        }
+
+        void set(int index, boolean value) {
+            int word = index >>> 6;
+            long mask = 1L << index;
+            long current = words.get(word);
+            while (((current & mask) != 0) != value) {
+                long next = value ? current | mask : current & ~mask;
+                if (words.compareAndSet(word, current, next)) return;
+                current = words.get(word);
+            }
+        }
+    }
+}
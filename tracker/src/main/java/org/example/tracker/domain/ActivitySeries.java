@@ -0,0 +1,9 @@
+package org.example.tracker.domain;
+
+//Раунды хомяка по интервалам: rounds[i] — за [fromMs + i*stepMs, fromMs + (i+1)*stepMs)
+public record ActivitySeries(String hamsterId, Resolution resolution, long fromMs, long stepMs, int[] rounds) {
+
+    public enum Resolution {
+        MINUTE, HOUR
+    }
+}
@@ -0,0 +1,11 @@
+package org.example.tracker.domain;
+
+//Решение о приёме события в буфер обработки
+public enum Admission {
+    //Поставлено в очередь шарда
+    ACCEPTED,
+    //Отброшено как малоценное при высокой загрузке; повторять не нужно
+    SHED,
+    //Не принято из-за перегрузки; отправитель должен повторить позже (429)
+    REJECTED
+}
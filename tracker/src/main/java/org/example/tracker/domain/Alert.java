@@ -0,0 +1,10 @@
+package org.example.tracker.domain;
+
+//Один алерт: вид, о ком (хомяк или датчик), готовый текст и когда он возник
+public record Alert(
+        AlertKind kind,
+        String subject,
+        String message,
+        long createdAtMs
+) {
+}
@@ -0,0 +1,250 @@
+package org.example.tracker.domain;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Доставка алертов в {@link AlertService} мимо потока проверок: submit только кладёт алерт в ограниченную очередь.
+ * Поток диспетчера собирает алерты за окно windowMs; несколько алертов одного вида за окно уходят одним дайджестом.
+ * Каждое сообщение отправляется в каждый приёмник на виртуальном потоке, не больше maxConcurrency одновременно
+ * на приёмник, с повторами и экспоненциальной паузой. Переполненная очередь отбрасывает новые алерты со счётчиком.
+ * <p>
+ * {@link #direct(AlertService)} — синхронный вариант без очереди и повторов для тестов и ручной сборки сервиса.
+ */
+@Slf4j
+@Component
+public class AlertDispatcher {
+
+    private static final int DIGEST_MAX_SUBJECTS = 50;
+
+    private final List<Sink> sinks;
+    private final BlockingQueue<Alert> queue;
+    private final int queueCapacity;
+    private final long windowMs;
+    private final int maxAttempts;
+    private final long backoffMs;
+    private final boolean async;
+
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder delivered = new LongAdder();
+    private final LongAdder digests = new LongAdder();
+    private final LongAdder retries = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder latencyTotalMs = new LongAdder();
+    private final AtomicLong lastLatencyMs = new AtomicLong();
+    private final AtomicLong maxLatencyMs = new AtomicLong();
+
+    private ExecutorService deliveries;
+    private Thread dispatcher;
+    private volatile boolean running;
+
+    @Autowired
+    public AlertDispatcher(List<AlertService> sinks,
+                           @Value("${tracker.alerts.queue-capacity:10000}") int queueCapacity,
+                           @Value("${tracker.alerts.coalesce-window-ms:2000}") long windowMs,
+                           @Value("${tracker.alerts.max-concurrency-per-sink:4}") int maxConcurrency,
+                           @Value("${tracker.alerts.max-attempts:5}") int maxAttempts,
+                           @Value("${tracker.alerts.backoff-ms:500}") long backoffMs) {
+        this(sinks, queueCapacity, windowMs, maxConcurrency, maxAttempts, backoffMs, true);
+    }
+
+    private AlertDispatcher(List<AlertService> sinks, int queueCapacity, long windowMs, int maxConcurrency,
+                            int maxAttempts, long backoffMs, boolean async) {
+        if (queueCapacity < 1 || maxConcurrency < 1 || maxAttempts < 1 || windowMs < 0 || backoffMs < 0) {
+            throw new IllegalArgumentException("Invalid alert dispatcher settings");
+        }
+        this.sinks = sinks.stream().map(s -> new Sink(s, maxConcurrency)).toList();
+        this.queueCapacity = queueCapacity;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.windowMs = windowMs;
+        this.maxAttempts = maxAttempts;
+        this.backoffMs = backoffMs;
+        this.async = async;
+    }
+
+    //Синхронная отправка в вызывающем потоке: одна попытка, без окна и дайджестов
+    public static AlertDispatcher direct(AlertService sink) {
+        return new AlertDispatcher(List.of(sink), 1, 0, 1, 1, 0, false);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!async) return;
+        running = true;
+        deliveries = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("hamster-alert-", 0).factory());
+        dispatcher = new Thread(this::dispatchLoop, "hamster-alert-dispatcher");
+        dispatcher.setDaemon(true);
+        dispatcher.start();
+        log.info("Alert dispatcher started: sinks={} queueCapacity={} window={} ms maxAttempts={}",
+                sinks.size(), queueCapacity, windowMs, maxAttempts);
+    }
+
+    //Дожидается отправки того, что уже в очереди, но не дольше нескольких секунд
+    @PreDestroy
+    public void stop() {
+        if (!async || !running) return;
+        running = false;
+        dispatcher.interrupt();
+        try {
+            dispatcher.join(5_000);
+            deliveries.shutdown();
+            if (!deliveries.awaitTermination(5, TimeUnit.SECONDS)) {
+                log.warn("Alert deliveries did not finish in time");
+                deliveries.shutdownNow();
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    //false — очередь полна или диспетчер остановлен, алерт отброшен
+    public boolean submit(AlertKind kind, String subject, String message) {
+        Alert alert = new Alert(kind, subject, message, System.currentTimeMillis());
+        submitted.increment();
+        if (!async) {
+            for (Sink sink : sinks) {
+                deliver(sink, alert.message(), alert.createdAtMs());
+            }
+            return true;
+        }
+        if (!running || !queue.offer(alert)) {
+            dropped.increment();
+            log.warn("Alert dropped, dispatch queue full ({}): {}", queueCapacity, message);
+            return false;
+        }
+        return true;
+    }
+
+    public AlertStats stats() {
+        long ok = delivered.sum();
+        return new AlertStats(queue.size(), queueCapacity, submitted.sum(), dropped.sum(), ok, digests.sum(),
+                retries.sum(), failed.sum(), lastLatencyMs.get(), maxLatencyMs.get(),
+                ok == 0 ? 0.0 : (double) latencyTotalMs.sum() / ok);
+    }
+
+    private void dispatchLoop() {
+        List<Alert> window = new ArrayList<>();
+        while (running || !queue.isEmpty()) {
+            try {
+                Alert first = running ? queue.take() : queue.poll();
+                if (first == null) break;
+                window.add(first);
+                // окно считается от первого алерта: пауза копит пачку, одиночный алерт ждёт не дольше windowMs
+                long until = System.currentTimeMillis() + windowMs;
+                long left;
+                while (running && (left = until - System.currentTimeMillis()) > 0) {
+                    Alert next = queue.poll(left, TimeUnit.MILLISECONDS);
+                    if (next == null) break;
+                    window.add(next);
+                    queue.drainTo(window);
+                }
+            } catch (InterruptedException ex) {
+                if (running) continue; // будят только при остановке
+            }
+            queue.drainTo(window);
+            flush(window);
+            window.clear();
+        }
+    }
+
+    private void flush(List<Alert> window) {
+        if (window.isEmpty()) return;
+        Map<AlertKind, List<Alert>> byKind = new EnumMap<>(AlertKind.class);
+        for (Alert alert : window) {
+            byKind.computeIfAbsent(alert.kind(), k -> new ArrayList<>()).add(alert);
+        }
+        byKind.forEach((kind, alerts) -> {
+            String message = alerts.size() == 1 ? alerts.get(0).message() : digest(kind, alerts);
+            if (alerts.size() > 1) {
+                digests.increment();
+            }
+            long createdAt = alerts.get(0).createdAtMs();
+            for (Sink sink : sinks) {
+                deliveries.execute(() -> deliver(sink, message, createdAt));
+            }
+        });
+    }
+
+    static String digest(AlertKind kind, List<Alert> alerts) {
+        StringBuilder sb = new StringBuilder(kind.digestTitle()).append(" (").append(alerts.size()).append("): ");
+        int shown = Math.min(alerts.size(), DIGEST_MAX_SUBJECTS);
+        for (int i = 0; i < shown; i++) {
+            if (i > 0) sb.append(", ");
+            sb.append(alerts.get(i).subject());
+        }
+        if (alerts.size() > shown) {
+            sb.append(" and ").append(alerts.size() - shown).append(" more");
+        }
+        return sb.toString();
+    }
+
+    private void deliver(Sink sink, String message, long createdAtMs) {
+        try {
+            sink.permits.acquire();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            failed.increment();
+            return;
+        }
+        try {
+            for (int attempt = 1; ; attempt++) {
+                try {
+                    sink.service.sendAlert(message);
+                    recordLatency(System.currentTimeMillis() - createdAtMs);
+                    return;
+                } catch (Exception ex) {
+                    if (attempt >= maxAttempts) {
+                        failed.increment();
+                        log.error("Alert delivery to {} failed after {} attempts: {}",
+                                sink.name(), attempt, ex.toString(), ex);
+                        return;
+                    }
+                    retries.increment();
+                    log.warn("Alert delivery to {} failed (attempt {}), retrying: {}", sink.name(), attempt, ex.toString());
+                    Thread.sleep(backoffMs << Math.min(attempt - 1, 10));
+                }
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            failed.increment();
+        } finally {
+            sink.permits.release();
+        }
+    }
+
+    private void recordLatency(long latencyMs) {
+        delivered.increment();
+        latencyTotalMs.add(latencyMs);
+        lastLatencyMs.set(latencyMs);
+        maxLatencyMs.accumulateAndGet(latencyMs, Math::max);
+    }
+
+    //Приёмник и его ограничение одновременных отправок
+    private record Sink(AlertService service, Semaphore permits) {
+        Sink(AlertService service, int maxConcurrency) {
+            this(service, new Semaphore(maxConcurrency));
+        }
+
+        String name() {
+            return service.getClass().getSimpleName();
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package org.example.tracker.domain;
+
+//Вид алерта: одинаковые алерты одного окна сворачиваются в дайджест с этим заголовком
+public enum AlertKind {
+    INACTIVITY("Hamsters inactive"),
+    SENSOR_DOWN("Sensors down");
+
+    private final String digestTitle;
+
+    AlertKind(String digestTitle) {
+        this.digestTitle = digestTitle;
+    }
+
+    public String digestTitle() {
+        return digestTitle;
+    }
+}
@@ -0,0 +1,17 @@
+package org.example.tracker.domain;
+
+//Метрики доставки алертов; задержка — от возникновения самого раннего алерта сообщения до успешной отправки
+public record AlertStats(
+        int queueDepth,
+        int queueCapacity,
+        long submitted,
+        long dropped,
+        long delivered,
+        long digests,
+        long retries,
+        long failed,
+        long lastLatencyMs,
+        long maxLatencyMs,
+        double avgLatencyMs
+) {
+}
@@ -0,0 +1,128 @@
+package org.example.tracker.domain;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Хэшированное колесо дедлайнов по int-хэндлам. Каждый хэндл лежит в колесе не больше одного раза
+ * (бит armed), поэтому частые продления дедлайна ничего не стоят: настоящий дедлайн берётся из репозитория
+ * в момент срабатывания слота, и если он уехал вперёд, хэндл просто перекладывается в новый слот.
+ * Работа за тик пропорциональна числу сработавших хэндлов, а не числу всех сущностей.
+ * <p>
+ * arm вызывают потоки шардов, advance — только один поток планировщика.
+ */
+final class DeadlineWheel {
+
+    //Что делать со сработавшим хэндлом: следующий дедлайн в мс или -1, если больше не следить
+    interface Expiry {
+        long onExpired(int handle, long nowMs);
+    }
+
+    private final long tickMs;
+    private final int mask;
+    private final Slot[] slots;
+    private final AtomicLongArray armed;
+    private volatile long currentTick; // последний разобранный тик; пишет только advance
+
+    DeadlineWheel(int capacity, long tickMs, int slotCount, long nowMs) {
+        if (slotCount < 2 || Integer.bitCount(slotCount) != 1) {
+            throw new IllegalArgumentException("slotCount must be a power of two: " + slotCount);
+        }
+        this.tickMs = tickMs;
+        this.mask = slotCount - 1;
+        this.slots = new Slot[slotCount];
+        for (int i = 0; i < slotCount; i++) {
+            slots[i] = new Slot();
+        }
+        this.armed = new AtomicLongArray((capacity + 63) >>> 6);
+        this.currentTick = nowMs / tickMs;
+    }
+
+    //Ставит хэндл в колесо, если его там ещё нет; уже стоящий догонит новый дедлайн при срабатывании
+    void arm(int handle, long deadlineMs) {
+        if (handle < 0 || !markArmed(handle)) return;
+        // прошедший дедлайн уходит в ближайший тик; дальше одного оборота — хэндл просто перепроверится раньше
+        long tick = Math.max(Math.floorDiv(deadlineMs, tickMs), currentTick + 1);
+        slots[(int) (tick & mask)].add(handle);
+    }
+
+    //Разбирает все тики до nowMs включительно; возвращает число просмотренных хэндлов
+    int advance(long nowMs, Expiry expiry) {
+        long target = nowMs / tickMs;
+        long from = currentTick + 1;
+        // отставание больше оборота: каждый слот достаточно разобрать один раз
+        if (target - from >= slots.length) {
+            from = target - slots.length + 1;
+        }
+        int examined = 0;
+        for (long tick = from; tick <= target; tick++) {
+            currentTick = tick;
+            int[] due = slots[(int) (tick & mask)].drain();
+            for (int handle : due) {
+                if (handle < 0) break; // хвост массива после последнего элемента
+                clearArmed(handle);
+                examined++;
+                long next = expiry.onExpired(handle, nowMs);
+                if (next >= 0) {
+                    arm(handle, next);
+                }
+            }
+        }
+        return examined;
+    }
+
+    int armedCount() {
+        int count = 0;
+        for (int i = 0; i < armed.length(); i++) {
+            count += Long.bitCount(armed.get(i));
+        }
+        return count;
+    }
+
+    private boolean markArmed(int handle) {
+        int word = handle >>> 6;
+        long bit = 1L << handle;
+        long current;
+        do {
+            current = armed.get(word);
+            if ((current & bit) != 0) return false;
+        } while (!armed.compareAndSet(word, current, current | bit));
+        return true;
+    }
+
+    private void clearArmed(int handle) {
+        int word = handle >>> 6;
+        long bit = 1L << handle;
+        long current;
+        do {
+            current = armed.get(word);
+        } while (!armed.compareAndSet(word, current, current & ~bit));
+    }
+
+    //Вставки редкие (один раз на хэндл за период), поэтому хватает монитора на слот
+    private static final class Slot {
+        private static final int[] EMPTY = new int[0];
+
+        private int[] handles = EMPTY;
+        private int size;
+
+        synchronized void add(int handle) {
+            if (size == handles.length) {
+                handles = Arrays.copyOf(handles, Math.max(8, size * 2));
+            }
+            handles[size++] = handle;
+        }
+
+        //Забирает содержимое слота; хвост за последним элементом заполнен -1
+        synchronized int[] drain() {
+            if (size == 0) return EMPTY;
+            int[] taken = handles;
+            if (size < taken.length) {
+                Arrays.fill(taken, size, taken.length, -1);
+            }
+            handles = EMPTY;
+            size = 0;
+            return taken;
+        }
+    }
+}
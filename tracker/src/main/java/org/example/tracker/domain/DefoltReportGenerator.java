@@ -1,6 +1,7 @@
 package org.example.tracker.domain;
 
 import org.example.tracker.db.HamsterTrackerRepository;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import java.time.LocalDate;
@@ -11,26 +12,52 @@ import java.util.Map;
 public class DefoltReportGenerator implements   ReportGenerator{
     private static final int ACTIVE_THRESHOLD = 10;
     private final HamsterTrackerRepository repository;
+    private final RoundsLeaderboard leaderboard;
 
+    //Без рейтинга: хомяки в отчёте по id
     public DefoltReportGenerator(HamsterTrackerRepository repository) {
+        this(repository, null);
+    }
+
+    //С рейтингом: хомяки в порядке активности прямо из него, без сортировки; хомяки без раундов — в конце
+    @Autowired
+    public DefoltReportGenerator(HamsterTrackerRepository repository, RoundsLeaderboard leaderboard) {
         this.repository = repository;
+        this.leaderboard = leaderboard;
     }
 
     @Override
     public DailyReport generateDailyReport() {
-        LocalDate today = LocalDate.now();
-        Map<String, Integer> roundsByHamster = repository.getAllRoundsSnapshot();
+        return generateDailyReport(LocalDate.now(), repository.getAllRoundsSnapshot());
+    }
 
+    //Рейтинг задаёт только порядок, раунды берутся из переданных; хомяков, которых в них нет, в отчёте нет
+    @Override
+    public DailyReport generateDailyReport(LocalDate date, Map<String, Integer> roundsByHamster) {
         Map<String, HamsterStats> hamsterStatsMap = new LinkedHashMap<>();
-        roundsByHamster.entrySet().stream()
-                .sorted(Map.Entry.comparingByKey())
-                .forEach(entry -> {
-                    String hamsterId = entry.getKey();
-                    int totalRounds = entry.getValue();
-                    boolean active = totalRounds > ACTIVE_THRESHOLD;
-                    hamsterStatsMap.put(hamsterId, new HamsterStats(hamsterId, totalRounds, active));
-                });
-
-        return new DailyReport(today, hamsterStatsMap);
+        if (leaderboard != null) {
+            leaderboard.forEachRanked((hamsterId, ignored) -> {
+                Integer rounds = roundsByHamster.get(hamsterId);
+                if (rounds != null) {
+                    put(hamsterStatsMap, hamsterId, rounds);
+                }
+            });
+            roundsByHamster.forEach((hamsterId, rounds) -> {
+                if (!hamsterStatsMap.containsKey(hamsterId)) {
+                    put(hamsterStatsMap, hamsterId, rounds);
+                }
+            });
+        } else {
+            roundsByHamster.entrySet().stream()
+                    .sorted(Map.Entry.comparingByKey())
+                    .forEach(entry -> put(hamsterStatsMap, entry.getKey(), entry.getValue()));
+        }
+
+        return new DailyReport(date, hamsterStatsMap);
+    }
+
+    private static void put(Map<String, HamsterStats> stats, String hamsterId, int totalRounds) {
+        boolean active = totalRounds > ACTIVE_THRESHOLD;
+        stats.put(hamsterId, new HamsterStats(hamsterId, totalRounds, active));
     }
 }
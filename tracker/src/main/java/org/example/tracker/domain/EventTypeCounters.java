@@ -0,0 +1,8 @@
+package org.example.tracker.domain;
+
+public record EventTypeCounters(
+        long accepted,
+        long shed,
+        long rejected
+) {
+}
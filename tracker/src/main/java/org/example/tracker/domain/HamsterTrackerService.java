@@ -3,30 +3,47 @@ package org.example.tracker.domain;
 import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
 import org.example.tracker.db.HamsterTrackerRepository;
+import org.example.tracker.db.IdDictionary;
+import org.example.tracker.db.IdRegistry;
 import org.example.tracker.domain.eventDto.HamsterEvent;
 import org.example.tracker.domain.eventDto.*;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.time.*;
 import java.time.temporal.ChronoUnit;
-import java.util.Objects;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
 
 @Slf4j
 @Service
 public class HamsterTrackerService {
 
     private final HamsterTrackerRepository hamsterRepository;
-    private final AlertService alertService;
+    private final AlertDispatcher alerts;
     private final ReportGenerator reportGenerator;
+    private final List<TrackerListener> listeners;
+    //Сколько событие может опоздать относительно других; водяной знак = сейчас - allowedLateness
+    private final long allowedLatenessMs;
+    private final ZoneId zoneId = ZoneId.systemDefault();
+    //Открытые сутки; смена суток — замена окна одной volatile-записью, обработка событий не останавливается
+    private volatile DayWindow day;
 
-    private static final long ROUND_MS = 5_000L;
+    static final long ROUND_MS = 5_000L;
     private static final int ACTIVE_THRESHOLD = 10;
     private static final Duration INACTIVITY = Duration.ofHours(1);
     private static final Duration SENSOR_DOWN_THRESHOLD = Duration.ofMinutes(30);
+    private static final long DEADLINE_TICK_MS = 1_000L;
+    private static final int DEADLINE_WHEEL_SLOTS = 4096; // оборот ~68 минут, больше обоих порогов
+    private static final long RECONCILE_INTERVAL_SEC = TimeUnit.HOURS.toSeconds(1);
 
     private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
         Thread t = new Thread(r, "hamster-tracker-scheduler");
@@ -34,104 +51,331 @@ public class HamsterTrackerService {
         return t;
     });
 
+    //Дедлайны неактивности по хомякам и «датчик лежит» по датчикам; полный обход только для сверки раз в час
+    private final DeadlineWheel inactivityDeadlines;
+    private final DeadlineWheel sensorDeadlines;
+    //Номера последовательности по источникам: повторы отбрасываются до применения, номер отмечается после него;
+    //в том числе при replay
+    private final SequenceWindow sequences;
+    private final LongAdder duplicates = new LongAdder();
+    //Крутки за уже закрытые сутки: опоздали сильнее допустимого и не зачтены
+    private final LongAdder closedDaySpins = new LongAdder();
+
+    //Границы открытых суток при проигрывании журнала: пока журнал не отметил смену суток, всё идёт в открытые
+    private long replayStartMs = Long.MIN_VALUE;
+    private long replayEndMs = Long.MAX_VALUE;
+
+    private ScheduledFuture<?> deadlinesTask;
     private ScheduledFuture<?> checksTask;
     private ScheduledFuture<?> dailyReportTask;
 
+    @Autowired
+    public HamsterTrackerService(HamsterTrackerRepository hamsterRepository,
+                                 AlertDispatcher alerts,
+                                 ReportGenerator reportGenerator,
+                                 ObjectProvider<TrackerListener> listeners,
+                                 @Value("${tracker.event-time.allowed-lateness-ms:0}") long allowedLatenessMs) {
+        this(hamsterRepository, alerts, reportGenerator, listeners.orderedStream().toList(), allowedLatenessMs);
+    }
+
     public HamsterTrackerService(HamsterTrackerRepository hamsterRepository,
-                                 AlertService alertService,
-                                 ReportGenerator reportGenerator) {
+                                 AlertDispatcher alerts,
+                                 ReportGenerator reportGenerator,
+                                 List<TrackerListener> listeners,
+                                 long allowedLatenessMs) {
+        if (allowedLatenessMs < 0) {
+            throw new IllegalArgumentException("allowed-lateness-ms must be >= 0: " + allowedLatenessMs);
+        }
         this.hamsterRepository = hamsterRepository;
-        this.alertService = alertService;
+        this.alerts = alerts;
         this.reportGenerator = reportGenerator;
+        this.listeners = List.copyOf(listeners);
+        this.allowedLatenessMs = allowedLatenessMs;
+        long now = System.currentTimeMillis();
+        // у первых суток после запуска нижней границы нет: прошлые сутки этот процесс не закрывал
+        this.day = new DayWindow(hamsterRepository.currentDay(), Long.MIN_VALUE, nextMidnightMs(now));
+        IdRegistry ids = hamsterRepository.ids();
+        this.inactivityDeadlines = new DeadlineWheel(ids.hamsters().capacity(), DEADLINE_TICK_MS, DEADLINE_WHEEL_SLOTS, now);
+        this.sensorDeadlines = new DeadlineWheel(ids.sensors().capacity(), DEADLINE_TICK_MS, DEADLINE_WHEEL_SLOTS, now);
+        this.sequences = new SequenceWindow(hamsterRepository);
     }
 
     @PostConstruct
     void start() {
-        this.checksTask = scheduler.scheduleAtFixedRate(this::runPeriodicChecksSafe, 60, 60, TimeUnit.SECONDS);
-        scheduleDailyReportAtMidnight(ZoneId.systemDefault());
-        log.info("HamsterTrackerService started: periodic checks each 60s, daily reports at midnight.");
+        this.deadlinesTask = scheduler.scheduleAtFixedRate(this::checkDeadlinesSafe,
+                DEADLINE_TICK_MS, DEADLINE_TICK_MS, TimeUnit.MILLISECONDS);
+        // первая сверка — после восстановления состояния: ставит в колёса всё, что пришло из снимка
+        this.checksTask = scheduler.scheduleAtFixedRate(this::runPeriodicChecksSafe, 60, RECONCILE_INTERVAL_SEC, TimeUnit.SECONDS);
+        scheduleDailyReport();
+        log.info("HamsterTrackerService started: deadline checks each {} ms, reconcile sweep each {}s, "
+                        + "daily reports at midnight + {} ms allowed lateness.",
+                DEADLINE_TICK_MS, RECONCILE_INTERVAL_SEC, allowedLatenessMs);
+    }
+
+    //true, если событие обработано; false — пустое, неизвестное или упало при обработке
+    public boolean accept(HamsterEvent event) {
+        return apply(event, Instant.ofEpochMilli(eventTimeMs(event, System.currentTimeMillis())), true);
+    }
+
+    //Применение с уже вычисленным временем события (ShardedEventProcessor после буфера переупорядочивания)
+    public boolean accept(HamsterEvent event, Instant at) {
+        return apply(event, at, true);
+    }
+
+    //Время источника, если оно есть, но не из будущего: часы датчика могут спешить
+    public static long eventTimeMs(HamsterEvent event, long nowMs) {
+        Long timestamp = event == null ? null : event.getTimestamp();
+        return timestamp == null ? nowMs : Math.min(timestamp, nowMs);
+    }
+
+    //Водяной знак: всё, что раньше, уже применено или будет считаться опоздавшим
+    public long watermarkMs() {
+        return System.currentTimeMillis() - allowedLatenessMs;
+    }
+
+    public long allowedLatenessMs() {
+        return allowedLatenessMs;
+    }
+
+    //Повторное применение события из журнала с его исходным временем; слушатели не уведомляются
+    public boolean replay(HamsterEvent event, Instant at) {
+        return apply(event, at, false);
+    }
+
+    //Отметка журнала о начале следующих суток: проигрываемые события от startMs зачитываются в них
+    public void replayNextDayStarted(long startMs) {
+        replayEndMs = startMs;
+    }
+
+    //Отметка журнала о закрытии открытых суток; опоздавшие крутки за них дальше отклоняются, как и вживую
+    public void replayDayClosed() {
+        hamsterRepository.resetDailyRounds();
+        replayStartMs = replayEndMs == Long.MAX_VALUE ? Long.MIN_VALUE : replayEndMs;
+        replayEndMs = Long.MAX_VALUE;
+    }
+
+    //Сколько событий отброшено как повторы по номеру последовательности
+    public long duplicates() {
+        return duplicates.sum();
+    }
+
+    //Сколько круток пришло за уже закрытые сутки
+    public long closedDaySpins() {
+        return closedDaySpins.sum();
     }
 
-    public void accept(HamsterEvent event) {
+    private boolean apply(HamsterEvent event, Instant at, boolean notify) {
         if (event == null) {
             log.warn("Null event received");
-            return;
+            return false;
+        }
+        int source = sequenceSource(event);
+        if (source >= 0 && sequences.seen(source, event.getSeq())) {
+            duplicates.increment();
+            log.debug("Duplicate dropped: source={} seq={}", event.getSourceId(), event.getSeq());
+            return true;
         }
         try {
             switch (event) {
-                case HamsterEnter e -> handleEnter(e);
-                case HamsterExit e -> handleExit(e);
-                case WheelSpin e -> handleWheelSpin(e);
-                case SensorFailure e -> handleSensorFailure(e);
-                default -> log.warn("Unknown event type: {}", event.getClass().getName());
+                case HamsterEnter e -> handleEnter(e, at);
+                case HamsterExit e -> handleExit(e, at);
+                case WheelSpin e -> at = handleWheelSpin(e, at, notify);
+                case SensorFailure e -> handleSensorFailure(e, at);
+                default -> {
+                    log.warn("Unknown event type: {}", event.getClass().getName());
+                    return false;
+                }
             }
         } catch (Exception ex) {
             log.error("Failed to process event {}: {}", event, ex.toString(), ex);
+            return false; // номер не отмечен: повтор события применится заново
+        }
+        if (notify) {
+            for (TrackerListener listener : listeners) {
+                try {
+                    listener.onEventApplied(event, at);
+                } catch (Exception ex) {
+                    log.error("Listener {} failed on event {}: {}", listener.getClass().getSimpleName(), event, ex.toString(), ex);
+                }
+            }
+        }
+        // после журнала: засев окон при смене суток не отметит номер раньше, чем в журнал попадёт само событие
+        if (source >= 0) {
+            sequences.mark(source, event.getSeq());
         }
+        return true;
+    }
+
+    //Источник — датчик: номера хранятся по хэндлу из словаря датчиков. -1 — без номера или без места в словаре
+    private int sequenceSource(HamsterEvent event) {
+        Long seq = event.getSeq();
+        if (seq == null || seq < 0) return -1;
+        return hamsterRepository.ids().sensors().intern(event.getSourceId());
     }
 
-    private void handleEnter(HamsterEnter e) {
-        String current = hamsterRepository.getOccupant(e.getWheelId());
-        if (Objects.equals(current, e.getHamsterId())) {
+    //id события переводятся в хэндлы один раз, дальше репозиторий работает только с int
+    private void handleEnter(HamsterEnter e, Instant at) {
+        IdRegistry ids = hamsterRepository.ids();
+        int hamster = internOrWarn(ids.hamsters(), e.getHamsterId());
+        int wheel = internOrWarn(ids.wheels(), e.getWheelId());
+        if (wheel >= 0 && hamster >= 0 && hamsterRepository.getOccupant(wheel) == hamster) {
             log.debug("Duplicate enter ignored: hamster={} wheel={}", e.getHamsterId(), e.getWheelId());
-            touch(e.getHamsterId());
+            touch(hamster, at);
             return;
         }
-        hamsterRepository.setOccupant(e.getWheelId(), e.getHamsterId());
-        touch(e.getHamsterId());
+        hamsterRepository.setOccupant(wheel, hamster);
+        touch(hamster, at);
         log.debug("Enter: hamster={} wheel={}", e.getHamsterId(), e.getWheelId());
     }
 
-    private void handleExit(HamsterExit e) {
-        String current = hamsterRepository.getOccupant(e.getWheelId());
-        if (!Objects.equals(current, e.getHamsterId())) {
+    private void handleExit(HamsterExit e, Instant at) {
+        IdRegistry ids = hamsterRepository.ids();
+        int hamster = internOrWarn(ids.hamsters(), e.getHamsterId());
+        int wheel = ids.wheels().find(e.getWheelId());
+        int current = hamsterRepository.getOccupant(wheel);
+        if (hamster < 0 || current != hamster) {
             log.debug("Exit mismatch ignored: hamster={} wheel={} (current={})",
-                    e.getHamsterId(), e.getWheelId(), current);
-            touch(e.getHamsterId());
+                    e.getHamsterId(), e.getWheelId(), ids.hamsters().name(current));
+            touch(hamster, at);
             return;
         }
-        hamsterRepository.clearOccupantIfMatches(e.getWheelId(), e.getHamsterId());
-        touch(e.getHamsterId());
+        hamsterRepository.clearOccupantIfMatches(wheel, hamster);
+        touch(hamster, at);
         log.debug("Exit: hamster={} wheel={}", e.getHamsterId(), e.getWheelId());
     }
 
-    private void handleWheelSpin(WheelSpin e) {
+    //Раунды зачитываются в сутки по времени события; при replay — по границам, которые отметил журнал.
+    //Возвращает время, с которым крутка зачтена: его же получают слушатели и журнал
+    private Instant handleWheelSpin(WheelSpin e, Instant at, boolean live) {
         long ms = e.getDurationMs();
         if (ms <= 0) {
             log.debug("Non-positive spin ignored: wheel={} durationMs={}", e.getWheelId(), ms);
-            return;
+            return at;
         }
-        String hamsterId = hamsterRepository.getOccupant(e.getWheelId());
-        if (hamsterId == null) {
+        IdRegistry ids = hamsterRepository.ids();
+        int wheel = ids.wheels().find(e.getWheelId());
+        int hamster = hamsterRepository.getOccupant(wheel);
+        if (hamster < 0) {
             log.debug("Spin ignored: no occupant for wheel={} (durationMs={})", e.getWheelId(), ms);
-            return;
+            return at;
         }
         int rounds = (int) (ms / ROUND_MS);
         if (rounds <= 0) {
-            touch(hamsterId);
-            log.debug("Short spin (<1 round) credited as activity: hamster={} ms={}", hamsterId, ms);
-            return;
+            touch(hamster, at);
+            log.debug("Short spin (<1 round) credited as activity: hamster={} ms={}", ids.hamsters().name(hamster), ms);
+            return at;
+        }
+        DayWindow window = enterDay();
+        try {
+            // время приёма взято до входа в окно: если сутки успели смениться, крутка без времени источника
+            // идёт в новые сутки — в закрываемых её не ждали
+            if (live && e.getTimestamp() == null && at.toEpochMilli() < window.startMs) {
+                at = Instant.ofEpochMilli(window.startMs);
+            }
+            int dayNumber = live ? window.dayOf(at.toEpochMilli())
+                    : DayWindow.dayOf(hamsterRepository.currentDay(), replayStartMs, replayEndMs, at.toEpochMilli());
+            if (live && dayNumber > window.number) {
+                nextDayStarted(window, window.endMs);
+            }
+            int total = hamsterRepository.addRounds(hamster, dayNumber, rounds);
+            touch(hamster, at);
+            if (total < 0) {
+                closedDaySpins.increment();
+                log.debug("Spin for closed day ignored: hamster={} day={} at={}", ids.hamsters().name(hamster), dayNumber, at);
+                return at;
+            }
+            for (TrackerListener listener : listeners) {
+                try {
+                    listener.onRoundsChanged(hamster, dayNumber, rounds, total, at);
+                } catch (Exception ex) {
+                    log.error("Listener {} failed on rounds change: {}", listener.getClass().getSimpleName(), ex.toString(), ex);
+                }
+            }
+            log.debug("Spin credited: hamster={} +{} rounds (day={} total={})", ids.hamsters().name(hamster), rounds, dayNumber, total);
+            return at;
+        } finally {
+            window.leave();
+        }
+    }
+
+    //Первый зачёт в следующие сутки или сама смена суток: слушатели узнают о начале следующих суток раньше,
+    //чем о любом событии, зачтённом в них; остальные потоки ждут на окне, пока уведомление не пройдёт.
+    //Начало только сдвигается назад: ручная смена до полуночи начинает сутки раньше конца окна
+    private void nextDayStarted(DayWindow window, long startMs) {
+        if (startMs >= window.nextStartMs) return;
+        synchronized (window) {
+            if (startMs >= window.nextStartMs) return;
+            for (TrackerListener listener : listeners) {
+                try {
+                    listener.onNextDayStarted(startMs);
+                } catch (Exception ex) {
+                    log.error("Listener {} failed on next day start: {}", listener.getClass().getSimpleName(), ex.toString(), ex);
+                }
+            }
+            window.nextStartMs = startMs;
+        }
+    }
+
+    //Вход в окно суток; окно перечитывается, если его успели сменить между чтением и входом
+    private DayWindow enterDay() {
+        while (true) {
+            DayWindow window = day;
+            window.inFlight.increment();
+            if (window == day) return window;
+            window.leave();
         }
-        int total = hamsterRepository.addRounds(hamsterId, rounds);
-        touch(hamsterId);
-        log.debug("Spin credited: hamster={} +{} rounds (total={})", hamsterId, rounds, total);
     }
 
-    private void handleSensorFailure(SensorFailure e) {
+    private void handleSensorFailure(SensorFailure e, Instant at) {
         String sensorId = e.getSensorId();
-        boolean firstTime = hamsterRepository.markSensorFailed(sensorId, Instant.now());
+        int sensor = internOrWarn(hamsterRepository.ids().sensors(), sensorId);
+        boolean firstTime = hamsterRepository.markSensorFailed(sensor, at);
         if (firstTime) {
-            hamsterRepository.setSensorAlerted(sensorId, false);
+            hamsterRepository.setSensorAlerted(sensor, false);
+            sensorDeadlines.arm(sensor, at.plus(SENSOR_DOWN_THRESHOLD).toEpochMilli());
             log.warn("Sensor {} failed (code={}), failure start recorded", sensorId, e.getErrorCode());
         } else {
             log.debug("Sensor {} failure repeated (code={})", sensorId, e.getErrorCode());
         }
     }
 
-    private void touch(String hamsterId) {
-        if (hamsterId == null) return;
-        hamsterRepository.updateLastActivity(hamsterId, Instant.now());
-        hamsterRepository.setInactivityAlerted(hamsterId, false);
+    //Активность только вперёд: опоздавшее событие не откатывает время последней активности
+    private void touch(int hamster, Instant at) {
+        if (hamster < 0) return;
+        Instant last = hamsterRepository.getLastActivity(hamster);
+        if (last != null && last.isAfter(at)) return;
+        hamsterRepository.updateLastActivity(hamster, at);
+        hamsterRepository.setInactivityAlerted(hamster, false);
+        inactivityDeadlines.arm(hamster, at.plus(INACTIVITY).toEpochMilli());
+    }
+
+    //Хомяк в момент at зашёл в колесо другого узла кластера: его активность дальше видит тот узел, поэтому здесь
+    //о простое не сообщаем, пока хомяк снова не появится на своём колесе (touch снимет отметку).
+    //Переход считается последней активностью: опоздавший выход со своего колеса отметку не снимет,
+    //а переход старше последней активности ничего не меняет — хомяк с тех пор уже вернулся сюда
+    public void hamsterMovedAway(String hamsterId, Instant at) {
+        int hamster = hamsterRepository.ids().hamsters().find(hamsterId);
+        if (hamster < 0) return; // на колёсах этого узла хомяка не было
+        Instant last = hamsterRepository.getLastActivity(hamster);
+        if (last == null || last.isAfter(at)) return;
+        hamsterRepository.updateLastActivity(hamster, at);
+        hamsterRepository.setInactivityAlerted(hamster, true);
+        for (TrackerListener listener : listeners) {
+            try {
+                listener.onInactivityMuted(hamster, at);
+            } catch (Exception ex) {
+                log.error("Listener {} failed on inactivity mute: {}", listener.getClass().getSimpleName(), ex.toString(), ex);
+            }
+        }
+        log.debug("Hamster {} moved to another node, inactivity alerts muted here", hamsterId);
+    }
+
+    private int internOrWarn(IdDictionary dictionary, String id) {
+        int handle = dictionary.intern(id);
+        if (handle < 0 && id != null) {
+            log.warn("Id space for {} exhausted ({} ids), event for {} dropped", dictionary.kind(), dictionary.capacity(), id);
+        }
+        return handle;
     }
 
     private void runPeriodicChecksSafe() {
@@ -147,41 +391,101 @@ public class HamsterTrackerService {
         }
     }
 
+    private void checkDeadlinesSafe() {
+        try {
+            checkDeadlines();
+        } catch (Exception ex) {
+            log.error("Deadline check failed: {}", ex.toString(), ex);
+        }
+    }
+
+    //Раз в тик: смотрим только хэндлы, у которых подошёл дедлайн; «сейчас» — водяной знак, а не часы
+    private void checkDeadlines() {
+        checkDeadlines(watermarkMs());
+    }
+
+    //Разбор дедлайнов до nowMs включительно; тесты двигают время сами, без ожидания тиков
+    void checkDeadlines(long nowMs) {
+        inactivityDeadlines.advance(nowMs, this::onInactivityDeadline);
+        sensorDeadlines.advance(nowMs, this::onSensorDeadline);
+    }
+
+    private long onInactivityDeadline(int hamster, long nowMs) {
+        Instant last = hamsterRepository.getLastActivity(hamster);
+        if (last == null || hamsterRepository.isInactivityAlerted(hamster)) return -1;
+        long deadline = last.plus(INACTIVITY).toEpochMilli();
+        if (deadline > nowMs) return deadline; // хомяк успел покрутиться, ждём новый дедлайн
+        alertInactive(hamsterRepository.ids().hamsters().name(hamster), Duration.ofMillis(nowMs - last.toEpochMilli()));
+        hamsterRepository.setInactivityAlerted(hamster, true);
+        return -1;
+    }
+
+    private long onSensorDeadline(int sensor, long nowMs) {
+        Instant since = hamsterRepository.getSensorFailedSince(sensor);
+        if (since == null || hamsterRepository.isSensorAlerted(sensor)) return -1;
+        long deadline = since.plus(SENSOR_DOWN_THRESHOLD).toEpochMilli();
+        if (deadline > nowMs) return deadline;
+        alertSensorDown(hamsterRepository.ids().sensors().name(sensor), Duration.ofMillis(nowMs - since.toEpochMilli()));
+        hamsterRepository.setSensorAlerted(sensor, true);
+        return -1;
+    }
+
+    //Сверка полным обходом: ловит состояние, записанное в обход touch (снимок, прямые записи), и ставит его в колесо
     private void checkInactivity() {
-        final Instant now = Instant.now();
+        final Instant now = Instant.ofEpochMilli(watermarkMs());
+        IdDictionary hamsters = hamsterRepository.ids().hamsters();
         hamsterRepository.getAllLastActivity().forEach((hamsterId, last) -> {
             if (hamsterId == null || last == null) return;
+            if (hamsterRepository.isInactivityAlerted(hamsterId)) return;
             Duration idle = Duration.between(last, now);
-            if (idle.compareTo(INACTIVITY) > 0 && !hamsterRepository.isInactivityAlerted(hamsterId)) {
-                sendAlertSafe("Hamster %s inactive for %d minutes".formatted(hamsterId, idle.toMinutes()));
+            if (idle.compareTo(INACTIVITY) > 0) {
+                alertInactive(hamsterId, idle);
                 hamsterRepository.setInactivityAlerted(hamsterId, true);
+            } else {
+                inactivityDeadlines.arm(hamsters.find(hamsterId), last.plus(INACTIVITY).toEpochMilli());
             }
         });
     }
 
     private void checkSensorsDown() {
-        final Instant now = Instant.now();
+        final Instant now = Instant.ofEpochMilli(watermarkMs());
+        IdDictionary sensors = hamsterRepository.ids().sensors();
         hamsterRepository.getAllSensorFailures().forEach((sensorId, since) -> {
             if (sensorId == null || since == null) return;
+            if (hamsterRepository.isSensorAlerted(sensorId)) return;
             Duration down = Duration.between(since, now);
-            if (down.compareTo(SENSOR_DOWN_THRESHOLD) > 0 && !hamsterRepository.isSensorAlerted(sensorId)) {
-                sendAlertSafe("Sensor %s is down for %d minutes".formatted(sensorId, down.toMinutes()));
+            if (down.compareTo(SENSOR_DOWN_THRESHOLD) > 0) {
+                alertSensorDown(sensorId, down);
                 hamsterRepository.setSensorAlerted(sensorId, true);
+            } else {
+                sensorDeadlines.arm(sensors.find(sensorId), since.plus(SENSOR_DOWN_THRESHOLD).toEpochMilli());
             }
         });
     }
 
-    private void scheduleDailyReportAtMidnight(ZoneId zoneId) {
-        Runnable task = this::generateDailyReportSafe;
-        long initialDelaySec = secondsUntilNextMidnight(zoneId);
-        this.dailyReportTask = scheduler.scheduleAtFixedRate(task, initialDelaySec, TimeUnit.DAYS.toSeconds(1), TimeUnit.SECONDS);
-        log.info("Daily report scheduled: zone={} starts in {} seconds", zoneId, initialDelaySec);
+    private void alertInactive(String hamsterId, Duration idle) {
+        sendAlertSafe(AlertKind.INACTIVITY, hamsterId, "Hamster %s inactive for %d minutes".formatted(hamsterId, idle.toMinutes()));
+    }
+
+    private void alertSensorDown(String sensorId, Duration down) {
+        sendAlertSafe(AlertKind.SENSOR_DOWN, sensorId, "Sensor %s is down for %d minutes".formatted(sensorId, down.toMinutes()));
     }
 
-    private long secondsUntilNextMidnight(ZoneId zoneId) {
-        ZonedDateTime now = ZonedDateTime.now(zoneId);
-        ZonedDateTime nextMidnight = now.truncatedTo(ChronoUnit.DAYS).plusDays(1);
-        return Duration.between(now, nextMidnight).getSeconds();
+    //Смена суток — когда водяной знак дошёл до полуночи: события прошлого дня к этому моменту уже применены
+    private void scheduleDailyReport() {
+        long delayMs = Math.max(0, day.endMs + allowedLatenessMs - System.currentTimeMillis());
+        this.dailyReportTask = scheduler.schedule(this::dailyRollover, delayMs, TimeUnit.MILLISECONDS);
+        log.info("Daily report scheduled: zone={} starts in {} seconds", zoneId, delayMs / 1000);
+    }
+
+    private void dailyRollover() {
+        generateDailyReportSafe();
+        scheduleDailyReport();
+    }
+
+    private long nextMidnightMs(long nowMs) {
+        ZonedDateTime now = Instant.ofEpochMilli(nowMs).atZone(zoneId);
+        return now.truncatedTo(ChronoUnit.DAYS).plusDays(1).toInstant().toEpochMilli();
     }
 
     private void generateDailyReportSafe() {
@@ -192,19 +496,101 @@ public class HamsterTrackerService {
         }
     }
 
-    public DailyReport generateDailyReport() {
-        DailyReport report = reportGenerator.generateDailyReport();
-        hamsterRepository.resetDailyRounds();
-        log.info("Daily report generated for date={} hamsters={}", report.getDate(), report.getHamsterStats().size());
+    //Вызывает StateRecovery, когда состояние восстановлено и перед стартом обработки событий
+    public void stateRecovered() {
+        DayWindow window = day;
+        // журнал мог сменить сутки; если он отметил начало следующих, а закрыть прежние не успел — смена просрочена
+        boolean switchPending = replayEndMs != Long.MAX_VALUE;
+        day = new DayWindow(hamsterRepository.currentDay(), replayStartMs, switchPending ? replayEndMs : window.endMs);
+        if (switchPending && dailyReportTask != null) {
+            dailyReportTask.cancel(false);
+            scheduleDailyReport();
+        }
+        for (TrackerListener listener : listeners) {
+            try {
+                listener.onStateRecovered();
+            } catch (Exception ex) {
+                log.error("Listener {} failed on state recovery: {}", listener.getClass().getSimpleName(), ex.toString(), ex);
+            }
+        }
+    }
+
+    /**
+     * Смена суток без паузы: следующие сутки открываются в репозитории и публикуются новым окном,
+     * после чего новые зачёты идут уже в них. Прежние сутки закрываются, когда досчитаны зачёты,
+     * начатые по старому окну, и отчёт строится по их замороженным счётчикам.
+     */
+    public synchronized DailyReport generateDailyReport() {
+        DayWindow closing = day;
+        long now = System.currentTimeMillis();
+        // плановая смена идёт после полуночи, и новые сутки начинаются с неё; ручная — с момента вызова
+        DayWindow opened = new DayWindow(closing.number + 1, Math.min(now, closing.endMs), nextMidnightMs(now));
+        nextDayStarted(closing, opened.startMs);
+        hamsterRepository.openDay(opened.number);
+        closing.closer = Thread.currentThread(); // до публикации окна: ушедший из старого окна зачёт разбудит
+        day = opened;
+        while (closing.inFlight.sum() != 0) {
+            LockSupport.park(closing);
+        }
+        Map<String, Integer> rounds = hamsterRepository.closeDay(closing.number);
+        LocalDate date = Instant.ofEpochMilli(closing.endMs - 1).atZone(zoneId).toLocalDate();
+        DailyReport report = reportGenerator.generateDailyReport(date, rounds);
+        log.info("Daily report generated for date={} day={} hamsters={}", report.getDate(), closing.number, report.getHamsterStats().size());
+        for (TrackerListener listener : listeners) {
+            try {
+                listener.onDailyReset(report);
+            } catch (Exception ex) {
+                log.error("Listener {} failed on daily reset: {}", listener.getClass().getSimpleName(), ex.toString(), ex);
+            }
+        }
         return report;
     }
 
-    private void sendAlertSafe(String msg) {
+    //Только постановка в очередь диспетчера: медленная почта не задерживает проверки и смену дня
+    private void sendAlertSafe(AlertKind kind, String subject, String msg) {
         try {
-            alertService.sendAlert(msg);
+            alerts.submit(kind, subject, msg);
         } catch (Exception ex) {
             log.error("Alert send failed: {}", ex.toString(), ex);
         }
     }
 
+    //Окно суток: номер в репозитории и границы по часам; события от endMs относятся к следующим суткам,
+    //до startMs — к прошлым: после смены суток опоздавшая крутка отклоняется закрытыми сутками, а не переезжает в новые
+    private static final class DayWindow {
+        final int number;
+        final long startMs;
+        final long endMs;
+        //Зачёты, начатые по этому окну: сутки закрываются, когда их не осталось
+        final LongAdder inFlight = new LongAdder();
+        //С какого момента, по сведениям слушателей, идут следующие сутки; MAX_VALUE — ещё не начались
+        volatile long nextStartMs = Long.MAX_VALUE;
+        //Поток смены суток, который ждёт зачёты этого окна; null — окно ещё текущее
+        volatile Thread closer;
+
+        DayWindow(int number, long startMs, long endMs) {
+            this.number = number;
+            this.startMs = startMs;
+            this.endMs = endMs;
+        }
+
+        //Выход зачёта из окна; закрывающий сутки поток проверяет, не последний ли это был
+        void leave() {
+            inFlight.decrement();
+            Thread waiting = closer;
+            if (waiting != null) {
+                LockSupport.unpark(waiting);
+            }
+        }
+
+        int dayOf(long atMs) {
+            return dayOf(number, startMs, endMs, atMs);
+        }
+
+        static int dayOf(int number, long startMs, long endMs, long atMs) {
+            if (atMs < startMs) return number - 1;
+            return atMs >= endMs ? number + 1 : number;
+        }
+    }
+
 }
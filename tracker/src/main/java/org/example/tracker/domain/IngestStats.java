@@ -0,0 +1,17 @@
+package org.example.tracker.domain;
+
+import java.util.Map;
+
+//Снимок приёма: счётчики по типам событий, заполнение очередей шардов и буферов переупорядочивания,
+//число опоздавших событий (пришли позже уже применённых по времени источника), отброшенных повторов
+//и круток за уже закрытые сутки
+public record IngestStats(
+        Map<String, EventTypeCounters> byType,
+        int queueDepth,
+        int queueCapacity,
+        int reorderDepth,
+        long lateEvents,
+        long duplicates,
+        long closedDaySpins
+) {
+}
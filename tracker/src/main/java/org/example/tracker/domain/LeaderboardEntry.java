@@ -0,0 +1,9 @@
+package org.example.tracker.domain;
+
+//Место в рейтинге: хомяки с равными раундами делят одно место
+public record LeaderboardEntry(
+        long rank,
+        String hamsterId,
+        int rounds
+) {
+}
@@ -0,0 +1,66 @@
+package org.example.tracker.domain;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Ограниченный кольцевой буфер: много писателей, один читатель, без блокировок.
+ * Писатель захватывает слот CAS-ом по producerIndex и публикует элемент volatile-записью,
+ * читатель забирает элементы по порядку и освобождает слот.
+ */
+final class MpscRingBuffer<E> {
+
+    private final AtomicReferenceArray<E> slots;
+    private final int capacity;
+    private final int mask;
+    private final AtomicLong producerIndex = new AtomicLong();
+    private volatile long consumerIndex; // пишет только читатель
+
+    MpscRingBuffer(int requestedCapacity) {
+        if (requestedCapacity < 2) {
+            throw new IllegalArgumentException("capacity must be >= 2: " + requestedCapacity);
+        }
+        this.capacity = Integer.highestOneBit(requestedCapacity - 1) << 1; // ближайшая степень двойки
+        this.mask = capacity - 1;
+        this.slots = new AtomicReferenceArray<>(capacity);
+    }
+
+    //false — буфер полон
+    boolean offer(E e) {
+        long p;
+        do {
+            p = producerIndex.get();
+            if (p - consumerIndex >= capacity) {
+                return false;
+            }
+        } while (!producerIndex.compareAndSet(p, p + 1));
+        slots.set((int) (p & mask), e);
+        return true;
+    }
+
+    //Только из потока-читателя; null — пусто (или писатель ещё не опубликовал захваченный слот)
+    E poll() {
+        long c = consumerIndex;
+        int i = (int) (c & mask);
+        E e = slots.get(i);
+        if (e == null) {
+            return null;
+        }
+        slots.lazySet(i, null);
+        consumerIndex = c + 1;
+        return e;
+    }
+
+    int size() {
+        long size = producerIndex.get() - consumerIndex;
+        return (int) Math.max(0, Math.min(size, capacity));
+    }
+
+    boolean isEmpty() {
+        return producerIndex.get() == consumerIndex;
+    }
+
+    int capacity() {
+        return capacity;
+    }
+}
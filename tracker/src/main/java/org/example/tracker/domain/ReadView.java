@@ -0,0 +1,428 @@
+package org.example.tracker.domain;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.example.tracker.db.HamsterTrackerRepository;
+import org.example.tracker.db.IdDictionary;
+import org.example.tracker.domain.eventDto.HamsterEnter;
+import org.example.tracker.domain.eventDto.HamsterEvent;
+import org.example.tracker.domain.eventDto.HamsterExit;
+import org.example.tracker.domain.eventDto.SensorFailure;
+import org.example.tracker.domain.eventDto.WheelSpin;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.IntConsumer;
+
+/**
+ * Неизменяемое представление состояния для чтения, публикуемое эпохами.
+ * <p>
+ * Состояние нарезано на куски по {@link #CHUNK} хэндлов. Поток шарда при применении события только
+ * ставит бит «кусок изменён»; поток обновления раз в refresh-ms перечитывает из репозитория лишь изменённые куски,
+ * собирает новую эпоху, разделяя с прежней все нетронутые куски, и публикует её одной volatile-записью.
+ * Читатели берут текущую эпоху и работают с ней без блокировок и без копирования карт репозитория;
+ * все страницы одного ответа — из одной эпохи. Значения каждой сущности читаются целиком, эпоха отстаёт
+ * от живого состояния не больше чем на refresh-ms.
+ * <p>
+ * После восстановления состояния и после смены суток эпоха пересобирается целиком.
+ */
+@Slf4j
+@Component
+public class ReadView implements TrackerListener {
+
+    static final int CHUNK_BITS = 10;
+    static final int CHUNK = 1 << CHUNK_BITS;
+    static final long NONE = 0L;
+
+    private final HamsterTrackerRepository repository;
+    private final long refreshMs;
+    private final AtomicLongArray dirtyHamsters;
+    private final AtomicLongArray dirtyWheels;
+    private final AtomicLongArray dirtySensors;
+    private final ScheduledExecutorService refresher = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "hamster-read-view");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private volatile Epoch current = new Epoch(0, 0, 0, 0, 0, new HamsterChunk[0], new int[0][], new long[0][]);
+
+    @Autowired
+    public ReadView(HamsterTrackerRepository repository, @Value("${tracker.read-view.refresh-ms:100}") long refreshMs) {
+        this.repository = repository;
+        this.refreshMs = refreshMs;
+        this.dirtyHamsters = dirtyBits(repository.ids().hamsters());
+        this.dirtyWheels = dirtyBits(repository.ids().wheels());
+        this.dirtySensors = dirtyBits(repository.ids().sensors());
+    }
+
+    @PostConstruct
+    public void start() {
+        refresher.scheduleWithFixedDelay(this::refreshSafe, refreshMs, refreshMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        refresher.shutdownNow();
+    }
+
+    public Epoch current() {
+        return current;
+    }
+
+    @Override
+    public void onEventApplied(HamsterEvent event, Instant at) {
+        switch (event) {
+            case HamsterEnter e -> {
+                markHamster(e.getHamsterId());
+                mark(dirtyWheels, repository.ids().wheels().find(e.getWheelId()));
+            }
+            case HamsterExit e -> {
+                markHamster(e.getHamsterId());
+                mark(dirtyWheels, repository.ids().wheels().find(e.getWheelId()));
+            }
+            case WheelSpin e -> {
+                int wheel = repository.ids().wheels().find(e.getWheelId());
+                mark(dirtyHamsters, wheel < 0 ? -1 : repository.getOccupant(wheel));
+            }
+            case SensorFailure e -> mark(dirtySensors, repository.ids().sensors().find(e.getSensorId()));
+            default -> {
+            }
+        }
+    }
+
+    @Override
+    public void onStateRecovered() {
+        markAllAndRefresh();
+    }
+
+    @Override
+    public void onDailyReset(DailyReport report) {
+        markAllAndRefresh();
+    }
+
+    //Собирает и публикует новую эпоху из изменённых кусков; вызывает поток обновления
+    public synchronized Epoch refresh() {
+        Epoch prev = current;
+        IdDictionary hamsterIds = repository.ids().hamsters();
+        IdDictionary wheelIds = repository.ids().wheels();
+        IdDictionary sensorIds = repository.ids().sensors();
+        // размеры берутся до чтения кусков: эпоха показывает только хэндлы до них
+        int hamsters = hamsterIds.size();
+        int wheels = wheelIds.size();
+        int sensors = sensorIds.size();
+
+        HamsterChunk[] hamsterChunks = grow(prev.hamsterChunks, hamsters);
+        int[][] wheelChunks = grow(prev.wheelChunks, wheels);
+        long[][] sensorChunks = grow(prev.sensorChunks, sensors);
+        // кусок читается после снятия пометки и по свежему размеру: хэндл, заведённый позже, снова пометит кусок;
+        // кусок за пределами этой эпохи остаётся помеченным до следующей
+        int changed = 0;
+        for (int c = nextDirty(dirtyHamsters, 0); c >= 0; c = nextDirty(dirtyHamsters, c + 1)) {
+            if (c >= hamsterChunks.length) {
+                markChunk(dirtyHamsters, c);
+                break;
+            }
+            hamsterChunks[c] = readHamsters(c, hamsterIds.size());
+            changed++;
+        }
+        for (int c = nextDirty(dirtyWheels, 0); c >= 0; c = nextDirty(dirtyWheels, c + 1)) {
+            if (c >= wheelChunks.length) {
+                markChunk(dirtyWheels, c);
+                break;
+            }
+            wheelChunks[c] = readWheels(c, wheelIds.size());
+            changed++;
+        }
+        for (int c = nextDirty(dirtySensors, 0); c >= 0; c = nextDirty(dirtySensors, c + 1)) {
+            if (c >= sensorChunks.length) {
+                markChunk(dirtySensors, c);
+                break;
+            }
+            sensorChunks[c] = readSensors(c, sensorIds.size());
+            changed++;
+        }
+        if (changed == 0 && hamsters == prev.hamsters && wheels == prev.wheels && sensors == prev.sensors) {
+            return prev;
+        }
+        Epoch next = new Epoch(prev.number + 1, System.currentTimeMillis(), hamsters, wheels, sensors,
+                hamsterChunks, wheelChunks, sensorChunks);
+        current = next;
+        return next;
+    }
+
+    private void refreshSafe() {
+        try {
+            refresh();
+        } catch (Exception ex) {
+            log.error("Read view refresh failed: {}", ex.toString(), ex);
+        }
+    }
+
+    private void markAllAndRefresh() {
+        markAll(dirtyHamsters, repository.ids().hamsters().size());
+        markAll(dirtyWheels, repository.ids().wheels().size());
+        markAll(dirtySensors, repository.ids().sensors().size());
+        refresh();
+    }
+
+    private HamsterChunk readHamsters(int chunk, int size) {
+        int from = chunk << CHUNK_BITS;
+        int n = Math.min(CHUNK, size - from);
+        int[] rounds = new int[n];
+        long[] lastActivity = new long[n];
+        for (int i = 0; i < n; i++) {
+            rounds[i] = repository.getRounds(from + i);
+            lastActivity[i] = millisOrNone(repository.getLastActivity(from + i));
+        }
+        return new HamsterChunk(rounds, lastActivity);
+    }
+
+    private int[] readWheels(int chunk, int size) {
+        int from = chunk << CHUNK_BITS;
+        int[] occupants = new int[Math.min(CHUNK, size - from)];
+        for (int i = 0; i < occupants.length; i++) {
+            occupants[i] = repository.getOccupant(from + i);
+        }
+        return occupants;
+    }
+
+    private long[] readSensors(int chunk, int size) {
+        int from = chunk << CHUNK_BITS;
+        long[] failedSince = new long[Math.min(CHUNK, size - from)];
+        for (int i = 0; i < failedSince.length; i++) {
+            failedSince[i] = millisOrNone(repository.getSensorFailedSince(from + i));
+        }
+        return failedSince;
+    }
+
+    private void markHamster(String hamsterId) {
+        mark(dirtyHamsters, repository.ids().hamsters().find(hamsterId));
+    }
+
+    private static long millisOrNone(Instant at) {
+        return at == null ? NONE : at.toEpochMilli();
+    }
+
+    private static AtomicLongArray dirtyBits(IdDictionary dictionary) {
+        int chunks = (dictionary.capacity() + CHUNK - 1) >>> CHUNK_BITS;
+        return new AtomicLongArray(Math.max(1, (chunks + 63) >>> 6));
+    }
+
+    //Один CAS на событие, и то только когда кусок ещё не помечен
+    private static void mark(AtomicLongArray dirty, int handle) {
+        if (handle >= 0) {
+            markChunk(dirty, handle >>> CHUNK_BITS);
+        }
+    }
+
+    private static void markChunk(AtomicLongArray dirty, int chunk) {
+        int word = chunk >>> 6;
+        long bit = 1L << chunk;
+        long current;
+        do {
+            current = dirty.get(word);
+            if ((current & bit) != 0) return;
+        } while (!dirty.compareAndSet(word, current, current | bit));
+    }
+
+    private static void markAll(AtomicLongArray dirty, int size) {
+        int chunks = (size + CHUNK - 1) >>> CHUNK_BITS;
+        for (int c = 0; c < chunks; c++) {
+            long bit = 1L << c;
+            dirty.getAndUpdate(c >>> 6, w -> w | bit);
+        }
+    }
+
+    //Следующий помеченный кусок начиная с from; пометка снимается до чтения куска, поэтому новые изменения не теряются
+    private static int nextDirty(AtomicLongArray dirty, int from) {
+        for (int word = from >>> 6; word < dirty.length(); word++) {
+            long bits = dirty.get(word);
+            if (word == from >>> 6) {
+                bits &= -1L << (from & 63);
+            }
+            if (bits != 0) {
+                int chunk = (word << 6) + Long.numberOfTrailingZeros(bits);
+                long bit = 1L << chunk;
+                dirty.getAndUpdate(word, w -> w & ~bit);
+                return chunk;
+            }
+        }
+        return -1;
+    }
+
+    //Новый массив ссылок на куски: нетронутые куски общие с прежней эпохой, кусок бывает короче — хвост в нём по умолчанию
+    private static <T> T[] grow(T[] chunks, int size) {
+        int needed = (size + CHUNK - 1) >>> CHUNK_BITS;
+        return Arrays.copyOf(chunks, Math.max(needed, chunks.length));
+    }
+
+    /**
+     * Одна опубликованная эпоха. Все массивы внутри неизменяемы после публикации;
+     * кусок, которого нет или который короче, значит «значения по умолчанию» для этих хэндлов.
+     */
+    public final class Epoch {
+        private final long number;
+        private final long publishedAtMs;
+        private final int hamsters;
+        private final int wheels;
+        private final int sensors;
+        private final HamsterChunk[] hamsterChunks;
+        private final int[][] wheelChunks;
+        private final long[][] sensorChunks;
+
+        private Epoch(long number, long publishedAtMs, int hamsters, int wheels, int sensors,
+                      HamsterChunk[] hamsterChunks, int[][] wheelChunks, long[][] sensorChunks) {
+            this.number = number;
+            this.publishedAtMs = publishedAtMs;
+            this.hamsters = hamsters;
+            this.wheels = wheels;
+            this.sensors = sensors;
+            this.hamsterChunks = hamsterChunks;
+            this.wheelChunks = wheelChunks;
+            this.sensorChunks = sensorChunks;
+        }
+
+        public long number() {
+            return number;
+        }
+
+        public long publishedAtMs() {
+            return publishedAtMs;
+        }
+
+        public int hamsterCount() {
+            return hamsters;
+        }
+
+        public int wheelCount() {
+            return wheels;
+        }
+
+        public int sensorCount() {
+            return sensors;
+        }
+
+        public String hamsterId(int hamster) {
+            return repository.ids().hamsters().name(hamster);
+        }
+
+        public String wheelId(int wheel) {
+            return repository.ids().wheels().name(wheel);
+        }
+
+        public String sensorId(int sensor) {
+            return repository.ids().sensors().name(sensor);
+        }
+
+        public int findHamster(String hamsterId) {
+            int h = repository.ids().hamsters().find(hamsterId);
+            return h < hamsters ? h : -1;
+        }
+
+        public int findWheel(String wheelId) {
+            int w = repository.ids().wheels().find(wheelId);
+            return w < wheels ? w : -1;
+        }
+
+        public int findSensor(String sensorId) {
+            int s = repository.ids().sensors().find(sensorId);
+            return s < sensors ? s : -1;
+        }
+
+        public int rounds(int hamster) {
+            HamsterChunk chunk = chunk(hamsterChunks, hamster);
+            int i = hamster & (CHUNK - 1);
+            return chunk == null || i >= chunk.rounds.length ? 0 : chunk.rounds[i];
+        }
+
+        //null — активности не было
+        public Instant lastActivity(int hamster) {
+            HamsterChunk chunk = chunk(hamsterChunks, hamster);
+            int i = hamster & (CHUNK - 1);
+            return chunk == null || i >= chunk.lastActivity.length ? null : instantOrNull(chunk.lastActivity[i]);
+        }
+
+        //-1 — колесо свободно
+        public int occupant(int wheel) {
+            int[] chunk = chunk(wheelChunks, wheel);
+            int i = wheel & (CHUNK - 1);
+            return chunk == null || i >= chunk.length ? -1 : chunk[i];
+        }
+
+        //null — датчик исправен
+        public Instant sensorFailedSince(int sensor) {
+            long[] chunk = chunk(sensorChunks, sensor);
+            int i = sensor & (CHUNK - 1);
+            return chunk == null || i >= chunk.length ? null : instantOrNull(chunk[i]);
+        }
+
+        //Хомяки, у которых раунды или активность отличаются от эпохи since, включая появившихся после неё.
+        //Кусок, общий с since, пропускается целиком, кроме хэндлов, которых since ещё не показывала
+        public void changedHamsters(Epoch since, IntConsumer consumer) {
+            for (int c = 0; c < hamsterChunks.length; c++) {
+                HamsterChunk now = hamsterChunks[c];
+                if (now == null) continue;
+                int from = c << CHUNK_BITS;
+                boolean shared = c < since.hamsterChunks.length && since.hamsterChunks[c] == now;
+                for (int i = shared ? Math.max(0, since.hamsters - from) : 0; i < now.rounds.length && from + i < hamsters; i++) {
+                    int h = from + i;
+                    if (h >= since.hamsters || now.rounds[i] != since.rounds(h)
+                            || now.lastActivity[i] != millisOrNone(since.lastActivity(h))) {
+                        consumer.accept(h);
+                    }
+                }
+            }
+        }
+
+        public void changedWheels(Epoch since, IntConsumer consumer) {
+            for (int c = 0; c < wheelChunks.length; c++) {
+                int[] now = wheelChunks[c];
+                if (now == null) continue;
+                int from = c << CHUNK_BITS;
+                boolean shared = c < since.wheelChunks.length && since.wheelChunks[c] == now;
+                for (int i = shared ? Math.max(0, since.wheels - from) : 0; i < now.length && from + i < wheels; i++) {
+                    int w = from + i;
+                    if (w >= since.wheels || now[i] != since.occupant(w)) {
+                        consumer.accept(w);
+                    }
+                }
+            }
+        }
+
+        public void changedSensors(Epoch since, IntConsumer consumer) {
+            for (int c = 0; c < sensorChunks.length; c++) {
+                long[] now = sensorChunks[c];
+                if (now == null) continue;
+                int from = c << CHUNK_BITS;
+                boolean shared = c < since.sensorChunks.length && since.sensorChunks[c] == now;
+                for (int i = shared ? Math.max(0, since.sensors - from) : 0; i < now.length && from + i < sensors; i++) {
+                    int s = from + i;
+                    if (s >= since.sensors || now[i] != millisOrNone(since.sensorFailedSince(s))) {
+                        consumer.accept(s);
+                    }
+                }
+            }
+        }
+
+        private static <T> T chunk(T[] chunks, int handle) {
+            int c = handle >>> CHUNK_BITS;
+            return handle < 0 || c >= chunks.length ? null : chunks[c];
+        }
+
+        private static Instant instantOrNull(long ms) {
+            return ms == NONE ? null : Instant.ofEpochMilli(ms);
+        }
+    }
+
+    private record HamsterChunk(int[] rounds, long[] lastActivity) {
+    }
+}
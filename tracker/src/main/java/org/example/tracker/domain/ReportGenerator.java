@@ -1,5 +1,12 @@
 package org.example.tracker.domain;
 
+import java.time.LocalDate;
+import java.util.Map;
+
 public interface ReportGenerator {
+    //Отчёт по открытым суткам на сейчас
     DailyReport generateDailyReport();
+
+    //Отчёт за сутки date по их окончательным раундам
+    DailyReport generateDailyReport(LocalDate date, Map<String, Integer> roundsByHamster);
 }
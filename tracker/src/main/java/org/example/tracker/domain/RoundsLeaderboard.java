@@ -0,0 +1,295 @@
+package org.example.tracker.domain;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example.tracker.db.HamsterTrackerRepository;
+import org.example.tracker.db.IdDictionary;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Рейтинг хомяков по раундам за сутки, обновляется на каждом addRounds за O(log n).
+ * Раунды раскладываются по корзинам «значение → хомяки» (интрузивные списки на int-массивах),
+ * дерево Фенвика по корзинам хранит число хомяков в каждой: ранг — одна префиксная сумма,
+ * следующая непустая корзина сверху вниз — один поиск k-й статистики.
+ * Хомяки с нулём раундов в рейтинг не входят. Значения от MAX_BUCKET и выше делят верхнюю корзину
+ * (за сутки физически не больше 17 280 раундов), собственное значение у них при этом точное.
+ * При равных раундах выше тот, кто набрал их раньше.
+ * <p>
+ * У открытых и следующих суток свои доски (по чётности номера): зачёты в следующие сутки, пришедшие
+ * до смены, не смешиваются с открытыми, и отчёт закрываемых суток идёт по их собственной доске.
+ * При смене доска следующих суток становится текущей как есть, доска закрытых очищается при первом
+ * зачёте в сутки после них.
+ * <p>
+ * Потоки шардов монитор не берут: зачёт кладётся в MPSC-очередь, разбирает её тот, кто держит монитор, —
+ * читатель рейтинга или писатель, заставший очередь полной. Разбор идёт в одном потоке за раз.
+ */
+@Slf4j
+@Component
+public class RoundsLeaderboard implements TrackerListener {
+
+    static final int MAX_BUCKET = 1 << 15;
+    private static final int QUEUE_CAPACITY = 1 << 14;
+
+    private final HamsterTrackerRepository repository;
+    private final MpscRingBuffer<Update> updates = new MpscRingBuffer<>(QUEUE_CAPACITY);
+
+    //Всё ниже — под монитором this
+    private final Board[] boards = {new Board(), new Board()};
+    private int day;
+
+    public RoundsLeaderboard(HamsterTrackerRepository repository) {
+        this.repository = repository;
+        this.day = repository.currentDay();
+    }
+
+    @Override
+    public void onRoundsChanged(int hamster, int day, int added, int total, Instant at) {
+        update(hamster, day, total);
+    }
+
+    //Отчёт закрытых суток уже построен по их доске: текущей становится доска следующих
+    @Override
+    public synchronized void onDailyReset(DailyReport report) {
+        drain();
+        day = repository.currentDay();
+    }
+
+    //После восстановления рейтинг пересобирается из репозитория
+    @Override
+    public void onStateRecovered() {
+        rebuild();
+    }
+
+    //Раунды за сутки только растут, поэтому запоздавшее меньшее значение не откатывает рейтинг
+    public void update(int hamster, int day, int total) {
+        if (hamster < 0) return;
+        Update update = new Update(hamster, day, total);
+        if (updates.offer(update)) return;
+        synchronized (this) {
+            drain();
+            apply(update);
+        }
+    }
+
+    public synchronized void rebuild() {
+        long started = System.nanoTime();
+        drain();
+        day = repository.currentDay();
+        IdDictionary hamsters = repository.ids().hamsters();
+        int size = hamsters.size();
+        for (int d = day; d <= day + 1; d++) {
+            Board board = boards[d & 1];
+            board.clear(d);
+            board.ensureCapacity(size - 1);
+            for (int h = 0; h < size; h++) {
+                int total = repository.getRounds(h, d);
+                if (total > 0) {
+                    board.move(h, total);
+                }
+            }
+        }
+        log.info("Leaderboard rebuilt: {} ranked hamsters in {} ms", board(day).ranked, (System.nanoTime() - started) / 1_000_000);
+    }
+
+    //Первые limit мест: по убыванию раундов, при равенстве — кто раньше набрал
+    public synchronized List<LeaderboardEntry> top(int limit) {
+        drain();
+        return board(day).top(limit, repository.ids().hamsters());
+    }
+
+    //Место хомяка (1 — лучший, равные делят место); null — хомяк неизвестен или без раундов
+    public synchronized LeaderboardEntry rankOf(String hamsterId) {
+        drain();
+        return board(day).rankOf(repository.ids().hamsters().find(hamsterId), hamsterId);
+    }
+
+    //Все хомяки с раундами открытых суток в порядке рейтинга — для суточного отчёта без сортировки
+    public synchronized void forEachRanked(RankedConsumer consumer) {
+        drain();
+        board(day).forEachRanked(consumer, repository.ids().hamsters());
+    }
+
+    public synchronized long rankedCount() {
+        drain();
+        return board(day).ranked;
+    }
+
+    @FunctionalInterface
+    public interface RankedConsumer {
+        void accept(String hamsterId, int rounds);
+    }
+
+    private record Update(int hamster, int day, int total) {
+    }
+
+    //Разбирает то, что уже было в очереди; захваченный, но ещё не опубликованный слот дожидается —
+    //писатель между CAS и записью элемента
+    private void drain() {
+        for (int n = updates.size(); n > 0; ) {
+            Update update = updates.poll();
+            if (update == null) {
+                Thread.onSpinWait();
+                continue;
+            }
+            apply(update);
+            n--;
+        }
+    }
+
+    //Зачёты закрытых суток (разобранные после смены) отбрасываются
+    private void apply(Update update) {
+        if (update.day() < day || update.day() > day + 1) return;
+        Board board = board(update.day());
+        board.ensureCapacity(update.hamster());
+        if (update.total() > board.rounds[update.hamster()]) {
+            board.move(update.hamster(), update.total());
+        }
+    }
+
+    //Доска суток d; доска закрытых суток той же чётности очищается при первом обращении к d
+    private Board board(int d) {
+        Board board = boards[d & 1];
+        if (board.day != d) {
+            board.clear(d);
+        }
+        return board;
+    }
+
+    //Рейтинг одних суток
+    private static final class Board {
+        private final long[] tree = new long[MAX_BUCKET + 1]; // Фенвик, индексы 1..MAX_BUCKET
+        private final int[] head = new int[MAX_BUCKET + 1];
+        private final int[] tail = new int[MAX_BUCKET + 1];
+        private int[] rounds = new int[0];
+        private int[] next = new int[0];
+        private int[] prev = new int[0];
+        private long ranked;
+        private int day = -1;
+
+        Board() {
+            Arrays.fill(head, -1);
+            Arrays.fill(tail, -1);
+        }
+
+        void clear(int day) {
+            this.day = day;
+            Arrays.fill(tree, 0);
+            Arrays.fill(head, -1);
+            Arrays.fill(tail, -1);
+            Arrays.fill(rounds, 0);
+            Arrays.fill(next, -1);
+            Arrays.fill(prev, -1);
+            ranked = 0;
+        }
+
+        List<LeaderboardEntry> top(int limit, IdDictionary hamsters) {
+            List<LeaderboardEntry> out = new ArrayList<>(Math.min(limit, (int) Math.min(ranked, 1024)));
+            for (int bucket = highestBucketBelow(MAX_BUCKET + 1); bucket > 0 && out.size() < limit;
+                 bucket = highestBucketBelow(bucket)) {
+                long rank = ranked - prefix(bucket) + 1;
+                for (int h = head[bucket]; h >= 0 && out.size() < limit; h = next[h]) {
+                    out.add(new LeaderboardEntry(rank, hamsters.name(h), rounds[h]));
+                }
+            }
+            return out;
+        }
+
+        LeaderboardEntry rankOf(int h, String hamsterId) {
+            if (h < 0 || h >= rounds.length || rounds[h] == 0) return null;
+            int bucket = bucketOf(rounds[h]);
+            return new LeaderboardEntry(ranked - prefix(bucket) + 1, hamsterId, rounds[h]);
+        }
+
+        void forEachRanked(RankedConsumer consumer, IdDictionary hamsters) {
+            for (int bucket = highestBucketBelow(MAX_BUCKET + 1); bucket > 0; bucket = highestBucketBelow(bucket)) {
+                for (int h = head[bucket]; h >= 0; h = next[h]) {
+                    consumer.accept(hamsters.name(h), rounds[h]);
+                }
+            }
+        }
+
+        void move(int h, int total) {
+            int old = rounds[h];
+            if (old > 0) {
+                int bucket = bucketOf(old);
+                unlink(h, bucket);
+                add(bucket, -1);
+                ranked--;
+            }
+            rounds[h] = total;
+            if (total > 0) {
+                int bucket = bucketOf(total);
+                append(h, bucket);
+                add(bucket, 1);
+                ranked++;
+            }
+        }
+
+        private void append(int h, int bucket) {
+            next[h] = -1;
+            prev[h] = tail[bucket];
+            if (tail[bucket] >= 0) {
+                next[tail[bucket]] = h;
+            } else {
+                head[bucket] = h;
+            }
+            tail[bucket] = h;
+        }
+
+        private void unlink(int h, int bucket) {
+            if (prev[h] >= 0) next[prev[h]] = next[h]; else head[bucket] = next[h];
+            if (next[h] >= 0) prev[next[h]] = prev[h]; else tail[bucket] = prev[h];
+            next[h] = -1;
+            prev[h] = -1;
+        }
+
+        private static int bucketOf(int total) {
+            return Math.min(total, MAX_BUCKET);
+        }
+
+        private void add(int i, long delta) {
+            for (; i <= MAX_BUCKET; i += i & -i) {
+                tree[i] += delta;
+            }
+        }
+
+        private long prefix(int i) {
+            long sum = 0;
+            for (; i > 0; i -= i & -i) {
+                sum += tree[i];
+            }
+            return sum;
+        }
+
+        //Самая верхняя непустая корзина строго ниже bound; 0 — таких нет
+        private int highestBucketBelow(int bound) {
+            long k = prefix(bound - 1);
+            if (k == 0) return 0;
+            // наименьший индекс с prefix >= k — спуск по дереву
+            int pos = 0;
+            for (int step = Integer.highestOneBit(MAX_BUCKET); step > 0; step >>= 1) {
+                int nextPos = pos + step;
+                if (nextPos <= MAX_BUCKET && tree[nextPos] < k) {
+                    pos = nextPos;
+                    k -= tree[nextPos];
+                }
+            }
+            return pos + 1;
+        }
+
+        void ensureCapacity(int h) {
+            if (h < rounds.length) return;
+            int size = Math.max(h + 1, Math.max(1024, rounds.length * 2));
+            int old = rounds.length;
+            rounds = Arrays.copyOf(rounds, size);
+            next = Arrays.copyOf(next, size);
+            prev = Arrays.copyOf(prev, size);
+            Arrays.fill(next, old, size, -1);
+            Arrays.fill(prev, old, size, -1);
+        }
+    }
+}
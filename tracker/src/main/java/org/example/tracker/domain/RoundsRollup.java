@@ -0,0 +1,173 @@
+package org.example.tracker.domain;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example.tracker.db.HamsterTrackerRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Кривые активности внутри суток: раунды хомяка по минутам и по часам в кольцевых буферах.
+ * Кольца заводятся при первом зачёте раундов, хомяк без вращений стоит одну пустую ссылку.
+ * Минутное кольцо — char[] на minuteSlots минут (счётчик насыщается на 65535), часовое — int[] на hourSlots часов;
+ * часовые суммы копятся вместе с минутными, поэтому за пределами минутного окна остаются часы.
+ * Запись — O(1): слот считается по времени события, слоты, пропущенные с прошлой записи, обнуляются
+ * при переходе вперёд (не больше длины кольца). Зачёт старше окна кольца отбрасывается со счётчиком.
+ * <p>
+ * Раунды отсюда не сбрасываются в полночь: кольцо просто уезжает вперёд.
+ * При рестарте кривые текущих суток восстанавливаются из проигрывания журнала.
+ */
+@Slf4j
+@Component
+public class RoundsRollup implements TrackerListener {
+
+    public static final long MINUTE_MS = 60_000L;
+    public static final long HOUR_MS = 3_600_000L;
+
+    private final HamsterTrackerRepository repository;
+    private final int minuteSlots;
+    private final int hourSlots;
+    private final AtomicReferenceArray<Series> series;
+    private final LongAdder tooOld = new LongAdder();
+
+    @Autowired
+    public RoundsRollup(HamsterTrackerRepository repository,
+                        @Value("${tracker.rollup.minute-slots:360}") int minuteSlots,
+                        @Value("${tracker.rollup.hour-slots:48}") int hourSlots) {
+        if (minuteSlots < 1 || hourSlots < 1) {
+            throw new IllegalArgumentException("Rollup slots must be positive");
+        }
+        this.repository = repository;
+        this.minuteSlots = minuteSlots;
+        this.hourSlots = hourSlots;
+        this.series = new AtomicReferenceArray<>(repository.ids().hamsters().capacity());
+        log.info("Rounds rollup: {} minute slots, {} hour slots per active hamster", minuteSlots, hourSlots);
+    }
+
+    @Override
+    public void onRoundsChanged(int hamster, int day, int added, int total, Instant at) {
+        add(hamster, added, at.toEpochMilli());
+    }
+
+    public void add(int hamster, int rounds, long atMs) {
+        if (hamster < 0 || rounds <= 0) return;
+        Series s = series.get(hamster);
+        if (s == null) {
+            s = new Series(minuteSlots, hourSlots);
+            if (!series.compareAndSet(hamster, null, s)) {
+                s = series.get(hamster);
+            }
+        }
+        if (!s.add(Math.floorDiv(atMs, MINUTE_MS), rounds)) {
+            tooOld.increment();
+        }
+    }
+
+    /**
+     * Последние points интервалов, заканчивая текущим (по nowMs); null — хомяк неизвестен.
+     * Для HOUR points ограничен hourSlots, для MINUTE — minuteSlots.
+     */
+    public ActivitySeries series(String hamsterId, ActivitySeries.Resolution resolution, int points, long nowMs) {
+        int hamster = repository.ids().hamsters().find(hamsterId);
+        if (hamster < 0) return null;
+        boolean hourly = resolution == ActivitySeries.Resolution.HOUR;
+        long step = hourly ? HOUR_MS : MINUTE_MS;
+        int n = Math.max(1, Math.min(points, hourly ? hourSlots : minuteSlots));
+        long last = Math.floorDiv(nowMs, step);
+        long first = last - n + 1;
+        int[] out = new int[n];
+        Series s = series.get(hamster);
+        if (s != null) {
+            if (hourly) s.copyHours(first, out); else s.copyMinutes(first, out);
+        }
+        return new ActivitySeries(hamsterId, resolution, first * step, step, out);
+    }
+
+    //Зачёты, пришедшие позже, чем помнит часовое кольцо
+    public long tooOld() {
+        return tooOld.sum();
+    }
+
+    //Кольца одного хомяка; пишет поток шарда, читают запросы — хватает монитора на хомяка
+    private static final class Series {
+        private final char[] minutes;
+        private final int[] hours;
+        private long lastMinute = Long.MIN_VALUE;
+        private long lastHour = Long.MIN_VALUE;
+
+        Series(int minuteSlots, int hourSlots) {
+            this.minutes = new char[minuteSlots];
+            this.hours = new int[hourSlots];
+        }
+
+        synchronized boolean add(long minute, int rounds) {
+            long hour = Math.floorDiv(minute, 60);
+            if (hour > lastHour) {
+                clearAhead(hours, lastHour, hour);
+                lastHour = hour;
+            } else if (lastHour - hour >= hours.length) {
+                return false;
+            }
+            int h = slot(hour, hours.length);
+            hours[h] = (int) Math.min((long) hours[h] + rounds, Integer.MAX_VALUE);
+
+            if (minute > lastMinute) {
+                clearAhead(minutes, lastMinute, minute);
+                lastMinute = minute;
+            } else if (lastMinute - minute >= minutes.length) {
+                return true; // минута уже вышла из окна, в часовом кольце учтено
+            }
+            int m = slot(minute, minutes.length);
+            minutes[m] = (char) Math.min(minutes[m] + rounds, Character.MAX_VALUE);
+            return true;
+        }
+
+        synchronized void copyMinutes(long first, int[] out) {
+            for (int i = 0; i < out.length; i++) {
+                long minute = first + i;
+                if (minute <= lastMinute && lastMinute - minute < minutes.length) {
+                    out[i] = minutes[slot(minute, minutes.length)];
+                }
+            }
+        }
+
+        synchronized void copyHours(long first, int[] out) {
+            for (int i = 0; i < out.length; i++) {
+                long hour = first + i;
+                if (hour <= lastHour && lastHour - hour < hours.length) {
+                    out[i] = hours[slot(hour, hours.length)];
+                }
+            }
+        }
+
+        //Обнуляет слоты (from, to]; после долгого простоя — всё кольцо разом
+        private static void clearAhead(char[] ring, long from, long to) {
+            if (from == Long.MIN_VALUE || to - from >= ring.length) {
+                Arrays.fill(ring, (char) 0);
+                return;
+            }
+            for (long t = from + 1; t <= to; t++) {
+                ring[slot(t, ring.length)] = 0;
+            }
+        }
+
+        private static void clearAhead(int[] ring, long from, long to) {
+            if (from == Long.MIN_VALUE || to - from >= ring.length) {
+                Arrays.fill(ring, 0);
+                return;
+            }
+            for (long t = from + 1; t <= to; t++) {
+                ring[slot(t, ring.length)] = 0;
+            }
+        }
+
+        private static int slot(long t, int length) {
+            return (int) Math.floorMod(t, (long) length);
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package org.example.tracker.domain;
+
+import org.example.tracker.db.HamsterTrackerRepository;
+
+/**
+ * Окна номеров последовательности по int-хэндлам источников: отбрасывание повторов без хранения id событий.
+ * На источник два long — старший применённый номер и битовая карта WIDTH номеров под ним. Номер выше старшего
+ * сдвигает окно, номер внутри окна применяется один раз, номер ниже окна считается повтором: источник
+ * давно ушёл вперёд. Оба слова хранит репозиторий, поэтому окна попадают в снимок, в засев журнала
+ * и в файлы mmap вместе с остальным состоянием.
+ * <p>
+ * Проверка и отметка разделены: номер отмечается после того, как событие применено, и событие,
+ * упавшее в обработчике, при повторе не считается дублем. Повторы одного события приходят в один шард
+ * и идут по очереди, а разные события одного источника — из разных шардов (отказ датчика шардируется
+ * не по колесу), поэтому источник читается и обновляется под одной из STRIPES блокировок.
+ */
+final class SequenceWindow {
+
+    static final int WIDTH = Long.SIZE;
+
+    private static final int STRIPES = 64;
+
+    private final HamsterTrackerRepository repository;
+    private final Object[] locks = new Object[STRIPES];
+
+    SequenceWindow(HamsterTrackerRepository repository) {
+        this.repository = repository;
+        for (int i = 0; i < STRIPES; i++) {
+            locks[i] = new Object();
+        }
+    }
+
+    //true — номер seq у источника handle уже применён или ушёл ниже окна
+    boolean seen(int handle, long seq) {
+        synchronized (locks[handle & (STRIPES - 1)]) {
+            long top = repository.getSequenceTop(handle);
+            if (top == 0 || seq >= top) {
+                return false;
+            }
+            long back = (top - 1) - seq;
+            return back >= WIDTH || (repository.getSequenceBits(handle) & (1L << back)) != 0;
+        }
+    }
+
+    //Отмечает применённый номер seq у источника handle
+    void mark(int handle, long seq) {
+        synchronized (locks[handle & (STRIPES - 1)]) {
+            long top = repository.getSequenceTop(handle);
+            long bits = repository.getSequenceBits(handle);
+            if (top == 0 || seq >= top) {
+                long shift = top == 0 ? WIDTH : seq - (top - 1);
+                repository.setSequenceWindow(handle, seq + 1, shift >= WIDTH ? 1L : (bits << shift) | 1L);
+                return;
+            }
+            long back = (top - 1) - seq;
+            if (back < WIDTH) {
+                repository.setSequenceWindow(handle, top, bits | (1L << back));
+            }
+        }
+    }
+}
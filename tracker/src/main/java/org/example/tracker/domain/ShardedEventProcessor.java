@@ -0,0 +1,369 @@
+package org.example.tracker.domain;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.example.tracker.domain.eventDto.*;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+/**
+ * Шардированная обработка событий: событие хэшируется по wheelId (по sensorId для отказов)
+ * в один из N кольцевых буферов, каждый буфер разбирает свой выделенный поток.
+ * Все события одного колеса обрабатывает один поток строго по порядку,
+ * поэтому чтение-запись занятости колеса в HamsterTrackerService больше не гоняются между собой.
+ * <p>
+ * Очереди ограничены и служат буфером приёма. Выше shedWatermark заполнения шарда короткие крутки
+ * (меньше одного круга) отбрасываются, выше saturationWatermark отклоняются все крутки,
+ * вход/выход и отказы датчиков принимаются, пока в очереди есть место.
+ * <p>
+ * События со временем источника проходят через буфер переупорядочивания шарда (куча по времени события)
+ * и применяются по порядку, когда водяной знак сервиса их догонит. Раунды сервис зачитывает в сутки
+ * по времени события, поэтому события следующих суток смены дня не ждут. Событие раньше уже применённых
+ * считается опоздавшим: применяется сразу и попадает в счётчик late. События без времени идут мимо буфера.
+ * <p>
+ * Общей блокировки на пути события нет. Согласованный срез ({@link #runExclusive}) берётся через точки
+ * остановки: каждый шард замечает запрос между пачками, останавливается сам и ждёт, остальные тем временем
+ * дорабатывают свои пачки.
+ */
+@Slf4j
+@Component
+@DependsOn("stateRecovery") // сначала восстановить состояние, потом принимать новые события
+public class ShardedEventProcessor {
+
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+    private static final long SHUTDOWN_TIMEOUT_MS = 10_000;
+    private static final int BATCH = 256;
+
+    private static final int ENTER = 0;
+    private static final int EXIT = 1;
+    private static final int SPIN = 2;
+    private static final int FAILURE = 3;
+    private static final String[] TYPE_NAMES = {"HamsterEnter", "HamsterExit", "WheelSpin", "SensorFailure"};
+
+    private final HamsterTrackerService trackerService;
+    private final Shard[] shards;
+    private final int shedThreshold;
+    private final int saturationThreshold;
+    private final int reorderCapacity;
+    private final LongAdder[][] counters = new LongAdder[TYPE_NAMES.length][Admission.values().length];
+    private final LongAdder late = new LongAdder();
+    private volatile boolean running;
+    //Запрос runExclusive: шарды останавливаются в ближайшей точке между пачками и будят pauser
+    private volatile boolean pauseRequested;
+    private volatile Thread pauser;
+
+    @Autowired
+    public ShardedEventProcessor(HamsterTrackerService trackerService,
+                                 @Value("${tracker.shards:0}") int shardCount,
+                                 @Value("${tracker.shard-queue-capacity:65536}") int queueCapacity,
+                                 @Value("${tracker.ingest.shed-watermark:0.5}") double shedWatermark,
+                                 @Value("${tracker.ingest.saturation-watermark:0.8}") double saturationWatermark,
+                                 @Value("${tracker.event-time.reorder-capacity:65536}") int reorderCapacity) {
+        if (!(0 < shedWatermark && shedWatermark <= saturationWatermark && saturationWatermark <= 1)) {
+            throw new IllegalArgumentException("Expected 0 < shed-watermark <= saturation-watermark <= 1");
+        }
+        if (reorderCapacity < 1) {
+            throw new IllegalArgumentException("reorder-capacity must be >= 1: " + reorderCapacity);
+        }
+        this.trackerService = trackerService;
+        this.reorderCapacity = reorderCapacity;
+        int n = shardCount > 0 ? shardCount : Runtime.getRuntime().availableProcessors();
+        this.shards = new Shard[n];
+        for (int i = 0; i < n; i++) {
+            shards[i] = new Shard(i, queueCapacity);
+        }
+        int capacity = shards[0].queue.capacity();
+        this.shedThreshold = (int) (capacity * shedWatermark);
+        this.saturationThreshold = (int) (capacity * saturationWatermark);
+        for (LongAdder[] row : counters) {
+            for (int i = 0; i < row.length; i++) {
+                row[i] = new LongAdder();
+            }
+        }
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        for (Shard shard : shards) {
+            shard.thread.start();
+        }
+        log.info("Event processor started: shards={} queueCapacity={} reorderCapacity={}",
+                shards.length, shards[0].queue.capacity(), reorderCapacity);
+    }
+
+    //Останавливает приём и дожидается, пока потоки разберут всё, что уже в очередях
+    @PreDestroy
+    public void stop() {
+        running = false;
+        long deadline = System.currentTimeMillis() + SHUTDOWN_TIMEOUT_MS;
+        for (Shard shard : shards) {
+            LockSupport.unpark(shard.thread);
+        }
+        for (Shard shard : shards) {
+            try {
+                shard.thread.join(Math.max(1, deadline - System.currentTimeMillis()));
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            if (shard.thread.isAlive()) {
+                log.warn("Shard {} did not drain in time, {} events left", shard.index, shard.queue.size());
+            }
+        }
+        log.info("Event processor stopped");
+    }
+
+    public Admission submit(HamsterEvent event) {
+        if (event == null || !running) {
+            return Admission.REJECTED;
+        }
+        int type = typeIndex(event);
+        Admission admission = admit(event, type, shards[shardIndex(event)]);
+        if (type >= 0) {
+            counters[type][admission.ordinal()].increment();
+        }
+        return admission;
+    }
+
+    private Admission admit(HamsterEvent event, int type, Shard shard) {
+        if (type == SPIN) {
+            int depth = shard.queue.size();
+            if (depth >= saturationThreshold) {
+                return Admission.REJECTED;
+            }
+            if (depth >= shedThreshold && ((WheelSpin) event).getDurationMs() < HamsterTrackerService.ROUND_MS) {
+                return Admission.SHED; // кругов не добавит, только отметку активности
+            }
+        }
+        if (!shard.queue.offer(event)) {
+            return Admission.REJECTED;
+        }
+        if (shard.parked) {
+            LockSupport.unpark(shard.thread);
+        }
+        return Admission.ACCEPTED;
+    }
+
+    /**
+     * Выполняет action, пока ни один шард не применяет события: получается согласованный срез состояния.
+     * Шарды останавливаются по одному, каждый в своей точке между пачками, и ждут без блокировки;
+     * action начинается, когда остановился последний. Приём в очереди при этом продолжается,
+     * шарды догоняют после выхода.
+     */
+    public synchronized <T> T runExclusive(Supplier<T> action) {
+        pauser = Thread.currentThread();
+        pauseRequested = true;
+        try {
+            for (Shard shard : shards) {
+                LockSupport.unpark(shard.thread); // спящий шард дойдёт до точки остановки сразу
+            }
+            for (Shard shard : shards) {
+                while (!shard.atSafePoint) {
+                    LockSupport.park(this);
+                }
+            }
+            return action.get();
+        } finally {
+            pauseRequested = false;
+            pauser = null;
+            for (Shard shard : shards) {
+                LockSupport.unpark(shard.thread);
+            }
+        }
+    }
+
+    public IngestStats stats() {
+        Map<String, EventTypeCounters> byType = new LinkedHashMap<>();
+        for (int t = 0; t < TYPE_NAMES.length; t++) {
+            LongAdder[] row = counters[t];
+            byType.put(TYPE_NAMES[t], new EventTypeCounters(
+                    row[Admission.ACCEPTED.ordinal()].sum(),
+                    row[Admission.SHED.ordinal()].sum(),
+                    row[Admission.REJECTED.ordinal()].sum()));
+        }
+        int depth = 0;
+        int reordering = 0;
+        for (Shard shard : shards) {
+            depth += shard.queue.size();
+            reordering += shard.reorderSize;
+        }
+        return new IngestStats(byType, depth, shards.length * shards[0].queue.capacity(), reordering, late.sum(),
+                trackerService.duplicates(), trackerService.closedDaySpins());
+    }
+
+    public int shardCount() {
+        return shards.length;
+    }
+
+    private static int typeIndex(HamsterEvent event) {
+        return switch (event) {
+            case HamsterEnter e -> ENTER;
+            case HamsterExit e -> EXIT;
+            case WheelSpin e -> SPIN;
+            case SensorFailure e -> FAILURE;
+            default -> -1;
+        };
+    }
+
+    int shardIndex(HamsterEvent event) {
+        return Math.floorMod(shardKey(event).hashCode(), shards.length);
+    }
+
+    static String shardKey(HamsterEvent event) {
+        String key = switch (event) {
+            case HamsterEnter e -> e.getWheelId();
+            case HamsterExit e -> e.getWheelId();
+            case WheelSpin e -> e.getWheelId();
+            case SensorFailure e -> e.getSensorId();
+            default -> null;
+        };
+        return key == null ? "" : key;
+    }
+
+    //Событие в буфере переупорядочивания; seq сохраняет порядок прихода при равном времени
+    private record Pending(long timeMs, long seq, HamsterEvent event) {
+    }
+
+    private static final Comparator<Pending> EVENT_TIME_ORDER =
+            Comparator.comparingLong(Pending::timeMs).thenComparingLong(Pending::seq);
+
+    private final class Shard implements Runnable {
+        final int index;
+        final MpscRingBuffer<HamsterEvent> queue;
+        final Thread thread;
+        volatile boolean parked;
+        //true — шард не применяет события: ещё не запущен, завершился или стоит по запросу runExclusive
+        volatile boolean atSafePoint = true;
+        //Буфер переупорядочивания трогает только поток шарда; наружу — только размер
+        final PriorityQueue<Pending> reorder = new PriorityQueue<>(EVENT_TIME_ORDER);
+        volatile int reorderSize;
+        long releasedUpTo = Long.MIN_VALUE; // время последнего применённого события из буфера
+        long seq;
+
+        Shard(int index, int capacity) {
+            this.index = index;
+            this.queue = new MpscRingBuffer<>(capacity);
+            this.thread = new Thread(this, "hamster-shard-" + index);
+            this.thread.setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            // отметка снимается до проверки запроса: runExclusive, увидевший её, шард всё равно остановит
+            atSafePoint = false;
+            try {
+                loop();
+            } finally {
+                atSafePoint = true;
+                LockSupport.unpark(pauser);
+            }
+        }
+
+        private void loop() {
+            while (true) {
+                if (pauseRequested) {
+                    safePoint();
+                    continue;
+                }
+                HamsterEvent event = queue.poll();
+                if (event != null) {
+                    int applied = 0;
+                    do {
+                        order(event);
+                    } while (++applied < BATCH && (event = queue.poll()) != null);
+                    release(false);
+                    continue;
+                }
+                if (!reorder.isEmpty() && isDue(reorder.peek())) {
+                    release(false);
+                    continue;
+                }
+                if (!running && queue.isEmpty()) {
+                    release(true); // при остановке водяной знак не ждём
+                    return;
+                }
+                // флаг выставляется до повторной проверки очереди, чтобы не потерять unpark от писателя
+                parked = true;
+                if (queue.isEmpty() && running) {
+                    LockSupport.parkNanos(this, parkNanos());
+                }
+                parked = false;
+            }
+        }
+
+        private void order(HamsterEvent event) {
+            if (event.getTimestamp() == null) {
+                trackerService.accept(event);
+                return;
+            }
+            long timeMs = HamsterTrackerService.eventTimeMs(event, System.currentTimeMillis());
+            if (timeMs < releasedUpTo) {
+                // его место в порядке уже пройдено: применяем сразу, активность назад не откатится
+                late.increment();
+                trackerService.accept(event, Instant.ofEpochMilli(timeMs));
+                return;
+            }
+            if (reorder.size() >= reorderCapacity) {
+                apply(reorder.poll()); // буфер ограничен: самое раннее уходит, не дождавшись водяного знака
+            }
+            reorder.add(new Pending(timeMs, seq++, event));
+            reorderSize = reorder.size();
+        }
+
+        //Точка остановки между пачками: шард отмечается, будит runExclusive и ждёт его выхода
+        private void safePoint() {
+            atSafePoint = true;
+            LockSupport.unpark(pauser);
+            while (pauseRequested) {
+                LockSupport.park(this);
+            }
+            atSafePoint = false;
+        }
+
+        private void release(boolean all) {
+            if (reorder.isEmpty()) return;
+            long watermark = trackerService.watermarkMs();
+            Pending head;
+            while ((head = reorder.peek()) != null && (all || isDue(head, watermark))) {
+                apply(reorder.poll());
+            }
+            reorderSize = reorder.size();
+        }
+
+        private void apply(Pending pending) {
+            releasedUpTo = Math.max(releasedUpTo, pending.timeMs());
+            trackerService.accept(pending.event(), Instant.ofEpochMilli(pending.timeMs()));
+        }
+
+        private boolean isDue(Pending pending) {
+            return isDue(pending, trackerService.watermarkMs());
+        }
+
+        //Дождался водяного знака; события следующих суток сервис сам зачитывает в их сутки
+        private boolean isDue(Pending pending, long watermark) {
+            return pending.timeMs() <= watermark;
+        }
+
+        //Спим до ближайшего выпуска из буфера, но не дольше обычного
+        private long parkNanos() {
+            Pending head = reorder.peek();
+            if (head == null) return IDLE_PARK_NANOS;
+            long waitMs = head.timeMs() - trackerService.watermarkMs();
+            return Math.max(1, Math.min(IDLE_PARK_NANOS, TimeUnit.MILLISECONDS.toNanos(waitMs)));
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package org.example.tracker.domain;
+
+import org.example.tracker.domain.eventDto.HamsterEvent;
+
+import java.time.Instant;
+
+//Подписчик на изменения состояния трекера; вызывается в потоке, который применил событие
+public interface TrackerListener {
+
+    //Событие применено к репозиторию; at — время, с которым оно учтено
+    default void onEventApplied(HamsterEvent event, Instant at) {
+    }
+
+    //Хомяку зачтено added раундов со временем at в сутки day репозитория, за них стало total;
+    //вызывается и при проигрывании журнала
+    default void onRoundsChanged(int hamster, int day, int added, int total, Instant at) {
+    }
+
+    //Состояние восстановлено при старте (снимок, журнал или долговечный репозиторий), дальше пойдут живые события
+    default void onStateRecovered() {
+    }
+
+    //Начались следующие сутки (startMs — их начало): вызов приходит раньше, чем любое событие, зачтённое в них.
+    //До смены суток может прийти ещё раз с более ранним началом — ручная смена до полуночи
+    default void onNextDayStarted(long startMs) {
+    }
+
+    //Хомяк в момент at ушёл на колесо другого узла: это его последняя активность здесь, о простое не сообщаем
+    default void onInactivityMuted(int hamster, Instant at) {
+    }
+
+    //Суточные раунды сброшены после формирования отчёта
+    default void onDailyReset(DailyReport report) {
+    }
+}
@@ -1,5 +1,6 @@
 package org.example.tracker.domain.eventDto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonSubTypes;
 import com.fasterxml.jackson.annotation.JsonTypeInfo;
 
@@ -16,4 +17,40 @@ import com.fasterxml.jackson.annotation.JsonTypeInfo;
         @JsonSubTypes.Type(value = WheelSpin.class, name = "WheelSpin")
 })
 public abstract class HamsterEvent {
+
+    //Время события у источника, мс от эпохи; null — источник время не передал
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Long timestamp;
+
+    //Источник (датчик) и его номер последовательности, растущий от события к событию: повтор с тем же номером
+    //трекер отбрасывает, поэтому отправку можно повторять. null — источник номера не передал
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String sourceId;
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Long seq;
+
+    public Long getTimestamp() {
+        return timestamp;
+    }
+
+    public void setTimestamp(Long timestamp) {
+        this.timestamp = timestamp;
+    }
+
+    public String getSourceId() {
+        return sourceId;
+    }
+
+    public void setSourceId(String sourceId) {
+        this.sourceId = sourceId;
+    }
+
+    public Long getSeq() {
+        return seq;
+    }
+
+    public void setSeq(Long seq) {
+        this.seq = seq;
+    }
 }
@@ -0,0 +1,7 @@
+package org.example.tracker.persistence;
+
+import java.time.LocalDate;
+
+//Раунды одного хомяка за одни сутки из истории отчётов
+public record HamsterDay(LocalDate date, int rounds, boolean active) {
+}
@@ -0,0 +1,7 @@
+package org.example.tracker.persistence;
+
+import java.time.LocalDate;
+
+//Итог суток из истории отчётов: всего хомяков в отчёте, активных и сумма раундов
+public record HistoryDay(LocalDate date, int hamsters, int activeHamsters, long totalRounds) {
+}
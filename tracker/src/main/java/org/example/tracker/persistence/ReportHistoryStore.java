@@ -0,0 +1,362 @@
+package org.example.tracker.persistence;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.example.tracker.domain.DailyReport;
+import org.example.tracker.domain.HamsterStats;
+import org.example.tracker.domain.TrackerListener;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * История суточных отчётов: один файл yyyy-MM-dd.day на сутки, данные лежат по колонкам.
+ * <p>
+ * Файл: заголовок (дата, число хомяков, активных, сумма раундов, смещения колонок), индекс блоков,
+ * колонка id (varint-разности по возрастанию), колонка раундов (varint), битовая карта активности.
+ * Id хомяков — постоянные номера истории из журнала hamsters.ids, не хэндлы репозитория:
+ * те после рестарта без mmap раздаются заново. Каждые {@link #BLOCK} записей блок начинается с абсолютного id,
+ * индекс хранит первый id блока и смещения блока в обеих колонках. Поиск хомяка за сутки читает
+ * индекс и один блок — несколько килобайт, а число активных за сутки лежит прямо в заголовке.
+ * <p>
+ * 100 000 хомяков за сутки — около 300 КБ, год — порядка 110 МБ.
+ * Файл дня пишется во временный и переименовывается, поэтому читатели не видят недописанных суток.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "tracker.history.enabled", havingValue = "true")
+public class ReportHistoryStore implements TrackerListener {
+
+    static final int MAGIC = 0x48444159; // "HDAY"
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 48;
+    static final int BLOCK = 128;
+    private static final int SKIP_ENTRY = 12;
+    private static final int MAX_NAME = 1 << 15;
+    private static final String SUFFIX = ".day";
+
+    private final Path dir;
+
+    //Постоянные номера хомяков в истории; дописывает только store под монитором
+    private final Map<String, Integer> historyIds = new ConcurrentHashMap<>();
+    private FileChannel names;
+
+    @Autowired
+    public ReportHistoryStore(@Value("${tracker.history.dir:data/history}") String dir) {
+        this(Path.of(dir));
+    }
+
+    public ReportHistoryStore(Path dir) {
+        this.dir = dir;
+    }
+
+    @PostConstruct
+    public synchronized void open() {
+        try {
+            Files.createDirectories(dir);
+            names = FileChannel.open(dir.resolve("hamsters.ids"),
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            loadNames();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open report history in " + dir, e);
+        }
+        log.info("Report history opened in {}: {} known hamsters", dir.toAbsolutePath(), historyIds.size());
+    }
+
+    @PreDestroy
+    public synchronized void close() {
+        if (names == null) return;
+        try {
+            names.close();
+        } catch (IOException e) {
+            log.error("Report history close failed: {}", e.toString(), e);
+        }
+        names = null;
+    }
+
+    @Override
+    public void onDailyReset(DailyReport report) {
+        store(report);
+    }
+
+    //Пишет сутки целиком; повторный отчёт за ту же дату заменяет прежний
+    public synchronized void store(DailyReport report) {
+        long started = System.nanoTime();
+        HamsterStats[] stats = report.getHamsterStats().values().toArray(new HamsterStats[0]);
+        int n = stats.length;
+        try {
+            // (id истории << 32 | позиция) — сортировка сразу даёт порядок колонок
+            long[] order = new long[n];
+            boolean newNames = false;
+            for (int i = 0; i < n; i++) {
+                Integer id = historyIds.get(stats[i].getHamsterId());
+                if (id == null) {
+                    id = appendName(stats[i].getHamsterId());
+                    newNames = true;
+                }
+                order[i] = ((long) id << 32) | i;
+            }
+            if (newNames) {
+                names.force(false); // файл дня ссылается на эти номера
+            }
+            Arrays.sort(order);
+
+            int blocks = (n + BLOCK - 1) / BLOCK;
+            ByteBuffer skip = ByteBuffer.allocate(blocks * SKIP_ENTRY);
+            VarInts ids = new VarInts(n * 2);
+            VarInts rounds = new VarInts(n * 2);
+            byte[] bitmap = new byte[(n + 7) >>> 3];
+            int active = 0;
+            long totalRounds = 0;
+            int prev = 0;
+            for (int k = 0; k < n; k++) {
+                int id = (int) (order[k] >>> 32);
+                HamsterStats s = stats[(int) order[k]];
+                if (k % BLOCK == 0) {
+                    skip.putInt(id).putInt(ids.size()).putInt(rounds.size());
+                    prev = 0;
+                }
+                ids.put(id - prev);
+                prev = id;
+                rounds.put(s.getTotalRounds());
+                totalRounds += s.getTotalRounds();
+                if (s.isActive()) {
+                    bitmap[k >>> 3] |= (byte) (1 << (k & 7));
+                    active++;
+                }
+            }
+
+            int idsOffset = HEADER_BYTES + skip.capacity();
+            int roundsOffset = idsOffset + ids.size();
+            int bitmapOffset = roundsOffset + rounds.size();
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES)
+                    .putInt(MAGIC).putInt(VERSION).putLong(report.getDate().toEpochDay())
+                    .putInt(n).putInt(active).putLong(totalRounds)
+                    .putInt(blocks).putInt(idsOffset).putInt(roundsOffset).putInt(bitmapOffset);
+
+            Path file = fileOf(report.getDate());
+            Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+            try (FileChannel out = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                ByteBuffer[] parts = {header.flip(), skip.flip(), ids.buffer(), rounds.buffer(), ByteBuffer.wrap(bitmap)};
+                long expected = (long) bitmapOffset + bitmap.length;
+                long written = 0;
+                while (written < expected) {
+                    written += out.write(parts);
+                }
+                out.force(true);
+            }
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            log.info("Report history stored for date={}: hamsters={} active={} bytes={} in {} ms",
+                    report.getDate(), n, active, bitmapOffset + bitmap.length, (System.nanoTime() - started) / 1_000_000);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to store report history for " + report.getDate(), e);
+        }
+    }
+
+    //Итоги по каждому дню диапазона, за который есть история; читаются только заголовки
+    public List<HistoryDay> days(LocalDate from, LocalDate to) {
+        List<HistoryDay> out = new ArrayList<>();
+        for (LocalDate date = from; !date.isAfter(to); date = date.plusDays(1)) {
+            try (FileChannel in = openDay(date)) {
+                if (in == null) continue;
+                Header h = readHeader(in, date);
+                out.add(new HistoryDay(date, h.count, h.active, h.totalRounds));
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to read report history for " + date, e);
+            }
+        }
+        return out;
+    }
+
+    //Раунды хомяка по дням диапазона; дни, когда хомяка не было в отчёте, пропускаются
+    public List<HamsterDay> hamster(String hamsterId, LocalDate from, LocalDate to) {
+        Integer id = historyIds.get(hamsterId);
+        if (id == null) return List.of();
+        List<HamsterDay> out = new ArrayList<>();
+        for (LocalDate date = from; !date.isAfter(to); date = date.plusDays(1)) {
+            try (FileChannel in = openDay(date)) {
+                if (in == null) continue;
+                HamsterDay day = lookup(in, readHeader(in, date), date, id);
+                if (day != null) {
+                    out.add(day);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to read report history for " + date, e);
+            }
+        }
+        return out;
+    }
+
+    private HamsterDay lookup(FileChannel in, Header h, LocalDate date, int id) throws IOException {
+        if (h.count == 0) return null;
+        ByteBuffer skip = read(in, HEADER_BYTES, h.blocks * SKIP_ENTRY);
+        // последний блок, у которого первый id не больше искомого
+        int lo = 0;
+        int hi = h.blocks - 1;
+        int block = -1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            if (skip.getInt(mid * SKIP_ENTRY) <= id) {
+                block = mid;
+                lo = mid + 1;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        if (block < 0) return null;
+        int base = block * SKIP_ENTRY;
+        boolean last = block == h.blocks - 1;
+        int idsFrom = skip.getInt(base + 4);
+        int idsTo = last ? h.roundsOffset - h.idsOffset : skip.getInt(base + SKIP_ENTRY + 4);
+        int roundsFrom = skip.getInt(base + 8);
+        int roundsTo = last ? h.bitmapOffset - h.roundsOffset : skip.getInt(base + SKIP_ENTRY + 8);
+
+        ByteBuffer ids = read(in, h.idsOffset + idsFrom, idsTo - idsFrom);
+        int entries = Math.min(BLOCK, h.count - block * BLOCK);
+        int position = -1;
+        int current = 0;
+        for (int i = 0; i < entries; i++) {
+            current += VarInts.get(ids);
+            if (current >= id) {
+                if (current == id) position = i;
+                break;
+            }
+        }
+        if (position < 0) return null;
+
+        ByteBuffer rounds = read(in, h.roundsOffset + roundsFrom, roundsTo - roundsFrom);
+        for (int i = 0; i < position; i++) {
+            VarInts.get(rounds);
+        }
+        int total = VarInts.get(rounds);
+        int index = block * BLOCK + position;
+        byte bits = read(in, h.bitmapOffset + (index >>> 3), 1).get(0);
+        return new HamsterDay(date, total, (bits & (1 << (index & 7))) != 0);
+    }
+
+    private FileChannel openDay(LocalDate date) throws IOException {
+        try {
+            return FileChannel.open(fileOf(date), StandardOpenOption.READ);
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+
+    private static Header readHeader(FileChannel in, LocalDate date) throws IOException {
+        ByteBuffer b = read(in, 0, HEADER_BYTES);
+        if (b.getInt() != MAGIC || b.getInt() != VERSION || b.getLong() != date.toEpochDay()) {
+            throw new IOException("Corrupted report history file for " + date);
+        }
+        return new Header(b.getInt(), b.getInt(), b.getLong(), b.getInt(), b.getInt(), b.getInt(), b.getInt());
+    }
+
+    private static ByteBuffer read(FileChannel in, long position, int length) throws IOException {
+        ByteBuffer b = ByteBuffer.allocate(length);
+        while (b.hasRemaining()) {
+            if (in.read(b, position + b.position()) < 0) {
+                throw new IOException("Unexpected end of report history file");
+            }
+        }
+        return b.flip();
+    }
+
+    private Path fileOf(LocalDate date) {
+        return dir.resolve(date + SUFFIX);
+    }
+
+    //Журнал имён: [длина:short][utf-8]; недописанная последняя запись отрезается
+    private void loadNames() throws IOException {
+        long size = names.size();
+        ByteBuffer all = read(names, 0, (int) size);
+        long complete = 0;
+        while (all.remaining() >= 2) {
+            int length = all.getShort() & 0xFFFF;
+            if (all.remaining() < length) break;
+            byte[] name = new byte[length];
+            all.get(name);
+            historyIds.put(new String(name, StandardCharsets.UTF_8), historyIds.size());
+            complete = all.position();
+        }
+        if (complete < size) {
+            log.warn("Report history ids: dropping {} bytes of a torn record", size - complete);
+            names.truncate(complete);
+        }
+        names.position(complete);
+    }
+
+    private int appendName(String hamsterId) throws IOException {
+        byte[] bytes = hamsterId.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length >= MAX_NAME) {
+            throw new IOException("Hamster id too long for report history: " + bytes.length + " bytes");
+        }
+        ByteBuffer record = ByteBuffer.allocate(2 + bytes.length).putShort((short) bytes.length).put(bytes).flip();
+        while (record.hasRemaining()) {
+            names.write(record);
+        }
+        int id = historyIds.size();
+        historyIds.put(hamsterId, id);
+        return id;
+    }
+
+    private record Header(int count, int active, long totalRounds, int blocks,
+                          int idsOffset, int roundsOffset, int bitmapOffset) {
+    }
+
+    //Растущий буфер беззнаковых varint (7 бит на байт, старший бит — продолжение)
+    private static final class VarInts {
+        private byte[] bytes;
+        private int size;
+
+        VarInts(int initial) {
+            bytes = new byte[Math.max(16, initial)];
+        }
+
+        void put(int value) {
+            if (size + 5 > bytes.length) {
+                bytes = Arrays.copyOf(bytes, bytes.length * 2);
+            }
+            while ((value & ~0x7F) != 0) {
+                bytes[size++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            bytes[size++] = (byte) value;
+        }
+
+        int size() {
+            return size;
+        }
+
+        ByteBuffer buffer() {
+            return ByteBuffer.wrap(bytes, 0, size);
+        }
+
+        static int get(ByteBuffer in) {
+            int value = 0;
+            for (int shift = 0; ; shift += 7) {
+                byte b = in.get();
+                value |= (b & 0x7F) << shift;
+                if (b >= 0) return value;
+            }
+        }
+    }
+}
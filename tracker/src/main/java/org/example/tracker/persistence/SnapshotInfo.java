@@ -0,0 +1,6 @@
+package org.example.tracker.persistence;
+
+//Итог снимка: размер файла, пауза шардов на срез и полное время
+public record SnapshotInfo(long takenAtMs, long walSegment, int hamsters, int sensors,
+                           long bytes, long pauseMicros, long totalMs) {
+}
@@ -0,0 +1,128 @@
+package org.example.tracker.persistence;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.example.tracker.codec.HamsterEventBinaryCodec;
+import org.example.tracker.db.HamsterTrackerRepository;
+import org.example.tracker.domain.HamsterTrackerService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Optional;
+
+/**
+ * Восстановление состояния при старте: загружает последний целый снимок, затем проигрывает
+ * сегменты WAL прошлых запусков, которых в снимке нет, через {@link HamsterTrackerService#replay}.
+ * Обработка событий (ShardedEventProcessor) стартует только после него.
+ * Долговечный репозиторий (mmap) восстанавливать не нужно — восстановление пропускается.
+ */
+@Slf4j
+@Component("stateRecovery")
+public class StateRecovery {
+
+    private final HamsterTrackerService trackerService;
+    private final HamsterTrackerRepository repository;
+    private final WriteAheadLog wal;
+    private final Path snapshotDir;
+
+    @Autowired
+    public StateRecovery(HamsterTrackerService trackerService,
+                         HamsterTrackerRepository repository,
+                         Optional<WriteAheadLog> wal,
+                         @Value("${tracker.snapshot.enabled:false}") boolean snapshots,
+                         @Value("${tracker.snapshot.dir:data/snapshots}") String snapshotDir) {
+        this(trackerService, repository, wal.orElse(null), snapshots ? Path.of(snapshotDir) : null);
+    }
+
+    //snapshotDir == null — снимки не используются
+    public StateRecovery(HamsterTrackerService trackerService, HamsterTrackerRepository repository,
+                         WriteAheadLog wal, Path snapshotDir) {
+        this.trackerService = trackerService;
+        this.repository = repository;
+        this.wal = wal;
+        this.snapshotDir = snapshotDir;
+    }
+
+    @PostConstruct
+    public void recover() {
+        if (repository.isDurable()) {
+            log.info("Repository {} keeps its own state, recovery skipped", repository.getClass().getSimpleName());
+        } else {
+            try {
+                long fromSegment = loadSnapshot();
+                replayWal(fromSegment);
+            } catch (IOException e) {
+                throw new UncheckedIOException("State recovery failed", e);
+            }
+        }
+        trackerService.stateRecovered();
+    }
+
+    //Загружает самый свежий целый снимок; возвращает первый сегмент WAL, которого в нём нет
+    private long loadSnapshot() throws IOException {
+        if (snapshotDir == null) return 0;
+        long started = System.nanoTime();
+        Optional<StateSnapshot> snapshot = StateSnapshot.readLatest(snapshotDir);
+        if (snapshot.isEmpty()) {
+            log.info("No snapshot in {}", snapshotDir.toAbsolutePath());
+            return 0;
+        }
+        StateSnapshot s = snapshot.get();
+        s.restoreInto(repository);
+        log.info("Snapshot from {} loaded in {} ms: hamsters={} sensors={} occupants={} walSegment={}",
+                Instant.ofEpochMilli(s.takenAtMs()), (System.nanoTime() - started) / 1_000_000,
+                s.hamsterCount(), s.sensorCount(), s.occupantCount(), s.walSegment());
+        return s.walSegment();
+    }
+
+    private void replayWal(long fromSegment) throws IOException {
+        if (wal == null) {
+            log.info("WAL disabled, nothing to replay");
+            return;
+        }
+        long started = System.nanoTime();
+        long records = 0;
+        int segments = 0;
+        for (Path segment : wal.previousSegments()) {
+            if (WriteAheadLog.indexOf(segment) < fromSegment) continue;
+            records += WriteAheadLog.readSegment(segment, this::apply);
+            segments++;
+        }
+        long elapsedMs = Math.max(1, (System.nanoTime() - started) / 1_000_000);
+        log.info("WAL replay: {} records from {} segments in {} ms ({} records/s)",
+                records, segments, elapsedMs, records * 1000 / elapsedMs);
+    }
+
+    private void apply(byte kind, long atMillis, ByteBuffer data) {
+        Instant at = Instant.ofEpochMilli(atMillis);
+        switch (kind) {
+            case WriteAheadLog.EVENT -> trackerService.replay(HamsterEventBinaryCodec.decode(data), at);
+            case WriteAheadLog.DAY -> trackerService.replayNextDayStarted(atMillis);
+            case WriteAheadLog.RESET -> trackerService.replayDayClosed();
+            case WriteAheadLog.OCCUPANT -> repository.setOccupant(WriteAheadLog.readString(data), WriteAheadLog.readString(data));
+            case WriteAheadLog.ACTIVITY -> {
+                String hamster = WriteAheadLog.readString(data);
+                repository.updateLastActivity(hamster, at);
+                repository.setInactivityAlerted(hamster, data.get() != 0);
+            }
+            case WriteAheadLog.SENSOR_FAILURE -> {
+                String sensor = WriteAheadLog.readString(data);
+                repository.markSensorFailed(sensor, at);
+                repository.setSensorAlerted(sensor, data.get() != 0);
+            }
+            case WriteAheadLog.SEQUENCE -> {
+                int source = repository.ids().sensors().intern(WriteAheadLog.readString(data));
+                if (source >= 0) {
+                    repository.setSequenceWindow(source, data.getLong(), data.getLong());
+                }
+            }
+            default -> log.warn("Unknown WAL record kind {} skipped", kind);
+        }
+    }
+}
@@ -0,0 +1,349 @@
+package org.example.tracker.persistence;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example.tracker.db.HamsterTrackerRepository;
+import org.example.tracker.db.IdRegistry;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Снимок всего состояния репозитория. Файл NNN.snap (NNN — время снимка):
+ * magic, версия, время, первый непокрытый сегмент WAL, затем колёса, хомяки, датчики, окна номеров
+ * источников (с версии 2) и в конце crc32c всего предыдущего. Пишется во временный файл и атомарно переименовывается,
+ * поэтому недописанный снимок никогда не выглядит годным.
+ */
+@Slf4j
+public final class StateSnapshot {
+
+    private static final int MAGIC = 0x48534e50; // "HSNP"
+    private static final int VERSION = 2;
+    private static final String SUFFIX = ".snap";
+
+    public record HamsterState(String id, int rounds, boolean hasRounds, long lastActivityMs, boolean inactivityAlerted) {
+    }
+
+    public record SensorState(String id, long failedSinceMs, boolean alerted) {
+    }
+
+    //Окно номеров последовательности источника: старший номер + 1 и битовая карта под ним
+    public record SequenceState(String sourceId, long top, long bits) {
+    }
+
+    private final long takenAtMs;
+    private final long walSegment;
+    private final Map<String, String> occupants;
+    private final List<HamsterState> hamsters;
+    private final List<SensorState> sensors;
+    private final List<SequenceState> sequences;
+
+    StateSnapshot(long takenAtMs, long walSegment, Map<String, String> occupants,
+                  List<HamsterState> hamsters, List<SensorState> sensors, List<SequenceState> sequences) {
+        this.takenAtMs = takenAtMs;
+        this.walSegment = walSegment;
+        this.occupants = occupants;
+        this.hamsters = hamsters;
+        this.sensors = sensors;
+        this.sequences = sequences;
+    }
+
+    //Копия состояния целиком; вызывать, пока события не применяются (ShardedEventProcessor.runExclusive)
+    public static StateSnapshot capture(HamsterTrackerRepository repository, long walSegment) {
+        return copy(repository, walSegment).build(repository.ids());
+    }
+
+    /**
+     * Первая половина снимка — только то, что нужно делать при остановленных шардах: проход по хэндлам
+     * в примитивные массивы без строк, отображений и записей. Имена и записи строит {@link Copy#build},
+     * уже после того, как шарды продолжили работу: словари id только дописываются, поэтому хэндл
+     * из копии потом разрешается в то же имя.
+     */
+    public static Copy copy(HamsterTrackerRepository repository, long walSegment) {
+        IdRegistry ids = repository.ids();
+        int day = repository.currentDay();
+        int wheelCount = ids.wheels().size();
+        int[] occupants = new int[wheelCount];
+        for (int w = 0; w < wheelCount; w++) {
+            occupants[w] = repository.getOccupant(w);
+        }
+        int hamsterCount = ids.hamsters().size();
+        int[] rounds = new int[hamsterCount];
+        long[] lastActivity = new long[hamsterCount];
+        byte[] hamsterFlags = new byte[hamsterCount];
+        for (int h = 0; h < hamsterCount; h++) {
+            if (repository.hasRounds(h)) {
+                rounds[h] = repository.getRounds(h, day);
+                hamsterFlags[h] |= HAS_ROUNDS;
+            }
+            Instant last = repository.getLastActivity(h);
+            lastActivity[h] = last == null ? 0L : last.toEpochMilli();
+            if (repository.isInactivityAlerted(h)) {
+                hamsterFlags[h] |= ALERTED;
+            }
+        }
+        int sensorCount = ids.sensors().size();
+        long[] failedSince = new long[sensorCount];
+        byte[] sensorFlags = new byte[sensorCount];
+        long[] sequenceTop = new long[sensorCount];
+        long[] sequenceBits = new long[sensorCount];
+        for (int s = 0; s < sensorCount; s++) {
+            sequenceTop[s] = repository.getSequenceTop(s);
+            sequenceBits[s] = repository.getSequenceBits(s);
+            Instant since = repository.getSensorFailedSince(s);
+            if (since == null) continue;
+            failedSince[s] = since.toEpochMilli();
+            sensorFlags[s] = (byte) (FAILED | (repository.isSensorAlerted(s) ? ALERTED : 0));
+        }
+        return new Copy(System.currentTimeMillis(), walSegment, occupants, rounds, lastActivity, hamsterFlags,
+                failedSince, sensorFlags, sequenceTop, sequenceBits);
+    }
+
+    private static final byte HAS_ROUNDS = 1;
+    private static final byte ALERTED = 2;
+    private static final byte FAILED = 4;
+
+    public static final class Copy {
+
+        private final long takenAtMs;
+        private final long walSegment;
+        private final int[] occupants;
+        private final int[] rounds;
+        private final long[] lastActivity;
+        private final byte[] hamsterFlags;
+        private final long[] failedSince;
+        private final byte[] sensorFlags;
+        private final long[] sequenceTop;
+        private final long[] sequenceBits;
+
+        private Copy(long takenAtMs, long walSegment, int[] occupants, int[] rounds, long[] lastActivity,
+                     byte[] hamsterFlags, long[] failedSince, byte[] sensorFlags, long[] sequenceTop, long[] sequenceBits) {
+            this.takenAtMs = takenAtMs;
+            this.walSegment = walSegment;
+            this.occupants = occupants;
+            this.rounds = rounds;
+            this.lastActivity = lastActivity;
+            this.hamsterFlags = hamsterFlags;
+            this.failedSince = failedSince;
+            this.sensorFlags = sensorFlags;
+            this.sequenceTop = sequenceTop;
+            this.sequenceBits = sequenceBits;
+        }
+
+        //В снимок попадают те же записи, что и раньше: хомяк — если есть счётчик раундов или активность
+        public StateSnapshot build(IdRegistry ids) {
+            Map<String, String> occupantsById = new HashMap<>();
+            for (int w = 0; w < occupants.length; w++) {
+                if (occupants[w] >= 0) {
+                    occupantsById.put(ids.wheels().name(w), ids.hamsters().name(occupants[w]));
+                }
+            }
+            List<HamsterState> hamsters = new ArrayList<>();
+            for (int h = 0; h < rounds.length; h++) {
+                boolean hasRounds = (hamsterFlags[h] & HAS_ROUNDS) != 0;
+                if (!hasRounds && lastActivity[h] == 0L) continue;
+                hamsters.add(new HamsterState(ids.hamsters().name(h), rounds[h], hasRounds, lastActivity[h],
+                        (hamsterFlags[h] & ALERTED) != 0));
+            }
+            List<SensorState> sensors = new ArrayList<>();
+            for (int s = 0; s < failedSince.length; s++) {
+                if ((sensorFlags[s] & FAILED) == 0) continue;
+                sensors.add(new SensorState(ids.sensors().name(s), failedSince[s], (sensorFlags[s] & ALERTED) != 0));
+            }
+            List<SequenceState> sequences = new ArrayList<>();
+            for (int s = 0; s < sequenceTop.length; s++) {
+                if (sequenceTop[s] == 0L) continue;
+                sequences.add(new SequenceState(ids.sensors().name(s), sequenceTop[s], sequenceBits[s]));
+            }
+            return new StateSnapshot(takenAtMs, walSegment, occupantsById, hamsters, sensors, sequences);
+        }
+    }
+
+    public void restoreInto(HamsterTrackerRepository repository) {
+        occupants.forEach(repository::setOccupant);
+        for (HamsterState h : hamsters) {
+            if (h.hasRounds()) {
+                repository.addRounds(h.id(), h.rounds());
+            }
+            if (h.lastActivityMs() != 0L) {
+                repository.updateLastActivity(h.id(), Instant.ofEpochMilli(h.lastActivityMs()));
+            }
+            repository.setInactivityAlerted(h.id(), h.inactivityAlerted());
+        }
+        for (SensorState s : sensors) {
+            repository.markSensorFailed(s.id(), Instant.ofEpochMilli(s.failedSinceMs()));
+            repository.setSensorAlerted(s.id(), s.alerted());
+        }
+        for (SequenceState q : sequences) {
+            int source = repository.ids().sensors().intern(q.sourceId());
+            if (source >= 0) {
+                repository.setSequenceWindow(source, q.top(), q.bits());
+            }
+        }
+    }
+
+    //Пишет снимок в dir и возвращает размер файла
+    public long writeTo(Path dir) throws IOException {
+        Files.createDirectories(dir);
+        Path target = dir.resolve("%020d%s".formatted(takenAtMs, SUFFIX));
+        Path tmp = dir.resolve(target.getFileName() + ".tmp");
+        CRC32C crc = new CRC32C();
+        try (OutputStream file = Files.newOutputStream(tmp);
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new CheckedOutputStream(file, crc), 64 * 1024))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(takenAtMs);
+            out.writeLong(walSegment);
+            out.writeInt(occupants.size());
+            for (Map.Entry<String, String> e : occupants.entrySet()) {
+                out.writeUTF(e.getKey());
+                out.writeUTF(e.getValue());
+            }
+            out.writeInt(hamsters.size());
+            for (HamsterState h : hamsters) {
+                out.writeUTF(h.id());
+                out.writeInt(h.rounds());
+                out.writeBoolean(h.hasRounds());
+                out.writeLong(h.lastActivityMs());
+                out.writeBoolean(h.inactivityAlerted());
+            }
+            out.writeInt(sensors.size());
+            for (SensorState s : sensors) {
+                out.writeUTF(s.id());
+                out.writeLong(s.failedSinceMs());
+                out.writeBoolean(s.alerted());
+            }
+            out.writeInt(sequences.size());
+            for (SequenceState q : sequences) {
+                out.writeUTF(q.sourceId());
+                out.writeLong(q.top());
+                out.writeLong(q.bits());
+            }
+            out.flush();
+            new DataOutputStream(file).writeInt((int) crc.getValue());
+        }
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.WRITE)) {
+            channel.force(true);
+        }
+        Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE);
+        return Files.size(target);
+    }
+
+    //Самый свежий снимок, который читается без ошибок; битые пропускаются с предупреждением
+    public static Optional<StateSnapshot> readLatest(Path dir) throws IOException {
+        for (Path file : list(dir).reversed()) {
+            try {
+                return Optional.of(read(file));
+            } catch (IOException | RuntimeException e) {
+                log.warn("Snapshot {} is unreadable, trying an older one: {}", file.getFileName(), e.toString());
+            }
+        }
+        return Optional.empty();
+    }
+
+    //Снимки по возрастанию времени; недописанные .tmp не входят
+    public static List<Path> list(Path dir) throws IOException {
+        if (!Files.isDirectory(dir)) return List.of();
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(p -> p.getFileName().toString().endsWith(SUFFIX))
+                    .sorted(Comparator.comparing(p -> p.getFileName().toString()))
+                    .toList();
+        }
+    }
+
+    //Только заголовок: первый непокрытый сегмент WAL
+    public static long walSegmentOf(Path file) throws IOException {
+        try (DataInputStream in = new DataInputStream(Files.newInputStream(file))) {
+            if (in.readInt() != MAGIC) throw new IOException("bad magic in " + file.getFileName());
+            in.readInt();
+            in.readLong();
+            return in.readLong();
+        }
+    }
+
+    static StateSnapshot read(Path file) throws IOException {
+        long size = Files.size(file);
+        CRC32C crc = new CRC32C();
+        try (InputStream raw = Files.newInputStream(file)) {
+            CheckedInputStream checked = new CheckedInputStream(new BufferedInputStream(raw, 64 * 1024), crc);
+            DataInputStream in = new DataInputStream(checked);
+            if (in.readInt() != MAGIC) throw new IOException("bad magic");
+            int version = in.readInt();
+            if (version < 1 || version > VERSION) throw new IOException("unsupported version " + version);
+            long takenAt = in.readLong();
+            long walSegment = in.readLong();
+            int occupantCount = in.readInt();
+            Map<String, String> occupants = new HashMap<>(Math.max(16, occupantCount * 2));
+            for (int i = 0; i < occupantCount; i++) {
+                occupants.put(in.readUTF(), in.readUTF());
+            }
+            int hamsterCount = in.readInt();
+            List<HamsterState> hamsters = new ArrayList<>(hamsterCount);
+            for (int i = 0; i < hamsterCount; i++) {
+                hamsters.add(new HamsterState(in.readUTF(), in.readInt(), in.readBoolean(), in.readLong(), in.readBoolean()));
+            }
+            int sensorCount = in.readInt();
+            List<SensorState> sensors = new ArrayList<>(sensorCount);
+            for (int i = 0; i < sensorCount; i++) {
+                sensors.add(new SensorState(in.readUTF(), in.readLong(), in.readBoolean()));
+            }
+            // снимки версии 1 окон не хранят: повторы до снимка тогда распознаются только по журналу
+            int sequenceCount = version < 2 ? 0 : in.readInt();
+            List<SequenceState> sequences = new ArrayList<>(sequenceCount);
+            for (int i = 0; i < sequenceCount; i++) {
+                sequences.add(new SequenceState(in.readUTF(), in.readLong(), in.readLong()));
+            }
+            int expected = (int) crc.getValue();
+            int stored = new DataInputStream(checked).readInt();
+            if (stored != expected || checked.read() != -1) {
+                throw new IOException("checksum mismatch (" + size + " bytes)");
+            }
+            return new StateSnapshot(takenAt, walSegment, occupants, hamsters, sensors, sequences);
+        }
+    }
+
+    public long takenAtMs() {
+        return takenAtMs;
+    }
+
+    //Первый сегмент WAL, который в снимок не вошёл; 0 — снимок без WAL
+    public long walSegment() {
+        return walSegment;
+    }
+
+    public int hamsterCount() {
+        return hamsters.size();
+    }
+
+    public int sensorCount() {
+        return sensors.size();
+    }
+
+    public int occupantCount() {
+        return occupants.size();
+    }
+
+    public int sequenceCount() {
+        return sequences.size();
+    }
+}
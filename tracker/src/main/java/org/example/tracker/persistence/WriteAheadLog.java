@@ -0,0 +1,538 @@
+package org.example.tracker.persistence;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.example.tracker.codec.HamsterEventBinaryCodec;
+import org.example.tracker.db.HamsterTrackerRepository;
+import org.example.tracker.db.IdDictionary;
+import org.example.tracker.domain.DailyReport;
+import org.example.tracker.domain.TrackerListener;
+import org.example.tracker.domain.eventDto.HamsterEvent;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Журнал применённых событий (write-ahead log). Запись: [длина тела:int][crc32c тела:int][тело],
+ * тело — [вид:byte][время epoch millis:long][данные]; событие хранится в формате HamsterEventBinaryCodec.
+ * <p>
+ * Сегменты NNN.wal ротируются по размеру. Записи копятся в буферах потоков-писателей (у каждого шарда свой,
+ * запись события берёт только монитор своего буфера), и раз в fsync-interval-ms поток синхронизации сливает их
+ * в файл и закрепляет одним fsync на всю пачку (group commit): после падения ОС может потеряться
+ * не больше одного интервала. Порядок записей одного потока сохраняется; события разных шардов и так
+ * применяются без общего порядка. Каждый запуск пишет в новый сегмент; всё, что было до него, читает {@link StateRecovery}.
+ * <p>
+ * Смена суток в журнале — две отметки. Когда начинаются следующие сутки (первый зачёт в них
+ * или сама смена, см. {@link TrackerListener#onNextDayStarted}), журнал начинает новый сегмент с записи DAY
+ * и переносимого состояния (занятость колёс, активность, отказы датчиков, окна номеров источников):
+ * всё, что зачтено в новые сутки, лежит уже после неё. Засев копируется под блокировкой файла, шарды тем временем
+ * пишут в свои буферы и попадают в файл после него. Когда прежние сутки закрыты, пишется RESET и удаляются сегменты до отметки DAY —
+ * в них только закрытые сутки. Проигрывание зачитывает события в сутки по их времени относительно отметок.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "tracker.wal.enabled", havingValue = "true")
+public class WriteAheadLog implements TrackerListener {
+
+    static final byte EVENT = 1;
+    static final byte RESET = 2;
+    static final byte OCCUPANT = 3;
+    static final byte ACTIVITY = 4;
+    static final byte SENSOR_FAILURE = 5;
+    static final byte DAY = 6;
+    static final byte SEQUENCE = 7;
+
+    static final int RECORD_HEADER = 8;
+    static final int MAX_BODY = 1 << 20;
+    private static final int BUFFER_BYTES = 256 * 1024;
+    private static final int LANE_BYTES = 64 * 1024;
+    private static final String SUFFIX = ".wal";
+
+    private final HamsterTrackerRepository repository;
+    private final Path dir;
+    private final long segmentBytes;
+    private final long fsyncIntervalMs;
+
+    //Файл и сегменты; пишут в файл только держатели блокировки — поток синхронизации, отметки суток и ротации
+    private final Object lock = new Object();
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_BYTES);
+    private final List<Lane> lanes = new CopyOnWriteArrayList<>();
+    private final ThreadLocal<Lane> lane = ThreadLocal.withInitial(this::newLane);
+    private final ScheduledExecutorService syncer = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "hamster-wal-sync");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private List<Path> previousSegments = List.of();
+    private FileChannel channel;
+    private long segmentIndex;
+    private long segmentSize;
+    private volatile boolean closed;
+    //Сегмент с отметкой DAY текущей смены суток; -1 — следующие сутки ещё не начались
+    private long daySegment = -1;
+
+    @Autowired
+    public WriteAheadLog(HamsterTrackerRepository repository,
+                         @Value("${tracker.wal.dir:data/wal}") String dir,
+                         @Value("${tracker.wal.segment-bytes:67108864}") long segmentBytes,
+                         @Value("${tracker.wal.fsync-interval-ms:50}") long fsyncIntervalMs) {
+        this(repository, Path.of(dir), segmentBytes, fsyncIntervalMs);
+    }
+
+    public WriteAheadLog(HamsterTrackerRepository repository, Path dir, long segmentBytes, long fsyncIntervalMs) {
+        this.repository = repository;
+        this.dir = dir;
+        this.segmentBytes = segmentBytes;
+        this.fsyncIntervalMs = fsyncIntervalMs;
+    }
+
+    @PostConstruct
+    public void open() {
+        try {
+            Files.createDirectories(dir);
+            previousSegments = listSegments();
+            long last = previousSegments.isEmpty() ? 0 : indexOf(previousSegments.get(previousSegments.size() - 1));
+            synchronized (lock) {
+                openSegment(last + 1);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open WAL in " + dir, e);
+        }
+        syncer.scheduleWithFixedDelay(this::syncSafe, fsyncIntervalMs, fsyncIntervalMs, TimeUnit.MILLISECONDS);
+        log.info("WAL opened in {}: {} earlier segments, writing segment {}, fsync every {} ms",
+                dir.toAbsolutePath(), previousSegments.size(), segmentIndex, fsyncIntervalMs);
+    }
+
+    @PreDestroy
+    public void close() {
+        // без прерывания: прерванный посреди force() поток закрывает FileChannel
+        syncer.shutdown();
+        try {
+            syncer.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (lock) {
+            if (closed) return;
+            closed = true;
+            try {
+                flushLanesLocked();
+                drain();
+                channel.force(false);
+                channel.close();
+            } catch (IOException | UncheckedIOException e) {
+                log.error("WAL close failed: {}", e.toString(), e);
+            }
+        }
+    }
+
+    //Сегменты, записанные до этого запуска, по порядку — их проигрывает StateRecovery
+    public List<Path> previousSegments() {
+        return previousSegments;
+    }
+
+    @Override
+    public void onEventApplied(HamsterEvent event, Instant at) {
+        byte[] payload = HamsterEventBinaryCodec.encode(event);
+        append(record(EVENT, at.toEpochMilli(), payload));
+    }
+
+    //Та же запись, что при засеве: последняя активность и отметка «не сообщать»
+    @Override
+    public void onInactivityMuted(int hamster, Instant at) {
+        append(record(ACTIVITY, at.toEpochMilli(),
+                stringAndFlag(repository.ids().hamsters().name(hamster), true)));
+    }
+
+    @Override
+    public void onNextDayStarted(long startMs) {
+        synchronized (lock) {
+            if (closed) return;
+            try {
+                flushLanesLocked(); // записанное до отметки остаётся до неё
+                if (daySegment < 0) {
+                    startDayLocked(startMs);
+                } else {
+                    appendLocked(record(DAY, startMs, new byte[0])); // начало уточнено, засев уже есть
+                }
+            } catch (IOException | UncheckedIOException e) {
+                log.error("WAL day mark failed: {}", e.toString(), e);
+            }
+        }
+    }
+
+    @Override
+    public void onDailyReset(DailyReport report) {
+        synchronized (lock) {
+            if (closed) return;
+            try {
+                long now = System.currentTimeMillis();
+                flushLanesLocked();
+                if (daySegment < 0) {
+                    startDayLocked(now); // смена без отметки начала суток — отметка сейчас
+                }
+                appendLocked(record(RESET, now, new byte[0]));
+                drain();
+                channel.force(false);
+                int removed = deleteSegmentsBeforeLocked(daySegment);
+                previousSegments = List.of();
+                log.info("WAL reset: day started in segment {}, {} old segments removed", daySegment, removed);
+                daySegment = -1;
+            } catch (IOException | UncheckedIOException e) {
+                log.error("WAL reset failed: {}", e.toString(), e);
+            }
+        }
+    }
+
+    //Новый сегмент с отметкой DAY и засевом: после удаления старых сегментов с него начнётся проигрывание.
+    //Буферы потоков уже слиты; всё, что шарды запишут во время копирования, ляжет после засева
+    private void startDayLocked(long startMs) throws IOException {
+        rotate();
+        daySegment = segmentIndex; // засев может сам перейти в следующий сегмент
+        long now = System.currentTimeMillis();
+        appendLocked(record(DAY, startMs, new byte[0]));
+        // окна номеров первыми: номер отмечается после применения события, и отмеченное событие
+        // уже видно в занятости и активности, скопированных следом
+        IdDictionary sources = repository.ids().sensors();
+        for (int s = 0, n = sources.size(); s < n; s++) {
+            long top = repository.getSequenceTop(s);
+            if (top != 0L) {
+                long bits = repository.getSequenceBits(s);
+                String source = sources.name(s);
+                seedLocked(SEQUENCE, now, () -> stringAndWindow(source, top, bits));
+            }
+        }
+        repository.getAllOccupants().forEach((wheel, hamster) ->
+                seedLocked(OCCUPANT, now, () -> strings(wheel, hamster)));
+        repository.getAllLastActivity().forEach((hamster, last) ->
+                seedLocked(ACTIVITY, last.toEpochMilli(),
+                        () -> stringAndFlag(hamster, repository.isInactivityAlerted(hamster))));
+        repository.getAllSensorFailures().forEach((sensor, since) ->
+                seedLocked(SENSOR_FAILURE, since.toEpochMilli(),
+                        () -> stringAndFlag(sensor, repository.isSensorAlerted(sensor))));
+        log.info("WAL day mark: next day from {} starts in segment {}", Instant.ofEpochMilli(startMs), daySegment);
+    }
+
+    //Одна запись засева; id, не помещающийся в запись, пропускается, остальной засев не прерывается
+    private void seedLocked(byte kind, long atMillis, Supplier<byte[]> data) {
+        try {
+            appendLocked(record(kind, atMillis, data.get()));
+        } catch (IllegalArgumentException e) {
+            log.error("WAL seed record {} skipped: {}", kind, e.getMessage());
+        }
+    }
+
+    //true — следующие сутки начались, а прежние ещё не закрыты
+    public boolean daySwitchPending() {
+        synchronized (lock) {
+            return daySegment >= 0;
+        }
+    }
+
+    //Начинает новый сегмент; всё, что применено до вызова, лежит в сегментах с меньшими номерами.
+    //-1 — идёт смена суток: снимок держит только открытые сутки, а сегменты с зачётами в следующие удалять нельзя
+    public long rollover() {
+        synchronized (lock) {
+            if (closed) {
+                throw new IllegalStateException("WAL is closed");
+            }
+            if (daySegment >= 0) {
+                return -1;
+            }
+            try {
+                flushLanesLocked();
+                rotate();
+            } catch (IOException e) {
+                throw new UncheckedIOException("WAL rollover failed", e);
+            }
+            return segmentIndex;
+        }
+    }
+
+    //Удаляет сегменты, уже покрытые снимком состояния
+    public int deleteSegmentsBefore(long index) {
+        synchronized (lock) {
+            try {
+                return deleteSegmentsBeforeLocked(Math.min(index, segmentIndex));
+            } catch (IOException e) {
+                log.error("WAL cleanup failed: {}", e.toString(), e);
+                return 0;
+            }
+        }
+    }
+
+    private void append(byte[] record) {
+        if (closed) return;
+        if (lane.get().offer(record)) return;
+        // буфер потока полон или запись больше него: все буферы сливаются сейчас, запись идёт следом
+        synchronized (lock) {
+            if (closed) return;
+            flushLanesLocked();
+            appendLocked(record);
+        }
+    }
+
+    private Lane newLane() {
+        Lane created = new Lane();
+        lanes.add(created);
+        return created;
+    }
+
+    //Переносит буферы потоков в файл по записи, чтобы ротация по размеру шла между записями.
+    //Буфер завершившегося потока после слива больше не нужен
+    private void flushLanesLocked() {
+        for (Lane l : lanes) {
+            ByteBuffer data = l.take();
+            if (data == null) {
+                if (!l.owner.isAlive()) {
+                    lanes.remove(l);
+                }
+                continue;
+            }
+            while (data.hasRemaining()) {
+                int length = RECORD_HEADER + data.getInt(data.position());
+                appendLocked(data.slice(data.position(), length));
+                data.position(data.position() + length);
+            }
+            data.clear();
+        }
+    }
+
+    private void appendLocked(byte[] record) {
+        appendLocked(ByteBuffer.wrap(record));
+    }
+
+    private void appendLocked(ByteBuffer record) {
+        try {
+            int length = record.remaining();
+            if (buffer.remaining() < length) {
+                drain();
+            }
+            if (length > buffer.capacity()) {
+                writeFully(record);
+            } else {
+                buffer.put(record);
+            }
+            segmentSize += length;
+            if (segmentSize >= segmentBytes) {
+                rotate();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("WAL append failed", e);
+        }
+    }
+
+    //Group commit: всё накопленное за интервал уходит в файл и закрепляется одним fsync
+    private void syncSafe() {
+        FileChannel current;
+        synchronized (lock) {
+            if (closed) return;
+            try {
+                flushLanesLocked();
+                drain();
+            } catch (IOException | UncheckedIOException e) {
+                log.error("WAL flush failed: {}", e.toString(), e);
+                return;
+            }
+            current = channel;
+        }
+        try {
+            current.force(false);
+        } catch (ClosedChannelException e) {
+            // сегмент уже закрыт ротацией, она сама делает fsync
+        } catch (IOException e) {
+            log.error("WAL fsync failed: {}", e.toString(), e);
+        }
+    }
+
+    private void rotate() throws IOException {
+        drain();
+        channel.force(false);
+        channel.close();
+        openSegment(segmentIndex + 1);
+        log.debug("WAL rotated to segment {}", segmentIndex);
+    }
+
+    private void openSegment(long index) throws IOException {
+        segmentIndex = index;
+        segmentSize = 0;
+        channel = FileChannel.open(segmentPath(dir, index),
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+    }
+
+    private void drain() throws IOException {
+        if (buffer.position() == 0) return;
+        buffer.flip();
+        writeFully(buffer);
+        buffer.clear();
+    }
+
+    private void writeFully(ByteBuffer data) throws IOException {
+        while (data.hasRemaining()) {
+            channel.write(data);
+        }
+    }
+
+    private List<Path> listSegments() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(p -> p.getFileName().toString().endsWith(SUFFIX))
+                    .sorted((a, b) -> Long.compare(indexOf(a), indexOf(b)))
+                    .toList();
+        }
+    }
+
+    private int deleteSegmentsBeforeLocked(long index) throws IOException {
+        int removed = 0;
+        for (Path segment : listSegments()) {
+            if (indexOf(segment) < index) {
+                Files.deleteIfExists(segment);
+                removed++;
+            }
+        }
+        return removed;
+    }
+
+    static Path segmentPath(Path dir, long index) {
+        return dir.resolve("%020d%s".formatted(index, SUFFIX));
+    }
+
+    public static long indexOf(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(0, name.length() - SUFFIX.length()));
+    }
+
+    static byte[] record(byte kind, long atMillis, byte[] data) {
+        int bodyLength = 1 + Long.BYTES + data.length;
+        ByteBuffer out = ByteBuffer.allocate(RECORD_HEADER + bodyLength);
+        out.putInt(bodyLength).putInt(0).put(kind).putLong(atMillis).put(data);
+        CRC32C crc = new CRC32C();
+        crc.update(out.array(), RECORD_HEADER, bodyLength);
+        out.putInt(4, (int) crc.getValue());
+        return out.array();
+    }
+
+    static byte[] strings(String first, String second) {
+        byte[] a = utf8(first);
+        byte[] b = utf8(second);
+        return ByteBuffer.allocate(4 + a.length + b.length)
+                .putShort((short) a.length).put(a)
+                .putShort((short) b.length).put(b)
+                .array();
+    }
+
+    static byte[] stringAndFlag(String value, boolean flag) {
+        byte[] a = utf8(value);
+        return ByteBuffer.allocate(3 + a.length)
+                .putShort((short) a.length).put(a)
+                .put((byte) (flag ? 1 : 0))
+                .array();
+    }
+
+    static byte[] stringAndWindow(String value, long top, long bits) {
+        byte[] a = utf8(value);
+        return ByteBuffer.allocate(2 + a.length + 2 * Long.BYTES)
+                .putShort((short) a.length).put(a)
+                .putLong(top).putLong(bits)
+                .array();
+    }
+
+    //Длина строки в записи — два байта: длинный id отвергается, а не усекается
+    private static byte[] utf8(String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > 0xFFFF) {
+            throw new IllegalArgumentException("Id too long for WAL: " + bytes.length + " bytes");
+        }
+        return bytes;
+    }
+
+    static String readString(ByteBuffer in) {
+        byte[] bytes = new byte[in.getShort() & 0xFFFF];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    //Буфер одного потока-писателя; слив подменяет его запасным, и поток пишет дальше, не дожидаясь файла
+    private static final class Lane {
+        final Thread owner = Thread.currentThread();
+        private ByteBuffer active = ByteBuffer.allocate(LANE_BYTES);
+        private ByteBuffer spare = ByteBuffer.allocate(LANE_BYTES);
+
+        synchronized boolean offer(byte[] record) {
+            if (active.remaining() < record.length) return false;
+            active.put(record);
+            return true;
+        }
+
+        //Накопленное, готовое к чтению; null — пусто. Только под lock журнала: отданный буфер
+        //возвращается потоку следующим вызовом, к тому времени он уже записан и очищен
+        synchronized ByteBuffer take() {
+            if (active.position() == 0) return null;
+            ByteBuffer taken = active;
+            active = spare;
+            spare = taken;
+            return taken.flip();
+        }
+    }
+
+    //Обработчик одной записи при чтении сегмента; data — только данные записи
+    interface RecordHandler {
+        void onRecord(byte kind, long atMillis, ByteBuffer data);
+    }
+
+    /**
+     * Читает сегмент по порядку. Недописанная или битая запись (падение посреди записи)
+     * заканчивает чтение: всё после неё не могло быть подтверждено fsync раньше неё.
+     */
+    static long readSegment(Path segment, RecordHandler handler) throws IOException {
+        ByteBuffer in = ByteBuffer.wrap(Files.readAllBytes(segment));
+        CRC32C crc = new CRC32C();
+        long records = 0;
+        while (in.remaining() >= RECORD_HEADER) {
+            int start = in.position();
+            int bodyLength = in.getInt();
+            int expectedCrc = in.getInt();
+            if (bodyLength < 1 + Long.BYTES || bodyLength > MAX_BODY || bodyLength > in.remaining()) {
+                in.position(start);
+                break;
+            }
+            crc.reset();
+            crc.update(in.array(), in.position(), bodyLength);
+            if ((int) crc.getValue() != expectedCrc) {
+                in.position(start);
+                break;
+            }
+            int end = in.position() + bodyLength;
+            byte kind = in.get();
+            long at = in.getLong();
+            handler.onRecord(kind, at, in.slice(in.position(), end - in.position()));
+            in.position(end);
+            records++;
+        }
+        if (in.hasRemaining()) {
+            log.warn("WAL segment {}: ignoring {} trailing bytes of an incomplete record", segment.getFileName(), in.remaining());
+        }
+        return records;
+    }
+}
@@ -0,0 +1,97 @@
+package org.example.tracker;
+
+import org.example.tracker.domain.AlertDispatcher;
+import org.example.tracker.domain.AlertKind;
+import org.example.tracker.domain.AlertService;
+import org.example.tracker.domain.AlertStats;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class AlertDispatcherTest {
+
+    AlertDispatcher dispatcher;
+
+    @AfterEach
+    void tearDown() {
+        if (dispatcher != null) dispatcher.stop();
+    }
+
+    @Test
+    void burstOfSameKind_coalescedIntoOneDigest() throws Exception {
+        List<String> sent = new CopyOnWriteArrayList<>();
+        dispatcher = new AlertDispatcher(List.of(sent::add), 1_000, 200, 2, 3, 10);
+        dispatcher.start();
+
+        for (int i = 0; i < 300; i++) {
+            dispatcher.submit(AlertKind.SENSOR_DOWN, "s" + i, "Sensor s" + i + " is down for 31 minutes");
+        }
+        dispatcher.submit(AlertKind.INACTIVITY, "h1", "Hamster h1 inactive for 61 minutes");
+
+        await(() -> sent.size() >= 2);
+        assertThat(sent).hasSize(2)
+                .anyMatch(m -> m.startsWith("Sensors down (300): s0, s1") && m.endsWith("and 250 more"))
+                .contains("Hamster h1 inactive for 61 minutes");
+        AlertStats stats = dispatcher.stats();
+        assertThat(stats.submitted()).isEqualTo(301);
+        assertThat(stats.digests()).isEqualTo(1);
+        assertThat(stats.delivered()).isEqualTo(2);
+    }
+
+    @Test
+    void failingSink_retriedWithBackoff_slowSinkDoesNotBlockSubmit() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        AlertService flaky = message -> {
+            if (calls.incrementAndGet() <= 2) throw new IllegalStateException("smtp down");
+        };
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        AlertService slow = message -> {
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(300);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                inFlight.decrementAndGet();
+            }
+        };
+        dispatcher = new AlertDispatcher(List.of(flaky, slow), 1_000, 0, 2, 5, 10);
+        dispatcher.start();
+
+        long started = System.nanoTime();
+        for (int i = 0; i < 6; i++) {
+            assertThat(dispatcher.submit(AlertKind.INACTIVITY, "h" + i, "Hamster h" + i + " inactive")).isTrue();
+            Thread.sleep(20); // без окна каждый алерт уходит отдельным сообщением
+        }
+        assertThat((System.nanoTime() - started) / 1_000_000).isLessThan(1_000);
+
+        await(() -> dispatcher.stats().delivered() == 12);
+        AlertStats stats = dispatcher.stats();
+        assertThat(stats.retries()).isEqualTo(2);
+        assertThat(stats.failed()).isZero();
+        assertThat(maxInFlight.get()).isLessThanOrEqualTo(2);
+        assertThat(stats.maxLatencyMs()).isGreaterThanOrEqualTo(300);
+    }
+
+    @Test
+    void submitBeforeStart_droppedAndCounted() {
+        dispatcher = new AlertDispatcher(List.of(message -> { }), 2, 0, 1, 1, 0);
+        // не запущен: очередь не разбирается, submit отбрасывает
+        assertThat(dispatcher.submit(AlertKind.INACTIVITY, "h1", "m")).isFalse();
+        assertThat(dispatcher.stats().dropped()).isEqualTo(1);
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (!condition.getAsBoolean() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+}
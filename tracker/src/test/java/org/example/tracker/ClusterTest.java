@@ -0,0 +1,294 @@
+package org.example.tracker;
+
+import org.example.tracker.cluster.ClusterReport;
+import org.example.tracker.cluster.ClusterRouter;
+import org.example.tracker.cluster.HashRing;
+import org.example.tracker.codec.BinaryFrameReader;
+import org.example.tracker.codec.HamsterEventBinaryCodec;
+import org.example.tracker.db.HamsterTrackerRepository;
+import org.example.tracker.domain.Admission;
+import org.example.tracker.domain.HamsterTrackerService;
+import org.example.tracker.domain.ShardedEventProcessor;
+import org.example.tracker.domain.eventDto.HamsterEnter;
+import org.example.tracker.domain.eventDto.HamsterEvent;
+import org.example.tracker.domain.eventDto.HamsterExit;
+import org.example.tracker.domain.eventDto.WheelSpin;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.HttpMessageWriter;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.mock.http.client.reactive.MockClientHttpRequest;
+import org.springframework.web.reactive.function.BodyInserter;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import org.springframework.web.reactive.function.client.ExchangeStrategies;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Три узла трекера на localhost. События шлются в один узел, а оседают у владельцев колёс;
+ * суточный отчёт собирается со всех узлов.
+ */
+public class ClusterTest {
+
+    private static final int NODES = 3;
+
+    private static final List<String> urls = new ArrayList<>();
+    private static final List<ConfigurableApplicationContext> contexts = new ArrayList<>();
+    private static HashRing ring;
+
+    @BeforeAll
+    static void startNodes() throws IOException {
+        List<Integer> ports = new ArrayList<>();
+        for (int i = 0; i < NODES; i++) {
+            try (ServerSocket socket = new ServerSocket(0)) {
+                ports.add(socket.getLocalPort());
+            }
+        }
+        ports.forEach(port -> urls.add("http://localhost:" + port));
+        String nodes = String.join(",", urls);
+        ring = new HashRing(urls, 128);
+        for (int i = 0; i < NODES; i++) {
+            contexts.add(new SpringApplicationBuilder(TrackerApplication.class)
+                    .run("--server.port=" + ports.get(i),
+                            "--tracker.cluster.nodes=" + nodes,
+                            "--tracker.cluster.self=" + urls.get(i),
+                            "--tracker.wal.enabled=false",
+                            "--tracker.snapshot.enabled=false",
+                            "--tracker.history.enabled=false"));
+        }
+    }
+
+    @AfterAll
+    static void stopNodes() {
+        contexts.forEach(ConfigurableApplicationContext::close);
+    }
+
+    @Test
+    void eventsSentToOneNode_landOnWheelOwners() {
+        List<HamsterEvent> events = new ArrayList<>();
+        for (int i = 0; i < 60; i++) {
+            events.add(new HamsterEnter("ch" + i, "cw" + i));
+            events.add(new WheelSpin("cw" + i, 10_000)); // два круга
+        }
+        post(urls.get(0), events);
+
+        for (int i = 0; i < 60; i++) {
+            String hamster = "ch" + i;
+            int owner = ring.ownerIndex("cw" + i);
+            await().atMost(Duration.ofSeconds(10))
+                    .untilAsserted(() -> assertThat(repository(owner).getRounds(hamster)).isEqualTo(2));
+            for (int node = 0; node < NODES; node++) {
+                if (node != owner) {
+                    assertThat(repository(node).getOccupant("cw" + i)).as("node %d", node).isNull();
+                    assertThat(repository(node).getRounds(hamster)).as("node %d", node).isZero();
+                }
+            }
+        }
+        // колёса разошлись по всем узлам
+        assertThat(IntStream.range(0, 60).map(i -> ring.ownerIndex("cw" + i)).distinct().count()).isEqualTo(NODES);
+    }
+
+    @Test
+    void clusterReport_sumsHamsterAcrossNodes() {
+        String first = wheelOwnedBy(0);
+        String second = wheelOwnedBy(1);
+        post(urls.get(2), List.of(
+                new HamsterEnter("rh1", first),
+                new WheelSpin(first, 10_000),
+                new HamsterExit("rh1", first),
+                new HamsterEnter("rh1", second),
+                new WheelSpin(second, 15_000)));
+
+        await().atMost(Duration.ofSeconds(10)).untilAsserted(() -> {
+            ClusterReport report = WebClient.create(urls.get(2)).get().uri("/tracker/reports/today")
+                    .retrieve().bodyToMono(ClusterReport.class).block(Duration.ofSeconds(5));
+            assertThat(report.missingNodes()).isEmpty();
+            assertThat(report.hamsterStats().get("rh1").getTotalRounds()).isEqualTo(5);
+        });
+        assertThat(repository(0).getRounds("rh1")).isEqualTo(2);
+        assertThat(repository(1).getRounds("rh1")).isEqualTo(3);
+    }
+
+    @Test
+    void hamsterMovedToAnotherNode_oldNodeMutesInactivity_untilItReturns() {
+        String first = wheelOwnedBy(0, "mw");
+        String second = wheelOwnedBy(1, "mw");
+        long t0 = System.currentTimeMillis() - 60_000; // время датчиков: порядок не зависит от доставки между узлами
+        post(urls.get(2), List.of(at(new HamsterEnter("mh1", first), t0), at(new WheelSpin(first, 10_000), t0 + 1_000),
+                at(new HamsterExit("mh1", first), t0 + 2_000)));
+        await().atMost(Duration.ofSeconds(10)).untilAsserted(() -> {
+            assertThat(repository(0).getRounds("mh1")).isEqualTo(2);
+            assertThat(repository(0).getOccupant(first)).isNull();
+        });
+        assertThat(repository(0).isInactivityAlerted("mh1")).isFalse();
+
+        // хомяк перешёл на колесо второго узла: первый о его простое больше не сообщает
+        post(urls.get(2), List.of(at(new HamsterEnter("mh1", second), t0 + 3_000), at(new WheelSpin(second, 5_000), t0 + 4_000)));
+        await().atMost(Duration.ofSeconds(10)).untilAsserted(() -> {
+            assertThat(repository(1).getRounds("mh1")).isEqualTo(1);
+            assertThat(repository(0).isInactivityAlerted("mh1")).isTrue();
+        });
+        assertThat(repository(1).isInactivityAlerted("mh1")).isFalse();
+        assertThat(repository(2).getAllLastActivity()).doesNotContainKey("mh1"); // узел приёма сам хомяка не видел
+
+        // вернулся: следит снова первый узел, а второй, получив выход позже уведомления, отметку не снимает
+        post(urls.get(0), List.of(at(new HamsterExit("mh1", second), t0 + 5_000), at(new HamsterEnter("mh1", first), t0 + 6_000)));
+        await().atMost(Duration.ofSeconds(10)).untilAsserted(() -> {
+            assertThat(repository(1).getOccupant(second)).isNull();
+            assertThat(repository(0).isInactivityAlerted("mh1")).isFalse();
+            assertThat(repository(1).isInactivityAlerted("mh1")).isTrue();
+        });
+    }
+
+    //Те же строки проверяет TrackerNodesTest симулятора: он шлёт событие сразу владельцу, только если кольца совпадают
+    @Test
+    void ring_matchesSimulatorRouting() {
+        HashRing shared = new HashRing(List.of("http://tracker-1:8080", "http://tracker-2:8080", "http://tracker-3:8080"), 128);
+        String wheels = IntStream.range(0, 64).mapToObj(i -> String.valueOf(shared.ownerIndex("wheel-" + i))).collect(Collectors.joining());
+        String sensors = IntStream.range(0, 64).mapToObj(i -> String.valueOf(shared.ownerIndex("sensor-" + i))).collect(Collectors.joining());
+
+        assertThat(wheels).isEqualTo("2002221111001101012202201202112020122002022102111101221012112201");
+        assertThat(sensors).isEqualTo("0110221122011110011021100020011010002222010102002111102010002020");
+    }
+
+    @Test
+    void addingNode_movesAboutItsShareOfKeys() {
+        HashRing grown = new HashRing(List.of("a", "b", "c", "d"), 128);
+        HashRing base = new HashRing(List.of("a", "b", "c"), 128);
+        Map<String, Integer> perNode = new HashMap<>();
+        int moved = 0;
+        for (int i = 0; i < 30_000; i++) {
+            String key = "wheel-" + i;
+            String before = base.owner(key);
+            String after = grown.owner(key);
+            perNode.merge(after, 1, Integer::sum);
+            if (!before.equals(after)) {
+                assertThat(after).isEqualTo("d"); // ключи уходят только к новому узлу
+                moved++;
+            }
+        }
+        assertThat(moved).isBetween(30_000 / 4 - 2_000, 30_000 / 4 + 2_000);
+        perNode.values().forEach(n -> assertThat(n).isBetween(30_000 / 4 - 2_000, 30_000 / 4 + 2_000));
+    }
+
+    @Test
+    void ownerRejection_retriesRest_andClientWaitsForOwner() throws Exception {
+        HashRing pair = new HashRing(List.of("http://a", "http://b"), 128);
+        String wheel = IntStream.range(0, 1_000).mapToObj(i -> "ow" + i)
+                .filter(w -> pair.owner(w).equals("http://b")).findFirst().orElseThrow();
+        List<List<HamsterEvent>> requests = new CopyOnWriteArrayList<>();
+        CountDownLatch firstRequest = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        // владелец-заглушка: первый батч принимает только первое событие (429), дальше — всё
+        ExchangeFunction owner = request -> {
+            MockClientHttpRequest body = new MockClientHttpRequest(request.method(), request.url());
+            request.body().insert(body, new BodyInserter.Context() {
+                public List<HttpMessageWriter<?>> messageWriters() { return ExchangeStrategies.withDefaults().messageWriters(); }
+                public Optional<ServerHttpRequest> serverRequest() { return Optional.empty(); }
+                public Map<String, Object> hints() { return Map.of(); }
+            }).block();
+            byte[] bytes = DataBufferUtils.join(body.getBody()).map(buffer -> {
+                byte[] b = new byte[buffer.readableByteCount()];
+                buffer.read(b);
+                return b;
+            }).block();
+            List<HamsterEvent> events = new BinaryFrameReader().feed(ByteBuffer.wrap(bytes));
+            requests.add(events);
+            boolean first = requests.size() == 1;
+            if (first) {
+                firstRequest.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException ex) {
+                    throw new IllegalStateException(ex);
+                }
+            }
+            long accepted = first ? 1 : events.size();
+            return Mono.just(ClientResponse.create(first ? HttpStatus.TOO_MANY_REQUESTS : HttpStatus.OK)
+                    .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                    .body("{\"accepted\":%d,\"shed\":0,\"rejected\":%d}".formatted(accepted, events.size() - accepted))
+                    .build());
+        };
+        ClusterRouter router = new ClusterRouter(mock(ShardedEventProcessor.class), mock(HamsterTrackerService.class), WebClient.builder().exchangeFunction(owner),
+                "http://a,http://b", "http://a", 128, 1024, 512);
+        router.start();
+        try {
+            List<HamsterEvent> sent = List.of(new WheelSpin(wheel, 5_000), new WheelSpin(wheel, 10_000), new WheelSpin(wheel, 15_000));
+            List<CompletableFuture<Admission>> results = sent.stream().map(router::submit).toList();
+
+            assertThat(firstRequest.await(5, TimeUnit.SECONDS)).isTrue();
+            assertThat(results).noneMatch(CompletableFuture::isDone); // владелец ещё не ответил — клиенту ответа нет
+            release.countDown();
+
+            for (CompletableFuture<Admission> result : results) {
+                assertThat(result.get(5, TimeUnit.SECONDS)).isEqualTo(Admission.ACCEPTED);
+            }
+            // применённое владельцем — ровно отправленное и в том же порядке
+            List<HamsterEvent> applied = new ArrayList<>(requests.get(0).subList(0, 1));
+            requests.subList(1, requests.size()).forEach(applied::addAll);
+            assertThat(applied).containsExactlyElementsOf(sent);
+            assertThat(router.stats().rejectedByOwner()).isEqualTo(requests.get(0).size() - 1);
+        } finally {
+            router.stop();
+        }
+    }
+
+    private static void post(String node, List<HamsterEvent> events) {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        events.forEach(e -> body.writeBytes(HamsterEventBinaryCodec.encodeFrame(e)));
+        WebClient.create(node).post().uri("/tracker/events/batch")
+                .contentType(HamsterEventBinaryCodec.MEDIA_TYPE)
+                .bodyValue(body.toByteArray())
+                .retrieve()
+                .toBodilessEntity()
+                .block(Duration.ofSeconds(5));
+    }
+
+    private static HamsterEvent at(HamsterEvent event, long timestampMs) {
+        event.setTimestamp(timestampMs);
+        return event;
+    }
+
+    private static HamsterTrackerRepository repository(int node) {
+        return contexts.get(node).getBean(HamsterTrackerRepository.class);
+    }
+
+    private static String wheelOwnedBy(int node) {
+        return wheelOwnedBy(node, "rw");
+    }
+
+    private static String wheelOwnedBy(int node, String prefix) {
+        for (int i = 0; ; i++) {
+            if (ring.ownerIndex(prefix + i) == node) return prefix + i;
+        }
+    }
+}
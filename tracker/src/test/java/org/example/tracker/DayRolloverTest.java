@@ -0,0 +1,133 @@
+package org.example.tracker;
+
+import org.example.tracker.db.HamsterTrackerRepository;
+import org.example.tracker.db.InMemoryHamsterTrackerRepository;
+import org.example.tracker.db.PrimitiveArrayHamsterTrackerRepository;
+import org.example.tracker.domain.AlertDispatcher;
+import org.example.tracker.domain.AlertService;
+import org.example.tracker.domain.DailyReport;
+import org.example.tracker.domain.DefoltReportGenerator;
+import org.example.tracker.domain.HamsterStats;
+import org.example.tracker.domain.HamsterTrackerService;
+import org.example.tracker.domain.eventDto.HamsterEnter;
+import org.example.tracker.domain.eventDto.WheelSpin;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Смена суток под нагрузкой: крутки идут из нескольких потоков, пока сутки меняются одна за другой.
+ * Каждый круг должен попасть ровно в одни сутки: ручная смена начинает новые сутки с текущего момента,
+ * и крутка без времени источника, получившая время приёма до смены, а дошедшая до окна после неё, идёт в новые сутки.
+ * Сумма отчётов и открытых суток равна числу кругов, отклонённых нет. Отклоняются только крутки,
+ * у которых время источника — в закрытых сутках.
+ */
+public class DayRolloverTest {
+
+    private static final int THREADS = 4;
+    private static final int SPINS = 20_000;
+
+    @Test
+    void rolloverUnderLoad_losesAndDoublesNothing() throws Exception {
+        for (HamsterTrackerRepository repo : List.of(new InMemoryHamsterTrackerRepository(),
+                new PrimitiveArrayHamsterTrackerRepository())) {
+            HamsterTrackerService service = new HamsterTrackerService(repo, AlertDispatcher.direct(mock(AlertService.class)),
+                    new DefoltReportGenerator(repo), List.of(), 0);
+            for (int t = 0; t < THREADS; t++) {
+                service.accept(new HamsterEnter("h" + t, "w" + t));
+            }
+            ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+            long reported = 0;
+            int reports = 0;
+            try {
+                List<Future<?>> futures = new ArrayList<>();
+                for (int t = 0; t < THREADS; t++) {
+                    String wheel = "w" + t;
+                    futures.add(pool.submit(() -> {
+                        for (int i = 0; i < SPINS; i++) {
+                            service.accept(new WheelSpin(wheel, 5_000)); // один круг
+                        }
+                    }));
+                }
+                while (futures.stream().anyMatch(f -> !f.isDone())) {
+                    reported += total(service.generateDailyReport());
+                    reports++;
+                }
+                for (Future<?> f : futures) f.get();
+            } finally {
+                pool.shutdownNow();
+            }
+            long open = repo.getAllRoundsSnapshot().values().stream().mapToLong(Integer::longValue).sum();
+
+            assertThat(reports).isGreaterThan(1);
+            assertThat(service.closedDaySpins()).as(repo.getClass().getSimpleName()).isZero();
+            assertThat(reported + open).as(repo.getClass().getSimpleName()).isEqualTo((long) THREADS * SPINS);
+        }
+    }
+
+    @Test
+    void spinAfterMidnight_countsInNextDay_withoutWaitingForRollover() {
+        InMemoryHamsterTrackerRepository repo = new InMemoryHamsterTrackerRepository();
+        HamsterTrackerService service = new HamsterTrackerService(repo, AlertDispatcher.direct(mock(AlertService.class)),
+                new DefoltReportGenerator(repo), List.of(), 0);
+        Instant midnight = LocalDate.now().plusDays(1).atStartOfDay(ZoneId.systemDefault()).toInstant();
+        service.accept(new HamsterEnter("h1", "w1"));
+
+        service.accept(new WheelSpin("w1", 10_000), midnight.minusSeconds(1));
+        service.accept(new WheelSpin("w1", 15_000), midnight.plusSeconds(1)); // уже следующие сутки
+        assertThat(repo.getRounds("h1")).isEqualTo(2);
+
+        DailyReport report = service.generateDailyReport();
+        assertThat(report.getHamsterStats().get("h1").getTotalRounds()).isEqualTo(2);
+        assertThat(repo.getRounds("h1")).isEqualTo(3);
+    }
+
+    @Test
+    void lateSpinAfterRollover_rejectedByClosedDay_notMovedToNewDay() {
+        InMemoryHamsterTrackerRepository repo = new InMemoryHamsterTrackerRepository();
+        HamsterTrackerService service = new HamsterTrackerService(repo, AlertDispatcher.direct(mock(AlertService.class)),
+                new DefoltReportGenerator(repo), List.of(), 0);
+        service.accept(new HamsterEnter("h1", "w1"));
+        service.accept(new WheelSpin("w1", 10_000));
+        Instant beforeSwitch = Instant.now().minusSeconds(1);
+
+        DailyReport report = service.generateDailyReport();
+        WheelSpin late = new WheelSpin("w1", 15_000);
+        late.setTimestamp(beforeSwitch.toEpochMilli());
+        service.accept(late, beforeSwitch); // крутка закрытых суток по времени источника пришла после смены
+
+        assertThat(report.getHamsterStats().get("h1").getTotalRounds()).isEqualTo(2);
+        assertThat(repo.getRounds("h1")).isZero();
+        assertThat(service.closedDaySpins()).isEqualTo(1);
+    }
+
+    @Test
+    void unstampedSpinReceivedBeforeSwitch_creditedToNewDay_notLost() {
+        InMemoryHamsterTrackerRepository repo = new InMemoryHamsterTrackerRepository();
+        HamsterTrackerService service = new HamsterTrackerService(repo, AlertDispatcher.direct(mock(AlertService.class)),
+                new DefoltReportGenerator(repo), List.of(), 0);
+        service.accept(new HamsterEnter("h1", "w1"));
+        Instant received = Instant.now().minusSeconds(1);
+
+        service.generateDailyReport();
+        // время приёма взято до смены, а в окно суток крутка вошла уже после неё
+        service.accept(new WheelSpin("w1", 15_000), received);
+
+        assertThat(repo.getRounds("h1")).isEqualTo(3);
+        assertThat(service.closedDaySpins()).isZero();
+    }
+
+    private static long total(DailyReport report) {
+        return report.getHamsterStats().values().stream().mapToLong(HamsterStats::getTotalRounds).sum();
+    }
+}
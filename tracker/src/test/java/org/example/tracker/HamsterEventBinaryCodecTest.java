@@ -0,0 +1,104 @@
+package org.example.tracker;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.tracker.codec.BinaryFrameReader;
+import org.example.tracker.codec.HamsterEventBinaryCodec;
+import org.example.tracker.domain.eventDto.*;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class HamsterEventBinaryCodecTest {
+
+    static final List<HamsterEvent> EVENTS = List.of(
+            new HamsterEnter("hamster-42", "wheel-17"),
+            new HamsterExit("hamster-42", "wheel-17"),
+            new WheelSpin("wheel-17", 12_000),
+            new WheelSpin("wheel-17", -1_000),
+            new SensorFailure("sensor-123", 503),
+            new HamsterEnter(null, "wheel-1")
+    );
+
+    @Test
+    void roundTrip_allEventTypes() {
+        for (HamsterEvent e : EVENTS) {
+            assertThat(HamsterEventBinaryCodec.decode(HamsterEventBinaryCodec.encode(e))).isEqualTo(e);
+        }
+    }
+
+    @Test
+    void roundTrip_keepsOptionalTimestamp() {
+        WheelSpin spin = new WheelSpin("wheel-17", 12_000);
+        spin.setTimestamp(1_700_000_000_123L);
+
+        HamsterEvent decoded = HamsterEventBinaryCodec.decode(HamsterEventBinaryCodec.encode(spin));
+        assertThat(decoded).isEqualTo(spin);
+        assertThat(decoded.getTimestamp()).isEqualTo(1_700_000_000_123L);
+        assertThat(HamsterEventBinaryCodec.decode(HamsterEventBinaryCodec.encode(EVENTS.get(0))).getTimestamp()).isNull();
+    }
+
+    @Test
+    void roundTrip_keepsSourceAndSequence() {
+        SensorFailure failure = new SensorFailure("sensor-123", 503);
+        failure.setTimestamp(1_700_000_000_123L);
+        failure.setSourceId("sensor-123");
+        failure.setSeq(1_700_000_000_000L + 7);
+
+        HamsterEvent decoded = HamsterEventBinaryCodec.decode(HamsterEventBinaryCodec.encode(failure));
+        assertThat(decoded).isEqualTo(failure);
+        assertThat(decoded.getTimestamp()).isEqualTo(1_700_000_000_123L);
+        assertThat(decoded.getSourceId()).isEqualTo("sensor-123");
+        assertThat(decoded.getSeq()).isEqualTo(1_700_000_000_007L);
+        assertThat(HamsterEventBinaryCodec.decode(HamsterEventBinaryCodec.encode(EVENTS.get(0))).getSeq()).isNull();
+    }
+
+    @Test
+    void binary_isSeveralTimesSmallerThanJson() throws Exception {
+        ObjectMapper json = new ObjectMapper();
+        for (HamsterEvent e : EVENTS.subList(0, 5)) {
+            int jsonBytes = json.writerFor(HamsterEvent.class).writeValueAsBytes(e).length;
+            int binaryBytes = HamsterEventBinaryCodec.encodeFrame(e).length;
+            assertThat(binaryBytes * 3).isLessThan(jsonBytes);
+        }
+    }
+
+    @Test
+    void frameReader_reassemblesFramesSplitAcrossChunks() {
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        EVENTS.forEach(e -> stream.writeBytes(HamsterEventBinaryCodec.encodeFrame(e)));
+        byte[] bytes = stream.toByteArray();
+
+        BinaryFrameReader reader = new BinaryFrameReader();
+        List<HamsterEvent> decoded = new ArrayList<>();
+        for (int i = 0; i < bytes.length; i += 3) {
+            decoded.addAll(reader.feed(ByteBuffer.wrap(bytes, i, Math.min(3, bytes.length - i))));
+        }
+
+        assertThat(decoded).containsExactlyElementsOf(EVENTS);
+        assertThat(reader.hasPartialFrame()).isFalse();
+    }
+
+    @Test
+    void decode_rejectsUnknownTagAndTruncatedPayload() {
+        assertThatThrownBy(() -> HamsterEventBinaryCodec.decode(new byte[]{99}))
+                .isInstanceOf(IllegalArgumentException.class);
+        byte[] spin = HamsterEventBinaryCodec.encode(new WheelSpin("wheel-1", 5_000));
+        assertThatThrownBy(() -> HamsterEventBinaryCodec.decode(ByteBuffer.wrap(spin, 0, spin.length - 1)))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void decode_rejectsNegativeStringLength() {
+        // тег WheelSpin и длина id колеса — 10-байтный varint, который разворачивается в -1
+        byte[] payload = {3, -1, -1, -1, -1, -1, -1, -1, -1, -1, 1};
+        assertThatThrownBy(() -> HamsterEventBinaryCodec.decode(payload))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("String length out of range");
+    }
+}
@@ -0,0 +1,196 @@
+package org.example.tracker;
+
+import org.example.tracker.api.BatchResult;
+import org.example.tracker.api.HamsterEventController;
+import org.example.tracker.api.IngestMeter;
+import org.example.tracker.cluster.ClusterRouter;
+import org.example.tracker.codec.BinaryEventDecoder;
+import org.example.tracker.codec.HamsterEventBinaryCodec;
+import org.example.tracker.db.InMemoryHamsterTrackerRepository;
+import org.example.tracker.domain.AlertDispatcher;
+import org.example.tracker.domain.AlertService;
+import org.example.tracker.domain.HamsterTrackerService;
+import org.example.tracker.domain.ReportGenerator;
+import org.example.tracker.domain.ShardedEventProcessor;
+import org.example.tracker.domain.eventDto.HamsterEnter;
+import org.example.tracker.domain.eventDto.WheelSpin;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.io.ByteArrayOutputStream;
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+import static org.mockito.Mockito.mock;
+
+public class HamsterEventControllerTest {
+
+    InMemoryHamsterTrackerRepository repo;
+    ShardedEventProcessor processor;
+    WebTestClient client;
+
+    @BeforeEach
+    void setUp() {
+        repo = new InMemoryHamsterTrackerRepository();
+        HamsterTrackerService service = new HamsterTrackerService(repo, AlertDispatcher.direct(mock(AlertService.class)),
+                mock(ReportGenerator.class), List.of(), 0);
+        processor = new ShardedEventProcessor(service, 2, 1024, 0.5, 0.8, 65_536);
+        processor.start();
+        // без tracker.cluster.nodes узел один и маршрутизации нет
+        ClusterRouter router = new ClusterRouter(processor, service, WebClient.builder(), "", "", 128, 1, 1);
+        client = WebTestClient.bindToController(new HamsterEventController(router, new IngestMeter(), Jackson2ObjectMapperBuilder.json().build(), 1))
+                .httpMessageCodecs(c -> c.customCodecs().register(new BinaryEventDecoder()))
+                .build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        processor.stop();
+    }
+
+    @Test
+    void batch_jsonArray_acceptsAllEvents() {
+        String body = """
+                [
+                  {"type":"HamsterEnter","hamsterId":"h1","wheelId":"w1"},
+                  {"type":"WheelSpin","wheelId":"w1","durationMs":10000},
+                  {"type":"SensorFailure","sensorId":"s1","errorCode":500}
+                ]
+                """;
+
+        BatchResult result = client.post().uri("/tracker/events/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(body)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(BatchResult.class)
+                .returnResult().getResponseBody();
+
+        assertThat(result).isEqualTo(new BatchResult(3, 0, 0));
+        await().atMost(Duration.ofSeconds(5)).untilAsserted(() -> {
+            assertThat(repo.getRounds("h1")).isEqualTo(2);
+            assertThat(repo.getAllSensorFailures()).containsKey("s1");
+        });
+    }
+
+    @Test
+    void batch_ndjson_decodedLineByLine() {
+        String body = """
+                {"type":"HamsterEnter","hamsterId":"h1","wheelId":"w1"}
+                {"type":"WheelSpin","wheelId":"w1","durationMs":5000}
+                {"type":"HamsterExit","hamsterId":"h1","wheelId":"w1"}
+                """;
+
+        BatchResult result = client.post().uri("/tracker/events/batch")
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .bodyValue(body)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(BatchResult.class)
+                .returnResult().getResponseBody();
+
+        assertThat(result).isEqualTo(new BatchResult(3, 0, 0));
+        await().atMost(Duration.ofSeconds(5)).untilAsserted(() -> {
+            assertThat(repo.getRounds("h1")).isEqualTo(1);
+            assertThat(repo.getOccupant("w1")).isNull();
+        });
+    }
+
+    @Test
+    void binaryFrames_acceptedOnSingleAndBatchEndpoints() {
+        client.post().uri("/tracker/events")
+                .contentType(HamsterEventBinaryCodec.MEDIA_TYPE)
+                .bodyValue(HamsterEventBinaryCodec.encodeFrame(new HamsterEnter("h1", "w1")))
+                .exchange()
+                .expectStatus().isOk();
+
+        ByteArrayOutputStream frames = new ByteArrayOutputStream();
+        frames.writeBytes(HamsterEventBinaryCodec.encodeFrame(new WheelSpin("w1", 10_000)));
+        frames.writeBytes(HamsterEventBinaryCodec.encodeFrame(new WheelSpin("w1", 5_000)));
+
+        BatchResult result = client.post().uri("/tracker/events/batch")
+                .contentType(HamsterEventBinaryCodec.MEDIA_TYPE)
+                .bodyValue(frames.toByteArray())
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(BatchResult.class)
+                .returnResult().getResponseBody();
+
+        assertThat(result).isEqualTo(new BatchResult(2, 0, 0));
+        await().atMost(Duration.ofSeconds(5)).untilAsserted(() -> assertThat(repo.getRounds("h1")).isEqualTo(3));
+    }
+
+    @Test
+    void batch_malformedElements_rejectedOneByOne_restAccepted() {
+        String json = """
+                [
+                  {"type":"HamsterEnter","hamsterId":"h1","wheelId":"w1"},
+                  {"type":"NoSuchEvent","wheelId":"w1"},
+                  {"type":"WheelSpin","wheelId":"w1","durationMs":"long"},
+                  {"type":"WheelSpin","wheelId":"w1","durationMs":5000}
+                ]
+                """;
+        String ndjson = """
+                {"type":"WheelSpin","wheelId":"w1","durationMs":5000}
+                {"type":"NoSuchEvent"}
+                {"type":"WheelSpin","wheelId":"w1","durationMs":5000}
+                """;
+        ByteArrayOutputStream frames = new ByteArrayOutputStream();
+        frames.writeBytes(HamsterEventBinaryCodec.encodeFrame(new WheelSpin("w1", 5_000)));
+        frames.writeBytes(new byte[]{2, 0x0f, 0}); // целый кадр с неизвестным тегом
+        frames.writeBytes(HamsterEventBinaryCodec.encodeFrame(new WheelSpin("w1", 5_000)));
+
+        assertThat(postBatch(MediaType.APPLICATION_JSON, json)).isEqualTo(new BatchResult(2, 0, 2));
+        assertThat(postBatch(MediaType.APPLICATION_NDJSON, ndjson)).isEqualTo(new BatchResult(2, 0, 1));
+        assertThat(postBatch(HamsterEventBinaryCodec.MEDIA_TYPE, frames.toByteArray())).isEqualTo(new BatchResult(2, 0, 1));
+        await().atMost(Duration.ofSeconds(5)).untilAsserted(() -> assertThat(repo.getRounds("h1")).isEqualTo(5));
+    }
+
+    @Test
+    void binaryBatch_brokenFraming_answers400() {
+        client.post().uri("/tracker/events/batch")
+                .contentType(HamsterEventBinaryCodec.MEDIA_TYPE)
+                .bodyValue(new byte[]{(byte) 0xff, (byte) 0xff, (byte) 0xff, (byte) 0xff, (byte) 0xff, 0})
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
+    private BatchResult postBatch(MediaType contentType, Object body) {
+        return client.post().uri("/tracker/events/batch")
+                .contentType(contentType)
+                .bodyValue(body)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(BatchResult.class)
+                .returnResult().getResponseBody();
+    }
+
+    @Test
+    void saturatedBuffer_answers429WithRetryAfter() {
+        processor.stop(); // остановленный процессор ничего не принимает
+
+        client.post().uri("/tracker/events")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("{\"type\":\"WheelSpin\",\"wheelId\":\"w1\",\"durationMs\":5000}")
+                .exchange()
+                .expectStatus().isEqualTo(429)
+                .expectHeader().valueEquals("Retry-After", "1");
+
+        BatchResult result = client.post().uri("/tracker/events/batch")
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .bodyValue("{\"type\":\"WheelSpin\",\"wheelId\":\"w1\",\"durationMs\":5000}\n")
+                .exchange()
+                .expectStatus().isEqualTo(429)
+                .expectHeader().valueEquals("Retry-After", "1")
+                .expectBody(BatchResult.class)
+                .returnResult().getResponseBody();
+        assertThat(result).isEqualTo(new BatchResult(0, 0, 1));
+    }
+}
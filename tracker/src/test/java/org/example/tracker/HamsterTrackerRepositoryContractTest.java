@@ -0,0 +1,162 @@
+package org.example.tracker;
+
+import org.example.tracker.db.HamsterTrackerRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+//Общий контракт для всех реализаций репозитория; наследники только создают экземпляр
+public abstract class HamsterTrackerRepositoryContractTest {
+
+    HamsterTrackerRepository repo;
+
+    protected abstract HamsterTrackerRepository newRepository();
+
+    @BeforeEach
+    void setUp() {
+        repo = newRepository();
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        if (repo instanceof AutoCloseable closeable) {
+            closeable.close();
+        }
+    }
+
+    @Test
+    void occupant_setAndClearOnlyIfMatches() {
+        assertThat(repo.getOccupant("w1")).isNull();
+
+        repo.setOccupant("w1", "h1");
+        repo.clearOccupantIfMatches("w1", "h2");
+        assertThat(repo.getOccupant("w1")).isEqualTo("h1");
+
+        repo.clearOccupantIfMatches("w1", "h1");
+        assertThat(repo.getOccupant("w1")).isNull();
+    }
+
+    @Test
+    void rounds_accumulate_snapshotAndReset() {
+        assertThat(repo.addRounds("h1", 2)).isEqualTo(2);
+        assertThat(repo.addRounds("h1", 3)).isEqualTo(5);
+        assertThat(repo.addRounds("h2", 0)).isZero();
+        repo.addRounds("h3", 1);
+
+        assertThat(repo.getAllRoundsSnapshot()).containsOnlyKeys("h1", "h3").containsEntry("h1", 5);
+
+        repo.resetDailyRounds();
+        assertThat(repo.getRounds("h1")).isZero();
+        assertThat(repo.getAllRoundsSnapshot()).containsEntry("h1", 0).containsEntry("h3", 0);
+    }
+
+    @Test
+    void days_nextDayCountsEarly_closedDayFrozen() {
+        int h1 = repo.ids().hamsters().intern("h1");
+        int day = repo.currentDay();
+        repo.addRounds(h1, day, 4);
+        assertThat(repo.addRounds(h1, day + 1, 2)).isEqualTo(2); // ранний зачёт в следующие сутки
+        assertThat(repo.addRounds(h1, day + 2, 1)).isEqualTo(-1); // его слово ещё занято открытыми
+
+        repo.openDay(day + 1);
+        assertThat(repo.addRounds(h1, day, 1)).isEqualTo(5); // прежние сутки ещё не закрыты
+        assertThat(repo.closeDay(day)).containsOnly(Map.entry("h1", 5));
+
+        assertThat(repo.addRounds(h1, day, 1)).isEqualTo(-1);
+        assertThat(repo.getRounds(h1, day)).isEqualTo(5);
+        assertThat(repo.getRounds(h1)).isEqualTo(2);
+        assertThat(repo.closeDay(day)).containsEntry("h1", 5); // повторное закрытие только читает
+        assertThat(repo.addRounds(h1, day + 2, 3)).isEqualTo(3); // слово закрытых суток освободилось
+    }
+
+    @Test
+    void activityAndInactivityFlag() {
+        Instant when = Instant.ofEpochMilli(1_700_000_000_123L);
+        repo.updateLastActivity("h1", when);
+
+        assertThat(repo.getAllLastActivity()).containsOnlyKeys("h1").containsEntry("h1", when);
+        assertThat(repo.getLastActivity(repo.ids().hamsters().find("h1"))).isEqualTo(when);
+        assertThat(repo.getLastActivity(repo.ids().hamsters().intern("h2"))).isNull();
+        assertThat(repo.isInactivityAlerted("h1")).isFalse();
+
+        repo.setInactivityAlerted("h1", true);
+        assertThat(repo.isInactivityAlerted("h1")).isTrue();
+        repo.setInactivityAlerted("h1", false);
+        assertThat(repo.isInactivityAlerted("h1")).isFalse();
+    }
+
+    @Test
+    void sensorFailure_recordedOnce_clearedAndAlerted() {
+        Instant first = Instant.ofEpochMilli(1_700_000_000_000L);
+        assertThat(repo.markSensorFailed("s1", first)).isTrue();
+        assertThat(repo.markSensorFailed("s1", first.plusSeconds(60))).isFalse();
+        assertThat(repo.getAllSensorFailures()).containsEntry("s1", first);
+        int sensor = repo.ids().sensors().find("s1");
+        assertThat(repo.getSensorFailedSince(sensor)).isEqualTo(first);
+
+        repo.setSensorAlerted("s1", true);
+        assertThat(repo.isSensorAlerted("s1")).isTrue();
+
+        repo.clearSensorFailure("s1");
+        assertThat(repo.getAllSensorFailures()).isEmpty();
+        assertThat(repo.getSensorFailedSince(sensor)).isNull();
+        assertThat(repo.markSensorFailed("s1", first.plusSeconds(120))).isTrue();
+    }
+
+    @Test
+    void sequenceWindow_storedPerSource() {
+        int s1 = repo.ids().sensors().intern("s1");
+        int s2 = repo.ids().sensors().intern("s2");
+        assertThat(repo.getSequenceTop(s1)).isZero();
+        assertThat(repo.getSequenceBits(s1)).isZero();
+
+        repo.setSequenceWindow(s1, 101, 0b101);
+        repo.setSequenceWindow(s1, 103, 0b10101);
+
+        assertThat(repo.getSequenceTop(s1)).isEqualTo(103);
+        assertThat(repo.getSequenceBits(s1)).isEqualTo(0b10101);
+        assertThat(repo.getSequenceTop(s2)).isZero();
+        assertThat(repo.getSequenceTop(-1)).isZero();
+    }
+
+    @Test
+    void nullAndUnknownIds_areNoOps() {
+        repo.setOccupant(null, "h1");
+        repo.updateLastActivity(null, Instant.now());
+        assertThat(repo.getOccupant((String) null)).isNull();
+        assertThat(repo.getRounds("unknown")).isZero();
+        assertThat(repo.isSensorAlerted("unknown")).isFalse();
+        assertThat(repo.getAllLastActivity()).isEmpty();
+    }
+
+    @Test
+    void concurrentAddRounds_notLost() throws Exception {
+        int hamster = repo.ids().hamsters().intern("h1");
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                futures.add(pool.submit(() -> {
+                    for (int i = 0; i < 10_000; i++) {
+                        repo.addRounds(hamster, 1);
+                        repo.setInactivityAlerted(hamster, i % 2 == 0);
+                    }
+                }));
+            }
+            for (Future<?> f : futures) f.get();
+        } finally {
+            pool.shutdownNow();
+        }
+        assertThat(repo.getRounds(hamster)).isEqualTo(40_000);
+    }
+}
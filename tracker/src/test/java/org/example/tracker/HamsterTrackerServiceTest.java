@@ -1,5 +1,6 @@
 package org.example.tracker;
 import org.example.tracker.db.InMemoryHamsterTrackerRepository;
+import org.example.tracker.domain.AlertDispatcher;
 import org.example.tracker.domain.AlertService;
 import org.example.tracker.domain.DailyReport;
 import org.example.tracker.domain.HamsterTrackerService;
@@ -12,6 +13,7 @@ import org.mockito.ArgumentCaptor;
 import java.lang.reflect.Method;
 import java.time.Duration;
 import java.time.Instant;
+import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.*;
@@ -28,7 +30,7 @@ public class HamsterTrackerServiceTest {
         repo = new InMemoryHamsterTrackerRepository();
         alerts = mock(AlertService.class);
         reports = mock(ReportGenerator.class);
-        service = new HamsterTrackerService(repo, alerts, reports);
+        service = new HamsterTrackerService(repo, AlertDispatcher.direct(alerts), reports, List.of(), 0);
     }
 
     @Test
@@ -52,6 +54,37 @@ public class HamsterTrackerServiceTest {
         assertThat(after).isAfterOrEqualTo(before);
     }
 
+    @Test
+    void sequencedSpins_repeatsDropped_reorderedWithinWindowAccepted() {
+        service.accept(new HamsterEnter("h1", "w1"));
+
+        service.accept(sequenced(new WheelSpin("w1", 5_000), "s1", 100));
+        service.accept(sequenced(new WheelSpin("w1", 5_000), "s1", 100)); // повтор после ретрая
+        service.accept(sequenced(new WheelSpin("w1", 5_000), "s1", 102));
+        service.accept(sequenced(new WheelSpin("w1", 5_000), "s1", 101)); // пришёл позже, но в окне
+        service.accept(sequenced(new WheelSpin("w1", 5_000), "s2", 100)); // у другого источника свой счёт
+        service.accept(sequenced(new WheelSpin("w1", 5_000), "s1", 200));
+        service.accept(sequenced(new WheelSpin("w1", 5_000), "s1", 101)); // окно уже ушло вперёд
+
+        assertThat(repo.getRounds("h1")).isEqualTo(5);
+        assertThat(service.duplicates()).isEqualTo(2);
+    }
+
+    @Test
+    void sequencedEvent_failedInHandler_notMarked_retryApplied() {
+        InMemoryHamsterTrackerRepository failing = spy(new InMemoryHamsterTrackerRepository());
+        HamsterTrackerService flaky = new HamsterTrackerService(failing, AlertDispatcher.direct(alerts), reports, List.of(), 0);
+        flaky.accept(new HamsterEnter("h1", "w1"));
+        doThrow(new IllegalStateException("boom")).doCallRealMethod().when(failing).addRounds(anyInt(), anyInt(), anyInt());
+
+        assertThat(flaky.accept(sequenced(new WheelSpin("w1", 5_000), "s1", 100))).isFalse();
+        assertThat(flaky.accept(sequenced(new WheelSpin("w1", 5_000), "s1", 100))).isTrue(); // ретрай после сбоя
+        flaky.accept(sequenced(new WheelSpin("w1", 5_000), "s1", 100)); // а вот это уже повтор
+
+        assertThat(failing.getRounds("h1")).isEqualTo(1);
+        assertThat(flaky.duplicates()).isEqualTo(1);
+    }
+
     @Test
     void duplicateEnter_ignored_butTouchesActivity() {
         service.accept(new HamsterEnter("h1", "w1"));
@@ -103,10 +136,44 @@ public class HamsterTrackerServiceTest {
         assertThat(repo.isSensorAlerted("s1")).isTrue();
     }
 
+    @Test
+    void deadlines_alertOnlyExpiredEntities_andRespectLaterActivity() throws Exception {
+        long now = System.currentTimeMillis();
+        Instant at = Instant.ofEpochMilli(now);
+        service.replay(new HamsterEnter("h1", "w1"), at.minus(Duration.ofHours(2)));
+        service.replay(new HamsterEnter("h2", "w2"), at.minus(Duration.ofMinutes(30)));
+        service.replay(new HamsterEnter("h3", "w3"), at.minus(Duration.ofHours(2)));
+        service.replay(new WheelSpin("w3", 1_000), at); // свежая активность сдвигает дедлайн h3
+        service.replay(new SensorFailure("s1", 3), at.minus(Duration.ofMinutes(31)));
+        service.replay(new SensorFailure("s2", 3), at.minus(Duration.ofMinutes(5)));
+
+        Method checkDeadlines = HamsterTrackerService.class.getDeclaredMethod("checkDeadlines", long.class);
+        checkDeadlines.setAccessible(true);
+        // просроченный дедлайн срабатывает в ближайшем следующем тике (шаг колеса — секунда)
+        checkDeadlines.invoke(service, now + 1_000);
+
+        ArgumentCaptor<String> msg = ArgumentCaptor.forClass(String.class);
+        verify(alerts, times(2)).sendAlert(msg.capture());
+        assertThat(msg.getAllValues()).anyMatch(s -> s.contains("Hamster h1 inactive"))
+                .anyMatch(s -> s.contains("Sensor s1 is down"));
+        assertThat(repo.isInactivityAlerted("h1")).isTrue();
+        assertThat(repo.isInactivityAlerted("h3")).isFalse();
+        assertThat(repo.isSensorAlerted("s1")).isTrue();
+
+        // через 31 минуту истекают h2 и s2, h3 с его свежей активностью — ещё нет
+        checkDeadlines.invoke(service, now + Duration.ofMinutes(31).toMillis());
+
+        verify(alerts, times(4)).sendAlert(msg.capture());
+        assertThat(msg.getAllValues()).anyMatch(s -> s.contains("Hamster h2 inactive"))
+                .anyMatch(s -> s.contains("Sensor s2 is down"))
+                .noneMatch(s -> s.contains("Hamster h3"));
+        assertThat(repo.isInactivityAlerted("h3")).isFalse();
+    }
+
     @Test
     void generateDailyReport_resetsRounds() {
         DailyReport stub = new DailyReport(java.time.LocalDate.now(), java.util.Map.of());
-        when(reports.generateDailyReport()).thenReturn(stub);
+        when(reports.generateDailyReport(any(), any())).thenReturn(stub);
 
         service.accept(new HamsterEnter("h1", "w1"));
         service.accept(new WheelSpin("w1", 15_000)); // 3 круга
@@ -114,6 +181,13 @@ public class HamsterTrackerServiceTest {
 
         DailyReport out = service.generateDailyReport();
         assertThat(out).isSameAs(stub);
+        verify(reports).generateDailyReport(java.time.LocalDate.now(), java.util.Map.of("h1", 3));
         assertThat(repo.getRounds("h1")).isZero();
     }
+
+    private static HamsterEvent sequenced(HamsterEvent event, String source, long seq) {
+        event.setSourceId(source);
+        event.setSeq(seq);
+        return event;
+    }
 }
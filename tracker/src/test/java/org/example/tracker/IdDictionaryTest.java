@@ -0,0 +1,90 @@
+package org.example.tracker;
+
+import org.example.tracker.db.IdDictionary;
+import org.example.tracker.db.InMemoryHamsterTrackerRepository;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class IdDictionaryTest {
+
+    @Test
+    void intern_givesDenseStableHandles_andResolvesBack() {
+        IdDictionary dict = new IdDictionary("hamster", 10);
+
+        assertThat(dict.intern("h-a")).isEqualTo(0);
+        assertThat(dict.intern("h-b")).isEqualTo(1);
+        assertThat(dict.intern(new String("h-a"))).isEqualTo(0);
+        assertThat(dict.find("h-b")).isEqualTo(1);
+        assertThat(dict.find("h-unknown")).isEqualTo(-1);
+        assertThat(dict.intern(null)).isEqualTo(-1);
+        assertThat(dict.name(1)).isEqualTo("h-b");
+        assertThat(dict.name(5)).isNull();
+        assertThat(dict.size()).isEqualTo(2);
+    }
+
+    @Test
+    void intern_isBounded() {
+        IdDictionary dict = new IdDictionary("wheel", 2);
+        dict.intern("w1");
+        dict.intern("w2");
+
+        assertThat(dict.intern("w3")).isEqualTo(-1);
+        assertThat(dict.intern("w1")).isEqualTo(0); // знакомые id работают и у заполненного словаря
+        assertThat(dict.size()).isEqualTo(2);
+    }
+
+    @Test
+    void intern_concurrentThreadsAgreeOnHandles() throws Exception {
+        int ids = 20_000;
+        IdDictionary dict = new IdDictionary("sensor", ids);
+        ConcurrentHashMap<String, Integer> seen = new ConcurrentHashMap<>();
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                futures.add(pool.submit(() -> {
+                    for (int i = 0; i < ids; i++) {
+                        String id = "s-" + i;
+                        int handle = dict.intern(id);
+                        Integer previous = seen.putIfAbsent(id, handle);
+                        assertThat(previous == null || previous == handle).isTrue();
+                        assertThat(dict.name(handle)).isEqualTo(id);
+                    }
+                }));
+            }
+            for (Future<?> f : futures) f.get();
+        } finally {
+            pool.shutdownNow();
+        }
+
+        assertThat(dict.size()).isEqualTo(ids);
+        Set<Integer> handles = new HashSet<>(seen.values());
+        assertThat(handles).hasSize(ids);
+        assertThat(handles).allMatch(h -> h >= 0 && h < ids);
+    }
+
+    @Test
+    void repository_returnsStringIdsAtTheEdges() {
+        InMemoryHamsterTrackerRepository repo = new InMemoryHamsterTrackerRepository();
+        int hamster = repo.ids().hamsters().intern("h1");
+        int wheel = repo.ids().wheels().intern("w1");
+
+        repo.setOccupant(wheel, hamster);
+        repo.addRounds(hamster, 3);
+
+        assertThat(repo.getOccupant("w1")).isEqualTo("h1");
+        assertThat(repo.getAllRoundsSnapshot()).containsEntry("h1", 3);
+        assertThat(repo.getRounds("h-never-seen")).isZero();
+        assertThat(repo.ids().hamsters().find("h-never-seen")).isEqualTo(-1);
+    }
+}
@@ -0,0 +1,12 @@
+package org.example.tracker;
+
+import org.example.tracker.db.HamsterTrackerRepository;
+import org.example.tracker.db.InMemoryHamsterTrackerRepository;
+
+public class InMemoryHamsterTrackerRepositoryTest extends HamsterTrackerRepositoryContractTest {
+
+    @Override
+    protected HamsterTrackerRepository newRepository() {
+        return new InMemoryHamsterTrackerRepository();
+    }
+}
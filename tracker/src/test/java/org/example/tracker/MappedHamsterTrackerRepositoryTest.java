@@ -0,0 +1,95 @@
+package org.example.tracker;
+
+import org.example.tracker.db.HamsterTrackerRepository;
+import org.example.tracker.db.IdRegistry;
+import org.example.tracker.db.MappedHamsterTrackerRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class MappedHamsterTrackerRepositoryTest extends HamsterTrackerRepositoryContractTest {
+
+    @TempDir
+    Path dir;
+
+    @Override
+    protected HamsterTrackerRepository newRepository() {
+        return open();
+    }
+
+    private MappedHamsterTrackerRepository open() {
+        return new MappedHamsterTrackerRepository(new IdRegistry(), dir, 8);
+    }
+
+    @Test
+    void stateSurvivesReopen_withoutReplay() {
+        Instant when = Instant.ofEpochMilli(1_700_000_000_000L);
+        repo.setOccupant("w1", "h1");
+        repo.addRounds("h1", 7);
+        repo.updateLastActivity("h2", when);
+        repo.setInactivityAlerted("h2", true);
+        repo.markSensorFailed("s1", when);
+        repo.setSequenceWindow(repo.ids().sensors().intern("s2"), 42, 0b11);
+        ((MappedHamsterTrackerRepository) repo).close();
+
+        repo = open();
+
+        assertThat(repo.isDurable()).isTrue();
+        assertThat(repo.getOccupant("w1")).isEqualTo("h1");
+        assertThat(repo.getRounds("h1")).isEqualTo(7);
+        assertThat(repo.getAllLastActivity()).containsEntry("h2", when);
+        assertThat(repo.isInactivityAlerted("h2")).isTrue();
+        assertThat(repo.getAllSensorFailures()).containsEntry("s1", when);
+        assertThat(repo.getSequenceTop(repo.ids().sensors().find("s2"))).isEqualTo(42);
+        assertThat(repo.getSequenceBits(repo.ids().sensors().find("s2"))).isEqualTo(0b11);
+        assertThat(repo.ids().hamsters().find("h1")).isEqualTo(0);
+    }
+
+    @Test
+    void fileGrows_pastFirstRegion() {
+        for (int i = 0; i < 100; i++) {
+            repo.addRounds("h" + i, i);
+        }
+        ((MappedHamsterTrackerRepository) repo).close();
+
+        repo = open();
+
+        assertThat(repo.getAllRoundsSnapshot()).hasSize(99); // у h0 дельта 0 — раунды не заводились
+        assertThat(repo.getRounds("h99")).isEqualTo(99);
+    }
+
+    @Test
+    void days_surviveReopen() {
+        repo.addRounds("h1", 7);
+        repo.resetDailyRounds();
+        repo.addRounds("h1", 2);
+        ((MappedHamsterTrackerRepository) repo).close();
+
+        repo = open();
+
+        int h1 = repo.ids().hamsters().find("h1");
+        assertThat(repo.currentDay()).isEqualTo(2);
+        assertThat(repo.getRounds(h1)).isEqualTo(2);
+        assertThat(repo.getRounds(h1, 1)).isEqualTo(7);
+        assertThat(repo.addRounds(h1, 1, 1)).isEqualTo(-1); // первые сутки остались закрытыми
+    }
+
+    @Test
+    void incompleteIdRecord_droppedOnOpen() throws Exception {
+        repo.addRounds("h1", 1);
+        ((MappedHamsterTrackerRepository) repo).close();
+        Files.write(dir.resolve("hamster.ids"), new byte[]{0, 0, 0, 9, 'h'}, StandardOpenOption.APPEND);
+
+        repo = open();
+        repo.addRounds("h2", 2);
+
+        assertThat(repo.getAllRoundsSnapshot()).containsOnlyKeys("h1", "h2");
+        assertThat(repo.ids().hamsters().size()).isEqualTo(2);
+    }
+}
@@ -0,0 +1,110 @@
+package org.example.tracker;
+
+import org.example.tracker.api.StateController;
+import org.example.tracker.api.StatePage;
+import org.example.tracker.db.InMemoryHamsterTrackerRepository;
+import org.example.tracker.domain.AlertDispatcher;
+import org.example.tracker.domain.AlertService;
+import org.example.tracker.domain.HamsterTrackerService;
+import org.example.tracker.domain.ReadView;
+import org.example.tracker.domain.ReportGenerator;
+import org.example.tracker.domain.eventDto.HamsterEnter;
+import org.example.tracker.domain.eventDto.HamsterExit;
+import org.example.tracker.domain.eventDto.SensorFailure;
+import org.example.tracker.domain.eventDto.WheelSpin;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.time.Instant;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+public class ReadViewTest {
+
+    InMemoryHamsterTrackerRepository repo;
+    ReadView view;
+    HamsterTrackerService service;
+
+    @BeforeEach
+    void setUp() {
+        repo = new InMemoryHamsterTrackerRepository();
+        view = new ReadView(repo, 100); // без start: эпохи публикуются вызовом refresh
+        service = new HamsterTrackerService(repo, AlertDispatcher.direct(mock(AlertService.class)),
+                mock(ReportGenerator.class), List.of(view), 0);
+    }
+
+    @Test
+    void epochs_publishOnlyAfterRefresh_andStayImmutable() {
+        Instant at = Instant.parse("2024-01-01T10:00:00Z");
+        service.accept(new HamsterEnter("h1", "w1"), at);
+        service.accept(new WheelSpin("w1", 15_000), at);
+        service.accept(new SensorFailure("s1", 500), at);
+        assertThat(view.current().hamsterCount()).isZero();
+
+        ReadView.Epoch first = view.refresh();
+        int h1 = first.findHamster("h1");
+        assertThat(first.rounds(h1)).isEqualTo(3);
+        assertThat(first.lastActivity(h1)).isEqualTo(at);
+        assertThat(first.hamsterId(first.occupant(first.findWheel("w1")))).isEqualTo("h1");
+        assertThat(first.sensorFailedSince(first.findSensor("s1"))).isEqualTo(at);
+        assertThat(view.refresh()).isSameAs(first); // без изменений новая эпоха не нужна
+
+        service.accept(new WheelSpin("w1", 10_000), at.plusSeconds(10));
+        service.accept(new HamsterExit("h1", "w1"), at.plusSeconds(20));
+        service.accept(new HamsterEnter("h2", "w2"), at.plusSeconds(20));
+        ReadView.Epoch second = view.refresh();
+
+        assertThat(second.number()).isEqualTo(first.number() + 1);
+        assertThat(second.rounds(h1)).isEqualTo(5);
+        assertThat(second.occupant(second.findWheel("w1"))).isEqualTo(-1);
+        assertThat(second.findHamster("h2")).isGreaterThanOrEqualTo(0);
+        // прежняя эпоха не видит ни новых значений, ни новых хомяков
+        assertThat(first.rounds(h1)).isEqualTo(3);
+        assertThat(first.findHamster("h2")).isEqualTo(-1);
+        assertThat(first.hamsterCount()).isEqualTo(1);
+    }
+
+    @Test
+    void manyChunks_onlyTouchedReread_recoveryRebuildsAll() {
+        for (int i = 0; i < 5_000; i++) {
+            repo.addRounds("h" + i, i); // в обход сервиса: пометок нет
+        }
+        view.onStateRecovered();
+        ReadView.Epoch full = view.current();
+        assertThat(full.hamsterCount()).isEqualTo(5_000);
+        assertThat(full.rounds(full.findHamster("h4321"))).isEqualTo(4321);
+
+        repo.addRounds("h10", 1_000);        // без события — в эпоху не попадает
+        service.accept(new HamsterEnter("h4321", "w1"));
+        service.accept(new WheelSpin("w1", 5_000));
+        ReadView.Epoch next = view.refresh();
+        assertThat(next.rounds(next.findHamster("h4321"))).isEqualTo(4322);
+        assertThat(next.rounds(next.findHamster("h10"))).isEqualTo(10);
+    }
+
+    @Test
+    void stateApi_pagesAndProjectsFields() {
+        for (int i = 0; i < 5; i++) {
+            service.accept(new HamsterEnter("h" + i, "w" + i));
+            service.accept(new WheelSpin("w" + i, (i + 1) * 5_000L));
+        }
+        view.refresh();
+        WebTestClient client = WebTestClient.bindToController(new StateController(view)).build();
+
+        StatePage page = client.get().uri("/tracker/hamsters?offset=1&limit=2&fields=rounds")
+                .exchange().expectStatus().isOk()
+                .expectBody(StatePage.class).returnResult().getResponseBody();
+        assertThat(page.total()).isEqualTo(5);
+        assertThat(page.items()).hasSize(2);
+        assertThat(page.items().get(0)).containsEntry("hamsterId", "h1").containsEntry("rounds", 2)
+                .doesNotContainKey("lastActivity");
+
+        client.get().uri("/tracker/wheels/w3").exchange().expectStatus().isOk()
+                .expectBody().jsonPath("$.occupant").isEqualTo("h3");
+        client.get().uri("/tracker/sensors/none").exchange().expectStatus().isNotFound();
+        client.get().uri("/tracker/hamsters?fields=weight").exchange().expectStatus().isBadRequest();
+    }
+}
@@ -0,0 +1,103 @@
+package org.example.tracker;
+
+import org.example.tracker.domain.DailyReport;
+import org.example.tracker.domain.HamsterStats;
+import org.example.tracker.persistence.HamsterDay;
+import org.example.tracker.persistence.HistoryDay;
+import org.example.tracker.persistence.ReportHistoryStore;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ReportHistoryStoreTest {
+
+    @TempDir
+    Path dir;
+
+    ReportHistoryStore store;
+
+    @AfterEach
+    void tearDown() {
+        if (store != null) store.close();
+    }
+
+    @Test
+    void rangeQueries_readBackEveryDay_afterReopen() {
+        LocalDate first = LocalDate.of(2024, 3, 1);
+        Random random = new Random(7);
+        int days = 5;
+        int hamsters = 1_000;
+        int[][] rounds = new int[days][hamsters];
+        long[] active = new long[days];
+        open();
+        for (int d = 0; d < days; d++) {
+            Map<String, HamsterStats> stats = new LinkedHashMap<>();
+            // каждый день хомяки в другом порядке и не все: часть появляется позже
+            for (int i = hamsters - 1; i >= 0; i--) {
+                int h = (i * 37 + d * 11) % hamsters;
+                if (h >= 600 + d * 100) continue;
+                int r = random.nextInt(4) == 0 ? 0 : random.nextInt(20_000);
+                rounds[d][h] = r;
+                stats.put("h" + h, new HamsterStats("h" + h, r, r > 0));
+                if (r > 0) active[d]++;
+            }
+            store.store(new DailyReport(first.plusDays(d), stats));
+        }
+        store.close();
+        open();
+
+        var summary = store.days(first.minusDays(1), first.plusDays(days));
+        assertThat(summary).hasSize(days);
+        for (int d = 0; d < days; d++) {
+            HistoryDay day = summary.get(d);
+            assertThat(day.date()).isEqualTo(first.plusDays(d));
+            assertThat(day.hamsters()).isEqualTo(Math.min(hamsters, 600 + d * 100));
+            assertThat(day.activeHamsters()).isEqualTo(active[d]);
+        }
+
+        for (int h = 0; h < hamsters; h++) {
+            var history = store.hamster("h" + h, first, first.plusDays(days - 1));
+            int present = 0;
+            for (int d = 0; d < days; d++) {
+                if (h >= 600 + d * 100) continue;
+                assertThat(history.get(present++))
+                        .isEqualTo(new HamsterDay(first.plusDays(d), rounds[d][h], rounds[d][h] > 0));
+            }
+            assertThat(history).hasSize(present);
+        }
+        assertThat(store.hamster("unknown", first, first.plusDays(days))).isEmpty();
+    }
+
+    @Test
+    void sameDateStoredTwice_replacedAndCompact() throws Exception {
+        LocalDate date = LocalDate.of(2024, 5, 10);
+        open();
+        store.store(new DailyReport(date, Map.of("h1", new HamsterStats("h1", 5, true))));
+        Map<String, HamsterStats> stats = new LinkedHashMap<>();
+        for (int h = 0; h < 10_000; h++) {
+            stats.put("h" + h, new HamsterStats("h" + h, h % 17_280, h % 3 != 0));
+        }
+        store.store(new DailyReport(date, stats));
+
+        assertThat(store.hamster("h1", date, date)).containsExactly(new HamsterDay(date, 1, true));
+        assertThat(store.days(date, date)).containsExactly(new HistoryDay(date, 10_000, 6_666,
+                stats.values().stream().mapToLong(HamsterStats::getTotalRounds).sum()));
+        // id ~1 байт, раунды ≤ 3 байт, бит активности
+        assertThat(Files.size(dir.resolve(date + ".day"))).isLessThan(10_000L * 4);
+        assertThat(Files.exists(dir.resolve(date + ".day.tmp"))).isFalse();
+    }
+
+    private void open() {
+        store = new ReportHistoryStore(dir);
+        store.open();
+    }
+}
@@ -0,0 +1,98 @@
+package org.example.tracker;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example.tracker.db.HamsterTrackerRepository;
+import org.example.tracker.db.IdRegistry;
+import org.example.tracker.db.InMemoryHamsterTrackerRepository;
+import org.example.tracker.db.PrimitiveArrayHamsterTrackerRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.lang.management.ManagementFactory;
+import java.lang.ref.Reference;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Сравнение удерживаемой кучи map- и array-репозиториев на одинаковом наборе хомяков.
+ * Словари id заполняются до замера, чтобы считать только само состояние.
+ * Каждый размер меряется трижды и берётся медиана: фоновые потоки JVM занимают и освобождают
+ * память прямо во время замера.
+ * Запуск: mvn test -Dtest=RepositoryFootprintTest -Dtracker.footprint=true [-Dtracker.footprint.full=true — ещё и 1M]
+ */
+@Slf4j
+@EnabledIfSystemProperty(named = "tracker.footprint", matches = "true")
+public class RepositoryFootprintTest {
+
+    @Test
+    void arrayRepository_isSmallerThanMapRepository() {
+        List<Integer> sizes = new ArrayList<>(List.of(10_000, 100_000));
+        if (Boolean.getBoolean("tracker.footprint.full")) {
+            sizes.add(1_000_000);
+        }
+        for (int n : sizes) {
+            long map = medianFootprint(n, InMemoryHamsterTrackerRepository::new);
+            long array = medianFootprint(n, PrimitiveArrayHamsterTrackerRepository::new);
+            log.info("footprint n={} map={} B ({} B/hamster) array={} B ({} B/hamster)",
+                    n, map, map / n, array, array / n);
+            if (n >= 100_000) {
+                assertThat(array).isLessThan(map / 2);
+            }
+        }
+    }
+
+    private static long medianFootprint(int n, Function<IdRegistry, HamsterTrackerRepository> factory) {
+        long[] runs = {footprint(n, factory), footprint(n, factory), footprint(n, factory)};
+        Arrays.sort(runs);
+        return runs[1];
+    }
+
+    private static long footprint(int n, Function<IdRegistry, HamsterTrackerRepository> factory) {
+        IdRegistry ids = new IdRegistry(n, n, n);
+        for (int i = 0; i < n; i++) {
+            ids.hamsters().intern("hamster-" + i);
+            ids.wheels().intern("wheel-" + i);
+            ids.sensors().intern("sensor-" + i);
+        }
+        long before = usedHeapAfterGc();
+        HamsterTrackerRepository repo = factory.apply(ids);
+        Instant now = Instant.now();
+        for (int i = 0; i < n; i++) {
+            repo.setOccupant(i, i);
+            repo.addRounds(i, 1 + i % 7);
+            repo.updateLastActivity(i, now.plusMillis(i));
+            repo.setInactivityAlerted(i, i % 10 == 0);
+            if (i % 10 == 0) {
+                repo.markSensorFailed(i, now);
+            }
+        }
+        long after = usedHeapAfterGc();
+        Reference.reachabilityFence(repo);
+        Reference.reachabilityFence(ids);
+        return after - before;
+    }
+
+    //Сборка повторяется, пока занятая куча не перестанет уменьшаться
+    private static long usedHeapAfterGc() {
+        long used = Long.MAX_VALUE;
+        for (int i = 0; i < 10; i++) {
+            System.gc();
+            try {
+                Thread.sleep(30);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            long now = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+            if (i >= 2 && now >= used) {
+                return now;
+            }
+            used = Math.min(used, now);
+        }
+        return used;
+    }
+}
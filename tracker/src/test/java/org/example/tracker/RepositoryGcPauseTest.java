@@ -0,0 +1,97 @@
+package org.example.tracker;
+
+import org.example.tracker.db.HamsterTrackerRepository;
+import org.example.tracker.db.IdRegistry;
+import org.example.tracker.db.InMemoryHamsterTrackerRepository;
+import org.example.tracker.db.MappedHamsterTrackerRepository;
+import org.example.tracker.db.PrimitiveArrayHamsterTrackerRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.ref.Reference;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.function.Function;
+
+/**
+ * Паузы GC при большой популяции в куче и вне её: после заполнения репозитория
+ * гоняется поток короткоживущих объектов (как от десериализации событий) и несколько полных сборок.
+ * Запуск: mvn test -Dtest=RepositoryGcPauseTest -Dtracker.gc-bench=true [-Dtracker.gc-bench.hamsters=1000000]
+ */
+@EnabledIfSystemProperty(named = "tracker.gc-bench", matches = "true")
+public class RepositoryGcPauseTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void compareGcPauses() {
+        int n = Integer.getInteger("tracker.gc-bench.hamsters", 1_000_000);
+        run("map", n, InMemoryHamsterTrackerRepository::new);
+        run("array", n, PrimitiveArrayHamsterTrackerRepository::new);
+        run("mmap", n, ids -> new MappedHamsterTrackerRepository(ids, dir, 1 << 16));
+    }
+
+    private void run(String name, int n, Function<IdRegistry, HamsterTrackerRepository> factory) {
+        IdRegistry ids = new IdRegistry(n, n, n);
+        HamsterTrackerRepository repo = factory.apply(ids);
+        Instant now = Instant.now();
+        for (int i = 0; i < n; i++) {
+            repo.setOccupant("wheel-" + i, "hamster-" + i);
+            repo.addRounds(i, 1 + i % 7);
+            repo.updateLastActivity(i, now.plusMillis(i));
+        }
+        System.gc();
+
+        long[] before = gcTotals();
+        Object[] survivors = new Object[50_000];
+        long sink = 0;
+        for (int i = 0; i < 20_000_000; i++) {
+            byte[] garbage = new byte[64];
+            garbage[0] = (byte) i;
+            if ((i & 63) == 0) {
+                survivors[(i >>> 6) % survivors.length] = garbage; // часть доживает до старшего поколения
+            }
+            sink += garbage[0];
+            repo.addRounds(i % n, 1);
+        }
+        long[] churn = delta(before, gcTotals());
+
+        long fullStart = System.nanoTime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        long fullAvgMs = (System.nanoTime() - fullStart) / 3 / 1_000_000;
+        long heapMb = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed() >> 20;
+
+        System.out.printf("gc-bench %-5s n=%,d heapAfterGc=%d MB churn: collections=%d time=%d ms; full GC avg=%d ms%n",
+                name, n, heapMb, churn[0], churn[1], fullAvgMs);
+        Reference.reachabilityFence(survivors);
+        Reference.reachabilityFence(sink);
+        if (repo instanceof AutoCloseable closeable) {
+            try {
+                closeable.close();
+            } catch (Exception ignored) {
+                // только замер
+            }
+        }
+        Reference.reachabilityFence(repo);
+    }
+
+    private static long[] gcTotals() {
+        long count = 0;
+        long time = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(0, gc.getCollectionCount());
+            time += Math.max(0, gc.getCollectionTime());
+        }
+        return new long[]{count, time};
+    }
+
+    private static long[] delta(long[] before, long[] after) {
+        return new long[]{after[0] - before[0], after[1] - before[1]};
+    }
+}
@@ -0,0 +1,181 @@
+package org.example.tracker;
+
+import org.example.tracker.db.InMemoryHamsterTrackerRepository;
+import org.example.tracker.domain.AlertDispatcher;
+import org.example.tracker.domain.AlertService;
+import org.example.tracker.domain.DailyReport;
+import org.example.tracker.domain.DefoltReportGenerator;
+import org.example.tracker.domain.HamsterTrackerService;
+import org.example.tracker.domain.LeaderboardEntry;
+import org.example.tracker.domain.RoundsLeaderboard;
+import org.example.tracker.domain.eventDto.HamsterEnter;
+import org.example.tracker.domain.eventDto.WheelSpin;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+public class RoundsLeaderboardTest {
+
+    InMemoryHamsterTrackerRepository repo;
+    RoundsLeaderboard leaderboard;
+    HamsterTrackerService service;
+
+    @BeforeEach
+    void setUp() {
+        repo = new InMemoryHamsterTrackerRepository();
+        leaderboard = new RoundsLeaderboard(repo);
+        service = new HamsterTrackerService(repo, AlertDispatcher.direct(mock(AlertService.class)),
+                new DefoltReportGenerator(repo, leaderboard), List.of(leaderboard), 0);
+    }
+
+    @Test
+    void topAndRank_followSpins_tiesKeepArrivalOrder() {
+        spin("h1", "w1", 3);
+        spin("h2", "w2", 5);
+        spin("h3", "w3", 3);
+        spin("h1", "w1", 4); // h1: 7
+
+        assertThat(leaderboard.top(10)).containsExactly(
+                new LeaderboardEntry(1, "h1", 7),
+                new LeaderboardEntry(2, "h2", 5),
+                new LeaderboardEntry(3, "h3", 3));
+        assertThat(leaderboard.top(2)).extracting(LeaderboardEntry::hamsterId).containsExactly("h1", "h2");
+
+        spin("h3", "w3", 2); // h3 догнал h2 позже него
+        assertThat(leaderboard.top(3)).extracting(LeaderboardEntry::hamsterId).containsExactly("h1", "h2", "h3");
+        assertThat(leaderboard.rankOf("h3")).isEqualTo(new LeaderboardEntry(2, "h3", 5));
+        assertThat(leaderboard.rankOf("unknown")).isNull();
+    }
+
+    @Test
+    void dailyReport_inActivityOrder_thenLeaderboardEmptyAfterReset() {
+        spin("h1", "w1", 2);
+        spin("h2", "w2", 12);
+
+        DailyReport report = service.generateDailyReport();
+
+        assertThat(new ArrayList<>(report.getHamsterStats().keySet())).containsExactly("h2", "h1");
+        assertThat(report.getHamsterStats().get("h2").isActive()).isTrue();
+        assertThat(leaderboard.top(10)).isEmpty();
+        assertThat(leaderboard.rankOf("h2")).isNull();
+
+        spin("h1", "w1", 1);
+        assertThat(leaderboard.top(10)).containsExactly(new LeaderboardEntry(1, "h1", 1));
+        // h2 сегодня без раундов: в отчёте после рейтинга
+        assertThat(new ArrayList<>(service.generateDailyReport().getHamsterStats().keySet())).containsExactly("h1", "h2");
+    }
+
+    @Test
+    void nextDaySpinsBeforeReport_keptOffClosingDayOrder_rankedAfterReset() {
+        Instant midnight = LocalDate.now().plusDays(1).atStartOfDay(ZoneId.systemDefault()).toInstant();
+        spin("h1", "w1", 2);
+        spin("h2", "w2", 4);
+        // h1 за первую секунду следующих суток обогнал бы h2, если бы сутки смешивались
+        service.accept(new WheelSpin("w1", 50_000), midnight.plusSeconds(1));
+
+        assertThat(leaderboard.top(10)).containsExactly(
+                new LeaderboardEntry(1, "h2", 4),
+                new LeaderboardEntry(2, "h1", 2));
+
+        DailyReport report = service.generateDailyReport();
+
+        assertThat(new ArrayList<>(report.getHamsterStats().keySet())).containsExactly("h2", "h1");
+        assertThat(leaderboard.top(10)).containsExactly(new LeaderboardEntry(1, "h1", 10));
+        assertThat(leaderboard.rankOf("h2")).isNull();
+    }
+
+    @Test
+    void concurrentSpins_allReachLeaderboard() throws Exception {
+        int threads = 8;
+        int hamstersPerThread = 50;
+        for (int t = 0; t < threads; t++) {
+            for (int h = 0; h < hamstersPerThread; h++) {
+                service.accept(new HamsterEnter("h" + t + "-" + h, "w" + t + "-" + h));
+            }
+        }
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> done = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int thread = t;
+                done.add(pool.submit(() -> {
+                    for (int i = 0; i < 2_000; i++) {
+                        service.accept(new WheelSpin("w" + thread + "-" + (i % hamstersPerThread), 5_000));
+                    }
+                }));
+            }
+            for (Future<?> f : done) {
+                f.get();
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        // 2 000 круток на 50 колёс потока — по 40 раундов каждому хомяку
+        assertThat(leaderboard.rankedCount()).isEqualTo(threads * hamstersPerThread);
+        assertThat(leaderboard.top(threads * hamstersPerThread)).allSatisfy(e -> {
+            assertThat(e.rounds()).isEqualTo(40);
+            assertThat(e.rank()).isEqualTo(1);
+        });
+    }
+
+    @Test
+    void dailyReport_roundsOnlyFromPassedMap_leaderboardOnlyOrders() {
+        spin("h1", "w1", 2);
+        spin("h2", "w2", 12);
+        spin("h3", "w3", 5);
+
+        // h2 в рейтинге, но не в переданных раундах: в отчёт не попадает, его раунды из рейтинга не берутся
+        DailyReport report = new DefoltReportGenerator(repo, leaderboard)
+                .generateDailyReport(LocalDate.now(), Map.of("h1", 20, "h3", 4, "h4", 1));
+
+        assertThat(new ArrayList<>(report.getHamsterStats().keySet())).containsExactly("h3", "h1", "h4");
+        assertThat(report.getHamsterStats().get("h1").getTotalRounds()).isEqualTo(20);
+        assertThat(report.getHamsterStats().get("h3").getTotalRounds()).isEqualTo(4);
+    }
+
+    @Test
+    void randomUpdates_matchFullSort_andRebuildFromRepository() {
+        Random random = new Random(42);
+        for (int i = 0; i < 5_000; i++) {
+            int h = random.nextInt(300);
+            spin("h" + h, "w" + h, 1 + random.nextInt(5));
+        }
+        List<Map.Entry<String, Integer>> expected = repo.getAllRoundsSnapshot().entrySet().stream()
+                .sorted(Map.Entry.<String, Integer>comparingByValue(Comparator.reverseOrder()))
+                .toList();
+
+        List<LeaderboardEntry> top = leaderboard.top(1000);
+        assertThat(top).hasSize(expected.size());
+        assertThat(top).extracting(LeaderboardEntry::rounds)
+                .containsExactlyElementsOf(expected.stream().map(Map.Entry::getValue).toList());
+        for (LeaderboardEntry e : top) {
+            long better = expected.stream().filter(x -> x.getValue() > e.rounds()).count();
+            assertThat(e.rank()).isEqualTo(better + 1);
+            assertThat(leaderboard.rankOf(e.hamsterId())).isEqualTo(e);
+        }
+
+        leaderboard.rebuild();
+        assertThat(leaderboard.top(1000)).extracting(LeaderboardEntry::rounds)
+                .containsExactlyElementsOf(expected.stream().map(Map.Entry::getValue).toList());
+    }
+
+    private void spin(String hamster, String wheel, int rounds) {
+        service.accept(new HamsterEnter(hamster, wheel));
+        service.accept(new WheelSpin(wheel, rounds * 5_000L));
+    }
+}
@@ -0,0 +1,95 @@
+package org.example.tracker;
+
+import org.example.tracker.db.InMemoryHamsterTrackerRepository;
+import org.example.tracker.domain.ActivitySeries;
+import org.example.tracker.domain.AlertDispatcher;
+import org.example.tracker.domain.AlertService;
+import org.example.tracker.domain.DefoltReportGenerator;
+import org.example.tracker.domain.HamsterTrackerService;
+import org.example.tracker.domain.RoundsRollup;
+import org.example.tracker.domain.eventDto.HamsterEnter;
+import org.example.tracker.domain.eventDto.WheelSpin;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.example.tracker.domain.ActivitySeries.Resolution.HOUR;
+import static org.example.tracker.domain.ActivitySeries.Resolution.MINUTE;
+import static org.mockito.Mockito.mock;
+
+public class RoundsRollupTest {
+
+    static final long T0 = 1_700_000_000_000L / RoundsRollup.HOUR_MS * RoundsRollup.HOUR_MS; // начало часа
+
+    InMemoryHamsterTrackerRepository repo;
+    RoundsRollup rollup;
+    HamsterTrackerService service;
+
+    @BeforeEach
+    void setUp() {
+        repo = new InMemoryHamsterTrackerRepository();
+        rollup = new RoundsRollup(repo, 120, 6);
+        service = new HamsterTrackerService(repo, AlertDispatcher.direct(mock(AlertService.class)),
+                new DefoltReportGenerator(repo), List.of(rollup), 0);
+    }
+
+    @Test
+    void spinsBucketedByEventTime_minutesAndHours() {
+        service.accept(new HamsterEnter("h1", "w1"), Instant.ofEpochMilli(T0));
+        spin("w1", 3, T0 + 10_000);
+        spin("w1", 2, T0 + 50_000);          // та же минута
+        spin("w1", 4, T0 + 5 * 60_000);      // шестая минута
+        spin("w1", 7, T0 + 61 * 60_000);     // следующий час
+
+        long now = T0 + 61 * 60_000 + 1;
+        ActivitySeries minutes = rollup.series("h1", MINUTE, 62, now);
+        assertThat(minutes.fromMs()).isEqualTo(T0);
+        assertThat(minutes.stepMs()).isEqualTo(60_000);
+        assertThat(minutes.rounds()[0]).isEqualTo(5);
+        assertThat(minutes.rounds()[5]).isEqualTo(4);
+        assertThat(minutes.rounds()[61]).isEqualTo(7);
+        assertThat(sum(minutes.rounds())).isEqualTo(16);
+
+        ActivitySeries hours = rollup.series("h1", HOUR, 3, now);
+        assertThat(hours.fromMs()).isEqualTo(T0 - RoundsRollup.HOUR_MS);
+        assertThat(hours.rounds()).containsExactly(0, 9, 7);
+
+        assertThat(rollup.series("unknown", MINUTE, 10, now)).isNull();
+        service.accept(new HamsterEnter("idle", "w2"), Instant.ofEpochMilli(T0));
+        assertThat(rollup.series("idle", MINUTE, 10, now).rounds()).containsOnly(0);
+    }
+
+    @Test
+    void ringsWrap_oldMinutesSurviveAsHours_tooOldDropped() {
+        service.accept(new HamsterEnter("h1", "w1"), Instant.ofEpochMilli(T0));
+        spin("w1", 1, T0);
+        spin("w1", 2, T0 + 3 * RoundsRollup.HOUR_MS); // минутное кольцо (2 часа) уехало
+
+        long now = T0 + 3 * RoundsRollup.HOUR_MS;
+        ActivitySeries minutes = rollup.series("h1", MINUTE, 1_000, now);
+        assertThat(minutes.rounds()).hasSize(120);
+        assertThat(sum(minutes.rounds())).isEqualTo(2);
+        assertThat(rollup.series("h1", HOUR, 4, now).rounds()).containsExactly(1, 0, 0, 2);
+
+        spin("w1", 3, T0 + 10 * 60_000);              // опоздал, но час ещё в кольце
+        assertThat(rollup.series("h1", HOUR, 4, now).rounds()).containsExactly(4, 0, 0, 2);
+        spin("w1", 5, T0 - 7 * RoundsRollup.HOUR_MS); // старше часового кольца
+        assertThat(rollup.tooOld()).isEqualTo(1);
+
+        spin("w1", 1, T0 + 30 * RoundsRollup.HOUR_MS); // простой длиннее колец: всё прежнее обнулено
+        assertThat(sum(rollup.series("h1", HOUR, 6, T0 + 30 * RoundsRollup.HOUR_MS).rounds())).isEqualTo(1);
+    }
+
+    private void spin(String wheel, int rounds, long atMs) {
+        service.accept(new WheelSpin(wheel, rounds * 5_000L), Instant.ofEpochMilli(atMs));
+    }
+
+    private static int sum(int[] values) {
+        int s = 0;
+        for (int v : values) s += v;
+        return s;
+    }
+}
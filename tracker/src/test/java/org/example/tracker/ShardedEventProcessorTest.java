@@ -0,0 +1,218 @@
+package org.example.tracker;
+
+import org.example.tracker.db.InMemoryHamsterTrackerRepository;
+import org.example.tracker.domain.Admission;
+import org.example.tracker.domain.AlertDispatcher;
+import org.example.tracker.domain.AlertService;
+import org.example.tracker.domain.HamsterTrackerService;
+import org.example.tracker.domain.ReportGenerator;
+import org.example.tracker.domain.EventTypeCounters;
+import org.example.tracker.domain.IngestStats;
+import org.example.tracker.domain.ShardedEventProcessor;
+import org.example.tracker.domain.eventDto.HamsterEnter;
+import org.example.tracker.domain.eventDto.HamsterEvent;
+import org.example.tracker.domain.eventDto.HamsterExit;
+import org.example.tracker.domain.eventDto.SensorFailure;
+import org.example.tracker.domain.eventDto.WheelSpin;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+public class ShardedEventProcessorTest {
+
+    InMemoryHamsterTrackerRepository repo;
+    HamsterTrackerService service;
+
+    @BeforeEach
+    void setUp() {
+        repo = new InMemoryHamsterTrackerRepository();
+        service = new HamsterTrackerService(repo, AlertDispatcher.direct(mock(AlertService.class)),
+                mock(ReportGenerator.class), List.of(), 0);
+    }
+
+    @Test
+    void perWheelOrdering_keptUnderConcurrentProducers() throws Exception {
+        ShardedEventProcessor processor = new ShardedEventProcessor(service, 4, 1 << 16, 0.5, 0.8, 65_536);
+        processor.start();
+
+        int wheels = 64;
+        int cycles = 200;
+        CountDownLatch go = new CountDownLatch(1);
+        List<Thread> producers = new ArrayList<>();
+        for (int w = 0; w < wheels; w++) {
+            String wheel = "w" + w;
+            String hamster = "h" + w;
+            Thread t = new Thread(() -> {
+                try {
+                    go.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                // вход → крутка на 1 круг → выход; крутка после выхода не должна засчитаться
+                for (int i = 0; i < cycles; i++) {
+                    submit(processor, new HamsterEnter(hamster, wheel));
+                    submit(processor, new WheelSpin(wheel, 5_000));
+                    submit(processor, new HamsterExit(hamster, wheel));
+                    submit(processor, new WheelSpin(wheel, 5_000));
+                }
+            });
+            t.start();
+            producers.add(t);
+        }
+        go.countDown();
+        for (Thread t : producers) t.join();
+        processor.stop(); // дожидается разбора очередей
+
+        for (int w = 0; w < wheels; w++) {
+            assertThat(repo.getRounds("h" + w)).isEqualTo(cycles);
+            assertThat(repo.getOccupant("w" + w)).isNull();
+        }
+    }
+
+    @Test
+    void submit_rejectsWhenShardQueueFull_orStopped() {
+        ShardedEventProcessor processor = new ShardedEventProcessor(service, 1, 4, 0.5, 0.8, 65_536);
+        assertThat(processor.submit(new WheelSpin("w1", 5_000))).isEqualTo(Admission.REJECTED); // ещё не запущен
+
+        processor.start();
+        processor.stop();
+        assertThat(processor.submit(new WheelSpin("w1", 5_000))).isEqualTo(Admission.REJECTED);
+    }
+
+    @Test
+    void loadShedding_dropsShortSpinsFirst_keepsPriorityEvents() {
+        HamsterTrackerService blocked = mock(HamsterTrackerService.class);
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(inv -> {
+            release.await();
+            return true;
+        }).when(blocked).accept(any());
+        // 1 шард на 16 мест: сброс коротких круток с 8, отказ всем круткам с 12
+        ShardedEventProcessor processor = new ShardedEventProcessor(blocked, 1, 16, 0.5, 0.75, 65_536);
+        processor.start();
+        try {
+            processor.submit(new WheelSpin("w1", 5_000)); // поток шарда застрянет на нём
+            for (int i = 0; i < 8; i++) {
+                assertThat(processor.submit(new WheelSpin("w1", 10_000))).isEqualTo(Admission.ACCEPTED);
+            }
+            assertThat(processor.submit(new WheelSpin("w1", 1_000))).isEqualTo(Admission.SHED);
+            assertThat(processor.submit(new WheelSpin("w1", 10_000))).isEqualTo(Admission.ACCEPTED);
+            for (int i = 0; i < 3; i++) {
+                processor.submit(new HamsterEnter("h1", "w1"));
+            }
+            assertThat(processor.submit(new WheelSpin("w1", 10_000))).isEqualTo(Admission.REJECTED);
+            assertThat(processor.submit(new SensorFailure("w1", 500))).isEqualTo(Admission.ACCEPTED);
+            assertThat(processor.submit(new HamsterExit("h1", "w1"))).isEqualTo(Admission.ACCEPTED);
+
+            IngestStats stats = processor.stats();
+            assertThat(stats.byType().get("WheelSpin")).isEqualTo(new EventTypeCounters(10, 1, 1));
+            assertThat(stats.byType().get("SensorFailure")).isEqualTo(new EventTypeCounters(1, 0, 0));
+        } finally {
+            release.countDown();
+            processor.stop();
+        }
+    }
+
+    @Test
+    void eventTime_reorderedWithinAllowedLateness_stragglersCountedLate() throws Exception {
+        HamsterTrackerService lenient = new HamsterTrackerService(repo, AlertDispatcher.direct(mock(AlertService.class)),
+                mock(ReportGenerator.class), List.of(), 300);
+        ShardedEventProcessor processor = new ShardedEventProcessor(lenient, 1, 1024, 0.5, 0.8, 65_536);
+        processor.start();
+        try {
+            long t = System.currentTimeMillis() - 1_000; // в прошлом, чтобы время не обрезалось до «сейчас»
+            // крутка пришла раньше входа, но по времени источника она после него
+            submit(processor, at(new WheelSpin("w1", 10_000), t + 1));
+            submit(processor, at(new HamsterEnter("h1", "w1"), t));
+
+            long deadline = System.currentTimeMillis() + 5_000;
+            while (repo.getRounds("h1") == 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertThat(repo.getRounds("h1")).isEqualTo(2);
+            assertThat(repo.getAllLastActivity().get("h1").toEpochMilli()).isEqualTo(t + 1);
+
+            // вышел «до» уже применённых событий: применяется как опоздавшее, активность не откатывается
+            submit(processor, at(new HamsterExit("h1", "w1"), t - 60_000));
+            while (processor.stats().lateEvents() == 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertThat(processor.stats().lateEvents()).isEqualTo(1);
+            assertThat(repo.getOccupant("w1")).isNull();
+            assertThat(repo.getAllLastActivity().get("h1").toEpochMilli()).isEqualTo(t + 1);
+        } finally {
+            processor.stop();
+        }
+    }
+
+    @Test
+    void runExclusive_stopsAllShardsAtSafePoints_whileProducersKeepSubmitting() throws Exception {
+        ShardedEventProcessor processor = new ShardedEventProcessor(service, 4, 1 << 16, 0.5, 0.8, 65_536);
+        processor.start();
+        int wheels = 16;
+        for (int w = 0; w < wheels; w++) {
+            submit(processor, new HamsterEnter("h" + w, "w" + w));
+        }
+        AtomicBoolean producing = new AtomicBoolean(true);
+        Thread producer = new Thread(() -> {
+            for (int i = 0; producing.get(); i++) {
+                processor.submit(new WheelSpin("w" + (i % wheels), 5_000));
+            }
+        });
+        producer.start();
+        try {
+            long deadline = System.currentTimeMillis() + 5_000;
+            while (totalRounds(wheels) == 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            for (int attempt = 0; attempt < 20; attempt++) {
+                // внутри среза раунды стоят на месте, хотя очереди продолжают пополняться
+                long[] frozen = processor.runExclusive(() -> {
+                    long before = totalRounds(wheels);
+                    LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(20));
+                    return new long[]{before, totalRounds(wheels)};
+                });
+                assertThat(frozen[1]).isEqualTo(frozen[0]);
+            }
+            long after = totalRounds(wheels);
+            while (totalRounds(wheels) == after && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertThat(totalRounds(wheels)).isGreaterThan(after); // после среза шарды продолжают
+        } finally {
+            producing.set(false);
+            producer.join();
+            processor.stop();
+        }
+    }
+
+    private long totalRounds(int wheels) {
+        long total = 0;
+        for (int w = 0; w < wheels; w++) {
+            total += repo.getRounds("h" + w);
+        }
+        return total;
+    }
+
+    private static HamsterEvent at(HamsterEvent event, long timestampMs) {
+        event.setTimestamp(timestampMs);
+        return event;
+    }
+
+    private static void submit(ShardedEventProcessor processor, HamsterEvent event) {
+        while (processor.submit(event) != Admission.ACCEPTED) {
+            Thread.onSpinWait();
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package org.example.tracker;
+
+import org.example.tracker.db.InMemoryHamsterTrackerRepository;
+import org.example.tracker.domain.AlertDispatcher;
+import org.example.tracker.domain.AlertService;
+import org.example.tracker.domain.HamsterTrackerService;
+import org.example.tracker.domain.ReportGenerator;
+import org.example.tracker.domain.ShardedEventProcessor;
+import org.example.tracker.domain.eventDto.HamsterEnter;
+import org.example.tracker.domain.eventDto.HamsterEvent;
+import org.example.tracker.domain.eventDto.SensorFailure;
+import org.example.tracker.domain.eventDto.WheelSpin;
+import org.example.tracker.persistence.SnapshotInfo;
+import org.example.tracker.persistence.SnapshotScheduler;
+import org.example.tracker.persistence.StateRecovery;
+import org.example.tracker.persistence.StateSnapshot;
+import org.example.tracker.persistence.WriteAheadLog;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+import static org.mockito.Mockito.mock;
+
+public class SnapshotTest {
+
+    @TempDir
+    Path dir;
+
+    InMemoryHamsterTrackerRepository repo;
+    WriteAheadLog wal;
+    HamsterTrackerService service;
+    ShardedEventProcessor processor;
+    SnapshotScheduler snapshots;
+
+    @AfterEach
+    void tearDown() {
+        shutdown();
+    }
+
+    private void start() {
+        repo = new InMemoryHamsterTrackerRepository();
+        wal = new WriteAheadLog(repo, dir.resolve("wal"), 1 << 20, 10);
+        wal.open();
+        service = new HamsterTrackerService(repo, AlertDispatcher.direct(mock(AlertService.class)),
+                mock(ReportGenerator.class), List.of(wal), 0);
+        new StateRecovery(service, repo, wal, dir.resolve("snapshots")).recover();
+        processor = new ShardedEventProcessor(service, 2, 1024, 0.5, 0.8, 65_536);
+        processor.start();
+        snapshots = new SnapshotScheduler(processor, repo, wal, dir.resolve("snapshots"), 60_000, 2);
+    }
+
+    private void shutdown() {
+        if (processor != null) processor.stop();
+        if (wal != null) wal.close();
+        processor = null;
+        wal = null;
+    }
+
+    @Test
+    void restart_loadsSnapshot_thenReplaysOnlyNewerWal() throws Exception {
+        start();
+        processor.submit(new HamsterEnter("h1", "w1"));
+        processor.submit(new HamsterEnter("h2", "w2"));
+        for (int i = 0; i < 10; i++) {
+            processor.submit(new WheelSpin("w1", 5_000));
+        }
+        processor.submit(new SensorFailure("s1", 7));
+        await().atMost(Duration.ofSeconds(5)).until(() -> repo.getRounds("h1") == 10);
+
+        SnapshotInfo info = snapshots.snapshot();
+        processor.submit(new WheelSpin("w1", 10_000));
+        processor.submit(new WheelSpin("w2", 5_000));
+        await().atMost(Duration.ofSeconds(5)).until(() -> repo.getRounds("h2") == 1);
+        shutdown();
+
+        assertThat(info.bytes()).isPositive();
+        try (Stream<Path> segments = Files.list(dir.resolve("wal"))) {
+            assertThat(segments.map(WriteAheadLog::indexOf)).allMatch(i -> i >= info.walSegment());
+        }
+
+        start();
+
+        assertThat(repo.getRounds("h1")).isEqualTo(12);
+        assertThat(repo.getRounds("h2")).isEqualTo(1);
+        assertThat(repo.getOccupant("w1")).isEqualTo("h1");
+        assertThat(repo.getAllSensorFailures()).containsKey("s1");
+    }
+
+    @Test
+    void restart_keepsSequenceWindowsFromSnapshot_repeatsStillDropped() throws Exception {
+        start();
+        processor.submit(new HamsterEnter("h1", "w1"));
+        processor.submit(sequenced(new WheelSpin("w1", 5_000), "s1", 7));
+        processor.submit(sequenced(new WheelSpin("w1", 5_000), "s1", 9));
+        await().atMost(Duration.ofSeconds(5)).until(() -> repo.getRounds("h1") == 2);
+        snapshots.snapshot();
+        shutdown();
+        try (Stream<Path> segments = Files.list(dir.resolve("wal"))) {
+            assertThat(segments.count()).isOne(); // события до снимка остались только в нём
+        }
+
+        start();
+        processor.submit(sequenced(new WheelSpin("w1", 5_000), "s1", 9)); // ретрай уже применённого
+        processor.submit(sequenced(new WheelSpin("w1", 5_000), "s1", 8)); // внутри окна, ещё не было
+
+        await().atMost(Duration.ofSeconds(5)).until(() -> repo.getRounds("h1") == 3);
+        assertThat(service.duplicates()).isEqualTo(1);
+    }
+
+    @Test
+    void corruptNewestSnapshot_fallsBackToOlder() throws Exception {
+        InMemoryHamsterTrackerRepository source = new InMemoryHamsterTrackerRepository();
+        source.addRounds("h1", 3);
+        source.updateLastActivity("h1", Instant.ofEpochMilli(1_700_000_000_000L));
+        source.setInactivityAlerted("h1", true);
+        StateSnapshot.capture(source, 0).writeTo(dir);
+        Thread.sleep(5);
+        source.addRounds("h1", 4);
+        StateSnapshot.capture(source, 0).writeTo(dir);
+
+        List<Path> files = StateSnapshot.list(dir);
+        assertThat(files).hasSize(2);
+        Files.write(files.get(1), new byte[]{1, 2, 3}, StandardOpenOption.APPEND);
+
+        InMemoryHamsterTrackerRepository restored = new InMemoryHamsterTrackerRepository();
+        StateSnapshot.readLatest(dir).orElseThrow().restoreInto(restored);
+
+        assertThat(restored.getRounds("h1")).isEqualTo(3);
+        assertThat(restored.isInactivityAlerted("h1")).isTrue();
+        assertThat(restored.getAllLastActivity()).containsEntry("h1", Instant.ofEpochMilli(1_700_000_000_000L));
+    }
+
+    @Test
+    void copy_keepsStateAtCopyTime_whenBuiltAfterLaterChanges() throws Exception {
+        InMemoryHamsterTrackerRepository source = new InMemoryHamsterTrackerRepository();
+        source.setOccupant("w1", "h1");
+        source.addRounds("h1", 2);
+        source.markSensorFailed("s1", Instant.ofEpochMilli(1_700_000_000_000L));
+        source.setSensorAlerted("s1", true);
+        StateSnapshot.Copy copy = StateSnapshot.copy(source, 0);
+
+        // то, что шарды применят после копии, в снимок не попадает
+        source.addRounds("h1", 5);
+        source.setOccupant("w2", "h2");
+        source.updateLastActivity("h2", Instant.ofEpochMilli(1_700_000_001_000L));
+        source.clearSensorFailure("s1");
+        copy.build(source.ids()).writeTo(dir);
+
+        InMemoryHamsterTrackerRepository restored = new InMemoryHamsterTrackerRepository();
+        StateSnapshot.readLatest(dir).orElseThrow().restoreInto(restored);
+
+        assertThat(restored.getAllOccupants()).containsExactly(Map.entry("w1", "h1"));
+        assertThat(restored.getAllRoundsSnapshot()).containsExactly(Map.entry("h1", 2));
+        assertThat(restored.getAllLastActivity()).isEmpty();
+        assertThat(restored.getAllSensorFailures()).containsEntry("s1", Instant.ofEpochMilli(1_700_000_000_000L));
+        assertThat(restored.isSensorAlerted("s1")).isTrue();
+    }
+
+    private static HamsterEvent sequenced(HamsterEvent event, String source, long seq) {
+        event.setSourceId(source);
+        event.setSeq(seq);
+        return event;
+    }
+}
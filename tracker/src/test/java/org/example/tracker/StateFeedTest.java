@@ -0,0 +1,95 @@
+package org.example.tracker;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.tracker.api.StateFeed;
+import org.example.tracker.db.InMemoryHamsterTrackerRepository;
+import org.example.tracker.domain.AlertDispatcher;
+import org.example.tracker.domain.AlertService;
+import org.example.tracker.domain.HamsterTrackerService;
+import org.example.tracker.domain.ReadView;
+import org.example.tracker.domain.ReportGenerator;
+import org.example.tracker.domain.eventDto.HamsterEnter;
+import org.example.tracker.domain.eventDto.SensorFailure;
+import org.example.tracker.domain.eventDto.WheelSpin;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+public class StateFeedTest {
+
+    ReadView view;
+    StateFeed feed;
+    HamsterTrackerService service;
+
+    @BeforeEach
+    void setUp() {
+        InMemoryHamsterTrackerRepository repo = new InMemoryHamsterTrackerRepository();
+        view = new ReadView(repo, 100);
+        feed = new StateFeed(view, new ObjectMapper().findAndRegisterModules(), 1_000, 2);
+        service = new HamsterTrackerService(repo, AlertDispatcher.direct(mock(AlertService.class)),
+                mock(ReportGenerator.class), List.of(view), 0);
+    }
+
+    @Test
+    void slowSubscriber_getsOnlyLatestValuePerEntity() {
+        StepVerifier.create(feed.subscribe(Set.of()), 0)
+                .then(() -> {
+                    service.accept(new HamsterEnter("h1", "w1"));
+                    window();
+                    for (int i = 0; i < 5; i++) {
+                        service.accept(new WheelSpin("w1", 5_000));
+                        window(); // клиент не забирает: значения h1 замещаются
+                    }
+                })
+                .thenRequest(1)
+                .assertNext(event -> {
+                    assertThat(event.event()).isEqualTo("state");
+                    String data = event.data();
+                    assertThat(data).containsOnlyOnce("\"hamsterId\":\"h1\"").contains("\"rounds\":5")
+                            .contains("\"wheelId\":\"w1\",\"occupant\":\"h1\"");
+                })
+                .then(() -> {
+                    service.accept(new WheelSpin("w1", 5_000));
+                    window();
+                })
+                .thenRequest(1)
+                .assertNext(event -> assertThat(event.data()).contains("\"rounds\":6").doesNotContain("wheelId"))
+                .thenCancel()
+                .verify(Duration.ofSeconds(5));
+
+        assertThat(feed.stats().conflated()).isGreaterThanOrEqualTo(4);
+        assertThat(feed.stats().subscribers()).isZero();
+    }
+
+    @Test
+    void kindsFilter_andSubscriberLimit() {
+        var sensors = feed.subscribe(Set.of(StateFeed.Kind.SENSOR)).subscribe();
+        var all = feed.subscribe(Set.of()).subscribe();
+        assertThat(feed.subscribe(Set.of())).isNull(); // предел — два подписчика
+        sensors.dispose();
+        all.dispose();
+
+        StepVerifier.create(feed.subscribe(Set.of(StateFeed.Kind.SENSOR)))
+                .then(() -> {
+                    service.accept(new HamsterEnter("h1", "w1"));
+                    service.accept(new SensorFailure("s1", 500));
+                    window();
+                })
+                .assertNext(event -> assertThat(event.data())
+                        .contains("\"sensorId\":\"s1\",\"failed\":true").doesNotContain("hamsterId"))
+                .thenCancel()
+                .verify(Duration.ofSeconds(5));
+    }
+
+    private void window() {
+        view.refresh();
+        feed.publish();
+    }
+}
@@ -0,0 +1,69 @@
+package org.example.tracker;
+
+import io.netty.buffer.Unpooled;
+import org.example.tracker.api.TcpIngestServer;
+import org.example.tracker.codec.HamsterEventBinaryCodec;
+import org.example.tracker.db.HamsterTrackerRepository;
+import org.example.tracker.domain.eventDto.HamsterEnter;
+import org.example.tracker.domain.eventDto.HamsterEvent;
+import org.example.tracker.domain.eventDto.WheelSpin;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import reactor.core.publisher.Flux;
+import reactor.netty.Connection;
+import reactor.netty.tcp.TcpClient;
+
+import java.io.ByteArrayOutputStream;
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE,
+        properties = {"tracker.tcp.enabled=true", "tracker.tcp.port=0", "tracker.wal.enabled=false", "tracker.snapshot.enabled=false",
+                "tracker.history.enabled=false"})
+public class TcpIngestServerTest {
+
+    @Autowired
+    TcpIngestServer server;
+
+    @Autowired
+    HamsterTrackerRepository repo;
+
+    @Test
+    void lengthPrefixedFrames_reachTrackerService() {
+        List<HamsterEvent> events = List.of(
+                new HamsterEnter("tcp-h1", "tcp-w1"),
+                new WheelSpin("tcp-w1", 10_000),
+                new WheelSpin("tcp-w1", 15_000));
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        events.forEach(e -> stream.writeBytes(HamsterEventBinaryCodec.encodeFrame(e)));
+        byte[] bytes = stream.toByteArray();
+
+        Connection conn = TcpClient.create().host("localhost").port(server.port()).connectNow();
+        // режем поток так, чтобы кадры пересекали границы записей
+        conn.outbound()
+                .send(Flux.range(0, bytes.length / 7 + 1)
+                        .map(i -> Unpooled.wrappedBuffer(bytes, i * 7, Math.min(7, bytes.length - i * 7))))
+                .then()
+                .block(Duration.ofSeconds(5));
+
+        await().atMost(Duration.ofSeconds(5)).untilAsserted(() -> assertThat(repo.getRounds("tcp-h1")).isEqualTo(5));
+        conn.disposeNow();
+    }
+
+    @Test
+    void oversizedLengthPrefix_closesConnection_beforeBufferingBody() {
+        Connection conn = TcpClient.create().host("localhost").port(server.port()).connectNow();
+        // varint 0x7fffffff — кадр почти в 2 ГБ; тело не отправляется вовсе
+        conn.outbound()
+                .send(Flux.just(Unpooled.wrappedBuffer(new byte[]{-1, -1, -1, -1, 7})))
+                .then()
+                .block(Duration.ofSeconds(5));
+
+        conn.onDispose().block(Duration.ofSeconds(5));
+        assertThat(conn.isDisposed()).isTrue();
+    }
+}
@@ -0,0 +1,100 @@
+package org.example.tracker;
+
+import org.example.tracker.codec.HamsterEventBinaryCodec;
+import org.example.tracker.db.HamsterTrackerRepository;
+import org.example.tracker.domain.eventDto.WheelSpin;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.web.reactive.socket.CloseStatus;
+import org.springframework.web.reactive.socket.WebSocketMessage;
+import org.springframework.web.reactive.socket.client.ReactorNettyWebSocketClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.ByteArrayOutputStream;
+import java.net.URI;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = {"tracker.ws.ack-interval-ms=100", "tracker.wal.enabled=false", "tracker.snapshot.enabled=false",
+                "tracker.history.enabled=false"})
+public class WebSocketIngestTest {
+
+    @LocalServerPort
+    int port;
+
+    @Autowired
+    HamsterTrackerRepository repo;
+
+    @Test
+    void streamOverOneConnection_textAndBinary_cumulativeAck() {
+        AtomicReference<String> lastAck = new AtomicReference<>();
+        URI uri = URI.create("ws://localhost:" + port + "/tracker/events/ws");
+
+        new ReactorNettyWebSocketClient().execute(uri, session -> {
+            Flux<WebSocketMessage> out = Flux.just(
+                    session.textMessage("{\"type\":\"HamsterEnter\",\"hamsterId\":\"ws-h1\",\"wheelId\":\"ws-w1\"}"),
+                    session.textMessage("{\"type\":\"WheelSpin\",\"wheelId\":\"ws-w1\",\"durationMs\":5000}\n"
+                            + "{\"type\":\"WheelSpin\",\"wheelId\":\"ws-w1\",\"durationMs\":5000}"),
+                    session.binaryMessage(f -> f.wrap(HamsterEventBinaryCodec.encodeFrame(new WheelSpin("ws-w1", 10_000)))));
+            Mono<Void> acks = session.receive()
+                    .map(WebSocketMessage::getPayloadAsText)
+                    .doOnNext(lastAck::set)
+                    .takeUntil(ack -> ack.contains("\"accepted\":4"))
+                    .then();
+            return session.send(out).then(acks);
+        }).block(Duration.ofSeconds(10));
+
+        assertThat(lastAck.get()).isEqualTo("{\"accepted\":4,\"shed\":0,\"rejected\":0}");
+        await().atMost(Duration.ofSeconds(5)).untilAsserted(() -> assertThat(repo.getRounds("ws-h1")).isEqualTo(4));
+    }
+
+    @Test
+    void malformedEvents_rejectedOneByOne_sessionKeepsAccepting() {
+        AtomicReference<String> lastAck = new AtomicReference<>();
+        URI uri = URI.create("ws://localhost:" + port + "/tracker/events/ws");
+        ByteArrayOutputStream frames = new ByteArrayOutputStream();
+        frames.writeBytes(HamsterEventBinaryCodec.encodeFrame(new WheelSpin("ws-w2", 5_000)));
+        frames.writeBytes(new byte[]{2, 0x0f, 0}); // целый кадр с неизвестным тегом
+        frames.writeBytes(HamsterEventBinaryCodec.encodeFrame(new WheelSpin("ws-w2", 5_000)));
+
+        new ReactorNettyWebSocketClient().execute(uri, session -> {
+            Flux<WebSocketMessage> out = Flux.just(
+                    session.textMessage("{\"type\":\"HamsterEnter\",\"hamsterId\":\"ws-h2\",\"wheelId\":\"ws-w2\"}\n"
+                            + "{\"type\":\"NoSuchEvent\"}\n"
+                            + "{\"type\":\"WheelSpin\",\"wheelId\":\"ws-w2\",\"durationMs\":5000}"),
+                    session.binaryMessage(f -> f.wrap(frames.toByteArray())),
+                    // следующее сообщение не спотыкается о битый кадр предыдущего
+                    session.binaryMessage(f -> f.wrap(HamsterEventBinaryCodec.encodeFrame(new WheelSpin("ws-w2", 5_000)))));
+            Mono<Void> acks = session.receive()
+                    .map(WebSocketMessage::getPayloadAsText)
+                    .doOnNext(lastAck::set)
+                    .takeUntil(ack -> ack.contains("\"accepted\":5"))
+                    .then();
+            return session.send(out).then(acks);
+        }).block(Duration.ofSeconds(10));
+
+        assertThat(lastAck.get()).isEqualTo("{\"accepted\":5,\"shed\":0,\"rejected\":2}");
+        await().atMost(Duration.ofSeconds(5)).untilAsserted(() -> assertThat(repo.getRounds("ws-h2")).isEqualTo(4));
+    }
+
+    @Test
+    void brokenFrameLength_closesSessionWithProtocolError() {
+        AtomicReference<CloseStatus> closed = new AtomicReference<>();
+        URI uri = URI.create("ws://localhost:" + port + "/tracker/events/ws");
+
+        new ReactorNettyWebSocketClient().execute(uri, session -> {
+            session.closeStatus().subscribe(closed::set);
+            return session.send(Mono.just(session.binaryMessage(f -> f.wrap(new byte[]{-1, -1, -1, -1, -1, 0}))))
+                    .then(session.receive().then());
+        }).block(Duration.ofSeconds(10));
+
+        assertThat(closed.get().getCode()).isEqualTo(CloseStatus.PROTOCOL_ERROR.getCode());
+    }
+}
@@ -0,0 +1,226 @@
+package org.example.tracker;
+
+import org.example.tracker.db.InMemoryHamsterTrackerRepository;
+import org.example.tracker.domain.AlertDispatcher;
+import org.example.tracker.domain.AlertService;
+import org.example.tracker.domain.DailyReport;
+import org.example.tracker.domain.HamsterTrackerService;
+import org.example.tracker.domain.ReportGenerator;
+import org.example.tracker.domain.eventDto.HamsterEnter;
+import org.example.tracker.domain.eventDto.HamsterEvent;
+import org.example.tracker.domain.eventDto.SensorFailure;
+import org.example.tracker.domain.eventDto.WheelSpin;
+import org.example.tracker.persistence.StateRecovery;
+import org.example.tracker.persistence.WriteAheadLog;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class WriteAheadLogTest {
+
+    @TempDir
+    Path dir;
+
+    InMemoryHamsterTrackerRepository repo;
+    WriteAheadLog wal;
+    HamsterTrackerService service;
+    ReportGenerator reports;
+
+    @AfterEach
+    void tearDown() {
+        if (wal != null) wal.close();
+    }
+
+    //Новый «процесс»: пустой репозиторий, свежий журнал и восстановление из прошлых сегментов
+    private void restart() {
+        if (wal != null) wal.close();
+        repo = new InMemoryHamsterTrackerRepository();
+        wal = new WriteAheadLog(repo, dir, 256, 10);
+        wal.open();
+        reports = mock(ReportGenerator.class);
+        service = new HamsterTrackerService(repo, AlertDispatcher.direct(mock(AlertService.class)),
+                reports, List.of(wal), 0);
+        new StateRecovery(service, repo, wal, null).recover();
+    }
+
+    @Test
+    void replay_rebuildsStateAcrossRotatedSegments() throws Exception {
+        restart();
+        service.accept(new HamsterEnter("h1", "w1"));
+        for (int i = 0; i < 20; i++) {
+            service.accept(new WheelSpin("w1", 10_000));
+        }
+        service.accept(new SensorFailure("s1", 3));
+
+        restart();
+
+        assertThat(segments()).hasSizeGreaterThan(2);
+        assertThat(repo.getRounds("h1")).isEqualTo(40);
+        assertThat(repo.getOccupant("w1")).isEqualTo("h1");
+        assertThat(repo.getAllSensorFailures()).containsKey("s1");
+        assertThat(repo.getAllLastActivity()).containsKey("h1");
+    }
+
+    @Test
+    void replay_stopsAtTornTail() throws Exception {
+        restart();
+        service.accept(new HamsterEnter("h1", "w1"));
+        service.accept(new WheelSpin("w1", 5_000));
+        wal.close();
+        Path last = segments().get(segments().size() - 1);
+        Files.write(last, new byte[]{0, 0, 0, 40, 1, 2, 3}, StandardOpenOption.APPEND);
+
+        restart();
+
+        assertThat(repo.getRounds("h1")).isEqualTo(1);
+    }
+
+    @Test
+    void dailyReset_dropsOldSegments_andCarriesState() throws Exception {
+        restart();
+        when(reports.generateDailyReport(any(), any())).thenReturn(new DailyReport(LocalDate.now(), Map.of()));
+        service.accept(new HamsterEnter("h1", "w1"));
+        for (int i = 0; i < 20; i++) {
+            service.accept(new WheelSpin("w1", 10_000));
+        }
+        service.accept(new SensorFailure("s1", 3));
+        service.accept(sequenced(new SensorFailure("s2", 3), "s2", 5));
+        List<Path> beforeReset = segments();
+
+        service.generateDailyReport();
+        service.accept(new WheelSpin("w1", 5_000));
+
+        assertThat(segments()).doesNotContainAnyElementsOf(beforeReset);
+
+        restart();
+
+        assertThat(repo.getRounds("h1")).isEqualTo(1);
+        assertThat(repo.getOccupant("w1")).isEqualTo("h1");
+        assertThat(repo.getAllSensorFailures()).containsKey("s1");
+        // окно номеров перенесено засевом, хотя сегмент с самим событием удалён
+        service.accept(sequenced(new SensorFailure("s2", 3), "s2", 5));
+        assertThat(service.duplicates()).isEqualTo(1);
+    }
+
+    @Test
+    void rollover_keepsNewDaySpins_creditedBeforeAndAfterSwitch() throws Exception {
+        restart();
+        when(reports.generateDailyReport(any(), any())).thenReturn(new DailyReport(LocalDate.now(), Map.of()));
+        Instant midnight = LocalDate.now().plusDays(1).atStartOfDay(ZoneId.systemDefault()).toInstant();
+        service.accept(new HamsterEnter("h1", "w1"));
+        for (int i = 0; i < 20; i++) {
+            service.accept(new WheelSpin("w1", 10_000));
+        }
+        List<Path> closedDay = segments();
+        // окно допустимого опоздания: полночь прошла, смены ещё не было — крутка уже в новых сутках
+        service.accept(new WheelSpin("w1", 15_000), midnight.plusSeconds(1));
+
+        service.generateDailyReport();
+        service.accept(new WheelSpin("w1", 5_000)); // после смены, до записи RESET не важно — в тех же новых сутках
+        assertThat(repo.getRounds("h1")).isEqualTo(4);
+        assertThat(segments()).doesNotContainAnyElementsOf(closedDay);
+
+        restart();
+
+        assertThat(repo.getRounds("h1")).isEqualTo(4);
+        assertThat(repo.getOccupant("w1")).isEqualTo("h1");
+    }
+
+    @Test
+    void restartBeforeSwitch_keepsNewDaySpinsInNextDay() throws Exception {
+        restart();
+        Instant midnight = LocalDate.now().plusDays(1).atStartOfDay(ZoneId.systemDefault()).toInstant();
+        service.accept(new HamsterEnter("h1", "w1"));
+        service.accept(new WheelSpin("w1", 10_000));
+        service.accept(new WheelSpin("w1", 15_000), midnight.plusSeconds(1));
+
+        restart(); // упали в окне опоздания: новые сутки отмечены, прежние не закрыты
+
+        assertThat(repo.getRounds("h1")).isEqualTo(2);
+        when(reports.generateDailyReport(any(), any())).thenReturn(new DailyReport(LocalDate.now(), Map.of()));
+        service.generateDailyReport();
+        assertThat(repo.getRounds("h1")).isEqualTo(3);
+        verify(reports).generateDailyReport(any(), eq(Map.of("h1", 2)));
+    }
+
+    @Test
+    void concurrentWriters_eachKeepOrder_allReplayed() throws Exception {
+        restart();
+        int threads = 8;
+        for (int t = 0; t < threads; t++) {
+            service.accept(new HamsterEnter("h" + t, "w" + t));
+        }
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> done = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                String wheel = "w" + t;
+                done.add(pool.submit(() -> {
+                    for (int i = 0; i < 300; i++) {
+                        service.accept(new WheelSpin(wheel, 5_000));
+                    }
+                }));
+            }
+            for (Future<?> f : done) {
+                f.get();
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        restart();
+
+        for (int t = 0; t < threads; t++) {
+            assertThat(repo.getRounds("h" + t)).isEqualTo(300);
+            assertThat(repo.getOccupant("w" + t)).isEqualTo("h" + t);
+        }
+    }
+
+    @Test
+    void dayMark_skipsIdTooLongForRecord_insteadOfTruncating() throws Exception {
+        restart();
+        when(reports.generateDailyReport(any(), any())).thenReturn(new DailyReport(LocalDate.now(), Map.of()));
+        service.accept(new HamsterEnter("h1", "w1"));
+        repo.setOccupant("w2", "x".repeat(70_000)); // длина не помещается в два байта записи
+
+        service.generateDailyReport();
+        restart();
+
+        assertThat(repo.getOccupant("w1")).isEqualTo("h1");
+        assertThat(repo.getOccupant("w2")).isNull();
+    }
+
+    private List<Path> segments() throws Exception {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.sorted(Comparator.comparing(Path::toString)).toList();
+        }
+    }
+
+    private static HamsterEvent sequenced(HamsterEvent event, String source, long seq) {
+        event.setSourceId(source);
+        event.setSeq(seq);
+        return event;
+    }
+}